@@ -1,153 +1,882 @@
 package leaderboard;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Connection to the Raspberry-Pi
+ * <p>
+ * All socket I/O happens on a dedicated thread using a non-blocking
+ * SocketChannel & Selector. The robot logic only ever touches the message
+ * queues, through {@link #offer} and {@link #poll}, so it never blocks.
+ * <p>
+ * Received messages are split by their message type (e.g. "1," for Android,
+ * "3," for Arduino), so each part of the robot logic only sees its own
+ * messages.
+ * <p>
+ * Messages are sent as 128 character ASCII messages, unless binary framing
+ * has been requested and the Raspberry-Pi agrees to it when connecting.
+ * See {@link WireProtocol}.
+ * <p>
+ * The address of the Raspberry-Pi can be changed with {@link #setAddress}, or
+ * with the system properties "commmgr.host" & "commmgr.port", e.g. to connect
+ * to a {@link RobotEmulator}. Setting "commmgr.binary" to true requests
+ * binary framing. Setting "commmgr.split" to true requests split ASCII
+ * messages, if binary framing is not used; only do so if the Arduino
+ * firmware supports them.
+ * <p>
+ * Sensor readings from the Arduino are parsed straight from the received
+ * bytes into a ring of preallocated readings, which the robot copies out of
+ * with {@link #pollSensorReadings}, so no objects are created for them.
+ * <p>
+ * Every message sent & received is printed if "commmgr.debug" is true.
+ * <p>
+ * If "commmgr.record" is set to a directory, every message sent & received
+ * during a run is recorded there (see {@link RunRecorder}). Recorded runs can
+ * be replayed without a connection, see {@link #startReplay}.
+ */
 public class CommMgr {
-	
-	private static CommMgr _commMgr = null;
-	
+
 	// For communication with the Raspberry-Pi
 	private static final String HOST = "192.168.18.1";
-	//private static final String HOST = "localhost";
 	private static final int PORT = 8181;
-	
+
+	// Address used for the next connection attempt
+	private volatile String _host = System.getProperty("commmgr.host", HOST);
+	private volatile int _port = Integer.getInteger("commmgr.port", PORT);
+
 	public static final String MSG_TYPE_ANDROID = "1,";
 	public static final String MSG_TYPE_ARDUINO = "3,";
 
-	private static Socket _conn = null;
+	// Prints every message sent & received
+	private static final boolean DEBUG = Boolean.getBoolean("commmgr.debug");
+
+	// Number of sensor readings which can wait to be polled, a power of two
+	private static final int SENSOR_RING_SIZE = 64;
+
+	// Time allowed for the Raspberry-Pi to agree to binary framing, or to
+	// split ASCII messages
+	private static final int NEGOTIATION_TIMEOUT_MS = 500;
+
+	private volatile SocketChannel _channel = null;
+	private volatile Selector _selector = null;
+	private Thread _ioThread = null;
+
+	// Set by the I/O thread once the connection has been established, to the
+	// channel it owns, so an I/O thread that outlives its connection cannot
+	// clear the flag of the next connection
+	private final AtomicReference<SocketChannel> _connectedChannel = new AtomicReference<SocketChannel>();
+
+	// Exception which stopped the last I/O thread, other than closing the
+	// connection
+	private volatile Exception _ioException = null;
+
+	// Time at which a pending connection attempt is abandoned
+	private long _connectDeadline = 0;
+
+	// Whether binary framing is requested when connecting,
+	// and whether it is being used for the current connection
+	private volatile boolean _bBinaryRequested = Boolean
+			.getBoolean("commmgr.binary");
+	private volatile boolean _bBinaryFraming = false;
+
+	// Whether split ASCII messages are requested when connecting,
+	// and whether they are being used for the current connection
+	private volatile boolean _bSplitRequested = Boolean
+			.getBoolean("commmgr.split");
+	private volatile boolean _bAsciiSplitting = false;
+
+	// Received messages, by message type
+	private final Queue<String> _androidMsgs = new ConcurrentLinkedQueue<String>();
+	private final Queue<String> _otherMsgs = new ConcurrentLinkedQueue<String>();
+
+	// Sensor readings received from the Arduino, waiting to be polled, in a
+	// ring written by the I/O thread (or a replay) & read by the robot
+	private final int[][] _sensorRing = new int[SENSOR_RING_SIZE][WireProtocol.MAX_FRAME_PAYLOAD];
+	private final int[] _sensorRingCounts = new int[SENSOR_RING_SIZE];
+	private final AtomicLong _sensorRingHead = new AtomicLong(); // Next to poll
+	private final AtomicLong _sensorRingTail = new AtomicLong(); // Next to fill
+
+	// For recording sensor readings received as binary frames
+	private final StringBuilder _recordMsg = new StringBuilder();
+
+	// Messages waiting to be sent, encoded by the I/O thread
+	private final Queue<OutgoingMsg> _outgoingMsgs = new ConcurrentLinkedQueue<OutgoingMsg>();
+
+	// For recording runs
+	private volatile String _recordDir = System.getProperty("commmgr.record");
+	private volatile RunRecorder _recorder = null;
+
+	// For replaying recorded runs, messages are kept instead of being sent
+	private volatile boolean _bReplaying = false;
+	private final Queue<String> _replayedMsgs = new ConcurrentLinkedQueue<String>();
+
+	// Counted from the creation of the CommMgr, including replayed messages
+	private final AtomicLong _noOfMsgsSent = new AtomicLong();
+	private final AtomicLong _noOfMsgsReceived = new AtomicLong();
+	private final AtomicLong _noOfCalibrationsSent = new AtomicLong();
 
-	private static BufferedOutputStream _bos = null;
-	private static OutputStreamWriter _osw = null;
-	private static BufferedReader _br = null;
-	
 	/**
 	 * Private constructor used to support the Singleton design pattern
 	 * <p>
 	 */
 	private CommMgr()
 	{
-		
+
 	}
-	
+
 	/**
 	 * Public static function used to get hold of the CommMgr
-	 * 
+	 *
 	 * @return The static instance of the CommMgr
 	 */
 	public static CommMgr getCommMgr()
 	{
-		if(_commMgr == null)
-		{
-			_commMgr = new CommMgr();
-		}
-		
-		return _commMgr;
+		return Holder.COMM_MGR;
 	}
-	
-	public boolean setConnection(int timeoutInMs) {
-		
-		try {
 
-			_conn = new Socket();
-			_conn.connect(new InetSocketAddress(HOST, PORT), timeoutInMs);
-			_conn.setSoTimeout(timeoutInMs);
+	// Creates the CommMgr when first used, once, on any thread
+	private static class Holder {
+		static final CommMgr COMM_MGR = new CommMgr();
+	}
 
-			_bos = new BufferedOutputStream(_conn.getOutputStream());
-			_osw = new OutputStreamWriter(_bos, "US-ASCII");
-			_br = new BufferedReader(new InputStreamReader(
-					_conn.getInputStream()));
+	/**
+	 * Starts connecting to the Raspberry-Pi, without blocking<p>
+	 *
+	 * Meant to be called repeatedly until it returns true. A connection
+	 * attempt that has not succeeded within the timeout is abandoned,
+	 * and the next call starts a new attempt.
+	 *
+	 * @param timeoutInMs Time allowed for each connection attempt
+	 * @return True if the connection has been established
+	 */
+	public synchronized boolean setConnection(int timeoutInMs) {
 
-			// Successful connection, return true
-			System.out.println("setConnection() ->" +
-					" Connection established successfully!");
-			
+		if (_connectedChannel.get() != null || _bReplaying)
 			return true;
-			
-		} catch(UnknownHostException e) {
-			System.out.println("setConnection() -> Unknown Host Exception");
+
+		// A connection attempt is still in progress
+		if (_channel != null) {
+			if (_ioThread.isAlive()
+					&& System.currentTimeMillis() < _connectDeadline)
+				return false;
+
+			System.out.println("setConnection() -> Connection attempt timed out");
+			closeConnection();
+		}
+
+		try {
+
+			_selector = Selector.open();
+			_channel = SocketChannel.open();
+			_channel.configureBlocking(false);
+			_channel.connect(new InetSocketAddress(_host, _port));
+			_channel.register(_selector, SelectionKey.OP_CONNECT);
+
+			_connectDeadline = System.currentTimeMillis() + timeoutInMs;
+
+			final SocketChannel channel = _channel;
+			final Selector selector = _selector;
+			_ioThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					runIoLoop(channel, selector);
+				}
+			}, "CommMgr I/O");
+			_ioThread.setDaemon(true);
+			_ioThread.start();
+
 		} catch(IOException e) {
 			System.out.println("setConnection() -> IO Exception");
+			closeConnection();
 		} catch(Exception e) {
 			System.out.println("setConnection() -> Exception");
+			closeConnection();
 		}
-		
-		System.out.println("Failed to establish connection!");
+
 		return false;
 	}
-	
-	public void closeConnection() {
+
+	public synchronized void closeConnection() {
+
+		_connectedChannel.set(null);
+		_bBinaryFraming = false;
+		_bAsciiSplitting = false;
+
 		try {
-			if(_bos != null)
-				_bos.close();
-			if(_osw != null)
-				_osw.close();
-			if(_br != null)
-				_br.close();
-			
-			if(_conn != null) {
-				_conn.close();
-				_conn = null;
+			if (_ioThread != null) {
+				_ioThread.interrupt();
+				_ioThread = null;
+			}
+
+			if (_selector != null) {
+				_selector.close();
+				_selector = null;
 			}
-			
+
+			if (_channel != null) {
+				_channel.close();
+				_channel = null;
+			}
+
 		} catch (IOException e) {
 			System.out.println("closeConnection() -> IO Exception");
 			e.printStackTrace();
-		} catch (NullPointerException e) {
-			System.out.println("closeConnection() -> Null Pointer Exception");
-			e.printStackTrace();
 		} catch (Exception e) {
 			System.out.println("closeConnection() -> Exception");
 			e.printStackTrace();
 		}
+
+		_androidMsgs.clear();
+		_otherMsgs.clear();
+		_sensorRingHead.set(_sensorRingTail.get());
+		_outgoingMsgs.clear();
 	}
-	
-	public boolean sendMsg(String msg, String msgType, boolean ack) {
-		try {
-			String outputMsg = msgType + msg;
-
-			outputMsg = String.format("%-128s", outputMsg);
-			System.out.println("Sending out msg: " + outputMsg);
-			
-			_osw.write(outputMsg);
-			_osw.flush();
-			
+
+	/**
+	 * Sets the address of the Raspberry-Pi, used from the next connection
+	 * attempt onwards
+	 */
+	public void setAddress(String host, int port) {
+		_host = host;
+		_port = port;
+	}
+
+	public String getHost() {
+		return _host;
+	}
+
+	public int getPort() {
+		return _port;
+	}
+
+	/**
+	 * Sets whether binary framing is requested for the next connection
+	 * <p>
+	 * Falls back to ASCII if the Raspberry-Pi does not agree to it
+	 */
+	public void setBinaryFramingRequested(boolean bBinaryRequested) {
+		_bBinaryRequested = bBinaryRequested;
+	}
+
+	/**
+	 * Indicates whether the current connection uses binary framing
+	 */
+	public boolean isBinaryFraming() {
+		return _bBinaryFraming;
+	}
+
+	/**
+	 * Sets whether split ASCII messages are requested for the next
+	 * connection, if binary framing is not used
+	 * <p>
+	 * Long messages are sent whole if the Raspberry-Pi does not agree to it
+	 */
+	public void setAsciiSplittingRequested(boolean bSplitRequested) {
+		_bSplitRequested = bSplitRequested;
+	}
+
+	/**
+	 * Indicates whether the current connection uses split ASCII messages
+	 */
+	public boolean isAsciiSplitting() {
+		return _bAsciiSplitting;
+	}
+
+	/**
+	 * Queues a message to be sent, without blocking
+	 *
+	 * @param msg The message
+	 * @param msgType The message type, e.g. MSG_TYPE_ARDUINO
+	 * @return True if the message has been queued
+	 */
+	public boolean offer(String msg, String msgType) {
+
+		if (_bReplaying) {
+			countSentMsg(msg, msgType);
+			_replayedMsgs.offer(msgType + msg);
 			return true;
+		}
+
+		Selector selector = _selector;
+		if (selector == null) {
+			System.out.println("offer() -> Not connected, dropped msg: " + msg);
+			return false;
+		}
+
+		countSentMsg(msg, msgType);
+
+		if (DEBUG)
+			System.out.println("Sending out msg: " + msgType + msg);
+
+		if (MSG_TYPE_ARDUINO.equals(msgType))
+			LatencyMonitor.getLatencyMonitor().msgSent(msg);
+
+		RunRecorder recorder = _recorder;
+		if (recorder != null)
+			recorder.record(RunRecorder.KIND_SENT, msgType + msg);
+
+		_outgoingMsgs.offer(new OutgoingMsg(msgType, msg));
+
+		// Let the I/O thread know there is something to write
+		selector.wakeup();
+
+		return true;
+	}
+
+	/**
+	 * Takes the oldest received message of a given type, without blocking
+	 * <p>
+	 * Arduino messages are taken from the sensor readings, and given as the
+	 * equivalent ASCII message, see {@link #pollSensorReadings} for taking
+	 * them without creating any objects
+	 *
+	 * @param msgType The message type, e.g. MSG_TYPE_ARDUINO
+	 * @return The message, including its type, or null if there is none
+	 */
+	public String poll(String msgType) {
+
+		if (MSG_TYPE_ARDUINO.equals(msgType)) {
+			int[] readings = new int[WireProtocol.MAX_FRAME_PAYLOAD];
+			int noOfReadings = pollSensorReadings(readings);
+			if (noOfReadings < 0)
+				return null;
+
+			return WireProtocol.appendSensorReadings(new StringBuilder(),
+					readings, noOfReadings).toString();
+		}
+
+		return getReceivedMsgs(msgType).poll();
+	}
+
+	/**
+	 * Takes the oldest sensor readings received from the Arduino, without
+	 * blocking or creating any objects
+	 *
+	 * @param readings
+	 *            Array to store the readings in, one per sensor
+	 *
+	 * @return Number of readings stored, or -1 if no readings have been
+	 *         received. Parsing stops at the first reading which is not a
+	 *         number.
+	 */
+	public int pollSensorReadings(int[] readings) {
+
+		long head = _sensorRingHead.get();
+		if (head == _sensorRingTail.get())
+			return -1;
+
+		int slot = (int) (head & (SENSOR_RING_SIZE - 1));
+		int count = Math.min(_sensorRingCounts[slot], readings.length);
+		System.arraycopy(_sensorRing[slot], 0, readings, 0, count);
+
+		_sensorRingHead.lazySet(head + 1);
+		return count;
+	}
+
+	/**
+	 * Gets the next slot of the sensor ring to fill in, see
+	 * {@link #endSensorReadings}
+	 *
+	 * @return The readings of the slot, or null if the ring is full
+	 */
+	private int[] beginSensorReadings() {
+
+		long tail = _sensorRingTail.get();
+		if (tail - _sensorRingHead.get() == SENSOR_RING_SIZE) {
+			System.out.println("CommMgr -> Sensor readings not polled,"
+					+ " dropped the latest readings");
+			return null;
+		}
+
+		return _sensorRing[(int) (tail & (SENSOR_RING_SIZE - 1))];
+	}
+
+	/**
+	 * Hands the slot filled in after {@link #beginSensorReadings} over to
+	 * {@link #pollSensorReadings}
+	 */
+	private void endSensorReadings(int noOfReadings) {
+
+		long tail = _sensorRingTail.get();
+		_sensorRingCounts[(int) (tail & (SENSOR_RING_SIZE - 1))] = noOfReadings;
+		_sensorRingTail.lazySet(tail + 1);
+	}
+
+	public boolean isConnected() {
+		return _connectedChannel.get() != null || _bReplaying;
+	}
+
+	/**
+	 * Gets the exception which stopped the last I/O thread, e.g. a dropped
+	 * connection
+	 *
+	 * @return The exception, or null if none has stopped an I/O thread
+	 */
+	public Exception getIoException() {
+		return _ioException;
+	}
+
+	/**
+	 * Sets the directory runs are recorded in, or null to stop recording runs
+	 */
+	public void setRecordDir(String recordDir) {
+		_recordDir = recordDir;
+	}
+
+	/**
+	 * Starts recording a new run, if a directory to record in has been set
+	 * <p>
+	 * The run is recorded as "run_&lt;date&gt;_&lt;time&gt;.log"
+	 */
+	public synchronized void startRecording() {
+
+		stopRecording();
+
+		if (_recordDir == null || _bReplaying)
+			return;
+
+		String filePath = _recordDir + "/run_"
+				+ new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date())
+				+ ".log";
+		try {
+			_recorder = new RunRecorder(filePath);
+			System.out.println("CommMgr -> Recording to " + filePath);
 		} catch (IOException e) {
-			System.out.println("sendMsg() -> IOException");
-		} catch (Exception e) {
-			System.out.println("sendMsg() -> Exception");
+			System.out.println("CommMgr -> Unable to record to " + filePath);
 		}
-		
-		return false;
 	}
 
-	public String recvMsg() {
+	public synchronized void stopRecording() {
+
+		if (_recorder != null) {
+			_recorder.close();
+			System.out.println("CommMgr -> Recorded " + _recorder.getNoOfEntries()
+					+ " messages to " + _recorder.getFilePath());
+			_recorder = null;
+		}
+	}
+
+	/**
+	 * Starts replaying a recorded run
+	 * <p>
+	 * Until {@link #stopReplay} is called, the CommMgr acts as if it were
+	 * connected. Received messages are handed in with {@link #replayMsg}, and
+	 * messages are kept for {@link #pollReplayedMsg} instead of being sent.
+	 */
+	public synchronized void startReplay() {
+		closeConnection();
+		stopRecording();
+
+		_replayedMsgs.clear();
+		_bReplaying = true;
+	}
+
+	public synchronized void stopReplay() {
+		_bReplaying = false;
+		_replayedMsgs.clear();
+		closeConnection();
+	}
+
+	/**
+	 * Hands in a recorded message, as if it had just been received
+	 */
+	public void replayMsg(String msg) {
+		receiveMsg(msg);
+	}
+
+	/**
+	 * Takes the oldest message that would have been sent during the replay
+	 *
+	 * @return The message, including its type, or null if there is none
+	 */
+	public String pollReplayedMsg() {
+		return _replayedMsgs.poll();
+	}
+
+	public long getNoOfMsgsSent() {
+		return _noOfMsgsSent.get();
+	}
+
+	public long getNoOfMsgsReceived() {
+		return _noOfMsgsReceived.get();
+	}
+
+	/**
+	 * Gets the number of calibrations ('c' commands) in the messages sent to
+	 * the Arduino
+	 */
+	public long getNoOfCalibrationsSent() {
+		return _noOfCalibrationsSent.get();
+	}
+
+	private void countSentMsg(String msg, String msgType) {
+
+		_noOfMsgsSent.incrementAndGet();
+
+		if (MSG_TYPE_ARDUINO.equals(msgType)) {
+			int noOfCalibrations = 0;
+			for (int i = 0; i < msg.length(); i++) {
+				if (msg.charAt(i) == 'c')
+					noOfCalibrations++;
+			}
+			if (noOfCalibrations > 0)
+				_noOfCalibrationsSent.addAndGet(noOfCalibrations);
+		}
+	}
+
+	private Queue<String> getReceivedMsgs(String msgType) {
+		if (MSG_TYPE_ANDROID.equals(msgType))
+			return _androidMsgs;
+		else
+			return _otherMsgs;
+	}
+
+	/**
+	 * Runs on the I/O thread until the connection is closed
+	 */
+	private void runIoLoop(SocketChannel channel, Selector selector) {
+
+		ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+		StringBuilder line = new StringBuilder();
+
+		// Bytes waiting to be written, in read mode
+		ByteBuffer writeBuffer = ByteBuffer.allocate(1024);
+		writeBuffer.flip();
+
+		// Incoming binary frame, without its length byte
+		byte[] frame = new byte[WireProtocol.MAX_FRAME_PAYLOAD + 1];
+		int frameLength = -1;
+		int framePos = 0;
+
+		// Message other than sensor readings, put back together from its
+		// frames
+		StringBuilder frameMsg = new StringBuilder();
+
+		// Request waiting for its reply, e.g. the binary framing request,
+		// and whether split ASCII messages are still to be requested
+		String pendingRequest = null;
+		long negotiationDeadline = 0;
+		boolean bSplitToRequest = false;
+
 		try {
-			
-			String input = _br.readLine();
-			if(input != null && input.length() > 0) {
-				System.out.println(input);
-				return input;
+
+			SelectionKey key = channel.keyFor(selector);
+			while (!Thread.currentThread().isInterrupted()) {
+
+				if (pendingRequest != null
+						&& System.currentTimeMillis() >= negotiationDeadline) {
+					System.out.println(WireProtocol.BINARY_REQUEST
+							.equals(pendingRequest) ? "CommMgr -> Binary"
+							+ " framing not supported, using ASCII"
+							: "CommMgr -> Split ASCII messages not supported");
+					pendingRequest = null;
+				}
+
+				// Split ASCII messages are only requested once binary
+				// framing has been refused, or if it was not requested
+				if (bSplitToRequest && pendingRequest == null
+						&& !writeBuffer.hasRemaining()) {
+					bSplitToRequest = false;
+					if (!_bBinaryFraming) {
+						writeBuffer.clear();
+						writeBuffer = encodeRequest(WireProtocol.SPLIT_REQUEST,
+								writeBuffer);
+						writeBuffer.flip();
+
+						pendingRequest = WireProtocol.SPLIT_REQUEST;
+						negotiationDeadline = System.currentTimeMillis()
+								+ NEGOTIATION_TIMEOUT_MS;
+					}
+				}
+
+				// Encode the next message, unless still negotiating,
+				// since the framing to use is not known yet
+				boolean bNegotiating = (pendingRequest != null)
+						|| bSplitToRequest;
+				if (!writeBuffer.hasRemaining() && !bNegotiating) {
+					OutgoingMsg outgoingMsg = _outgoingMsgs.poll();
+					if (outgoingMsg != null) {
+						writeBuffer.clear();
+						writeBuffer = encodeMsg(outgoingMsg, writeBuffer);
+						writeBuffer.flip();
+					}
+				}
+
+				// Only wait for the socket to be writable if there is
+				// something to write
+				if (channel.isConnected()) {
+					boolean bWriting = writeBuffer.hasRemaining()
+							|| (!bNegotiating && !_outgoingMsgs.isEmpty());
+					key.interestOps(SelectionKey.OP_READ
+							| (bWriting ? SelectionKey.OP_WRITE : 0));
+				}
+
+				if (pendingRequest != null)
+					selector.select(Math.max(1, negotiationDeadline
+							- System.currentTimeMillis()));
+				else
+					selector.select();
+
+				Iterator<SelectionKey> selectedKeys = selector.selectedKeys()
+						.iterator();
+				while (selectedKeys.hasNext()) {
+					SelectionKey selectedKey = selectedKeys.next();
+					selectedKeys.remove();
+
+					if (selectedKey.isConnectable() && channel.finishConnect()) {
+						_connectedChannel.set(channel);
+						System.out.println("setConnection() ->" +
+								" Connection established successfully!");
+
+						bSplitToRequest = _bSplitRequested;
+						if (_bBinaryRequested) {
+							writeBuffer.clear();
+							writeBuffer = encodeRequest(
+									WireProtocol.BINARY_REQUEST, writeBuffer);
+							writeBuffer.flip();
+
+							pendingRequest = WireProtocol.BINARY_REQUEST;
+							negotiationDeadline = System.currentTimeMillis()
+									+ NEGOTIATION_TIMEOUT_MS;
+						}
+					}
+
+					if (selectedKey.isReadable()) {
+						if (channel.read(readBuffer) < 0) {
+							System.out.println("CommMgr -> Connection closed");
+							return;
+						}
+
+						readBuffer.flip();
+						while (readBuffer.hasRemaining()) {
+							byte b = readBuffer.get();
+
+							if (!_bBinaryFraming) {
+
+								// Split the received bytes into messages,
+								// one per line
+								char c = (char) (b & 0xFF);
+								if (c == '\n') {
+									if (pendingRequest != null
+											&& pendingRequest
+													.contentEquals(line)) {
+										if (WireProtocol.BINARY_REQUEST
+												.equals(pendingRequest)) {
+											// Everything after this line is
+											// binary
+											_bBinaryFraming = true;
+											System.out.println("CommMgr ->"
+													+ " Using binary framing");
+										} else {
+											_bAsciiSplitting = true;
+											System.out.println("CommMgr ->"
+													+ " Using split ASCII"
+													+ " messages");
+										}
+										pendingRequest = null;
+									} else {
+										receiveMsg(line);
+									}
+									line.setLength(0);
+								} else if (c != '\r') {
+									line.append(c);
+								}
+
+							} else if (frameLength < 0) {
+								// Start of a frame, empty frames are skipped
+								frameLength = b & 0xFF;
+								framePos = 0;
+								if (frameLength == 0)
+									frameLength = -1;
+
+							} else {
+								frame[framePos++] = b;
+								if (framePos == frameLength) {
+									receiveFrame(frame, frameLength, frameMsg);
+									frameLength = -1;
+								}
+							}
+						}
+						readBuffer.clear();
+					}
+
+					if (selectedKey.isValid() && selectedKey.isWritable()) {
+						while (writeBuffer.hasRemaining()) {
+							channel.write(writeBuffer);
+
+							// Socket buffer is full, continue when writable
+							if (writeBuffer.hasRemaining())
+								break;
+
+							OutgoingMsg outgoingMsg = (pendingRequest != null
+									|| bSplitToRequest) ? null : _outgoingMsgs
+									.poll();
+							if (outgoingMsg == null)
+								break;
+
+							writeBuffer.clear();
+							writeBuffer = encodeMsg(outgoingMsg, writeBuffer);
+							writeBuffer.flip();
+						}
+					}
+				}
 			}
-			
-		} catch(IOException e) {
-			//System.out.println("recvMsg() -> IO exception");
+
 		} catch (Exception e) {
-			//System.out.println("recvMsg() -> Exception");
+			// Expected once closeConnection() has closed the selector
+			if (selector.isOpen() && !Thread.currentThread().isInterrupted()) {
+				System.out.println("CommMgr -> I/O thread stopped: " + e);
+				_ioException = e;
+			}
+		} finally {
+			_connectedChannel.compareAndSet(channel, null);
 		}
-		
-		return null;
 	}
-	
-	public boolean isConnected() {
-		return _conn.isConnected();
+
+	/**
+	 * Encodes a message with the framing agreed to for the connection
+	 */
+	private ByteBuffer encodeMsg(OutgoingMsg outgoingMsg, ByteBuffer buffer) {
+		return _bBinaryFraming ? WireProtocol.encodeBinary(
+				outgoingMsg.msgType, outgoingMsg.msg, buffer) : WireProtocol
+				.encodeAscii(outgoingMsg.msgType, outgoingMsg.msg,
+						_bAsciiSplitting, buffer);
+	}
+
+	/**
+	 * Encodes a control request, e.g. {@link WireProtocol#BINARY_REQUEST},
+	 * which is always sent in ASCII
+	 */
+	private static ByteBuffer encodeRequest(String request, ByteBuffer buffer) {
+		return WireProtocol.encodeAscii(WireProtocol.MSG_TYPE_CONTROL, request
+				.substring(WireProtocol.MSG_TYPE_CONTROL.length()), false,
+				buffer);
+	}
+
+	/**
+	 * Handles an ASCII message, e.g. a line received or a replayed message
+	 * <p>
+	 * Arduino sensor readings are parsed straight into the sensor ring, other
+	 * messages are queued as strings
+	 *
+	 * @param msg The message, including its type
+	 */
+	private void receiveMsg(CharSequence msg) {
+
+		if (msg.length() == 0)
+			return;
+
+		if (DEBUG)
+			System.out.println(msg);
+		_noOfMsgsReceived.incrementAndGet();
+
+		RunRecorder recorder = _recorder;
+		if (recorder != null)
+			recorder.record(RunRecorder.KIND_RECEIVED, msg);
+
+		if (startsWith(msg, MSG_TYPE_ARDUINO)) {
+			LatencyMonitor.getLatencyMonitor().replyReceived();
+
+			int[] readings = beginSensorReadings();
+			if (readings != null)
+				endSensorReadings(WireProtocol.parseSensorReadings(msg,
+						readings));
+		} else if (startsWith(msg, MSG_TYPE_ANDROID)) {
+			_androidMsgs.offer(msg.toString());
+		} else {
+			_otherMsgs.offer(msg.toString());
+		}
+	}
+
+	/**
+	 * Handles a binary frame
+	 * <p>
+	 * Arduino sensor readings are parsed straight from the frame into the
+	 * sensor ring. Other messages are put back together from their frames,
+	 * and handled as ASCII messages.
+	 *
+	 * @param frame The frame's type, followed by its payload
+	 * @param frameLength Number of bytes in the frame
+	 * @param frameMsg The message so far, if the frame continues one
+	 */
+	private void receiveFrame(byte[] frame, int frameLength,
+			StringBuilder frameMsg) {
+
+		int frameType = frame[0] & 0xFF & ~WireProtocol.FRAME_CONTINUED;
+		if (frameType != WireProtocol.FRAME_TYPE_ARDUINO) {
+			if (frameMsg.length() == 0)
+				frameMsg.append(WireProtocol.getMsgType(frameType));
+			for (int i = 1; i < frameLength; i++)
+				frameMsg.append((char) (frame[i] & 0xFF));
+
+			if ((frame[0] & WireProtocol.FRAME_CONTINUED) == 0) {
+				receiveMsg(frameMsg);
+				frameMsg.setLength(0);
+			}
+			return;
+		}
+
+		_noOfMsgsReceived.incrementAndGet();
+		LatencyMonitor.getLatencyMonitor().replyReceived();
+
+		int[] readings = beginSensorReadings();
+		int noOfReadings = 0;
+		if (readings != null) {
+			noOfReadings = WireProtocol.parseSensorReadings(frame, 1,
+					frameLength - 1, readings);
+			endSensorReadings(noOfReadings);
+		}
+
+		if (DEBUG || _recorder != null) {
+			_recordMsg.setLength(0);
+			_recordMsg.append(MSG_TYPE_ARDUINO);
+			for (int i = 1; i < frameLength; i++)
+				_recordMsg.append(frame[i]).append(';');
+
+			if (DEBUG)
+				System.out.println(_recordMsg);
+
+			RunRecorder recorder = _recorder;
+			if (recorder != null)
+				recorder.record(RunRecorder.KIND_RECEIVED, _recordMsg);
+		}
+	}
+
+	private static boolean startsWith(CharSequence msg, String prefix) {
+
+		if (msg.length() < prefix.length())
+			return false;
+
+		for (int i = 0; i < prefix.length(); i++) {
+			if (msg.charAt(i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A message waiting to be sent
+	 */
+	private static class OutgoingMsg {
+		public final String msgType;
+		public final String msg;
+
+		public OutgoingMsg(String msgType, String msg) {
+			this.msgType = msgType;
+			this.msg = msg;
+		}
 	}
 
 }
@@ -0,0 +1,159 @@
+package leaderboard;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in nanoseconds
+ * <p>
+ * Latencies are counted in buckets which double in width every 16 buckets,
+ * so percentiles are within about 6% of the actual latency, from nanoseconds
+ * up to hours, using a fixed array of counts.<br>
+ * Recording is lock-free and does not create any objects, so it can be done
+ * on the I/O thread while the percentiles are read from another thread.
+ */
+public class LatencyHistogram {
+
+	// Number of buckets for each doubling of the latency
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int NO_OF_BUCKETS = (64 - SUB_BUCKET_BITS + 1)
+			* SUB_BUCKETS;
+
+	private final String _name;
+
+	private final AtomicLongArray _counts = new AtomicLongArray(NO_OF_BUCKETS);
+	private final AtomicLong _count = new AtomicLong();
+	private final AtomicLong _total = new AtomicLong();
+	private final AtomicLong _max = new AtomicLong();
+
+	public LatencyHistogram(String name) {
+		_name = name;
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	/**
+	 * Records a latency
+	 *
+	 * @param latencyInNs
+	 *            The latency, negative latencies are counted as 0
+	 */
+	public void record(long latencyInNs) {
+
+		if (latencyInNs < 0)
+			latencyInNs = 0;
+
+		_counts.incrementAndGet(getBucket(latencyInNs));
+		_count.incrementAndGet();
+		_total.addAndGet(latencyInNs);
+
+		long max = _max.get();
+		while (latencyInNs > max && !_max.compareAndSet(max, latencyInNs))
+			max = _max.get();
+	}
+
+	public long getCount() {
+		return _count.get();
+	}
+
+	public long getMax() {
+		return _max.get();
+	}
+
+	public long getMean() {
+		long count = _count.get();
+		return (count == 0) ? 0 : _total.get() / count;
+	}
+
+	/**
+	 * Gets the latency below which a given percentage of the latencies fall
+	 *
+	 * @param percentile
+	 *            The percentile, (0, 100]
+	 * @return The latency in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+
+		long count = _count.get();
+		if (count == 0)
+			return 0;
+
+		long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+		long seen = 0;
+		for (int bucket = 0; bucket < NO_OF_BUCKETS; bucket++) {
+			seen += _counts.get(bucket);
+			if (seen >= target)
+				return Math.min(getBucketLimit(bucket), _max.get());
+		}
+
+		return _max.get();
+	}
+
+	/**
+	 * Clears all recorded latencies
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < NO_OF_BUCKETS; bucket++)
+			_counts.set(bucket, 0);
+		_count.set(0);
+		_total.set(0);
+		_max.set(0);
+	}
+
+	/**
+	 * Gets a one line summary, e.g. "Move: n=12 p50=1.20ms p99=3.40ms ..."
+	 */
+	@Override
+	public String toString() {
+		return String.format("%-10s n=%-6d p50=%-10s p99=%-10s max=%-10s mean=%s",
+				_name + ":", getCount(), formatLatency(getPercentile(50)),
+				formatLatency(getPercentile(99)), formatLatency(getMax()),
+				formatLatency(getMean()));
+	}
+
+	/**
+	 * Formats a latency in the most readable unit, e.g. "850us", "1.20ms"
+	 */
+	public static String formatLatency(long latencyInNs) {
+		if (latencyInNs < 1000L)
+			return latencyInNs + "ns";
+		else if (latencyInNs < 1000000L)
+			return String.format("%.1fus", latencyInNs / 1000.0);
+		else if (latencyInNs < 1000000000L)
+			return String.format("%.2fms", latencyInNs / 1000000.0);
+		else
+			return String.format("%.2fs", latencyInNs / 1000000000.0);
+	}
+
+	private static int getBucket(long latencyInNs) {
+
+		if (latencyInNs < SUB_BUCKETS)
+			return (int) latencyInNs;
+
+		// Keep the top bits of the latency
+		int shift = (63 - Long.numberOfLeadingZeros(latencyInNs))
+				- SUB_BUCKET_BITS;
+		return ((shift + 1) * SUB_BUCKETS)
+				+ (int) ((latencyInNs >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Gets the largest latency counted in a bucket
+	 */
+	private static long getBucketLimit(int bucket) {
+
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int shift = (bucket / SUB_BUCKETS) - 1;
+		long subBucket = SUB_BUCKETS + (bucket % SUB_BUCKETS);
+		long limit = ((subBucket + 1) << shift) - 1;
+
+		// The last buckets go past the largest long
+		return (limit < 0) ? Long.MAX_VALUE : limit;
+	}
+}
@@ -0,0 +1,144 @@
+package leaderboard;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Where the time goes during a physical run
+ * <p>
+ * Round trips are measured from sending an Arduino message to receiving the
+ * sensor readings it is replied with, by the type of message:<br>
+ * Move (has an 'f'), Turn (has an 'l' or 'o'), Calibrate (has a 'c') or
+ * Sense (just an 'm').<br>
+ * Parse & Logic are measured by the robot, for turning the readings into
+ * map updates and for deciding on the next move.
+ * <p>
+ * The histograms can be read at any time during the run, and
+ * {@link #printSummary} prints them all at the end.
+ */
+public class LatencyMonitor {
+
+	public static enum STAGE {
+		MOVE, TURN, CALIBRATE, SENSE, PARSE, LOGIC;
+
+		public String toString() {
+			String name = name();
+			return name.charAt(0) + name.substring(1).toLowerCase();
+		}
+	};
+
+	private static LatencyMonitor _latencyMonitor = null;
+
+	private final LatencyHistogram[] _histograms;
+
+	// Messages waiting for their sensor readings, oldest first
+	private final Queue<PendingReply> _pendingReplies = new ConcurrentLinkedQueue<PendingReply>();
+
+	private LatencyMonitor() {
+		STAGE[] stages = STAGE.values();
+		_histograms = new LatencyHistogram[stages.length];
+		for (STAGE stage : stages)
+			_histograms[stage.ordinal()] = new LatencyHistogram(stage.toString());
+	}
+
+	public static synchronized LatencyMonitor getLatencyMonitor() {
+		if (_latencyMonitor == null)
+			_latencyMonitor = new LatencyMonitor();
+
+		return _latencyMonitor;
+	}
+
+	public LatencyHistogram getHistogram(STAGE stage) {
+		return _histograms[stage.ordinal()];
+	}
+
+	/**
+	 * Records the time taken by a stage
+	 *
+	 * @param startTime
+	 *            System.nanoTime() at the start of the stage
+	 */
+	public void record(STAGE stage, long startTime) {
+		_histograms[stage.ordinal()].record(System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Notes down an Arduino message that has been sent
+	 *
+	 * @param msg
+	 *            The Arduino commands, e.g. "l;c;o;f;"
+	 */
+	public void msgSent(String msg) {
+
+		// Shortest path runs are not replied to, and
+		// neither are messages which only calibrate
+		STAGE stage = getStage(msg);
+		if (msg.indexOf('s') >= 0 || stage == null
+				|| (stage == STAGE.CALIBRATE && msg.indexOf('m') < 0))
+			return;
+
+		_pendingReplies.offer(new PendingReply(stage, System.nanoTime()));
+	}
+
+	/**
+	 * Records the round trip of the oldest message waiting for its reply
+	 */
+	public void replyReceived() {
+
+		PendingReply pendingReply = _pendingReplies.poll();
+		if (pendingReply != null)
+			record(pendingReply.stage, pendingReply.sentTime);
+	}
+
+	/**
+	 * Clears all histograms, for the start of a run
+	 */
+	public void reset() {
+		_pendingReplies.clear();
+		for (LatencyHistogram histogram : _histograms)
+			histogram.reset();
+	}
+
+	/**
+	 * Gets one line per histogram, with its percentiles
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		for (LatencyHistogram histogram : _histograms)
+			sb.append(histogram).append('\n');
+		return sb.toString();
+	}
+
+	public void printSummary(String title) {
+		System.out.println("\n" + title + " latencies:");
+		System.out.print(getSummary());
+	}
+
+	/**
+	 * Gets the type of round trip for an Arduino message
+	 *
+	 * @return The stage, or null if the message has no known commands
+	 */
+	private static STAGE getStage(String msg) {
+		if (msg.indexOf('f') >= 0)
+			return STAGE.MOVE;
+		else if (msg.indexOf('l') >= 0 || msg.indexOf('o') >= 0)
+			return STAGE.TURN;
+		else if (msg.indexOf('c') >= 0)
+			return STAGE.CALIBRATE;
+		else if (msg.indexOf('m') >= 0)
+			return STAGE.SENSE;
+		else
+			return null;
+	}
+
+	private static class PendingReply {
+		public final STAGE stage;
+		public final long sentTime;
+
+		public PendingReply(STAGE stage, long sentTime) {
+			this.stage = stage;
+			this.sentTime = sentTime;
+		}
+	}
+}
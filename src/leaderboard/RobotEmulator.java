@@ -0,0 +1,678 @@
+package leaderboard;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import map.GridStore;
+import map.RealMap;
+import robot.MotionModel;
+import robot.Robot;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import robot.Sensor;
+
+/**
+ * Stand-in for the Raspberry-Pi & Arduino, for running the physical
+ * exploration & shortest path on one machine
+ * <p>
+ * Listens for the simulator's CommMgr, and plays the part of:<br>
+ * - Android: Sends "1,EXPLORE" or "1,SHORTESTPATH" once connected. Lines
+ * typed into the console are sent as well, e.g. "1,SHORTESTPATH".<br>
+ * - Arduino: Executes the commands (e.g. "3,l;c;o;f;") against a real map,
+ * and once a message has been carried out, replies with the readings of the
+ * robot's sensors, e.g. "3,5;5;0;0;5;5;".
+ * <p>
+ * Commands:<br>
+ * f - Move forward, e.g. "f;", "f5;"<br>
+ * l / o - Turn left / right, e.g. "l;", "o180;"<br>
+ * c - Calibrate (Does nothing here)<br>
+ * m - Send sensor readings<br>
+ * s - Shortest path, the message is only replied to if it has an 'm' 
+ * <p>
+ * Sensor replies can be delayed (latency +/- jitter) and dropped, to see how
+ * the simulator copes with a slow or lossy link. With a {@link MotionModel},
+ * replies are also delayed by the time the robot would have taken to carry
+ * out the message. Binary framing and split ASCII messages are agreed to
+ * when the simulator asks for them (see {@link WireProtocol}).
+ * <p>
+ * NOTE: As on the Raspberry-Pi, ASCII messages are read 128 characters at a
+ * time. Once split ASCII messages have been agreed to, longer Arduino
+ * messages, e.g. compiled programs, come in parts, and binary messages may
+ * come in several frames; either way, a message is only replied to once all
+ * of it has been carried out.
+ */
+public class RobotEmulator {
+
+	public static final int DEFAULT_PORT = 8181;
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static final String START_EXPLORE = CommMgr.MSG_TYPE_ANDROID
+			+ "EXPLORE";
+	private static final String START_SP = CommMgr.MSG_TYPE_ANDROID
+			+ "SHORTESTPATH";
+
+	private final RealMap _realMap;
+	private final GridStore _store;
+
+	// Robot's starting position & direction, as saved in the robot file
+	private final int _startRow;
+	private final int _startCol;
+	private final DIRECTION _startDir;
+
+	// Robot's current position & direction
+	private int _robotRow;
+	private int _robotCol;
+	private DIRECTION _robotDir;
+
+	// Sensors, and their layout relative to the robot's center
+	// when the robot is facing north
+	private final Sensor[] _sensors;
+	private final int[] _sensorOffsetRows;
+	private final int[] _sensorOffsetCols;
+	private final int[] _sensorDirOffsets;
+	private final int[] _readings;
+
+	// Link settings
+	private int _latencyMs = 0;
+	private int _jitterMs = 0;
+	private double _dropRate = 0.0;
+	private MotionModel _motionModel = null;
+	private boolean _bBinarySupported = true;
+	private String _startMsg = START_EXPLORE;
+	private final Random _random;
+
+	// For sending delayed replies, in the order they were made
+	private final ScheduledExecutorService _replyScheduler;
+	private long _lastReplyTime = 0;
+
+	// Current connection
+	private volatile OutputStream _out = null;
+	private volatile boolean _bBinaryFraming = false;
+	private boolean _bAsciiSplitting = false;
+
+	// Statistics for the current connection
+	private int _noOfCommands = 0;
+	private int _noOfBumps = 0;
+	private int _noOfReplies = 0;
+	private int _noOfDroppedReplies = 0;
+
+	// Whether the message being carried out is to be replied to,
+	// and whether it is a shortest path run
+	private boolean _bReplyPending = false;
+	private boolean _bShortestPath = false;
+
+	// Time the robot would take to carry out the message so far, in seconds
+	private double _motionTime = 0;
+
+	/**
+	 * Creates an emulator for the given robot and map
+	 *
+	 * @param robot
+	 *            The robot, for its starting position and sensor layout
+	 * @param realMap
+	 *            The real map with the obstacles
+	 * @param seed
+	 *            Seed for the jitter & dropped replies
+	 */
+	public RobotEmulator(Robot robot, RealMap realMap, long seed) {
+
+		_realMap = realMap;
+		_store = realMap.getGridStore();
+
+		_startRow = robot.getRobotMapPosRow();
+		_startCol = robot.getRobotMapPosCol();
+		_startDir = robot.getRobotDir();
+
+		// Work out the sensor layout for a robot facing north
+		List<Sensor> sensors = robot.getSensors();
+		int noOfSensors = sensors.size();
+		_sensors = new Sensor[noOfSensors];
+		_sensorOffsetRows = new int[noOfSensors];
+		_sensorOffsetCols = new int[noOfSensors];
+		_sensorDirOffsets = new int[noOfSensors];
+		_readings = new int[noOfSensors];
+
+		int centerOffset = RobotConstants.ROBOT_SIZE / 2;
+		for (int i = 0; i < noOfSensors; i++) {
+			Sensor s = sensors.get(i);
+
+			int offsetRow = s.getSensorPosRow() - (_startRow + centerOffset);
+			int offsetCol = s.getSensorPosCol() - (_startCol + centerOffset);
+
+			// Rotate anti-clockwise, once for each turn away from north
+			for (int turns = 0; turns < _startDir.ordinal(); turns++) {
+				int prevOffsetRow = offsetRow;
+				offsetRow = -offsetCol;
+				offsetCol = prevOffsetRow;
+			}
+
+			_sensorOffsetRows[i] = offsetRow;
+			_sensorOffsetCols[i] = offsetCol;
+			_sensorDirOffsets[i] = (s.getSensorDirection().ordinal()
+					- _startDir.ordinal() + 4) % 4;
+
+			_sensors[i] = new Sensor(s.getMinRange(), s.getMaxRange(),
+					s.getSensorPosRow(), s.getSensorPosCol(),
+					s.getSensorDirection());
+		}
+
+		_random = new Random(seed);
+		_replyScheduler = Executors.newSingleThreadScheduledExecutor();
+
+		resetRobot();
+	}
+
+	/**
+	 * Sets the delay before each sensor reply is sent
+	 *
+	 * @param latencyMs
+	 *            Average delay
+	 * @param jitterMs
+	 *            Maximum random difference from the average delay
+	 */
+	public void setLatency(int latencyMs, int jitterMs) {
+		_latencyMs = latencyMs;
+		_jitterMs = jitterMs;
+	}
+
+	/**
+	 * Sets the chance of a sensor reply being dropped, [0, 1]
+	 */
+	public void setDropRate(double dropRate) {
+		_dropRate = dropRate;
+	}
+
+	/**
+	 * Sets the motion model used to delay each reply by the time the robot
+	 * would have taken, or null to only delay by the latency
+	 */
+	public void setMotionModel(MotionModel motionModel) {
+		_motionModel = motionModel;
+	}
+
+	/**
+	 * Sets whether binary framing is agreed to when asked for
+	 */
+	public void setBinarySupported(boolean bBinarySupported) {
+		_bBinarySupported = bBinarySupported;
+	}
+
+	/**
+	 * Sets the message sent once the simulator connects
+	 *
+	 * @param startMsg
+	 *            e.g. "1,EXPLORE", or null to send nothing
+	 */
+	public void setStartMsg(String startMsg) {
+		_startMsg = startMsg;
+	}
+
+	/**
+	 * Accepts connections from the simulator, one at a time, until the
+	 * emulator is stopped
+	 */
+	public void serve(int port) throws IOException {
+
+		startConsoleReader();
+
+		try (ServerSocket serverSocket = new ServerSocket(port)) {
+			System.out.println("RobotEmulator -> Listening on port " + port);
+
+			while (true) {
+				try (Socket socket = serverSocket.accept()) {
+					socket.setTcpNoDelay(true);
+					System.out.println("RobotEmulator -> Connected to "
+							+ socket.getRemoteSocketAddress());
+
+					handleConnection(socket);
+
+				} catch (IOException e) {
+					System.out.println("RobotEmulator -> IO Exception");
+				}
+
+				_out = null;
+				printStatistics();
+			}
+		}
+	}
+
+	/**
+	 * Reads & handles the simulator's messages until it disconnects
+	 */
+	private void handleConnection(Socket socket) throws IOException {
+
+		DataInputStream in = new DataInputStream(socket.getInputStream());
+
+		synchronized (this) {
+			resetRobot();
+			_bBinaryFraming = false;
+			_bAsciiSplitting = false;
+			_noOfCommands = 0;
+			_noOfBumps = 0;
+			_noOfReplies = 0;
+			_noOfDroppedReplies = 0;
+		}
+		_out = socket.getOutputStream();
+
+		if (_startMsg != null)
+			send(_startMsg);
+
+		byte[] asciiMsg = new byte[WireProtocol.ASCII_MSG_LENGTH];
+		byte[] frame = new byte[WireProtocol.MAX_FRAME_PAYLOAD + 1];
+		try {
+			while (true) {
+				if (!_bBinaryFraming) {
+					in.readFully(asciiMsg);
+					String msg = new String(asciiMsg, ASCII).trim();
+
+					if (msg.equals(WireProtocol.BINARY_REQUEST)) {
+						if (_bBinarySupported) {
+							send(WireProtocol.BINARY_REQUEST);
+							_bBinaryFraming = true;
+							System.out.println("RobotEmulator ->"
+									+ " Using binary framing");
+						}
+					} else if (msg.equals(WireProtocol.SPLIT_REQUEST)) {
+						send(WireProtocol.SPLIT_REQUEST);
+						_bAsciiSplitting = true;
+						System.out.println("RobotEmulator ->"
+								+ " Using split ASCII messages");
+					} else if (msg.startsWith(CommMgr.MSG_TYPE_ARDUINO)) {
+						boolean bContinued = _bAsciiSplitting
+								&& WireProtocol.isContinued(msg);
+						executeCommands(bContinued ? msg.substring(0,
+								msg.length() - 1) : msg, !bContinued);
+					} else {
+						System.out.println("RobotEmulator -> Received: " + msg);
+					}
+
+				} else {
+					int frameLength = in.readUnsignedByte();
+					if (frameLength == 0)
+						continue;
+					in.readFully(frame, 0, frameLength);
+
+					int frameType = frame[0] & 0xFF & ~WireProtocol.FRAME_CONTINUED;
+					boolean bContinued = (frame[0] & WireProtocol.FRAME_CONTINUED) != 0;
+
+					if (frameType == WireProtocol.FRAME_TYPE_ARDUINO) {
+						// [opcode][count] pairs
+						for (int i = 1; i + 1 < frameLength; i += 2)
+							executeCommand((char) frame[i], frame[i + 1] & 0xFF);
+						if (!bContinued)
+							endOfMessage();
+					} else {
+						System.out.println("RobotEmulator -> Received: "
+								+ WireProtocol.getMsgType(frameType)
+								+ new String(frame, 1, frameLength - 1, ASCII));
+					}
+				}
+			}
+		} catch (EOFException e) {
+			System.out.println("RobotEmulator -> Disconnected");
+		}
+	}
+
+	/**
+	 * Executes an ASCII Arduino message, e.g. "3,f5;l;m;"
+	 *
+	 * @param bEndOfMessage
+	 *            False for a part of a split message other than the last
+	 */
+	private void executeCommands(String msg, boolean bEndOfMessage) {
+
+		int charIndex = CommMgr.MSG_TYPE_ARDUINO.length();
+		while (charIndex < msg.length()) {
+
+			char opcode = msg.charAt(charIndex++);
+			if (opcode == ';' || opcode == ' ')
+				continue;
+
+			int count = 0;
+			boolean bHasCount = false;
+			while (charIndex < msg.length()) {
+				char c = msg.charAt(charIndex);
+				if (c < '0' || c > '9')
+					break;
+				count = (count * 10) + (c - '0');
+				bHasCount = true;
+				charIndex++;
+			}
+
+			executeCommand(opcode, WireProtocol.getCommandCount(opcode,
+					bHasCount ? count : 1));
+		}
+
+		if (bEndOfMessage)
+			endOfMessage();
+	}
+
+	/**
+	 * Replies with the sensor readings once a message has been carried out
+	 */
+	private synchronized void endOfMessage() {
+
+		if (_bReplyPending)
+			sendSensorReadings();
+
+		_bReplyPending = false;
+		_bShortestPath = false;
+		_motionTime = 0;
+	}
+
+	/**
+	 * Executes a single Arduino command
+	 *
+	 * @param opcode
+	 *            The command, e.g. 'f'
+	 * @param count
+	 *            Number of times to repeat the command (Turns are counted in
+	 *            90 degree steps)
+	 */
+	private synchronized void executeCommand(char opcode, int count) {
+
+		_noOfCommands++;
+
+		switch (opcode) {
+		case 'f':
+			for (int i = 0; i < count; i++) {
+				if (!moveForward()) {
+					_noOfBumps++;
+					System.out.println("RobotEmulator -> Bumped into an"
+							+ " obstacle at " + _robotRow + ", " + _robotCol
+							+ " facing " + _robotDir);
+					break;
+				}
+			}
+			if (_motionModel != null)
+				_motionTime += _motionModel.getStraightTime(count);
+			_bReplyPending |= !_bShortestPath;
+			break;
+		case 'l':
+			for (int i = 0; i < count; i++)
+				_robotDir = DIRECTION.getPrevious(_robotDir);
+			updateSensors();
+			if (_motionModel != null)
+				_motionTime += _motionModel.getTurnTime(-count);
+			_bReplyPending |= !_bShortestPath;
+			break;
+		case 'o':
+			for (int i = 0; i < count; i++)
+				_robotDir = DIRECTION.getNext(_robotDir);
+			updateSensors();
+			if (_motionModel != null)
+				_motionTime += _motionModel.getTurnTime(count);
+			_bReplyPending |= !_bShortestPath;
+			break;
+		case 'c':
+			if (_motionModel != null)
+				_motionTime += _motionModel.getCalibrationTime();
+			break;
+		case 's':
+			_bShortestPath = true;
+			break;
+		case 'm':
+			_bReplyPending = true;
+			break;
+		default:
+			System.out.println("RobotEmulator -> Unknown command: " + opcode);
+			break;
+		}
+	}
+
+	/**
+	 * Moves the robot forward by one grid, unless it would bump into an
+	 * obstacle or a wall
+	 *
+	 * @return True if the robot has moved
+	 */
+	private boolean moveForward() {
+
+		int newRow = _robotRow + ((_robotDir == DIRECTION.NORTH) ? -1
+				: (_robotDir == DIRECTION.SOUTH) ? 1 : 0);
+		int newCol = _robotCol + ((_robotDir == DIRECTION.WEST) ? -1
+				: (_robotDir == DIRECTION.EAST) ? 1 : 0);
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		if (newRow < 1 || newRow + robotSize - 1 > _store.getRows() - 2
+				|| newCol < 1 || newCol + robotSize - 1 > _store.getCols() - 2)
+			return false;
+
+		for (int row = newRow; row < newRow + robotSize; row++) {
+			int index = _store.indexOf(row, newCol);
+			for (int col = 0; col < robotSize; col++, index++) {
+				if (_store.isObstacle(index))
+					return false;
+			}
+		}
+
+		_robotRow = newRow;
+		_robotCol = newCol;
+		updateSensors();
+
+		return true;
+	}
+
+	private void resetRobot() {
+		_robotRow = _startRow;
+		_robotCol = _startCol;
+		_robotDir = _startDir;
+		updateSensors();
+	}
+
+	/**
+	 * Places the sensors according to the robot's position & direction
+	 */
+	private void updateSensors() {
+
+		int centerOffset = RobotConstants.ROBOT_SIZE / 2;
+		for (int i = 0; i < _sensors.length; i++) {
+
+			int offsetRow = _sensorOffsetRows[i];
+			int offsetCol = _sensorOffsetCols[i];
+
+			// Rotate clockwise, once for each turn away from north
+			for (int turns = 0; turns < _robotDir.ordinal(); turns++) {
+				int prevOffsetRow = offsetRow;
+				offsetRow = offsetCol;
+				offsetCol = -prevOffsetRow;
+			}
+
+			_sensors[i].updateSensorPos(_robotRow + centerOffset + offsetRow,
+					_robotCol + centerOffset + offsetCol);
+			_sensors[i].updateSensorDirection(DIRECTION.values()[
+					(_sensorDirOffsets[i] + _robotDir.ordinal()) % 4]);
+		}
+	}
+
+	/**
+	 * Takes the sensor readings now, and sends them after the latency,
+	 * unless the reply is dropped
+	 */
+	private void sendSensorReadings() {
+
+		for (int i = 0; i < _sensors.length; i++)
+			_readings[i] = _sensors[i].sense(_realMap);
+
+		if (_random.nextDouble() < _dropRate) {
+			_noOfDroppedReplies++;
+			return;
+		}
+		_noOfReplies++;
+
+		final boolean bBinaryFraming = _bBinaryFraming;
+		final String msg;
+		final ByteBuffer frame;
+		if (bBinaryFraming) {
+			msg = null;
+			frame = WireProtocol.encodeSensorReadings(_readings,
+					_readings.length, ByteBuffer.allocate(_readings.length + 2));
+		} else {
+			StringBuilder sb = new StringBuilder(CommMgr.MSG_TYPE_ARDUINO);
+			for (int reading : _readings)
+				sb.append(reading).append(';');
+			msg = sb.toString();
+			frame = null;
+		}
+
+		// Later replies are never sent before earlier ones
+		long delay = _latencyMs;
+		if (_jitterMs > 0)
+			delay += _random.nextInt((2 * _jitterMs) + 1) - _jitterMs;
+		if (_motionModel != null)
+			delay += Math.round((_motionModel.getMessageTime() + _motionTime) * 1000);
+
+		long now = System.currentTimeMillis();
+		long replyTime = Math.max(now + Math.max(delay, 0), _lastReplyTime);
+		_lastReplyTime = replyTime;
+
+		final OutputStream out = _out;
+		_replyScheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (bBinaryFraming)
+					write(out, frame.array(), frame.position());
+				else
+					write(out, (msg + "\n").getBytes(ASCII), -1);
+			}
+		}, replyTime - now, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sends a message other than sensor readings, e.g. "1,EXPLORE"
+	 */
+	private void send(String msg) {
+
+		OutputStream out = _out;
+		if (out == null) {
+			System.out.println("RobotEmulator -> Not connected");
+			return;
+		}
+
+		// The reply to the binary framing request is always a line
+		if (!_bBinaryFraming || msg.equals(WireProtocol.BINARY_REQUEST)) {
+			write(out, (msg + "\n").getBytes(ASCII), -1);
+			return;
+		}
+
+		int msgTypeLength = msg.indexOf(',') + 1;
+		if (msgTypeLength == 0) {
+			System.out.println("RobotEmulator -> Message type missing: " + msg);
+			return;
+		}
+
+		ByteBuffer buffer = WireProtocol.encodeBinary(msg.substring(0,
+				msgTypeLength), msg.substring(msgTypeLength), ByteBuffer
+				.allocate(msg.length() + 2));
+		write(out, buffer.array(), buffer.position());
+	}
+
+	private void write(OutputStream out, byte[] bytes, int length) {
+		synchronized (out) {
+			try {
+				out.write(bytes, 0, (length < 0) ? bytes.length : length);
+				out.flush();
+			} catch (IOException e) {
+				System.out.println("RobotEmulator -> Failed to send");
+			}
+		}
+	}
+
+	/**
+	 * Sends every line typed into the console, e.g. "1,SHORTESTPATH"
+	 */
+	private void startConsoleReader() {
+
+		Thread consoleThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try (BufferedReader br = new BufferedReader(
+						new InputStreamReader(System.in))) {
+					String line;
+					while ((line = br.readLine()) != null) {
+						if (line.trim().length() > 0)
+							send(line.trim());
+					}
+				} catch (IOException e) {
+					System.out.println("RobotEmulator -> Console closed");
+				}
+			}
+		}, "RobotEmulator console");
+		consoleThread.setDaemon(true);
+		consoleThread.start();
+	}
+
+	private synchronized void printStatistics() {
+		System.out.println("RobotEmulator -> Commands: " + _noOfCommands
+				+ ", Bumps: " + _noOfBumps + ", Replies: " + _noOfReplies
+				+ ", Dropped replies: " + _noOfDroppedReplies);
+	}
+
+	/**
+	 * Usage: RobotEmulator &lt;map file&gt; [robot file] [port] [latency ms]
+	 * [jitter ms] [drop rate] [EXPLORE | SHORTESTPATH | NONE] [seed]
+	 * [motion model file]
+	 * <p>
+	 * Point the simulator at the emulator with
+	 * -Dcommmgr.host=localhost -Dcommmgr.port=&lt;port&gt;
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: RobotEmulator <map file> [robot file]"
+					+ " [port] [latency ms] [jitter ms] [drop rate]"
+					+ " [EXPLORE | SHORTESTPATH | NONE] [seed]"
+					+ " [motion model file]");
+			return;
+		}
+
+		String robotFilePath = (args.length > 1) ? args[1] : "robot.dat";
+		int port = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+		int latencyMs = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+		int jitterMs = (args.length > 4) ? Integer.parseInt(args[4]) : 0;
+		double dropRate = (args.length > 5) ? Double.parseDouble(args[5]) : 0.0;
+		String start = (args.length > 6) ? args[6].toUpperCase() : "EXPLORE";
+		long seed = (args.length > 7) ? Long.parseLong(args[7]) : 0;
+		MotionModel motionModel = (args.length > 8) ? MotionModel
+				.load(args[8]) : null;
+
+		Robot robot;
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(
+				robotFilePath))) {
+			robot = (Robot) in.readObject();
+		}
+
+		RealMap realMap = new RealMap();
+		try (BufferedReader br = new BufferedReader(new FileReader(args[0]))) {
+			realMap.loadFromMapString(br.readLine());
+		}
+
+		RobotEmulator emulator = new RobotEmulator(robot, realMap, seed);
+		emulator.setLatency(latencyMs, jitterMs);
+		emulator.setDropRate(dropRate);
+		emulator.setMotionModel(motionModel);
+		emulator.setStartMsg(start.equals("NONE") ? null
+				: start.equals("SHORTESTPATH") ? START_SP : START_EXPLORE);
+
+		emulator.serve(port);
+	}
+}
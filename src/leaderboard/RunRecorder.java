@@ -0,0 +1,196 @@
+package leaderboard;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only log of the messages sent to & received from the Raspberry-Pi
+ * <p>
+ * The log is written through a memory-mapped file, so recording a message is
+ * a copy into memory and never waits for the disk. The file is mapped in
+ * chunks, and trimmed to the recorded length when the recording is closed.
+ * <p>
+ * File format:<br>
+ * [magic "MDPRUN01"] followed by one entry per message:<br>
+ * [kind (1 byte)][time since start in ns (8 bytes)][length (4 bytes)]
+ * [message (ASCII, including its message type, e.g. "3,5;5;0;0;5;5;")]
+ * <p>
+ * Sensor readings received as binary frames are recorded as the equivalent
+ * ASCII message.
+ */
+public class RunRecorder {
+
+	public static final byte KIND_RECEIVED = 'R';
+	public static final byte KIND_SENT = 'S';
+
+	private static final byte[] MAGIC = { 'M', 'D', 'P', 'R', 'U', 'N', '0',
+			'1' };
+
+	private static final int ENTRY_HEADER_SIZE = 1 + 8 + 4;
+
+	// Size of each mapped chunk of the file
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	private final String _filePath;
+	private final RandomAccessFile _file;
+	private final FileChannel _channel;
+
+	private MappedByteBuffer _buffer;
+
+	// File position of the start of the mapped chunk
+	private long _chunkStart = 0;
+
+	private final long _startTime;
+	private int _noOfEntries = 0;
+	private boolean _bClosed = false;
+
+	/**
+	 * Creates a new log, replacing any existing file
+	 */
+	public RunRecorder(String filePath) throws IOException {
+
+		_filePath = filePath;
+		_file = new RandomAccessFile(filePath, "rw");
+		_file.setLength(0);
+		_channel = _file.getChannel();
+
+		_buffer = _channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+		_buffer.put(MAGIC);
+
+		_startTime = System.nanoTime();
+	}
+
+	public String getFilePath() {
+		return _filePath;
+	}
+
+	public synchronized int getNoOfEntries() {
+		return _noOfEntries;
+	}
+
+	/**
+	 * Appends a message to the log
+	 *
+	 * @param kind
+	 *            KIND_RECEIVED or KIND_SENT
+	 * @param msg
+	 *            The message, including its message type
+	 */
+	public synchronized void record(byte kind, CharSequence msg) {
+
+		if (_bClosed)
+			return;
+
+		long time = System.nanoTime() - _startTime;
+		int entrySize = ENTRY_HEADER_SIZE + msg.length();
+
+		try {
+			if (_buffer.remaining() < entrySize) {
+				_chunkStart += _buffer.position();
+				_buffer = _channel.map(FileChannel.MapMode.READ_WRITE,
+						_chunkStart, Math.max(CHUNK_SIZE, entrySize));
+			}
+		} catch (IOException e) {
+			System.out.println("RunRecorder -> IO Exception");
+			_bClosed = true;
+			return;
+		}
+
+		_buffer.put(kind);
+		_buffer.putLong(time);
+		_buffer.putInt(msg.length());
+		for (int charIndex = 0; charIndex < msg.length(); charIndex++)
+			_buffer.put((byte) msg.charAt(charIndex));
+
+		_noOfEntries++;
+	}
+
+	/**
+	 * Flushes the log to the disk and trims the file to the recorded length
+	 */
+	public synchronized void close() {
+
+		if (_bClosed)
+			return;
+		_bClosed = true;
+
+		try {
+			_buffer.force();
+			_channel.truncate(_chunkStart + _buffer.position());
+			_file.close();
+		} catch (IOException e) {
+			System.out.println("RunRecorder -> IO Exception");
+		}
+	}
+
+	/**
+	 * An entry of the log
+	 */
+	public static class Entry {
+		public final byte kind;
+		public final long time;
+		public final String msg;
+
+		public Entry(byte kind, long time, String msg) {
+			this.kind = kind;
+			this.time = time;
+			this.msg = msg;
+		}
+
+		public boolean isReceived() {
+			return kind == KIND_RECEIVED;
+		}
+
+		public boolean isSent() {
+			return kind == KIND_SENT;
+		}
+	}
+
+	/**
+	 * Reads all entries of a log
+	 * <p>
+	 * Logs which were not closed (e.g. the simulator was killed) end with
+	 * unused space, which is skipped
+	 */
+	public static List<Entry> readEntries(String filePath) throws IOException {
+
+		List<Entry> entries = new ArrayList<Entry>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(filePath)))) {
+
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("Not a run log: " + filePath);
+
+			while (true) {
+				byte kind;
+				try {
+					kind = in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				if (kind != KIND_RECEIVED && kind != KIND_SENT)
+					break;
+
+				long time = in.readLong();
+				byte[] msg = new byte[in.readInt()];
+				in.readFully(msg);
+
+				entries.add(new Entry(kind, time, new String(msg, "US-ASCII")));
+			}
+		}
+
+		return entries;
+	}
+}
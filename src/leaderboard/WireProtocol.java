@@ -0,0 +1,402 @@
+package leaderboard;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding & decoding of the messages sent between the simulator and the
+ * Raspberry-Pi
+ * <p>
+ * ASCII mode (default):<br>
+ * Outgoing messages are the message type followed by the message, padded with
+ * spaces to 128 characters. Incoming messages are lines, e.g.
+ * "3,5;5;0;0;5;5;".<br>
+ * Messages longer than 128 characters, e.g. compiled programs, are sent
+ * whole, unless the peer has agreed to split messages.
+ * <p>
+ * Split ASCII messages (negotiated at connect time):<br>
+ * Arduino messages longer than 128 characters are split into parts at
+ * command boundaries, each with the message type. Every part but the last
+ * ends with {@link #ASCII_CONTINUED}, and the parts are carried out as one
+ * message. The Arduino firmware must support {@link #ASCII_CONTINUED} before
+ * this is used. Split messages are requested by sending the ASCII message
+ * {@link #SPLIT_REQUEST}, and agreed to in the same way as binary mode.
+ * <p>
+ * Binary mode (negotiated at connect time):<br>
+ * Every message is a frame of [length][type][payload...], where length is the
+ * number of bytes after the length byte (1 - 255), and type is the digit of
+ * the message type (0 control, 1 Android, 3 Arduino). Messages which do not
+ * fit in a frame are split over several frames, and every frame but the last
+ * has {@link #FRAME_CONTINUED} set in its type.
+ * <ul>
+ * <li>Arduino commands: 2 bytes per command, [opcode][count], e.g. "f;l;"
+ * becomes 'f' 1 'l' 1, and "f5;" becomes 'f' 5. Turns are counted in 90
+ * degree steps, so "o180;" becomes 'o' 2.</li>
+ * <li>Arduino sensor readings: 1 signed byte per sensor</li>
+ * <li>Everything else: the message as ASCII</li>
+ * </ul>
+ * Binary mode is requested by sending the ASCII message {@link #BINARY_REQUEST}.
+ * A peer that supports it replies with the same message as a line, and both
+ * sides use binary frames for everything after that. A peer that does not
+ * reply is talked to in ASCII.
+ */
+public final class WireProtocol {
+
+	public static final String MSG_TYPE_CONTROL = "0,";
+
+	public static final String BINARY_REQUEST = MSG_TYPE_CONTROL + "BINARY";
+
+	public static final String SPLIT_REQUEST = MSG_TYPE_CONTROL + "SPLIT";
+
+	public static final int ASCII_MSG_LENGTH = 128;
+
+	// Ends every part of a split ASCII message but the last
+	public static final char ASCII_CONTINUED = '+';
+
+	public static final int FRAME_TYPE_CONTROL = 0;
+	public static final int FRAME_TYPE_ANDROID = 1;
+	public static final int FRAME_TYPE_ARDUINO = 3;
+
+	// Set in the type of every frame of a split message but the last
+	public static final int FRAME_CONTINUED = 0x80;
+
+	// Largest payload of a single frame, after the type byte
+	public static final int MAX_FRAME_PAYLOAD = 254;
+
+	private WireProtocol() {
+
+	}
+
+	/**
+	 * Gets the frame type for a message type
+	 *
+	 * @param msgType The message type, e.g. "3,"
+	 * @return The frame type, e.g. 3
+	 */
+	public static int getFrameType(String msgType) {
+		return msgType.charAt(0) - '0';
+	}
+
+	/**
+	 * Gets the message type for a frame type
+	 *
+	 * @param frameType The frame type, e.g. 3
+	 * @return The message type, e.g. "3,"
+	 */
+	public static String getMsgType(int frameType) {
+		switch (frameType) {
+		case FRAME_TYPE_CONTROL:
+			return MSG_TYPE_CONTROL;
+		case FRAME_TYPE_ANDROID:
+			return CommMgr.MSG_TYPE_ANDROID;
+		case FRAME_TYPE_ARDUINO:
+			return CommMgr.MSG_TYPE_ARDUINO;
+		default:
+			return frameType + ",";
+		}
+	}
+
+	/**
+	 * Encodes a message in ASCII mode
+	 *
+	 * @param bSplit Whether the peer has agreed to split messages, so Arduino
+	 *            messages which do not fit in 128 characters are split into
+	 *            parts at command boundaries, instead of being sent whole
+	 * @param buffer Buffer to encode into, in write mode
+	 * @return The buffer, or a larger copy if the message did not fit
+	 */
+	public static ByteBuffer encodeAscii(String msgType, String msg,
+			boolean bSplit, ByteBuffer buffer) {
+
+		int partStart = 0;
+		if (bSplit && CommMgr.MSG_TYPE_ARDUINO.equals(msgType)) {
+
+			// Room for the commands of a part, before the continuation mark
+			int maxPartLength = ASCII_MSG_LENGTH - msgType.length() - 1;
+
+			while (msgType.length() + msg.length() - partStart > ASCII_MSG_LENGTH) {
+				int partEnd = msg.lastIndexOf(';', partStart + maxPartLength - 1) + 1;
+
+				// A single command which is too long is split anyway
+				if (partEnd <= partStart)
+					partEnd = partStart + maxPartLength;
+
+				buffer = encodeAsciiPart(msgType, msg, partStart, partEnd,
+						true, buffer);
+				partStart = partEnd;
+			}
+		}
+
+		return encodeAsciiPart(msgType, msg, partStart, msg.length(), false,
+				buffer);
+	}
+
+	/**
+	 * Checks if an ASCII message is a part of a split message, other than
+	 * the last
+	 *
+	 * @param msg The message, with its padding removed
+	 */
+	public static boolean isContinued(CharSequence msg) {
+		return msg.length() > 0
+				&& msg.charAt(msg.length() - 1) == ASCII_CONTINUED;
+	}
+
+	/**
+	 * Encodes a message in binary mode<br>
+	 * Messages which do not fit in a frame are split over several frames
+	 *
+	 * @param buffer Buffer to encode into, in write mode
+	 * @return The buffer, or a larger copy if the message did not fit
+	 */
+	public static ByteBuffer encodeBinary(String msgType, String msg,
+			ByteBuffer buffer) {
+
+		int frameType = getFrameType(msgType);
+		int msgLength = msg.length();
+
+		// At most 2 bytes for each character, plus the frame headers
+		buffer = ensureRemaining(buffer, (2 * msgLength)
+				+ (2 * ((2 * msgLength) / MAX_FRAME_PAYLOAD + 1)));
+
+		int frameStart = startFrame(buffer, frameType);
+
+		if (frameType == FRAME_TYPE_ARDUINO) {
+
+			// One [opcode][count] pair per command, e.g. "f;", "f5;"
+			int charIndex = 0;
+			while (charIndex < msgLength) {
+
+				char opcode = msg.charAt(charIndex++);
+				if (opcode == ';' || opcode == ' ')
+					continue;
+
+				int count = 0;
+				boolean bHasCount = false;
+				while (charIndex < msgLength) {
+					char c = msg.charAt(charIndex);
+					if (c < '0' || c > '9')
+						break;
+					count = (count * 10) + (c - '0');
+					bHasCount = true;
+					charIndex++;
+				}
+				count = getCommandCount(opcode, bHasCount ? count : 1);
+
+				// Counts that do not fit in a byte are split over commands
+				do {
+					buffer = ensureRemaining(buffer, 4);
+					if (payloadLength(buffer, frameStart) + 2 > MAX_FRAME_PAYLOAD) {
+						endContinuedFrame(buffer, frameStart);
+						frameStart = startFrame(buffer, frameType);
+					}
+					buffer.put((byte) opcode);
+					buffer.put((byte) Math.min(count, 255));
+					count -= 255;
+				} while (count > 0);
+			}
+		} else {
+
+			for (int charIndex = 0; charIndex < msgLength; charIndex++) {
+				if (payloadLength(buffer, frameStart) == MAX_FRAME_PAYLOAD) {
+					endContinuedFrame(buffer, frameStart);
+					frameStart = startFrame(buffer, frameType);
+				}
+				buffer.put((byte) msg.charAt(charIndex));
+			}
+		}
+
+		endFrame(buffer, frameStart);
+
+		return buffer;
+	}
+
+	/**
+	 * Gets the number of times an Arduino command is repeated
+	 * <p>
+	 * Turns ('l' & 'o') are given in degrees when repeated, e.g. "o180;", but
+	 * counted in 90 degree steps here
+	 *
+	 * @param opcode The command, e.g. 'f'
+	 * @param count The count following the command, 1 if there is none
+	 * @return The number of times the command is repeated
+	 */
+	public static int getCommandCount(char opcode, int count) {
+		if ((opcode == 'l' || opcode == 'o') && count >= 90)
+			return count / 90;
+
+		return count;
+	}
+
+	/**
+	 * Encodes sensor readings as a binary Arduino frame
+	 *
+	 * @param buffer Buffer to encode into, in write mode
+	 * @return The buffer, or a larger copy if the readings did not fit
+	 */
+	public static ByteBuffer encodeSensorReadings(int[] readings, int count,
+			ByteBuffer buffer) {
+
+		count = Math.min(count, MAX_FRAME_PAYLOAD);
+		buffer = ensureRemaining(buffer, count + 2);
+
+		buffer.put((byte) (count + 1));
+		buffer.put((byte) FRAME_TYPE_ARDUINO);
+		for (int i = 0; i < count; i++)
+			buffer.put((byte) readings[i]);
+
+		return buffer;
+	}
+
+	/**
+	 * Parses the sensor readings of an ASCII Arduino message, without
+	 * creating any objects
+	 *
+	 * @param msg
+	 *            The message, e.g. "3,5;5;0;0;5;5;"
+	 * @param readings
+	 *            Array to store the readings in
+	 *
+	 * @return Number of readings parsed, stopping at the first reading which
+	 *         is not a number
+	 */
+	public static int parseSensorReadings(CharSequence msg, int[] readings) {
+
+		int count = 0;
+		int value = 0;
+		boolean bNegative = false;
+		boolean bHasDigits = false;
+
+		// Skip the message type
+		for (int charIndex = 2; charIndex < msg.length(); charIndex++) {
+
+			char c = msg.charAt(charIndex);
+			if (c == ';') {
+				if (!bHasDigits || count == readings.length)
+					return count;
+
+				readings[count++] = bNegative ? -value : value;
+				value = 0;
+				bNegative = false;
+				bHasDigits = false;
+			} else if (c >= '0' && c <= '9') {
+				value = (value * 10) + (c - '0');
+				bHasDigits = true;
+			} else if (c == '-' && !bHasDigits && !bNegative) {
+				bNegative = true;
+			} else {
+				return count;
+			}
+		}
+
+		// Last reading without a trailing ';'
+		if (bHasDigits && count < readings.length)
+			readings[count++] = bNegative ? -value : value;
+
+		return count;
+	}
+
+	/**
+	 * Parses the sensor readings of a binary Arduino frame, one signed byte
+	 * per reading, without creating any objects
+	 *
+	 * @param frame
+	 *            The received bytes
+	 * @param offset
+	 *            Index of the first reading within frame
+	 * @param length
+	 *            Number of readings within frame
+	 * @param readings
+	 *            Array to store the readings in
+	 *
+	 * @return Number of readings parsed
+	 */
+	public static int parseSensorReadings(byte[] frame, int offset,
+			int length, int[] readings) {
+
+		int count = Math.min(length, readings.length);
+		for (int i = 0; i < count; i++)
+			readings[i] = frame[offset + i];
+
+		return count;
+	}
+
+	/**
+	 * Appends sensor readings as an ASCII Arduino message
+	 *
+	 * @return sb, e.g. with "3,5;5;0;0;5;5;" appended
+	 */
+	public static StringBuilder appendSensorReadings(StringBuilder sb,
+			int[] readings, int count) {
+
+		sb.append(CommMgr.MSG_TYPE_ARDUINO);
+		for (int i = 0; i < count; i++)
+			sb.append(readings[i]).append(';');
+
+		return sb;
+	}
+
+	/**
+	 * Encodes part of a message in ASCII mode, padded to 128 characters
+	 * <p>
+	 * Parts which are longer are sent whole, without any padding
+	 *
+	 * @param bContinued Whether more parts of the message follow
+	 */
+	private static ByteBuffer encodeAsciiPart(String msgType, String msg,
+			int from, int to, boolean bContinued, ByteBuffer buffer) {
+
+		int partLength = msgType.length() + (to - from) + (bContinued ? 1 : 0);
+		buffer = ensureRemaining(buffer, Math.max(partLength, ASCII_MSG_LENGTH));
+
+		putAscii(buffer, msgType);
+		for (int charIndex = from; charIndex < to; charIndex++)
+			buffer.put((byte) msg.charAt(charIndex));
+		if (bContinued)
+			buffer.put((byte) ASCII_CONTINUED);
+		for (int i = partLength; i < ASCII_MSG_LENGTH; i++)
+			buffer.put((byte) ' ');
+
+		return buffer;
+	}
+
+	private static int startFrame(ByteBuffer buffer, int frameType) {
+		int frameStart = buffer.position();
+		buffer.put((byte) 0); // Length, filled in by endFrame()
+		buffer.put((byte) frameType);
+		return frameStart;
+	}
+
+	private static int payloadLength(ByteBuffer buffer, int frameStart) {
+		return buffer.position() - frameStart - 2;
+	}
+
+	private static void endFrame(ByteBuffer buffer, int frameStart) {
+		buffer.put(frameStart, (byte) (buffer.position() - frameStart - 1));
+	}
+
+	/**
+	 * Ends a frame of a split message, with more frames to follow
+	 */
+	private static void endContinuedFrame(ByteBuffer buffer, int frameStart) {
+		endFrame(buffer, frameStart);
+		buffer.put(frameStart + 1,
+				(byte) (buffer.get(frameStart + 1) | FRAME_CONTINUED));
+	}
+
+	private static void putAscii(ByteBuffer buffer, String str) {
+		for (int charIndex = 0; charIndex < str.length(); charIndex++)
+			buffer.put((byte) str.charAt(charIndex));
+	}
+
+	private static ByteBuffer ensureRemaining(ByteBuffer buffer, int noOfBytes) {
+
+		if (buffer.remaining() >= noOfBytes)
+			return buffer;
+
+		ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(
+				buffer.capacity() * 2, buffer.position() + noOfBytes));
+		buffer.flip();
+		newBuffer.put(buffer);
+		return newBuffer;
+	}
+}
@@ -1,46 +1,44 @@
 package map;
 
+/**
+ * A view of a single grid within a map
+ * <p>
+ * The grid's status is kept within the map's {@link GridStore},
+ * this only holds the grid's position. Views are created when asked for,
+ * so compare grids with {@link #equals}, not ==.
+ */
 public class Grid {
 	
-	private boolean _bExplored;		// Indicates whether this grid has been explored
-	private boolean _bObstacle;		// Indicates whether this grid is an obstacle
-	private boolean _bVisited;		// Indicates whether this grid has been visited
+	private final GridStore _store;	// Store holding this grid's status
+	private int _index;				// This grid's index within the store
 	
 	private int _row;				// This grid's row within the map
 	private int _col;				// This grid's column within the map
 	
-	private double _truthValue;		// This grid's truth value for the current status
-	
 	/**
-	 * Default Constructor
+	 * Constructor for a grid which is not part of any map
 	 * 
 	 * @author Jin Yao
 	 */
 	public Grid() {
-		_bExplored = false;
-		_bObstacle = false;
-		_bVisited = false;
-		
-		_truthValue = 0;
+		this(new GridStore(1, 1), 0, 0);
 	}
 	
 	/**
 	 * Constructor which initializes the grid's position within the map
 	 * 
+	 * @param store	The store holding the map's grids
 	 * @param row 	The grid's row within the map
 	 * @param col	The grid's column within the map
 	 * 
 	 * @author Liang Liang
 	 */
-	public Grid(int row, int col) {
+	public Grid(GridStore store, int row, int col) {
+		_store = store;
+		_index = store.indexOf(row, col);
+		
 		_row = row;
 		_col = col;
-		
-		_bExplored = false;
-		_bObstacle = false;
-		_bVisited = false;
-		
-		_truthValue = 0;
 	}
 	
 	/**
@@ -68,6 +66,7 @@ public class Grid {
 	 */
 	public void setRow(int newRow) {
 		_row = newRow;
+		_index = _store.indexOf(_row, _col);
 	}
 	
 	/**
@@ -77,6 +76,7 @@ public class Grid {
 	 */
 	public void setCol(int newCol) {
 		_col = newCol;
+		_index = _store.indexOf(_row, _col);
 	}
 	
 	/**
@@ -85,7 +85,7 @@ public class Grid {
 	 * @return True if this Grid has been explored
 	 */
 	public boolean isExplored() {
-		return _bExplored;
+		return _store.isExplored(_index);
 	}
 	
 	/**
@@ -94,14 +94,14 @@ public class Grid {
 	 * @return True if this Grid contains an obstacle
 	 */
 	public boolean isObstacle() {
-		return _bObstacle;
+		return _store.isObstacle(_index);
 	}
 	
 	/**
 	 * Returns the truth value assigned to the current reading for this grid
 	 */
 	public double getTruthValue() {
-		return _truthValue;
+		return _store.getTruthValue(_index);
 	}
 	
 	/**
@@ -110,7 +110,7 @@ public class Grid {
 	 * @return True if this Grid has been visited by the robot
 	 */
 	public boolean isVisited() {
-		return _bVisited;
+		return _store.isVisited(_index);
 	}
 	
 	/**
@@ -119,7 +119,7 @@ public class Grid {
 	 * @param bExplored True if this grid has been explored, false otherwise
 	 */
 	public void setExplored(boolean bExplored) {
-		_bExplored = bExplored;
+		_store.setExplored(_index, bExplored);
 	}
 	
 	/**
@@ -128,9 +128,7 @@ public class Grid {
 	 * @param bObstacle True if this grid is an obstacle, false otherwise
 	 */
 	public void setObstacle(boolean bObstacle) {
-		
-		_bExplored = false;
-		_bObstacle = bObstacle;
+		_store.setObstacle(_index, bObstacle);
 	}
 	
 	/**
@@ -139,9 +137,7 @@ public class Grid {
 	 * @param bVisited True if this grid has been visited, false otherwise
 	 */
 	public void setVisited(boolean bVisited) {
-		
-		_bExplored = true;
-		_bVisited = bVisited;
+		_store.setVisited(_index, bVisited);
 	}
 	
 	/**
@@ -149,8 +145,7 @@ public class Grid {
 	 * Mark this Grid as a free grid
 	 */
 	public void markAsFreeGrid() {
-		_bExplored = true;
-		_bObstacle = false;
+		_store.markAsFreeGrid(_index);
 	}
 	
 	/**
@@ -158,8 +153,7 @@ public class Grid {
 	 * Mark this Grid as an obstacle
 	 */
 	public void markAsObstacle() {
-		_bExplored = true;
-		_bObstacle = true;
+		_store.markAsObstacle(_index);
 	}
 	
 	/**
@@ -171,13 +165,7 @@ public class Grid {
 	 * @param newTruthValue The proposed truth value
 	 */
 	public void markAsFreeGrid(double newTruthValue) {
-		
-		if(newTruthValue >= _truthValue) {
-			_bExplored = true;
-			_bObstacle = false;
-			
-			_truthValue = newTruthValue;
-		}
+		_store.markAsFreeGrid(_index, (float) newTruthValue);
 	}
 	
 	/**
@@ -189,13 +177,7 @@ public class Grid {
 	 * @param newTruthValue The proposed truth value
 	 */
 	public void markAsObstacle(double newTruthValue) {
-		
-		if(newTruthValue >= _truthValue) {
-			_bExplored = true;
-			_bObstacle = true;
-			
-			_truthValue = newTruthValue;
-		}
+		_store.markAsObstacle(_index, (float) newTruthValue);
 	}
 	
 	/**
@@ -203,8 +185,7 @@ public class Grid {
 	 * Mark this Grid as visited
 	 */
 	public void markAsVisited() {
-		_bExplored = true;
-		_bVisited = true;
+		_store.markAsVisited(_index);
 	}
 	
 	/**
@@ -212,10 +193,25 @@ public class Grid {
 	 * This grid will be unexplored, unvisited, and not an obstacle
 	 */
 	public void resetGrid() {
-		_bExplored = false;
-		_bVisited = false;
-		_bObstacle = false;
+		_store.resetGrid(_index);
+	}
+	
+	/**
+	 * Indicates whether the given object is a view of the same grid
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Grid))
+			return false;
 		
-		_truthValue = 0;
+		Grid other = (Grid) obj;
+		return _store == other._store && _index == other._index;
+	}
+	
+	@Override
+	public int hashCode() {
+		return _index;
 	}
 }
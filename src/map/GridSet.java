@@ -0,0 +1,138 @@
+package map;
+
+import java.util.Arrays;
+
+/**
+ * A set of grids within a map, one bit per grid, indexed the same way as a
+ * {@link GridStore}
+ * <p>
+ * The words with any grids in them are also listed, so going through,
+ * adding or clearing a set takes time in proportion to the words in use, not
+ * the size of the map.
+ */
+public class GridSet {
+
+	private final int _noOfGrids;
+
+	// One bit per grid, 64 grids per word
+	private final long[] _bits;
+
+	// Words with any bits set, in the order they were first set
+	private final int[] _words;
+	private int _noOfWords = 0;
+
+	public GridSet(int noOfGrids) {
+		_noOfGrids = noOfGrids;
+		_bits = new long[(noOfGrids + 63) >>> 6];
+		_words = new int[_bits.length];
+	}
+
+	public boolean isEmpty() {
+		return _noOfWords == 0;
+	}
+
+	public boolean contains(int index) {
+		return (_bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public void add(int index) {
+		addBits(index >>> 6, 1L << index);
+	}
+
+	/**
+	 * Adds the grids of a word
+	 *
+	 * @param word
+	 *            Index of the word, i.e. the grid index / 64
+	 * @param bits
+	 *            The grids to add, one bit per grid of the word
+	 */
+	public void addBits(int word, long bits) {
+		if (bits == 0)
+			return;
+
+		if (_bits[word] == 0)
+			_words[_noOfWords++] = word;
+		_bits[word] |= bits;
+	}
+
+	/**
+	 * Adds the grids of another set of the same size
+	 */
+	public void addAll(GridSet other) {
+		for (int i = 0; i < other._noOfWords; i++) {
+			int word = other._words[i];
+			addBits(word, other._bits[word]);
+		}
+	}
+
+	/**
+	 * Adds every grid of the map
+	 */
+	public void addAll() {
+		Arrays.fill(_bits, -1L);
+		if ((_noOfGrids & 63) != 0)
+			_bits[_bits.length - 1] = (1L << _noOfGrids) - 1;
+
+		for (int word = 0; word < _words.length; word++)
+			_words[word] = word;
+		_noOfWords = _words.length;
+	}
+
+	public void clear() {
+		for (int i = 0; i < _noOfWords; i++)
+			_bits[_words[i]] = 0;
+		_noOfWords = 0;
+	}
+
+	/**
+	 * Gets the number of words with any grids in them, see {@link #getWord}
+	 */
+	public int getNoOfWords() {
+		return _noOfWords;
+	}
+
+	/**
+	 * Gets a word with any grids in it
+	 *
+	 * @param i
+	 *            [0, {@link #getNoOfWords()})
+	 * @return Index of the word, i.e. the grid index / 64
+	 */
+	public int getWord(int i) {
+		return _words[i];
+	}
+
+	/**
+	 * Gets the grids of a word, one bit per grid
+	 */
+	public long getBits(int word) {
+		return _bits[word];
+	}
+
+	/**
+	 * Finds the next grid within the set, in row-major order
+	 *
+	 * @param fromIndex
+	 *            The index to start searching from (inclusive)
+	 * @return The index of the grid, or -1 if there is none
+	 */
+	public int next(int fromIndex) {
+
+		if (fromIndex < 0)
+			fromIndex = 0;
+
+		int word = fromIndex >>> 6;
+		if (_noOfWords == 0 || word >= _bits.length)
+			return -1;
+
+		long bits = _bits[word] & (-1L << fromIndex);
+		while (bits == 0) {
+			if (++word == _bits.length)
+				return -1;
+			bits = _bits[word];
+		}
+
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+}
@@ -0,0 +1,386 @@
+package map;
+
+import java.util.Arrays;
+
+/**
+ * Flat storage for the state of every grid within a map
+ * <p>
+ * The explored, obstacle and visited flags are kept in bitsets, and the truth
+ * values in a float array, all indexed by (row * cols + col).<br>
+ * {@link Grid} objects are only thin views on top of this store.
+ * <p>
+ * The number of explored grids within the interior of the map, i.e. excluding
+ * the border walls, is kept up to date whenever a grid's explored flag changes.
+ * A version number is also bumped whenever an explored or obstacle flag
+ * changes, so anything derived from the map knows when to recalculate.
+ * <p>
+ * Grids whose explored or obstacle flag, or truth value, have changed are
+ * also marked as dirty, so the map display only redraws those grids.
+ */
+public class GridStore {
+
+	private final int _rows;
+	private final int _cols;
+
+	// One bit per grid, 64 grids per word
+	private final long[] _explored;
+	private final long[] _obstacle;
+	private final long[] _visited;
+
+	// Truth value assigned to the current status of each grid
+	private final float[] _truthValues;
+
+	// Grids within the border walls, and how many of them have been explored
+	private final long[] _interior;
+	private final int _noOfInteriorGrids;
+	private int _noOfExploredInterior = 0;
+
+	// Incremented whenever an explored or obstacle flag changes
+	private long _version = 0;
+
+	// Grids which have changed since the map display last drew them
+	private final GridSet _dirty;
+
+	public GridStore(int rows, int cols) {
+		_rows = rows;
+		_cols = cols;
+
+		int noOfGrids = rows * cols;
+		int noOfWords = (noOfGrids + 63) >>> 6;
+
+		_explored = new long[noOfWords];
+		_obstacle = new long[noOfWords];
+		_visited = new long[noOfWords];
+		_truthValues = new float[noOfGrids];
+
+		_dirty = new GridSet(noOfGrids);
+		markAllDirty();
+
+		_interior = new long[noOfWords];
+		for (int row = 1; row < rows - 1; row++) {
+			for (int col = 1; col < cols - 1; col++) {
+				int index = indexOf(row, col);
+				_interior[index >>> 6] |= (1L << index);
+			}
+		}
+		_noOfInteriorGrids = Math.max(rows - 2, 0) * Math.max(cols - 2, 0);
+	}
+
+	public int getRows() {
+		return _rows;
+	}
+
+	public int getCols() {
+		return _cols;
+	}
+
+	/**
+	 * Gets the index of a grid within this store
+	 *
+	 * @param row The grid's row within the map
+	 * @param col The grid's column within the map
+	 * @return The grid's index
+	 */
+	public int indexOf(int row, int col) {
+		return (row * _cols) + col;
+	}
+
+	public boolean isExplored(int index) {
+		return (_explored[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isObstacle(int index) {
+		return (_obstacle[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public boolean isVisited(int index) {
+		return (_visited[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Indicates whether a grid is known to be an obstacle,
+	 * i.e. explored and an obstacle
+	 */
+	public boolean isExploredObstacle(int index) {
+		return (_explored[index >>> 6] & _obstacle[index >>> 6]
+				& (1L << index)) != 0;
+	}
+
+	public float getTruthValue(int index) {
+		return _truthValues[index];
+	}
+
+	public void setExplored(int index, boolean bExplored) {
+
+		int word = index >>> 6;
+		long oldBits = _explored[word];
+		long newBits = setBit(oldBits, index, bExplored);
+
+		if (newBits != oldBits) {
+			_explored[word] = newBits;
+			_dirty.addBits(word, 1L << index);
+			_version++;
+
+			if ((_interior[word] & (1L << index)) != 0)
+				_noOfExploredInterior += bExplored ? 1 : -1;
+		}
+	}
+
+	/**
+	 * Set a grid as an obstacle<br>
+	 * The grid will be unexplored, same as {@link Grid#setObstacle}
+	 */
+	public void setObstacle(int index, boolean bObstacle) {
+		setExplored(index, false);
+		setObstacleBit(index, bObstacle);
+	}
+
+	/**
+	 * Set a grid as visited<br>
+	 * The grid will be explored, same as {@link Grid#setVisited}
+	 */
+	public void setVisited(int index, boolean bVisited) {
+		setExplored(index, true);
+		_visited[index >>> 6] = setBit(_visited[index >>> 6], index, bVisited);
+	}
+
+	/**
+	 * Mark a grid as explored, and as a free grid
+	 */
+	public void markAsFreeGrid(int index) {
+		setExplored(index, true);
+		setObstacleBit(index, false);
+	}
+
+	/**
+	 * Mark a grid as explored, and as an obstacle
+	 */
+	public void markAsObstacle(int index) {
+		setExplored(index, true);
+		setObstacleBit(index, true);
+	}
+
+	/**
+	 * Mark a grid as explored, and as a free grid<br>
+	 * Only if the given truth value is larger than or equal to
+	 * the current truth value
+	 */
+	public void markAsFreeGrid(int index, float newTruthValue) {
+		if (newTruthValue >= _truthValues[index]) {
+			markAsFreeGrid(index);
+			setTruthValue(index, newTruthValue);
+		}
+	}
+
+	/**
+	 * Mark a grid as explored, and as an obstacle<br>
+	 * Only if the given truth value is larger than or equal to
+	 * the current truth value
+	 */
+	public void markAsObstacle(int index, float newTruthValue) {
+		if (newTruthValue >= _truthValues[index]) {
+			markAsObstacle(index);
+			setTruthValue(index, newTruthValue);
+		}
+	}
+
+	/**
+	 * Mark a grid as explored, and as visited
+	 */
+	public void markAsVisited(int index) {
+		setExplored(index, true);
+		_visited[index >>> 6] |= (1L << index);
+	}
+
+	/**
+	 * Resets a grid<p>
+	 * The grid will be unexplored, unvisited, and not an obstacle
+	 */
+	public void resetGrid(int index) {
+		setExplored(index, false);
+		setObstacleBit(index, false);
+		_visited[index >>> 6] &= ~(1L << index);
+		setTruthValue(index, 0);
+	}
+
+	/**
+	 * Resets every grid within this store
+	 */
+	public void reset() {
+		Arrays.fill(_explored, 0L);
+		Arrays.fill(_obstacle, 0L);
+		Arrays.fill(_visited, 0L);
+		Arrays.fill(_truthValues, 0f);
+
+		_noOfExploredInterior = 0;
+		_version++;
+
+		markAllDirty();
+	}
+
+	/**
+	 * Gets the version of the explored & obstacle flags<br>
+	 * The version changes whenever any of these flags change
+	 */
+	public long getVersion() {
+		return _version;
+	}
+
+	/**
+	 * Gets the number of grids within the border walls
+	 */
+	public int getNoOfInteriorGrids() {
+		return _noOfInteriorGrids;
+	}
+
+	/**
+	 * Gets the number of explored grids within the border walls
+	 */
+	public int getNoOfExploredInteriorGrids() {
+		return _noOfExploredInterior;
+	}
+
+	/**
+	 * Gets the number of unexplored grids within the border walls
+	 */
+	public int getNoOfUnexploredInteriorGrids() {
+		return _noOfInteriorGrids - _noOfExploredInterior;
+	}
+
+	/**
+	 * Finds the next unexplored grid within the border walls, in row-major
+	 * order, skipping 64 grids at a time where possible
+	 *
+	 * @param fromIndex The index to start searching from (inclusive)
+	 * @return The index of the unexplored grid, or -1 if there is none
+	 */
+	public int nextUnexploredInterior(int fromIndex) {
+
+		if (fromIndex < 0)
+			fromIndex = 0;
+
+		int word = fromIndex >>> 6;
+		if (word >= _interior.length || _noOfExploredInterior == _noOfInteriorGrids)
+			return -1;
+
+		// Ignore the grids before fromIndex in the first word
+		long unexplored = _interior[word] & ~_explored[word] & (-1L << fromIndex);
+		while (unexplored == 0) {
+			if (++word == _interior.length)
+				return -1;
+			unexplored = _interior[word] & ~_explored[word];
+		}
+
+		return (word << 6) + Long.numberOfTrailingZeros(unexplored);
+	}
+
+	/**
+	 * Gets the number of grids, for sets of grids used with
+	 * {@link #takeDirty} and {@link #copyFrom}
+	 */
+	public int getNoOfGrids() {
+		return _truthValues.length;
+	}
+
+	/**
+	 * Copies the state of some grids from another store of the same size<br>
+	 * Only the grids which end up different are marked as dirty, so a copy
+	 * of a map can be kept up to date, and redrawn, a few grids at a time
+	 * <p>
+	 * NOTE: Every grid which differs between the two stores must be within
+	 * the given set, as the counts of explored grids are copied over as well
+	 *
+	 * @param src The store to copy from
+	 * @param grids The grids to copy
+	 */
+	public void copyFrom(GridStore src, GridSet grids) {
+
+		for (int i = 0; i < grids.getNoOfWords(); i++) {
+
+			int word = grids.getWord(i);
+			long mask = grids.getBits(word);
+
+			long changed = ((_explored[word] ^ src._explored[word])
+					| (_obstacle[word] ^ src._obstacle[word])) & mask;
+			_dirty.addBits(word, changed);
+
+			_explored[word] = (_explored[word] & ~mask) | (src._explored[word] & mask);
+			_obstacle[word] = (_obstacle[word] & ~mask) | (src._obstacle[word] & mask);
+			_visited[word] = (_visited[word] & ~mask) | (src._visited[word] & mask);
+
+			while (mask != 0) {
+				int index = (word << 6) + Long.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+
+				if (_truthValues[index] != src._truthValues[index]) {
+					_truthValues[index] = src._truthValues[index];
+					_dirty.addBits(word, 1L << index);
+				}
+			}
+		}
+
+		_noOfExploredInterior = src._noOfExploredInterior;
+		_version = src._version;
+	}
+
+	/**
+	 * Adds the dirty grids to a set of grids, and clears the dirty flags
+	 */
+	public void takeDirty(GridSet grids) {
+		grids.addAll(_dirty);
+		_dirty.clear();
+	}
+
+	/**
+	 * Marks a grid as dirty, e.g. when something drawn on top of it changes
+	 */
+	public void markDirty(int index) {
+		_dirty.add(index);
+	}
+
+	/**
+	 * Marks every grid as dirty, so the whole map is redrawn
+	 */
+	public void markAllDirty() {
+		_dirty.addAll();
+	}
+
+	/**
+	 * Gets the grids which have changed since they were last drawn, in no
+	 * particular order, see {@link #clearDirty}
+	 */
+	public GridSet getDirty() {
+		return _dirty;
+	}
+
+	/**
+	 * Clears the dirty flags, once every dirty grid has been redrawn
+	 */
+	public void clearDirty() {
+		_dirty.clear();
+	}
+
+	private void setTruthValue(int index, float truthValue) {
+		if (_truthValues[index] != truthValue) {
+			_truthValues[index] = truthValue;
+			_dirty.add(index);
+		}
+	}
+
+	private void setObstacleBit(int index, boolean bObstacle) {
+
+		int word = index >>> 6;
+		long oldBits = _obstacle[word];
+		long newBits = setBit(oldBits, index, bObstacle);
+
+		if (newBits != oldBits) {
+			_obstacle[word] = newBits;
+			_dirty.addBits(word, 1L << index);
+			_version++;
+		}
+	}
+
+	private static long setBit(long word, int index, boolean bValue) {
+		return bValue ? (word | (1L << index)) : (word & ~(1L << index));
+	}
+}
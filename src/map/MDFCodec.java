@@ -0,0 +1,243 @@
+package map;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Encoding & decoding of the map descriptor format (MDF) strings
+ * <p>
+ * Part 1: "11", then 1 bit per grid (1 if explored), then "11", padded
+ * with 0s to a multiple of 4 bits<br>
+ * Part 2: 1 bit per explored grid (1 if obstacle), padded with 0s to a
+ * multiple of 8 bits<br>
+ * Both parts go through the grids within the border walls column by column,
+ * from the bottom-left (Row 1, Col 1), and are written in hexadecimal.
+ * <p>
+ * The bits are packed straight into a long[] and written out with a lookup
+ * table, 4 bits per hex digit.
+ */
+public final class MDFCodec {
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	// Value of each hex digit, or -1 for other characters
+	private static final int[] HEX_VALUES = new int[128];
+	static {
+		Arrays.fill(HEX_VALUES, -1);
+		for (int value = 0; value < HEX_DIGITS.length; value++) {
+			HEX_VALUES[HEX_DIGITS[value]] = value;
+			HEX_VALUES[Character.toLowerCase(HEX_DIGITS[value])] = value;
+		}
+	}
+
+	// Prevent instantiation
+	private MDFCodec() {}
+
+	/**
+	 * Generates the MDF string for Part 1, i.e. the explored grids
+	 */
+	public static String encodePart1(GridStore store) {
+
+		int noOfGrids = store.getNoOfInteriorGrids();
+		long[] bits = new long[((noOfGrids + 4) + 63) >>> 6];
+
+		int bitIndex = 0;
+
+		// First two bits set to 11
+		setBit(bits, bitIndex++);
+		setBit(bits, bitIndex++);
+
+		for (int col = 1; col < store.getCols() - 1; col++) {
+			for (int row = 1; row < store.getRows() - 1; row++) {
+				if (store.isExplored(store.indexOf(row, col)))
+					setBit(bits, bitIndex);
+				bitIndex++;
+			}
+		}
+
+		// Last two bits set to 11
+		setBit(bits, bitIndex++);
+		setBit(bits, bitIndex++);
+
+		// Pad with 0s to a whole hex digit, for maps whose number of grids
+		// is not a multiple of 4
+		return toHex(bits, (bitIndex + 3) & ~3);
+	}
+
+	/**
+	 * Generates the MDF string for Part 2, i.e. the obstacles among the
+	 * explored grids
+	 */
+	public static String encodePart2(GridStore store) {
+
+		int noOfGrids = store.getNoOfInteriorGrids();
+		long[] bits = new long[(noOfGrids + 63) >>> 6];
+
+		int bitIndex = 0;
+		for (int col = 1; col < store.getCols() - 1; col++) {
+			for (int row = 1; row < store.getRows() - 1; row++) {
+				int index = store.indexOf(row, col);
+				if (store.isExplored(index)) {
+					if (store.isObstacle(index))
+						setBit(bits, bitIndex);
+					bitIndex++;
+				}
+			}
+		}
+
+		// Pad with 0s to make the length a multiple of 8
+		return toHex(bits, (bitIndex + 7) & ~7);
+	}
+
+	/**
+	 * Rebuilds a map from its MDF strings<br>
+	 * Every grid within the border walls is reset, then marked as a free grid
+	 * or an obstacle if it has been explored
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the strings are not valid hex, or are too short for the
+	 *             map
+	 */
+	public static void decode(String part1, String part2, GridStore store) {
+
+		long[] exploredBits = fromHex(part1);
+		long[] obstacleBits = fromHex(part2);
+
+		int noOfExploredBits = part1.length() * 4;
+		int noOfObstacleBits = part2.length() * 4;
+		if (noOfExploredBits < store.getNoOfInteriorGrids() + 4)
+			throw new IllegalArgumentException("MDF string 1 is too short");
+
+		// Skip the first two bits
+		int exploredIndex = 2;
+		int obstacleIndex = 0;
+		for (int col = 1; col < store.getCols() - 1; col++) {
+			for (int row = 1; row < store.getRows() - 1; row++) {
+
+				int index = store.indexOf(row, col);
+				store.resetGrid(index);
+
+				if (getBit(exploredBits, exploredIndex++)) {
+					if (obstacleIndex >= noOfObstacleBits)
+						throw new IllegalArgumentException(
+								"MDF string 2 is too short");
+
+					if (getBit(obstacleBits, obstacleIndex++))
+						store.markAsObstacle(index);
+					else
+						store.markAsFreeGrid(index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the MDF strings saved by the simulator, e.g.
+	 * MDFStrings_Old_Arena_Week10.txt
+	 *
+	 * @return Part 1 & Part 2
+	 */
+	public static String[] readMDFStrings(String filePath) throws IOException {
+
+		String[] mdfStrings = new String[2];
+
+		try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+			int part = -1;
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("MDF String 1"))
+					part = 0;
+				else if (line.startsWith("MDF String 2"))
+					part = 1;
+				else if (part >= 0 && line.length() > 0 && mdfStrings[part] == null)
+					mdfStrings[part] = line;
+			}
+		}
+
+		if (mdfStrings[0] == null || mdfStrings[1] == null)
+			throw new IOException("MDF strings not found in " + filePath);
+
+		return mdfStrings;
+	}
+
+	private static void setBit(long[] bits, int bitIndex) {
+		bits[bitIndex >>> 6] |= (1L << (63 - (bitIndex & 63)));
+	}
+
+	private static boolean getBit(long[] bits, int bitIndex) {
+		return (bits[bitIndex >>> 6] & (1L << (63 - (bitIndex & 63)))) != 0;
+	}
+
+	/**
+	 * Writes out the first noOfBits bits, 4 bits per hex digit
+	 */
+	private static String toHex(long[] bits, int noOfBits) {
+
+		char[] hex = new char[noOfBits / 4];
+		for (int digit = 0; digit < hex.length; digit++) {
+			long word = bits[digit >>> 4];
+			hex[digit] = HEX_DIGITS[(int) (word >>> (60 - ((digit & 15) * 4))) & 0xF];
+		}
+
+		return new String(hex);
+	}
+
+	private static long[] fromHex(String hex) {
+
+		long[] bits = new long[((hex.length() * 4) + 63) >>> 6];
+		for (int digit = 0; digit < hex.length(); digit++) {
+
+			char c = hex.charAt(digit);
+			int value = (c < HEX_VALUES.length) ? HEX_VALUES[c] : -1;
+			if (value < 0)
+				throw new IllegalArgumentException("Invalid hex digit: " + c);
+
+			bits[digit >>> 4] |= ((long) value) << (60 - ((digit & 15) * 4));
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Loads saved MDF strings, and prints out what was explored
+	 * <p>
+	 * Usage: MDFCodec &lt;MDF strings file&gt;...
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.out.println("Usage: MDFCodec <MDF strings file>...");
+			return;
+		}
+
+		System.out.println(String.format("%-36s %9s %9s %10s", "File",
+				"Explored", "Obstacles", "Round-trip"));
+
+		for (String filePath : args) {
+			String[] mdfStrings = readMDFStrings(filePath);
+
+			GridStore store = new GridStore(MapConstants.MAP_ROWS,
+					MapConstants.MAP_COLS);
+			decode(mdfStrings[0], mdfStrings[1], store);
+
+			int noOfObstacles = 0;
+			for (int row = 1; row < store.getRows() - 1; row++) {
+				for (int col = 1; col < store.getCols() - 1; col++) {
+					if (store.isExploredObstacle(store.indexOf(row, col)))
+						noOfObstacles++;
+				}
+			}
+
+			boolean bRoundTrip = encodePart1(store).equalsIgnoreCase(
+					mdfStrings[0])
+					&& encodePart2(store).equalsIgnoreCase(mdfStrings[1]);
+
+			System.out.println(String.format("%-36s %9d %9d %10s", filePath,
+					store.getNoOfExploredInteriorGrids(), noOfObstacles,
+					bRoundTrip ? "OK" : "MISMATCH"));
+		}
+	}
+}
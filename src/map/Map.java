@@ -2,34 +2,121 @@ package map;
 
 import javax.swing.JPanel;
 
+/**
+ * A map of the arena, surrounded by a border of walls
+ * <p>
+ * The size of the map and the positions of the start & goal zones are set
+ * per map, and default to the 15 x 20 arena (17 x 22 including the border
+ * walls) with the start zone at the bottom-left and the goal zone at the
+ * top-right. Both zones are ZONE_SIZE x ZONE_SIZE grids, and are given by
+ * the grid with the smallest row & column.
+ */
 @SuppressWarnings("serial")
 public class Map extends JPanel {
 
-	protected Grid [][] _grids = null;
+	protected GridStore _store = null;
+
+	// Size of the map, including the border walls
+	protected final int _rows;
+	protected final int _cols;
+
+	// Grids with the smallest row & column of the start & goal zones
+	private int _startZoneRow = 1;
+	private int _startZoneCol = 1;
+	private int _goalZoneRow = 0;
+	private int _goalZoneCol = 0;
 
 	public Map() {
+		this(MapConstants.MAP_ROWS, MapConstants.MAP_COLS);
+	}
+
+	/**
+	 * Creates a map with the start zone at (1, 1), and the goal zone in the
+	 * opposite corner
+	 * 
+	 * @param rows Number of rows, including the border walls
+	 * @param cols Number of columns, including the border walls
+	 */
+	public Map(int rows, int cols) {
+
+		if (rows < MapConstants.ZONE_SIZE + 2 || cols < MapConstants.ZONE_SIZE + 2)
+			throw new IllegalArgumentException("Map is too small: " + rows
+					+ " x " + cols);
+
+		_rows = rows;
+		_cols = cols;
+
+		_goalZoneRow = rows - 1 - MapConstants.ZONE_SIZE;
+		_goalZoneCol = cols - 1 - MapConstants.ZONE_SIZE;
 		
-		_grids = new Grid [MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-		
-		for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
-			for (int col = 0; col < MapConstants.MAP_COLS; col++) {
-				_grids[row][col] = new Grid(row, col);
-			}
-		}
+		_store = new GridStore(rows, cols);
 	}
 
 	public void resetMap() {
-		
-		for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
-			for (int col = 0; col < MapConstants.MAP_COLS; col++) {
-				_grids[row][col].resetGrid();
-			}
-		}
+		_store.reset();
+	}
+
+	/** Number of rows, including the border walls */
+	public int getRows() {
+		return _rows;
+	}
+
+	/** Number of columns, including the border walls */
+	public int getCols() {
+		return _cols;
+	}
+
+	public int getStartZoneRow() {
+		return _startZoneRow;
+	}
+
+	public int getStartZoneCol() {
+		return _startZoneCol;
+	}
+
+	public int getGoalZoneRow() {
+		return _goalZoneRow;
+	}
+
+	public int getGoalZoneCol() {
+		return _goalZoneCol;
+	}
+
+	/**
+	 * Moves the start zone
+	 * 
+	 * @param row The smallest row of the start zone
+	 * @param col The smallest column of the start zone
+	 */
+	public void setStartZone(int row, int col) {
+		checkZone(row, col);
+		_startZoneRow = row;
+		_startZoneCol = col;
+	}
+
+	/**
+	 * Moves the goal zone
+	 * 
+	 * @param row The smallest row of the goal zone
+	 * @param col The smallest column of the goal zone
+	 */
+	public void setGoalZone(int row, int col) {
+		checkZone(row, col);
+		_goalZoneRow = row;
+		_goalZoneCol = col;
+	}
+
+	/**
+	 * Uses the same start & goal zones as another map of the same size
+	 */
+	protected void copyZones(Map map) {
+		setStartZone(map.getStartZoneRow(), map.getStartZoneCol());
+		setGoalZone(map.getGoalZoneRow(), map.getGoalZoneCol());
 	}
 	
 	public boolean isBorderWalls(int row, int col) {
-		return (row == 0 || row == (MapConstants.MAP_ROWS - 1) ||
-				col == 0 || col == (MapConstants.MAP_COLS - 1));
+		return (row == 0 || row == (_rows - 1) ||
+				col == 0 || col == (_cols - 1));
 	}
 	
 	/**
@@ -40,7 +127,10 @@ public class Map extends JPanel {
 	 * @return True if the specified row and column is within the start zone
 	 */
 	public boolean isStartZone(int row, int col) {
-		return (row >= 1 && row <= 3 && col >= 1 && col <= 3);
+		return (row >= _startZoneRow
+				&& row < _startZoneRow + MapConstants.ZONE_SIZE
+				&& col >= _startZoneCol
+				&& col < _startZoneCol + MapConstants.ZONE_SIZE);
 	}
 	
 	/**
@@ -51,14 +141,35 @@ public class Map extends JPanel {
 	 * @return True if the specified row and column is within the goal zone
 	 */
 	public boolean isGoalZone(int row, int col) {
-		return ((row <= (MapConstants.MAP_ROWS - 2))
-				&& (row >= (MapConstants.MAP_ROWS - 4))
-				&& (col <= (MapConstants.MAP_COLS - 2))
-				&& (col >= (MapConstants.MAP_COLS - 4)));
+		return (row >= _goalZoneRow
+				&& row < _goalZoneRow + MapConstants.ZONE_SIZE
+				&& col >= _goalZoneCol
+				&& col < _goalZoneCol + MapConstants.ZONE_SIZE);
 	}
 	
-	public Grid [][] getMapGrids() {
-		return _grids;
+	private void checkZone(int row, int col) {
+		if (row < 1 || col < 1 || row + MapConstants.ZONE_SIZE > _rows - 1
+				|| col + MapConstants.ZONE_SIZE > _cols - 1)
+			throw new IllegalArgumentException("Zone at " + row + ", " + col
+					+ " is outside the arena");
+	}
+	
+	/**
+	 * Gets a view of a grid within the map
+	 * <p>
+	 * A new view is created on every call, so the map only keeps its
+	 * {@link GridStore}; read & update many grids through the store instead.
+	 */
+	public Grid getGrid(int row, int col) {
+		return new Grid(_store, row, col);
+	}
+	
+	/**
+	 * Gets the flat store holding the status of every grid,
+	 * indexed by (row * cols + col)
+	 */
+	public GridStore getGridStore() {
+		return _store;
 	}
 
 }
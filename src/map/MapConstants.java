@@ -7,14 +7,17 @@ public final class MapConstants {
 	// Grid size - for rendering only
 	public static final int GRID_SIZE = 40;
 	
-	// Map size
+	// Default map size, including the border walls
 	public static final int MAP_COLS = 22;
 	public static final int MAP_ROWS = 17;
 	
-	// Goal grid information
+	// Default goal grid information, see Map#getGoalZoneRow
 	public static final int GOAL_GRID_ROW = 13;
 	public static final int GOAL_GRID_COL = 18;
 	
+	// Size of the start & goal zones
+	public static final int ZONE_SIZE = 3;
+	
 	// Colors for rendering the map
 	public static final Color C_BORDER = Color.BLACK;
 	public static final Color C_BORDER_WARNING = new Color(255, 102, 153, 200);
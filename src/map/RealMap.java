@@ -22,8 +22,33 @@ public class RealMap extends Map {
 	// For rendering the map efficiently
 	private MapGrid[][] _mapGrids = null;
 	
+	// Distance from each grid to the nearest obstacle in each direction,
+	// indexed by (row * cols + col); if there is no obstacle in that
+	// direction, the distance to the first grid beyond the edge of the map
+	private int[] _northDistances = null;
+	private int[] _eastDistances = null;
+	private int[] _southDistances = null;
+	private int[] _westDistances = null;
+	
 	public RealMap() {
-		super();
+		this(MapConstants.MAP_ROWS, MapConstants.MAP_COLS);
+	}
+	
+	/**
+	 * Creates an empty arena of the given size
+	 * 
+	 * @param rows Number of rows, including the border walls
+	 * @param cols Number of columns, including the border walls
+	 */
+	public RealMap(int rows, int cols) {
+		super(rows, cols);
+		
+		int noOfGrids = rows * cols;
+		_northDistances = new int[noOfGrids];
+		_eastDistances = new int[noOfGrids];
+		_southDistances = new int[noOfGrids];
+		_westDistances = new int[noOfGrids];
+		
 		buildDefaultMap();
 		
 		this.addMouseListener(new MouseAdapter() {
@@ -41,8 +66,8 @@ public class RealMap extends Map {
 				int gridRow = mouseClickY / MapConstants.GRID_SIZE;
 				int gridCol = mouseClickX / MapConstants.GRID_SIZE;
 				
-				if((gridRow < MapConstants.MAP_ROWS)
-						&& (gridCol < MapConstants.MAP_COLS))
+				if((gridRow < _rows)
+						&& (gridCol < _cols))
 				{
 					if(bControlDown)
 						removeObstacle(gridRow, gridCol);
@@ -55,21 +80,23 @@ public class RealMap extends Map {
 	
 	private void buildDefaultMap() {
 		
-		for (int row = 0; row < MapConstants.MAP_ROWS; row++)
+		for (int row = 0; row < _rows; row++)
 		{
-			for (int col = 0; col < MapConstants.MAP_COLS; col++)
+			for (int col = 0; col < _cols; col++)
 			{
 				// Obstacle - Border walls
 				if(isBorderWalls(row, col))
 				{
-					_grids[row][col].setObstacle(true);
+					_store.setObstacle(_store.indexOf(row, col), true);
 				}
 			}
 		}
+		
+		updateRayDistances();
 	}
 	
 	private void addObstacle(int row, int col) {
-		if(_grids[row][col].isObstacle())
+		if(_store.isObstacle(_store.indexOf(row, col)))
 		{
 			JOptionPane.showMessageDialog(this, "Why would you want to put an obstacle"
 					+ " on an obstacle? Please try again!", "Warning",
@@ -83,12 +110,13 @@ public class RealMap extends Map {
 		}
 		else
 		{
-			_grids[row][col].setObstacle(true);
+			_store.setObstacle(_store.indexOf(row, col), true);
+			updateRayDistances(row, col);
 		}
 	}
 	
 	private void removeObstacle(int row, int col) {
-		if(_grids[row][col].isObstacle())
+		if(_store.isObstacle(_store.indexOf(row, col)))
 		{
 			if (isBorderWalls(row, col)) {
 				JOptionPane.showMessageDialog(null,
@@ -99,7 +127,8 @@ public class RealMap extends Map {
 			}
 			else
 			{
-				_grids[row][col].setObstacle(false);
+				_store.setObstacle(_store.indexOf(row, col), false);
+				updateRayDistances(row, col);
 			}
 		}
 	}
@@ -115,9 +144,9 @@ public class RealMap extends Map {
 					+ ", Map height: " + _mapHeight);
 
 			// Calculate the map grids for rendering
-			_mapGrids = new MapGrid[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-			for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-				for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
+			_mapGrids = new MapGrid[_rows][_cols];
+			for (int mapRow = 0; mapRow < _rows; mapRow++) {
+				for (int mapCol = 0; mapCol < _cols; mapCol++) {
 					_mapGrids[mapRow][mapCol] = new MapGrid(mapCol
 							* MapConstants.GRID_SIZE, mapRow
 							* MapConstants.GRID_SIZE, MapConstants.GRID_SIZE);
@@ -136,9 +165,9 @@ public class RealMap extends Map {
         this.setBorder(border);
         
         // Paint the grids
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++)
+        for (int mapRow = 0; mapRow < _rows; mapRow++)
 		{
-			for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++)
+			for (int mapCol = 0; mapCol < _cols; mapCol++)
 			{
 				g.setColor(MapConstants.C_GRID_LINE);
 				g.fillRect(_mapGrids[mapRow][mapCol].borderX,
@@ -157,7 +186,7 @@ public class RealMap extends Map {
 					gridColor = MapConstants.C_GOAL;
 				else
 				{
-					if(_grids[mapRow][mapCol].isObstacle())
+					if(_store.isObstacle(_store.indexOf(mapRow, mapCol)))
 						gridColor = MapConstants.C_OBSTACLE;
 					else
 						gridColor = MapConstants.C_FREE;
@@ -181,21 +210,20 @@ public class RealMap extends Map {
 	 */
 	public String generateMapString() {
 		
-		String mapString = "";
+		char[] mapString = new char[(_rows - 2) * (_cols - 2)];
+		int charIndex = 0;
 		
-		for (int row = 1; row < (MapConstants.MAP_ROWS - 1); row++)
+		for (int row = 1; row < (_rows - 1); row++)
 		{
-			for (int col = 1; col < (MapConstants.MAP_COLS - 1); col++)
+			int index = _store.indexOf(row, 1);
+			for (int col = 1; col < (_cols - 1); col++, index++)
 			{
 				// Obstacle - Border walls
-				if(!_grids[row][col].isObstacle())
-					mapString += "0";
-				else
-					mapString += "1";
+				mapString[charIndex++] = _store.isObstacle(index) ? '1' : '0';
 			}
 		}
 		
-		return mapString;
+		return new String(mapString);
 	}
 	
 	/**
@@ -204,31 +232,141 @@ public class RealMap extends Map {
 	 */
 	public void loadFromMapString(String mapString) {
 		
-		for (int row = 1; row < (MapConstants.MAP_ROWS - 1); row++)
+		for (int row = 1; row < (_rows - 1); row++)
 		{
-			for (int col = 1; col < (MapConstants.MAP_COLS - 1); col++)
+			for (int col = 1; col < (_cols - 1); col++)
 			{
-				int charIndex = ((row - 1) * (MapConstants.MAP_COLS - 2))
+				int charIndex = ((row - 1) * (_cols - 2))
 						+ (col - 1);
 				
 				// Obstacle - Border walls
 				if(mapString.charAt(charIndex) == '1')
-					_grids[row][col].setObstacle(true);
+					_store.setObstacle(_store.indexOf(row, col), true);
 				else
-					_grids[row][col].setObstacle(false);
+					_store.setObstacle(_store.indexOf(row, col), false);
 			}
 		}
+		
+		updateRayDistances();
 	}
 	
 	public void clearMap() {
 		
-		for (int row = 1; row < (MapConstants.MAP_ROWS - 1); row++)
+		for (int row = 1; row < (_rows - 1); row++)
 		{
-			for (int col = 1; col < (MapConstants.MAP_COLS - 1); col++)
+			for (int col = 1; col < (_cols - 1); col++)
 			{
-				_grids[row][col].setObstacle(false);
+				_store.setObstacle(_store.indexOf(row, col), false);
 			}
 		}
+		
+		updateRayDistances();
+	}
+	
+	@Override
+	public void resetMap() {
+		super.resetMap();
+		updateRayDistances();
+	}
+	
+	/**
+	 * Gets the distance from each grid to the nearest obstacle north of it
+	 * 
+	 * @return Distances indexed by (row * cols + col)
+	 */
+	public int[] getNorthDistances() {
+		return _northDistances;
+	}
+	
+	/**
+	 * Gets the distance from each grid to the nearest obstacle east of it
+	 * 
+	 * @return Distances indexed by (row * cols + col)
+	 */
+	public int[] getEastDistances() {
+		return _eastDistances;
+	}
+	
+	/**
+	 * Gets the distance from each grid to the nearest obstacle south of it
+	 * 
+	 * @return Distances indexed by (row * cols + col)
+	 */
+	public int[] getSouthDistances() {
+		return _southDistances;
+	}
+	
+	/**
+	 * Gets the distance from each grid to the nearest obstacle west of it
+	 * 
+	 * @return Distances indexed by (row * cols + col)
+	 */
+	public int[] getWestDistances() {
+		return _westDistances;
+	}
+	
+	/**
+	 * Recalculates the distance tables for the whole map
+	 */
+	private void updateRayDistances() {
+		
+		for (int row = 0; row < _rows; row++)
+			updateRowDistances(row);
+		
+		for (int col = 0; col < _cols; col++)
+			updateColDistances(col);
+	}
+	
+	/**
+	 * Recalculates the distance tables after a single grid has changed<br>
+	 * Only the grid's row and column are affected
+	 */
+	private void updateRayDistances(int row, int col) {
+		updateRowDistances(row);
+		updateColDistances(col);
+	}
+	
+	/**
+	 * Recalculates the east & west distances along a row
+	 */
+	private void updateRowDistances(int row) {
+		
+		int firstIndex = _store.indexOf(row, 0);
+		int lastIndex = _store.indexOf(row, _cols - 1);
+		
+		_westDistances[firstIndex] = 1;
+		for (int index = firstIndex + 1; index <= lastIndex; index++) {
+			_westDistances[index] = _store.isObstacle(index - 1) ? 1
+					: _westDistances[index - 1] + 1;
+		}
+		
+		_eastDistances[lastIndex] = 1;
+		for (int index = lastIndex - 1; index >= firstIndex; index--) {
+			_eastDistances[index] = _store.isObstacle(index + 1) ? 1
+					: _eastDistances[index + 1] + 1;
+		}
+	}
+	
+	/**
+	 * Recalculates the north & south distances along a column
+	 */
+	private void updateColDistances(int col) {
+		
+		int step = _cols;
+		int firstIndex = _store.indexOf(0, col);
+		int lastIndex = _store.indexOf(_rows - 1, col);
+		
+		_northDistances[firstIndex] = 1;
+		for (int index = firstIndex + step; index <= lastIndex; index += step) {
+			_northDistances[index] = _store.isObstacle(index - step) ? 1
+					: _northDistances[index - step] + 1;
+		}
+		
+		_southDistances[lastIndex] = 1;
+		for (int index = lastIndex - step; index >= firstIndex; index -= step) {
+			_southDistances[index] = _store.isObstacle(index + step) ? 1
+					: _southDistances[index + step] + 1;
+		}
 	}
 	
 	private class MapGrid {
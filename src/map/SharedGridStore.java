@@ -0,0 +1,233 @@
+package map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Explored map shared by several robots exploring the same arena at once
+ * <p>
+ * The state of each grid is packed into a single long, the truth value's bits
+ * in the upper half and the explored & obstacle flags in the lower half, and
+ * updated with compare-and-set. An update only wins if its truth value is
+ * larger than or equal to the current one, same as
+ * {@link GridStore#markAsObstacle(int, float)}, so concurrent updates from
+ * different robots merge into the same state regardless of their order.
+ * <p>
+ * Each robot keeps exploring on its own {@link GridStore}, pushing what it
+ * senses here and pulling in what the other robots have sensed. Every grid
+ * changed by one robot is flagged as pending for every other robot, so a
+ * pull only has to look at the grids which changed since the last pull.
+ */
+public class SharedGridStore {
+
+	private static final long EXPLORED = 1L;
+	private static final long OBSTACLE = 2L;
+
+	private final int _rows;
+	private final int _cols;
+
+	// Truth value bits (upper 32 bits) and flags (lower 32 bits) of each grid
+	private final AtomicLongArray _grids;
+
+	// Grids changed by the other robots since each robot's last pull,
+	// one bit per grid, 64 grids per word
+	private final AtomicLongArray[] _pending;
+
+	private final AtomicInteger _noOfExploredInterior = new AtomicInteger();
+
+	/**
+	 * @param rows
+	 *            Number of rows, including the border walls
+	 * @param cols
+	 *            Number of columns, including the border walls
+	 * @param noOfRobots
+	 *            Number of robots sharing the store, with IDs [0, noOfRobots)
+	 */
+	public SharedGridStore(int rows, int cols, int noOfRobots) {
+		_rows = rows;
+		_cols = cols;
+
+		int noOfGrids = rows * cols;
+		int noOfWords = (noOfGrids + 63) >>> 6;
+
+		_grids = new AtomicLongArray(noOfGrids);
+
+		_pending = new AtomicLongArray[noOfRobots];
+		for (int robotId = 0; robotId < noOfRobots; robotId++)
+			_pending[robotId] = new AtomicLongArray(noOfWords);
+	}
+
+	public int getRows() {
+		return _rows;
+	}
+
+	public int getCols() {
+		return _cols;
+	}
+
+	public int getNoOfRobots() {
+		return _pending.length;
+	}
+
+	public boolean isExplored(int index) {
+		return (_grids.get(index) & EXPLORED) != 0;
+	}
+
+	public boolean isObstacle(int index) {
+		return (_grids.get(index) & OBSTACLE) != 0;
+	}
+
+	public float getTruthValue(int index) {
+		return Float.intBitsToFloat((int) (_grids.get(index) >>> 32));
+	}
+
+	/**
+	 * Mark a grid as explored, and as a free grid<br>
+	 * Only if the given truth value is larger than or equal to
+	 * the current truth value
+	 *
+	 * @param robotId
+	 *            The robot which sensed the grid
+	 * @return True if the grid's state changed
+	 */
+	public boolean markAsFreeGrid(int robotId, int index, float truthValue) {
+		return merge(robotId, index, EXPLORED, truthValue);
+	}
+
+	/**
+	 * Mark a grid as explored, and as an obstacle<br>
+	 * Only if the given truth value is larger than or equal to
+	 * the current truth value
+	 *
+	 * @param robotId
+	 *            The robot which sensed the grid
+	 * @return True if the grid's state changed
+	 */
+	public boolean markAsObstacle(int robotId, int index, float truthValue) {
+		return merge(robotId, index, EXPLORED | OBSTACLE, truthValue);
+	}
+
+	/**
+	 * Applies the grids changed by the other robots to a robot's own store,
+	 * and clears them from the robot's pending grids
+	 *
+	 * @param robotId
+	 *            The robot pulling in the changes
+	 * @param store
+	 *            The robot's store, of the same size as this store
+	 * @return The number of grids applied
+	 */
+	public int pullInto(int robotId, GridStore store) {
+
+		AtomicLongArray pending = _pending[robotId];
+
+		int noOfGrids = 0;
+		for (int word = 0; word < pending.length(); word++) {
+
+			if (pending.get(word) == 0)
+				continue;
+
+			long changed = pending.getAndSet(word, 0);
+			while (changed != 0) {
+				int index = (word << 6) + Long.numberOfTrailingZeros(changed);
+				changed &= changed - 1;
+
+				long grid = _grids.get(index);
+				float truthValue = Float.intBitsToFloat((int) (grid >>> 32));
+				if ((grid & OBSTACLE) != 0)
+					store.markAsObstacle(index, truthValue);
+				else
+					store.markAsFreeGrid(index, truthValue);
+
+				// Grids the robot already knows better, i.e. the start & goal
+				// zones, only take the explored flag
+				if (!store.isExplored(index) && isInterior(index))
+					store.setExplored(index, true);
+
+				noOfGrids++;
+			}
+		}
+
+		return noOfGrids;
+	}
+
+	/**
+	 * Copies the state of every grid into a store, e.g. to look at the
+	 * combined map once the robots are done
+	 */
+	public void copyTo(GridStore store) {
+
+		store.reset();
+		for (int index = 0; index < _grids.length(); index++) {
+
+			long grid = _grids.get(index);
+			if ((grid & EXPLORED) == 0)
+				continue;
+
+			float truthValue = Float.intBitsToFloat((int) (grid >>> 32));
+			if ((grid & OBSTACLE) != 0)
+				store.markAsObstacle(index, truthValue);
+			else
+				store.markAsFreeGrid(index, truthValue);
+		}
+	}
+
+	/**
+	 * Gets the number of grids within the border walls
+	 */
+	public int getNoOfInteriorGrids() {
+		return Math.max(_rows - 2, 0) * Math.max(_cols - 2, 0);
+	}
+
+	/**
+	 * Gets the number of explored grids within the border walls, by any robot
+	 */
+	public int getNoOfExploredInteriorGrids() {
+		return _noOfExploredInterior.get();
+	}
+
+	private boolean merge(int robotId, int index, long flags, float truthValue) {
+
+		long newGrid = (((long) Float.floatToIntBits(truthValue)) << 32) | flags;
+
+		long oldGrid;
+		do {
+			oldGrid = _grids.get(index);
+			if (oldGrid == newGrid)
+				return false;
+
+			// Keep the state with the larger truth value
+			if ((oldGrid & EXPLORED) != 0
+					&& truthValue < Float.intBitsToFloat((int) (oldGrid >>> 32)))
+				return false;
+
+		} while (!_grids.compareAndSet(index, oldGrid, newGrid));
+
+		if ((oldGrid & EXPLORED) == 0 && isInterior(index))
+			_noOfExploredInterior.incrementAndGet();
+
+		// Let every other robot know about the change
+		int word = index >>> 6;
+		long bit = 1L << index;
+		for (int otherId = 0; otherId < _pending.length; otherId++) {
+			if (otherId == robotId)
+				continue;
+
+			AtomicLongArray pending = _pending[otherId];
+			long oldBits;
+			do {
+				oldBits = pending.get(word);
+				if ((oldBits & bit) != 0)
+					break;
+			} while (!pending.compareAndSet(word, oldBits, oldBits | bit));
+		}
+
+		return true;
+	}
+
+	private boolean isInterior(int index) {
+		int row = index / _cols;
+		int col = index % _cols;
+		return row >= 1 && row < _rows - 1 && col >= 1 && col < _cols - 1;
+	}
+}
@@ -0,0 +1,214 @@
+package robot;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+import map.Grid;
+import map.Map;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * A* search for the shortest path of the robot over (row, col, heading)
+ * states
+ * <p>
+ * Moving to the next grid in the current heading costs MOVE_COST, and every
+ * 90 degree turn costs TURN_COST, so a path's cost accounts for every turn
+ * the robot has to make. The open set is a binary heap, and the g values and
+ * closed set are primitive arrays indexed by state.
+ * <p>
+ * Poses are searched as the states of {@link PoseState}.
+ */
+public class AStarPlanner {
+
+	private final Map _map;
+	private final int _rows;
+	private final int _cols;
+
+	// Per state arrays, indexed by PoseState
+	private final int[] _gValues;
+	private final int[] _parents;
+	private final boolean[] _closed;
+
+	// Per position cache of whether the robot fits there
+	private final RobotFootprint _footprint;
+
+	// Open set, ordered by f value
+	private final StateHeap _openSet;
+
+	// Number of states expanded by the last search
+	private int _nodesExpanded = 0;
+
+	// Cost of the path found by the last search, -1 if there was none
+	private int _lastPathCost = -1;
+
+	public AStarPlanner(Map map) {
+		_map = map;
+		_rows = map.getRows();
+		_cols = map.getCols();
+
+		int noOfStates = _rows * _cols * PoseState.NO_OF_HEADINGS;
+		_gValues = new int[noOfStates];
+		_parents = new int[noOfStates];
+		_closed = new boolean[noOfStates];
+		_footprint = new RobotFootprint(map.getGridStore());
+
+		_openSet = new StateHeap(noOfStates);
+	}
+
+	/**
+	 * Finds the shortest path between two positions of the robot
+	 *
+	 * @param startingGrid
+	 *            The robot's current position
+	 * @param endGrid
+	 *            The position to go to, which must be a valid position
+	 * @param startDir
+	 *            The robot's current direction
+	 *
+	 * @return A stack of grids with the starting grid on top and the end grid
+	 *         at the bottom, or null if there is no path
+	 */
+	public Stack<Grid> findShortestPath(Grid startingGrid, Grid endGrid,
+			DIRECTION startDir) {
+
+		int startRow = startingGrid.getRow();
+		int startCol = startingGrid.getCol();
+		int endRow = endGrid.getRow();
+		int endCol = endGrid.getCol();
+
+		Arrays.fill(_gValues, Integer.MAX_VALUE);
+		Arrays.fill(_closed, false);
+		_footprint.clear();
+		_openSet.clear();
+		_nodesExpanded = 0;
+		_lastPathCost = -1;
+
+		int startState = PoseState.toState(startRow, startCol, _cols,
+				startDir.ordinal());
+		_gValues[startState] = 0;
+		_parents[startState] = -1;
+		_openSet.push(startState, heuristic(startRow, startCol, startDir.ordinal(),
+				endRow, endCol));
+
+		int endState = -1;
+		while (!_openSet.isEmpty()) {
+
+			int state = _openSet.pop();
+			if (_closed[state])
+				continue;
+			_closed[state] = true;
+			_nodesExpanded++;
+
+			int pos = PoseState.getPos(state);
+			int heading = PoseState.getHeading(state);
+			int row = pos / _cols;
+			int col = pos % _cols;
+
+			if (row == endRow && col == endCol) {
+				endState = state;
+				break;
+			}
+
+			int gValue = _gValues[state];
+
+			// Move straight in the current heading
+			int nextRow = row + DIRECTION.getDeltaRow(heading);
+			int nextCol = col + DIRECTION.getDeltaCol(heading);
+			if (_footprint.isValidPos(nextRow, nextCol)) {
+				relax(state, PoseState.toState(nextRow, nextCol, _cols,
+						heading), gValue + RobotConstants.MOVE_COST, endRow,
+						endCol);
+			}
+
+			// Turn left or right on the spot
+			relax(state, PoseState.turn(state, 1),
+					gValue + RobotConstants.TURN_COST, endRow, endCol);
+			relax(state, PoseState.turn(state, 3),
+					gValue + RobotConstants.TURN_COST, endRow, endCol);
+		}
+
+		if (endState == -1)
+			return null;
+
+		_lastPathCost = _gValues[endState];
+
+		// Trace back from the end to the start, skipping turns on the spot
+		Stack<Grid> shortestPath = new Stack<Grid>();
+		int prevPos = -1;
+		for (int state = endState; state != -1; state = _parents[state]) {
+			int pos = PoseState.getPos(state);
+			if (pos != prevPos) {
+				shortestPath.push(_map.getGrid(pos / _cols, pos % _cols));
+				prevPos = pos;
+			}
+		}
+
+		return shortestPath;
+	}
+
+	/**
+	 * Gets the number of states expanded by the last search
+	 */
+	public int getNodesExpanded() {
+		return _nodesExpanded;
+	}
+
+	/**
+	 * Gets the cost of the path found by the last search
+	 *
+	 * @return The cost, or -1 if no path was found
+	 */
+	public int getLastPathCost() {
+		return _lastPathCost;
+	}
+
+	private void relax(int fromState, int toState, int gValue, int endRow,
+			int endCol) {
+
+		if (_closed[toState] || gValue >= _gValues[toState])
+			return;
+
+		_gValues[toState] = gValue;
+		_parents[toState] = fromState;
+
+		int pos = PoseState.getPos(toState);
+		_openSet.push(toState, gValue + heuristic(pos / _cols, pos % _cols,
+				PoseState.getHeading(toState), endRow, endCol));
+	}
+
+	/**
+	 * Lower bound on the cost from a state to the end position:<br>
+	 * Manhattan distance, plus the minimum number of turns required
+	 */
+	private static int heuristic(int row, int col, int heading, int endRow,
+			int endCol) {
+
+		int rowDifference = endRow - row;
+		int colDifference = endCol - col;
+
+		int hValue = (Math.abs(rowDifference) + Math.abs(colDifference))
+				* RobotConstants.MOVE_COST;
+
+		// Directions the robot still has to travel in
+		int noOfDirs = 0;
+		boolean bHeadingNeeded = false;
+		if (rowDifference != 0) {
+			noOfDirs++;
+			bHeadingNeeded |= (heading == (rowDifference < 0 ? 0 : 2));
+		}
+		if (colDifference != 0) {
+			noOfDirs++;
+			bHeadingNeeded |= (heading == (colDifference > 0 ? 1 : 3));
+		}
+
+		int noOfTurns = 0;
+		if (noOfDirs == 2) {
+			noOfTurns = bHeadingNeeded ? 1 : 2;
+		} else if (noOfDirs == 1 && !bHeadingNeeded) {
+			// Either perpendicular (1 turn) or opposite (2 turns)
+			noOfTurns = ((rowDifference != 0) == (heading % 2 == 0)) ? 2 : 1;
+		}
+
+		return hValue + (noOfTurns * RobotConstants.TURN_COST);
+	}
+}
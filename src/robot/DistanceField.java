@@ -0,0 +1,252 @@
+package robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+
+import map.Grid;
+import map.GridStore;
+import map.Map;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Cost of the shortest path to a fixed target, from every position & heading
+ * <p>
+ * The field is calculated by a reverse Dijkstra search from the target over
+ * (row, col, heading) states, using the same costs as the AStarPlanner.
+ * Along with the cost, the first move of the best path is kept for each
+ * state, so the path from any pose is found by following those moves.
+ * <p>
+ * The field is only recalculated when the explored grids or obstacles of the
+ * map have changed since the last calculation.
+ */
+public class DistanceField {
+
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	// First move of the best path from a state
+	private static final byte MOVE_NONE = 0;
+	private static final byte MOVE_STRAIGHT = 1;
+	private static final byte MOVE_TURN_LEFT = 2;
+	private static final byte MOVE_TURN_RIGHT = 3;
+
+	private final Map _map;
+	private final int _rows;
+	private final int _cols;
+
+	private final int _targetRow;
+	private final int _targetCol;
+
+	// Per state arrays, indexed by PoseState
+	private final int[] _costs;
+	private final byte[] _nextMoves;
+
+	// Per position validity, i.e. whether the robot fits there
+	private final boolean[] _validPos;
+
+	private final StateHeap _heap;
+
+	// Map version the field was calculated for
+	private long _version = -1;
+
+	// Number of times the field has been calculated
+	private int _noOfUpdates = 0;
+
+	/**
+	 * Creates a distance field towards a target position
+	 *
+	 * @param map
+	 *            The map to plan on
+	 * @param targetRow
+	 *            Row of the robot's position at the target
+	 * @param targetCol
+	 *            Column of the robot's position at the target
+	 */
+	public DistanceField(Map map, int targetRow, int targetCol) {
+		_map = map;
+		_rows = map.getRows();
+		_cols = map.getCols();
+
+		_targetRow = targetRow;
+		_targetCol = targetCol;
+
+		int noOfStates = _rows * _cols * PoseState.NO_OF_HEADINGS;
+		_costs = new int[noOfStates];
+		_nextMoves = new byte[noOfStates];
+		_validPos = new boolean[_rows * _cols];
+
+		_heap = new StateHeap(noOfStates);
+	}
+
+	public int getTargetRow() {
+		return _targetRow;
+	}
+
+	public int getTargetCol() {
+		return _targetCol;
+	}
+
+	/**
+	 * Indicates whether the given grid is this field's target
+	 */
+	public boolean isTarget(Grid grid) {
+		return grid.getRow() == _targetRow && grid.getCol() == _targetCol;
+	}
+
+	/**
+	 * Gets the number of times the field has been calculated
+	 */
+	public int getNoOfUpdates() {
+		return _noOfUpdates;
+	}
+
+	/**
+	 * Gets the cost of the best path from a pose to the target
+	 *
+	 * @return The cost, or -1 if the target cannot be reached
+	 */
+	public int getCost(int row, int col, DIRECTION dir) {
+
+		update();
+
+		int cost = _costs[PoseState.toState(row, col, _cols,
+				dir.ordinal())];
+		return (cost == UNREACHABLE) ? -1 : cost;
+	}
+
+	/**
+	 * Gets the best path from a pose to the target
+	 *
+	 * @param startingGrid
+	 *            The robot's current position
+	 * @param startDir
+	 *            The robot's current direction
+	 *
+	 * @return A stack of grids with the starting grid on top and the target
+	 *         at the bottom, same as AStarPlanner, or null if the target cannot
+	 *         be reached
+	 */
+	public Stack<Grid> getPath(Grid startingGrid, DIRECTION startDir) {
+
+		update();
+
+		int state = PoseState.toState(startingGrid.getRow(),
+				startingGrid.getCol(), _cols, startDir.ordinal());
+		if (_costs[state] == UNREACHABLE)
+			return null;
+
+		// Follow the best moves, keeping the positions along the way
+		List<Grid> positions = new ArrayList<Grid>();
+		positions.add(startingGrid);
+
+		int pos = PoseState.getPos(state);
+		int heading = PoseState.getHeading(state);
+		int targetPos = _targetRow * _cols + _targetCol;
+		while (pos != targetPos) {
+
+			switch (_nextMoves[PoseState.toState(pos, heading)]) {
+			case MOVE_STRAIGHT:
+				pos += DIRECTION.getDeltaRow(heading) * _cols
+						+ DIRECTION.getDeltaCol(heading);
+				positions.add(_map.getGrid(pos / _cols, pos % _cols));
+				break;
+			case MOVE_TURN_LEFT:
+				heading = (heading + 3) % PoseState.NO_OF_HEADINGS;
+				break;
+			case MOVE_TURN_RIGHT:
+				heading = (heading + 1) % PoseState.NO_OF_HEADINGS;
+				break;
+			default:
+				return null;
+			}
+		}
+
+		Stack<Grid> path = new Stack<Grid>();
+		for (int i = positions.size() - 1; i >= 0; i--)
+			path.push(positions.get(i));
+
+		return path;
+	}
+
+	/**
+	 * Recalculates the field, if the map has changed since the last time
+	 */
+	public void update() {
+
+		GridStore store = _map.getGridStore();
+		if (store.getVersion() == _version)
+			return;
+
+		_version = store.getVersion();
+		_noOfUpdates++;
+
+		updateValidPositions(store);
+
+		Arrays.fill(_costs, UNREACHABLE);
+		Arrays.fill(_nextMoves, MOVE_NONE);
+		_heap.clear();
+
+		int targetPos = _targetRow * _cols + _targetCol;
+		if (!_validPos[targetPos])
+			return;
+
+		// The target is reached regardless of heading
+		for (int heading = 0; heading < PoseState.NO_OF_HEADINGS; heading++) {
+			int state = PoseState.toState(targetPos, heading);
+			_costs[state] = 0;
+			_heap.push(state, 0);
+		}
+
+		while (!_heap.isEmpty()) {
+
+			int state = _heap.pop();
+			int cost = _costs[state];
+
+			int pos = PoseState.getPos(state);
+			int heading = PoseState.getHeading(state);
+
+			// States that moved straight into this one
+			int prevPos = pos - (DIRECTION.getDeltaRow(heading) * _cols
+					+ DIRECTION.getDeltaCol(heading));
+			if (prevPos >= 0 && prevPos < _validPos.length && _validPos[prevPos]) {
+				relax(PoseState.toState(prevPos, heading), cost
+						+ RobotConstants.MOVE_COST, MOVE_STRAIGHT);
+			}
+
+			// States that turned into this one on the spot
+			relax(PoseState.turn(state, 3),
+					cost + RobotConstants.TURN_COST, MOVE_TURN_RIGHT);
+			relax(PoseState.turn(state, 1),
+					cost + RobotConstants.TURN_COST, MOVE_TURN_LEFT);
+		}
+	}
+
+	private void relax(int state, int cost, byte nextMove) {
+
+		if (cost >= _costs[state])
+			return;
+
+		_costs[state] = cost;
+		_nextMoves[state] = nextMove;
+		_heap.push(state, cost);
+	}
+
+	/**
+	 * Works out where the robot fits, i.e. within the arena, and only on
+	 * explored grids which are not obstacles
+	 */
+	private void updateValidPositions(GridStore store) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		Arrays.fill(_validPos, false);
+
+		for (int row = 1; row + robotSize - 1 <= _rows - 2; row++) {
+			for (int col = 1; col + robotSize - 1 <= _cols - 2; col++) {
+
+				_validPos[row * _cols + col] = RobotFootprint.fits(store, row,
+						col);
+			}
+		}
+	}
+}
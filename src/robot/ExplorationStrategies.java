@@ -0,0 +1,37 @@
+package robot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalogue of the available exploration strategies
+ */
+public final class ExplorationStrategies {
+
+	private ExplorationStrategies() {
+	}
+
+	/**
+	 * Creates one of each of the strategies, the default one first
+	 */
+	public static List<ExplorationStrategy> createAll() {
+		List<ExplorationStrategy> strategies = new ArrayList<ExplorationStrategy>();
+		strategies.add(new WallFollowerStrategy());
+		strategies.add(new FrontierStrategy());
+		strategies.add(new NearestUnexploredStrategy());
+		return strategies;
+	}
+
+	/**
+	 * Creates a strategy by its name, ignoring case
+	 *
+	 * @return The strategy, or null if there is none by that name
+	 */
+	public static ExplorationStrategy create(String name) {
+		for (ExplorationStrategy strategy : createAll()) {
+			if (strategy.getName().equalsIgnoreCase(name))
+				return strategy;
+		}
+		return null;
+	}
+}
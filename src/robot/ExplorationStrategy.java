@@ -0,0 +1,57 @@
+package robot;
+
+import java.util.Queue;
+
+import robot.Robot.INSTRUCTION;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Decides where the robot goes next during the exploration phase
+ * <p>
+ * The robot senses, then asks its strategy for the next moves, carries them
+ * out and senses again, so a strategy only ever sees what has been sensed
+ * so far, through a read-only {@link SensedMap}. The same strategy drives
+ * both the simulated & the physical robot.
+ * <p>
+ * Once the strategy is done, the robot heads back to the start zone, after
+ * exploring whatever is left unexplored grid by grid if the strategy leaves
+ * any reachable grids unexplored.
+ *
+ * @see ExplorationStrategies
+ */
+public interface ExplorationStrategy {
+
+	/**
+	 * Gets the name of the strategy, e.g. for the benchmark results
+	 */
+	String getName();
+
+	/**
+	 * Forgets everything about the previous run, before the robot starts
+	 * exploring from the start zone again
+	 */
+	void reset();
+
+	/**
+	 * Checks if the strategy may be done with grids it could get to still
+	 * unexplored, to be explored grid by grid afterwards
+	 */
+	boolean leavesUnexploredGrids();
+
+	/**
+	 * Decides on the robot's next moves
+	 *
+	 * @param map
+	 *            What the robot has sensed so far
+	 * @param row
+	 *            The robot's current row on the map
+	 * @param col
+	 *            The robot's current column on the map
+	 * @param dir
+	 *            The robot's current direction
+	 * @return The next step, i.e. a single move or turn, or two right turns
+	 *         to turn around, or null if the strategy is done exploring
+	 */
+	Queue<INSTRUCTION> nextMoves(SensedMap map, int row, int col,
+			DIRECTION dir);
+}
@@ -0,0 +1,169 @@
+package robot;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import map.GridStore;
+
+/**
+ * Hands out unexplored grids to several robots exploring the same arena, so
+ * that they do not all head for the same area
+ * <p>
+ * Each robot holds a claim on the unexplored grid it is heading for. While it
+ * does, the unexplored grids around that grid, within the claim radius, are
+ * skipped when the other robots look for their next unexplored grid, as the
+ * claiming robot's sensors will most likely explore them on its way there.
+ * <p>
+ * Unexplored grids which a robot could not sense from as close as it could
+ * get are left out for the whole team, so no robot keeps heading for them.
+ * <p>
+ * The coordinator also keeps track of which robots are still exploring, so a
+ * robot with nothing left to claim knows whether to wait for the others to
+ * open up more of the arena, or to head back to the start zone.
+ */
+public class FrontierCoordinator {
+
+	// Default distance (in grids) around a claimed grid which is left to
+	// the claiming robot, about the range of the robot's long range sensors
+	public static final int DEFAULT_CLAIM_RADIUS = 4;
+
+	private final int _claimRadius;
+
+	// Grid index claimed by each robot, or -1 if none
+	private final int[] _claims;
+
+	// True if the robot is still exploring, i.e. has not released its claim
+	private final boolean[] _bActive;
+
+	// Grids left out, as no robot could sense them
+	private final BitSet _unreachable = new BitSet();
+
+	// Incremented whenever a claim changes, or a robot stops exploring
+	private long _version = 0;
+
+	/**
+	 * @param noOfRobots
+	 *            Number of robots, with IDs [0, noOfRobots)
+	 * @param claimRadius
+	 *            Distance (in grids) around a claimed grid which is skipped
+	 *            by the other robots
+	 */
+	public FrontierCoordinator(int noOfRobots, int claimRadius) {
+		_claimRadius = claimRadius;
+
+		_claims = new int[noOfRobots];
+		Arrays.fill(_claims, -1);
+
+		_bActive = new boolean[noOfRobots];
+		Arrays.fill(_bActive, true);
+	}
+
+	public int getNoOfRobots() {
+		return _claims.length;
+	}
+
+	/**
+	 * Finds the next unexplored grid within the border walls, in row-major
+	 * order, which is not around a grid claimed by another robot, and has
+	 * not been left out
+	 *
+	 * @param robotId
+	 *            The robot looking for a grid
+	 * @param store
+	 *            The robot's own store
+	 * @param fromIndex
+	 *            The index to start searching from (inclusive)
+	 * @return The index of the unexplored grid, or -1 if there is none
+	 */
+	public synchronized int nextUnclaimed(int robotId, GridStore store,
+			int fromIndex) {
+
+		int cols = store.getCols();
+
+		int index = store.nextUnexploredInterior(fromIndex);
+		while (index != -1) {
+
+			int row = index / cols;
+			int col = index % cols;
+
+			// Skip to the end of the first claimed area containing the grid
+			int nextIndex = -1;
+			for (int otherId = 0; otherId < _claims.length; otherId++) {
+
+				int claim = _claims[otherId];
+				if (otherId == robotId || claim == -1)
+					continue;
+
+				int claimRow = claim / cols;
+				int claimCol = claim % cols;
+				if (Math.abs(row - claimRow) <= _claimRadius
+						&& Math.abs(col - claimCol) <= _claimRadius) {
+					nextIndex = store.indexOf(row,
+							Math.min(claimCol + _claimRadius + 1, cols));
+					break;
+				}
+			}
+
+			if (nextIndex == -1) {
+				if (!_unreachable.get(index))
+					return index;
+				nextIndex = index + 1;
+			}
+
+			index = store.nextUnexploredInterior(nextIndex);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Claims an unexplored grid for a robot, replacing its previous claim
+	 */
+	public synchronized void claim(int robotId, int index) {
+		if (_claims[robotId] != index || !_bActive[robotId]) {
+			_claims[robotId] = index;
+			_bActive[robotId] = true;
+			_version++;
+		}
+	}
+
+	/**
+	 * Releases a robot's claim when it has nothing left to head for<br>
+	 * The robot is no longer exploring, until it claims another grid
+	 */
+	public synchronized void release(int robotId) {
+		if (_claims[robotId] != -1 || _bActive[robotId]) {
+			_claims[robotId] = -1;
+			_bActive[robotId] = false;
+			_version++;
+		}
+	}
+
+	/**
+	 * Leaves out an unexplored grid for the rest of the exploration, once a
+	 * robot is as close to it as it can get, but still cannot sense it
+	 */
+	public synchronized void markUnreachable(int index) {
+		_unreachable.set(index);
+	}
+
+	/**
+	 * Indicates whether any other robot is still exploring, and may therefore
+	 * explore its way to grids which cannot be reached yet
+	 */
+	public synchronized boolean hasOtherActiveRobots(int robotId) {
+		for (int otherId = 0; otherId < _bActive.length; otherId++) {
+			if (otherId != robotId && _bActive[otherId])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the version of the claims<br>
+	 * The version changes whenever a claim changes, or a robot stops exploring
+	 */
+	public synchronized long getVersion() {
+		return _version;
+	}
+}
@@ -0,0 +1,85 @@
+package robot;
+
+import java.util.BitSet;
+
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Frontier-based exploration, i.e. goes to the closest position from which
+ * an unexplored grid can be sensed, see {@link #canSense}
+ * <p>
+ * Positions are searched breadth first from the robot's position, over the
+ * positions the robot fits at, so the distance is the number of moves to
+ * get there, not counting turns. The first position with an unexplored grid
+ * next to the robot is picked.
+ */
+public class FrontierStrategy extends TargetedExplorationStrategy {
+
+	public static final String NAME = "Frontier";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	protected Target selectTarget(SensedMap map, int row, int col) {
+
+		int cols = map.getCols();
+		BitSet visited = new BitSet();
+		int[] queue = new int[map.getRows() * cols];
+		int head = 0;
+		int tail = 0;
+		DIRECTION[] dirs = DIRECTION.values();
+
+		queue[tail++] = map.indexOf(row, col);
+		visited.set(queue[0]);
+
+		while (head < tail) {
+			int pos = queue[head++];
+			int posRow = pos / cols;
+			int posCol = pos % cols;
+
+			if (!isIgnoredViewpoint(pos)) {
+				Target target = findUnexploredInView(map, posRow, posCol);
+				if (target != null)
+					return target;
+			}
+
+			for (DIRECTION dir : dirs) {
+				int nextRow = posRow + dir.getDeltaRow();
+				int nextCol = posCol + dir.getDeltaCol();
+				if (!map.fits(nextRow, nextCol))
+					continue;
+
+				int nextPos = map.indexOf(nextRow, nextCol);
+				if (!visited.get(nextPos)) {
+					visited.set(nextPos);
+					queue[tail++] = nextPos;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Looks for an unexplored grid which can be sensed from a position
+	 */
+	private Target findUnexploredInView(SensedMap map, int row, int col) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		for (int gridRow = Math.max(row - VIEW_RANGE, 0); gridRow < Math.min(
+				row + robotSize + VIEW_RANGE, map.getRows()); gridRow++) {
+			for (int gridCol = Math.max(col - VIEW_RANGE, 0); gridCol < Math
+					.min(col + robotSize + VIEW_RANGE, map.getCols()); gridCol++) {
+				if (!map.isBorderWalls(gridRow, gridCol)
+						&& !map.isGoalZone(gridRow, gridCol)
+						&& !map.isExplored(gridRow, gridCol)
+						&& canSense(map, row, col, gridRow, gridCol))
+					return new Target(gridRow, gridCol, row, col);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,332 @@
+package robot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import robot.Robot.INSTRUCTION;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Compiles the instructions of a path into a program of macro-commands for the
+ * Arduino, so that a whole path can be sent in a single message
+ * <p>
+ * e.g. MOVE_STRAIGHT x5, TURN_RIGHT, TURN_RIGHT, MOVE_STRAIGHT becomes
+ * "f5;o180;f;"
+ * <p>
+ * While compiling:<br>
+ * Straight runs are merged into a single command<br>
+ * Consecutive turns are merged into their net turn, so turns which cancel
+ * each other out are dropped, and three turns one way become a single turn
+ * the other way<br>
+ * Front calibrations are folded in at the end of a straight run, once the
+ * robot has moved enough since its last calibration, and only where the
+ * robot ends up facing a complete wall
+ * <p>
+ * The compiler keeps track of the robot's pose along the program, starting
+ * from the pose it was created with, to check for the walls.
+ */
+public class InstructionCompiler {
+
+	// Internal opcode for a turn, counted in clockwise 90 degree steps
+	private static final char TURN = 't';
+
+	private static final int QUARTER_TURNS = 4;
+
+	private final Robot _robot;
+
+	private final List<Command> _commands = new ArrayList<Command>();
+
+	// Pose of the robot at the end of the program so far
+	private int _row;
+	private int _col;
+	private DIRECTION _direction;
+
+	// Moves between folded in calibrations, 0 if none are folded in
+	private int _calibrationInterval = 0;
+	private int _movesSinceCalibration = 0;
+
+	private static class Command {
+		private final char _opcode;
+		private int _count;
+
+		private Command(char opcode, int count) {
+			_opcode = opcode;
+			_count = count;
+		}
+	}
+
+	/**
+	 * @param robot
+	 *            The robot, whose map is used to check for walls to calibrate
+	 *            against
+	 * @param row
+	 *            The robot's row at the start of the program
+	 * @param col
+	 *            The robot's column at the start of the program
+	 * @param direction
+	 *            The robot's direction at the start of the program
+	 */
+	public InstructionCompiler(Robot robot, int row, int col,
+			DIRECTION direction) {
+		_robot = robot;
+		_row = row;
+		_col = col;
+		_direction = direction;
+	}
+
+	/**
+	 * Folds in front calibrations at the end of straight runs
+	 *
+	 * @param calibrationInterval
+	 *            Minimum number of moves between calibrations, or 0 for none
+	 * @param movesSinceCalibration
+	 *            Number of moves the robot has made since its last
+	 *            calibration, before the start of the program
+	 */
+	public void setCalibrationInterval(int calibrationInterval,
+			int movesSinceCalibration) {
+		_calibrationInterval = calibrationInterval;
+		_movesSinceCalibration = movesSinceCalibration;
+	}
+
+	public int getRow() {
+		return _row;
+	}
+
+	public int getCol() {
+		return _col;
+	}
+
+	public DIRECTION getDirection() {
+		return _direction;
+	}
+
+	public int getMovesSinceCalibration() {
+		return _movesSinceCalibration;
+	}
+
+	/**
+	 * Adds the instructions of a path, without removing them from the queue
+	 */
+	public void addInstructions(Queue<INSTRUCTION> instructions) {
+
+		INSTRUCTION prevInst = null;
+		for (INSTRUCTION inst : instructions) {
+			switch (inst) {
+			case MOVE_STRAIGHT:
+				moveStraight(1);
+				break;
+			case TURN_LEFT:
+				if (prevInst == INSTRUCTION.MOVE_STRAIGHT)
+					foldInCalibration();
+				turn(-1);
+				break;
+			case TURN_RIGHT:
+				if (prevInst == INSTRUCTION.MOVE_STRAIGHT)
+					foldInCalibration();
+				turn(1);
+				break;
+			}
+			prevInst = inst;
+		}
+
+		if (prevInst == INSTRUCTION.MOVE_STRAIGHT)
+			foldInCalibration();
+	}
+
+	/**
+	 * Moves the robot straight by a number of grids
+	 */
+	public void moveStraight(int noOfGrids) {
+
+		if (noOfGrids <= 0)
+			return;
+
+		Command lastCmd = getLastCommand();
+		if (lastCmd != null && lastCmd._opcode == 'f')
+			lastCmd._count += noOfGrids;
+		else
+			_commands.add(new Command('f', noOfGrids));
+
+		_row += _direction.getDeltaRow() * noOfGrids;
+		_col += _direction.getDeltaCol() * noOfGrids;
+		_movesSinceCalibration += noOfGrids;
+	}
+
+	/**
+	 * Turns the robot on the spot, merging with the previous turn if any
+	 *
+	 * @param quarterTurns
+	 *            Number of clockwise 90 degree turns, negative for
+	 *            anti-clockwise
+	 */
+	public void turn(int quarterTurns) {
+
+		quarterTurns = ((quarterTurns % QUARTER_TURNS) + QUARTER_TURNS)
+				% QUARTER_TURNS;
+		if (quarterTurns == 0)
+			return;
+
+		for (int i = 0; i < quarterTurns; i++)
+			_direction = DIRECTION.getNext(_direction);
+
+		Command lastCmd = getLastCommand();
+		if (lastCmd != null && lastCmd._opcode == TURN) {
+			lastCmd._count = (lastCmd._count + quarterTurns) % QUARTER_TURNS;
+			if (lastCmd._count == 0)
+				_commands.remove(_commands.size() - 1);
+		} else {
+			_commands.add(new Command(TURN, quarterTurns));
+		}
+	}
+
+	/**
+	 * Turns the robot on the spot to face the given direction
+	 */
+	public void turnTo(DIRECTION direction) {
+		turn(direction.ordinal() - _direction.ordinal());
+	}
+
+	/**
+	 * Adds a command without any effect on the robot's pose, e.g. 's' or 'm'
+	 * <p>
+	 * Calibrating twice in a row is the same as calibrating once, so a
+	 * calibration right after another is dropped.
+	 */
+	public void addCommand(char opcode) {
+
+		Command lastCmd = getLastCommand();
+		if (opcode == 'c' && lastCmd != null && lastCmd._opcode == 'c')
+			return;
+
+		_commands.add(new Command(opcode, 1));
+	}
+
+	/**
+	 * Calibrates against the walls in front and on the left of the robot,
+	 * where they are complete
+	 *
+	 * @return True if the robot could calibrate against any of them
+	 */
+	public boolean calibrate() {
+
+		boolean bFrontCalibration = _robot.checkCalibrateFront(_row, _col,
+				_direction);
+		boolean bLeftCalibration = _robot.checkCalibrateLeft(_row, _col,
+				_direction);
+
+		if (bFrontCalibration && bLeftCalibration) {
+			// In a corner with complete walls in front and on the left
+			// Turn left, calibrate, turn right, calibrate
+			calibrateLeft();
+			addCommand('c');
+		} else if (bFrontCalibration) {
+			// Just calibrate
+			addCommand('c');
+		} else if (bLeftCalibration) {
+			// Turn left, calibrate, turn right
+			calibrateLeft();
+		} else {
+			return false;
+		}
+
+		_movesSinceCalibration = 0;
+		return true;
+	}
+
+	/**
+	 * Turns left, calibrates and turns back, without checking for a wall
+	 */
+	public void calibrateLeft() {
+		turn(-1);
+		addCommand('c');
+		turn(1);
+
+		_movesSinceCalibration = 0;
+	}
+
+	/**
+	 * Gets the compiled program, e.g. "s;f5;o180;f;"
+	 */
+	public String getProgram() {
+
+		StringBuilder program = new StringBuilder();
+		for (Command cmd : _commands) {
+			switch (cmd._opcode) {
+			case 'f':
+				program.append('f');
+				if (cmd._count > 1)
+					program.append(cmd._count);
+				break;
+			case TURN:
+				program.append((cmd._count == 3) ? "l"
+						: (cmd._count == 2) ? "o180" : "o");
+				break;
+			default:
+				program.append(cmd._opcode);
+				break;
+			}
+			program.append(';');
+		}
+
+		return program.toString();
+	}
+
+	/**
+	 * Gets the number of commands in the compiled program
+	 */
+	public int getNoOfCommands() {
+		return _commands.size();
+	}
+
+	/**
+	 * Gets the moves & turns of the compiled program, one instruction per
+	 * move or 90 degree turn, for the simulator to carry out the same program
+	 */
+	public Queue<INSTRUCTION> getInstructions() {
+
+		Queue<INSTRUCTION> instructions = new ArrayDeque<INSTRUCTION>();
+		for (Command cmd : _commands) {
+			switch (cmd._opcode) {
+			case 'f':
+				for (int i = 0; i < cmd._count; i++)
+					instructions.add(INSTRUCTION.MOVE_STRAIGHT);
+				break;
+			case TURN:
+				if (cmd._count == 3) {
+					instructions.add(INSTRUCTION.TURN_LEFT);
+				} else {
+					for (int i = 0; i < cmd._count; i++)
+						instructions.add(INSTRUCTION.TURN_RIGHT);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		return instructions;
+	}
+
+	/**
+	 * Adds a front calibration at the end of a straight run, if it is due and
+	 * the robot is facing a complete wall
+	 */
+	private void foldInCalibration() {
+
+		if (_calibrationInterval <= 0
+				|| _movesSinceCalibration < _calibrationInterval)
+			return;
+
+		if (_robot.checkCalibrateFront(_row, _col, _direction)) {
+			addCommand('c');
+			_movesSinceCalibration = 0;
+		}
+	}
+
+	private Command getLastCommand() {
+		return _commands.isEmpty() ? null : _commands.get(_commands.size() - 1);
+	}
+}
@@ -0,0 +1,343 @@
+package robot;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+import leaderboard.CommMgr;
+import leaderboard.RunRecorder;
+import leaderboard.WireProtocol;
+
+/**
+ * Predicts how long the physical robot takes to carry out Arduino commands
+ * <p>
+ * Each message costs a fixed round trip time. A straight run of k grids costs
+ * a fixed time per segment, for speeding up & slowing down, plus a time per
+ * grid at cruising speed, which is exact for a trapezoidal speed profile once
+ * the run is long enough to reach cruising speed. Turns of 90 & 180 degrees
+ * and calibrations each have their own duration.
+ * <p>
+ * The durations can be fitted from recorded runs (see {@link #fit}), by
+ * timing each Arduino message until the sensor readings it was answered with,
+ * and solving for the durations by least squares.
+ */
+public class MotionModel {
+
+	// Durations, in seconds, indexed by feature
+	private static final int MESSAGE = 0;
+	private static final int SEGMENT = 1;
+	private static final int GRID = 2;
+	private static final int TURN_90 = 3;
+	private static final int TURN_180 = 4;
+	private static final int CALIBRATION = 5;
+	private static final int NO_OF_FEATURES = 6;
+
+	private static final String[] FEATURE_NAMES = { "message", "segment",
+			"grid", "turn90", "turn180", "calibration" };
+
+	// Defaults, measured roughly by hand with a stopwatch
+	private static final double[] DEFAULT_DURATIONS = { 0.05, 0.4, 0.25, 0.7,
+			1.1, 0.8 };
+
+	// Weight of the previous durations when fitting, as a number of messages
+	// Keeps durations which the runs say little about, e.g. no calibrations
+	private static final double FIT_PRIOR_WEIGHT = 1.0;
+
+	private final double[] _durations;
+
+	// Number of messages the durations were fitted from, 0 for the defaults
+	private int _noOfSamples = 0;
+
+	public MotionModel() {
+		_durations = DEFAULT_DURATIONS.clone();
+	}
+
+	private MotionModel(double[] durations, int noOfSamples) {
+		_durations = durations;
+		_noOfSamples = noOfSamples;
+	}
+
+	/**
+	 * Gets the time the robot takes to move straight by a number of grids
+	 * as a single command
+	 *
+	 * @return The time, in seconds
+	 */
+	public double getStraightTime(int noOfGrids) {
+		return (noOfGrids <= 0) ? 0 : _durations[SEGMENT]
+				+ (noOfGrids * _durations[GRID]);
+	}
+
+	/**
+	 * Gets the time the robot takes to turn on the spot
+	 *
+	 * @param quarterTurns
+	 *            Number of clockwise 90 degree turns, negative for
+	 *            anti-clockwise
+	 * @return The time, in seconds
+	 */
+	public double getTurnTime(int quarterTurns) {
+		switch (((quarterTurns % 4) + 4) % 4) {
+		case 1:
+		case 3:
+			return _durations[TURN_90];
+		case 2:
+			return _durations[TURN_180];
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Gets the time the robot takes to speed up & slow down, once per
+	 * straight run
+	 */
+	public double getSegmentTime() {
+		return _durations[SEGMENT];
+	}
+
+	/**
+	 * Gets the time the robot takes per grid, at cruising speed
+	 */
+	public double getGridTime() {
+		return _durations[GRID];
+	}
+
+	public double getCalibrationTime() {
+		return _durations[CALIBRATION];
+	}
+
+	public double getMessageTime() {
+		return _durations[MESSAGE];
+	}
+
+	/**
+	 * Gets the number of messages the durations were fitted from
+	 */
+	public int getNoOfSamples() {
+		return _noOfSamples;
+	}
+
+	/**
+	 * Predicts how long the robot takes to carry out a message, until its
+	 * sensor readings arrive
+	 *
+	 * @param msg
+	 *            The message, with or without its message type, e.g.
+	 *            "3,f5;o180;c;"
+	 * @return The time, in seconds
+	 */
+	public double getProgramTime(String msg) {
+
+		double[] features = getFeatures(msg);
+
+		double time = 0;
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++)
+			time += features[feature] * _durations[feature];
+
+		return time;
+	}
+
+	/**
+	 * Fits the durations to the Arduino messages of recorded runs
+	 * <p>
+	 * Only messages which were answered by sensor readings before the next
+	 * Arduino message was sent are used, so the shortest path (which is not
+	 * answered) and messages whose readings were lost are left out.
+	 *
+	 * @param entries
+	 *            The entries of one or more recorded runs, each run in order
+	 * @param prior
+	 *            Durations to start from, which are kept where the runs do
+	 *            not say otherwise
+	 * @return The fitted model
+	 */
+	public static MotionModel fit(List<RunRecorder.Entry> entries,
+			MotionModel prior) {
+
+		// Normal equations, (A'A + wI) x = A'b + w x0
+		double[][] ata = new double[NO_OF_FEATURES][NO_OF_FEATURES];
+		double[] atb = new double[NO_OF_FEATURES];
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++) {
+			ata[feature][feature] = FIT_PRIOR_WEIGHT;
+			atb[feature] = FIT_PRIOR_WEIGHT * prior._durations[feature];
+		}
+
+		int noOfSamples = 0;
+		RunRecorder.Entry sentEntry = null;
+		for (RunRecorder.Entry entry : entries) {
+
+			if (!entry.msg.startsWith(CommMgr.MSG_TYPE_ARDUINO))
+				continue;
+
+			if (entry.isSent()) {
+				sentEntry = entry;
+				continue;
+			}
+
+			// A new run starts over from time 0
+			if (sentEntry == null || entry.time < sentEntry.time) {
+				sentEntry = null;
+				continue;
+			}
+
+			double[] features = getFeatures(sentEntry.msg);
+			double time = (entry.time - sentEntry.time) / 1e9;
+			for (int row = 0; row < NO_OF_FEATURES; row++) {
+				for (int col = 0; col < NO_OF_FEATURES; col++)
+					ata[row][col] += features[row] * features[col];
+				atb[row] += features[row] * time;
+			}
+
+			noOfSamples++;
+			sentEntry = null;
+		}
+
+		double[] durations = solve(ata, atb);
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++)
+			durations[feature] = Math.max(durations[feature], 0);
+
+		return new MotionModel(durations, noOfSamples);
+	}
+
+	/**
+	 * Loads the durations from a properties file, e.g. "turn90=0.7"<br>
+	 * Durations missing from the file are left at their defaults
+	 */
+	public static MotionModel load(String filePath) throws IOException {
+
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(filePath)) {
+			properties.load(in);
+		}
+
+		MotionModel model = new MotionModel();
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++) {
+			String value = properties.getProperty(FEATURE_NAMES[feature]);
+			if (value != null)
+				model._durations[feature] = Double.parseDouble(value.trim());
+		}
+		model._noOfSamples = Integer.parseInt(properties.getProperty(
+				"samples", "0").trim());
+
+		return model;
+	}
+
+	public void save(String filePath) throws IOException {
+
+		Properties properties = new Properties();
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++) {
+			properties.setProperty(FEATURE_NAMES[feature],
+					String.valueOf(_durations[feature]));
+		}
+		properties.setProperty("samples", String.valueOf(_noOfSamples));
+
+		try (OutputStream out = new FileOutputStream(filePath)) {
+			properties.store(out, "Motion model durations, in seconds");
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		for (int feature = 0; feature < NO_OF_FEATURES; feature++) {
+			str.append(String.format("%s%s=%.3fs", (feature == 0) ? "" : ", ",
+					FEATURE_NAMES[feature], _durations[feature]));
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Counts the message, straight runs, grids, turns & calibrations of a
+	 * message, parsed the same way as the RobotEmulator does
+	 */
+	private static double[] getFeatures(String msg) {
+
+		double[] features = new double[NO_OF_FEATURES];
+		features[MESSAGE] = 1;
+
+		int charIndex = msg.startsWith(CommMgr.MSG_TYPE_ARDUINO) ? CommMgr.MSG_TYPE_ARDUINO
+				.length() : 0;
+		while (charIndex < msg.length()) {
+
+			char opcode = msg.charAt(charIndex++);
+			if (opcode == ';' || opcode == ' ')
+				continue;
+
+			int count = 0;
+			boolean bHasCount = false;
+			while (charIndex < msg.length()) {
+				char c = msg.charAt(charIndex);
+				if (c < '0' || c > '9')
+					break;
+				count = (count * 10) + (c - '0');
+				bHasCount = true;
+				charIndex++;
+			}
+			count = WireProtocol.getCommandCount(opcode, bHasCount ? count : 1);
+
+			switch (opcode) {
+			case 'f':
+				features[SEGMENT]++;
+				features[GRID] += count;
+				break;
+			case 'l':
+			case 'o':
+				features[TURN_180] += count / 2;
+				features[TURN_90] += count % 2;
+				break;
+			case 'c':
+				features[CALIBRATION]++;
+				break;
+			default:
+				break;
+			}
+		}
+
+		return features;
+	}
+
+	/**
+	 * Solves a small linear system by Gaussian elimination with partial
+	 * pivoting
+	 */
+	private static double[] solve(double[][] a, double[] b) {
+
+		int n = b.length;
+		for (int pivot = 0; pivot < n; pivot++) {
+
+			int maxRow = pivot;
+			for (int row = pivot + 1; row < n; row++) {
+				if (Math.abs(a[row][pivot]) > Math.abs(a[maxRow][pivot]))
+					maxRow = row;
+			}
+			double[] tempRow = a[pivot];
+			a[pivot] = a[maxRow];
+			a[maxRow] = tempRow;
+			double temp = b[pivot];
+			b[pivot] = b[maxRow];
+			b[maxRow] = temp;
+
+			for (int row = pivot + 1; row < n; row++) {
+				double factor = a[row][pivot] / a[pivot][pivot];
+				b[row] -= factor * b[pivot];
+				for (int col = pivot; col < n; col++)
+					a[row][col] -= factor * a[pivot][col];
+			}
+		}
+
+		double[] x = new double[n];
+		for (int row = n - 1; row >= 0; row--) {
+			double sum = b[row];
+			for (int col = row + 1; col < n; col++)
+				sum -= a[row][col] * x[col];
+			x[row] = sum / a[row][row];
+		}
+
+		return x;
+	}
+}
@@ -0,0 +1,95 @@
+package robot;
+
+import java.util.BitSet;
+
+/**
+ * Goes for the unexplored grid nearest to the centre of the robot, by
+ * Manhattan distance, regardless of the walls in between
+ * <p>
+ * The robot heads for the closest position it fits at, from which it can
+ * sense the grid, see {@link #canSense}. Grids without any such position are
+ * skipped, until more of the arena has been explored.
+ */
+public class NearestUnexploredStrategy extends TargetedExplorationStrategy {
+
+	public static final String NAME = "Nearest unexplored";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	protected Target selectTarget(SensedMap map, int row, int col) {
+
+		int cols = map.getCols();
+		int centreRow = row + (RobotConstants.ROBOT_SIZE / 2);
+		int centreCol = col + (RobotConstants.ROBOT_SIZE / 2);
+
+		// Grids without any position to sense them from, for now
+		BitSet skipped = new BitSet();
+
+		while (true) {
+
+			int nearestIndex = -1;
+			int nearestDistance = Integer.MAX_VALUE;
+			for (int index = map.nextUnexploredInterior(0); index != -1; index = map
+					.nextUnexploredInterior(index + 1)) {
+
+				int gridRow = index / cols;
+				int gridCol = index % cols;
+				if (skipped.get(index) || map.isGoalZone(gridRow, gridCol))
+					continue;
+
+				int distance = Math.abs(gridRow - centreRow)
+						+ Math.abs(gridCol - centreCol);
+				if (distance < nearestDistance) {
+					nearestIndex = index;
+					nearestDistance = distance;
+				}
+			}
+
+			if (nearestIndex == -1)
+				return null;
+
+			Target target = findViewpoint(map, nearestIndex / cols,
+					nearestIndex % cols, row, col);
+			if (target != null)
+				return target;
+
+			skipped.set(nearestIndex);
+		}
+	}
+
+	/**
+	 * Finds the position from which the robot can sense a grid, closest to
+	 * the robot's current position
+	 */
+	private Target findViewpoint(SensedMap map, int gridRow,
+			int gridCol, int row, int col) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+
+		Target viewpoint = null;
+		int viewpointDistance = Integer.MAX_VALUE;
+		for (int viewRow = gridRow - robotSize - VIEW_RANGE + 1; viewRow <= gridRow
+				+ VIEW_RANGE; viewRow++) {
+			for (int viewCol = gridCol - robotSize - VIEW_RANGE + 1; viewCol <= gridCol
+					+ VIEW_RANGE; viewCol++) {
+
+				if (!map.fits(viewRow, viewCol)
+						|| isIgnoredViewpoint(map.indexOf(viewRow, viewCol))
+						|| !canSense(map, viewRow, viewCol, gridRow, gridCol))
+					continue;
+
+				int distance = Math.abs(viewRow - row)
+						+ Math.abs(viewCol - col);
+				if (distance < viewpointDistance) {
+					viewpoint = new Target(gridRow, gridCol, viewRow, viewCol);
+					viewpointDistance = distance;
+				}
+			}
+		}
+		return viewpoint;
+	}
+}
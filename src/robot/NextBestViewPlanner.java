@@ -0,0 +1,394 @@
+package robot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import map.GridStore;
+import map.Map;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Picks the robot's next pose while exploring the remaining unexplored
+ * grids, by how much it would see from there for how far it has to go
+ * <p>
+ * Every pose (row, col, heading) the robot can get to is a candidate, along
+ * with its travel cost, i.e. the number of moves & 90 degree turns to get
+ * there. Each candidate is scored by the number of unexplored grids the
+ * robot's sensors would see from there, divided by its travel cost, and the
+ * best one becomes the next target. Unexplored grids are assumed to be free
+ * when looking past them, as they may well be.
+ * <p>
+ * Candidates are found breadth first, and scored a travel cost at a time.
+ * No candidate can see more than all of the sensors' ranges put together,
+ * so the search stops as soon as the candidates further away could not beat
+ * the best one even if they did. The search therefore only covers the area
+ * around the robot, unless there is little left to see nearby.
+ * <p>
+ * Candidates of the same travel cost are scored in parallel on a fork-join
+ * pool. When called from within a fork-join pool, e.g. by the BatchRunner,
+ * the candidates are scored on that pool instead.
+ * <p>
+ * Poses are searched as the states of {@link PoseState}.
+ */
+public class NextBestViewPlanner {
+
+	// Number of candidates scored by a single task
+	private static final int CANDIDATES_PER_TASK = 256;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final Map _map;
+	private final int _rows;
+	private final int _cols;
+
+	// Travel cost of each state, -1 if it cannot be reached
+	// indexed by PoseState
+	private final int[] _costs;
+
+	// Number of states given a travel cost by the last search, i.e. the
+	// states to reset before the next one
+	private int _noOfVisited = 0;
+
+	// Per position cache of whether the robot fits there
+	private final RobotFootprint _footprint;
+
+	// Reachable states in order of travel cost, starting with the robot's
+	// own, which is not a candidate as the robot has just sensed from there
+	private final int[] _candidates;
+	private final int[] _gains;
+	private int _noOfCandidates = 0;
+
+	// Best candidate so far, -1 if none can see any unexplored grids
+	private int _bestCandidate = -1;
+
+	// Sensor layout for each heading of the robot, relative to the centre of
+	// the robot, and the change in row/column for each grid of range
+	// index = (heading * noOfSensors) + sensor
+	private int _maxGain = 0;
+	private int _noOfSensors = 0;
+	private int[] _sensorRows;
+	private int[] _sensorCols;
+	private int[] _sensorDeltaRows;
+	private int[] _sensorDeltaCols;
+
+	// Sensor ranges, the same for every heading
+	private int[] _sensorMinRanges;
+	private int[] _sensorMaxRanges;
+
+	/**
+	 * A pose to explore from
+	 */
+	public static class View {
+		private final int _row;
+		private final int _col;
+		private final DIRECTION _direction;
+		private final int _gain;
+		private final int _cost;
+
+		private View(int row, int col, DIRECTION direction, int gain, int cost) {
+			_row = row;
+			_col = col;
+			_direction = direction;
+			_gain = gain;
+			_cost = cost;
+		}
+
+		public int getRow() {
+			return _row;
+		}
+
+		public int getCol() {
+			return _col;
+		}
+
+		public DIRECTION getDirection() {
+			return _direction;
+		}
+
+		/** Number of unexplored grids the sensors would see */
+		public int getGain() {
+			return _gain;
+		}
+
+		/** Number of moves & 90 degree turns to get there */
+		public int getCost() {
+			return _cost;
+		}
+	}
+
+	public NextBestViewPlanner(Map map) {
+		_map = map;
+		_rows = map.getRows();
+		_cols = map.getCols();
+
+		int noOfStates = _rows * _cols * PoseState.NO_OF_HEADINGS;
+		_costs = new int[noOfStates];
+		Arrays.fill(_costs, -1);
+		_footprint = new RobotFootprint(map.getGridStore());
+		_candidates = new int[noOfStates];
+		_gains = new int[noOfStates];
+	}
+
+	/**
+	 * Finds the best pose to explore from next
+	 *
+	 * @param row
+	 *            The robot's current row
+	 * @param col
+	 *            The robot's current column
+	 * @param dir
+	 *            The robot's current direction
+	 * @param sensors
+	 *            The robot's sensors, at the robot's current pose
+	 * @return The best pose, or null if no unexplored grid can be seen from
+	 *         anywhere the robot can get to
+	 */
+	public View findNextBestView(int row, int col, DIRECTION dir,
+			List<Sensor> sensors) {
+
+		setSensorLayout(row, col, dir, sensors);
+		search(PoseState.toState(row, col, _cols, dir.ordinal()));
+
+		if (_bestCandidate == -1)
+			return null;
+
+		int state = _candidates[_bestCandidate];
+		int pos = PoseState.getPos(state);
+		return new View(pos / _cols, pos % _cols,
+				DIRECTION.values()[PoseState.getHeading(state)],
+				_gains[_bestCandidate], _costs[state]);
+	}
+
+	/**
+	 * Gets the number of candidates scored by the last search
+	 */
+	public int getNoOfCandidates() {
+		return _noOfCandidates;
+	}
+
+	/**
+	 * Scores a range of candidates, splitting it up between tasks
+	 */
+	private class ScoreTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int _from;
+		private final int _to;
+
+		private ScoreTask(int from, int to) {
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (_to - _from <= CANDIDATES_PER_TASK) {
+				for (int i = _from; i < _to; i++)
+					_gains[i] = getGain(_candidates[i]);
+				return;
+			}
+
+			int mid = (_from + _to) >>> 1;
+			invokeAll(new ScoreTask(_from, mid), new ScoreTask(mid, _to));
+		}
+	}
+
+	/**
+	 * Finds the reachable states & their travel costs breadth first, scoring
+	 * the candidates of each travel cost once all of them have been found
+	 */
+	private void search(int startState) {
+
+		// Only the states of the last search have a travel cost
+		for (int i = 0; i < _noOfVisited; i++)
+			_costs[_candidates[i]] = -1;
+		_footprint.clear();
+		_bestCandidate = -1;
+
+		// The candidates array doubles as the queue
+		_costs[startState] = 0;
+		_candidates[0] = startState;
+		int head = 0;
+		int tail = 1;
+		int scored = 1;
+
+		while (head < tail) {
+			int state = _candidates[head];
+			int cost = _costs[state];
+
+			// Every candidate of this travel cost has been found by now
+			if (head == scored) {
+				score(scored, tail);
+				scored = tail;
+
+				// Stop once no candidate further away could do better
+				if (_bestCandidate != -1
+						&& (long) _maxGain * _costs[_candidates[_bestCandidate]] <= (long) (cost + 1)
+								* _gains[_bestCandidate])
+					break;
+			}
+			head++;
+
+			int pos = PoseState.getPos(state);
+			int heading = PoseState.getHeading(state);
+
+			int nextRow = (pos / _cols) + DIRECTION.getDeltaRow(heading);
+			int nextCol = (pos % _cols) + DIRECTION.getDeltaCol(heading);
+			if (_footprint.isValidPos(nextRow, nextCol))
+				tail = visit(PoseState.toState(nextRow, nextCol, _cols, heading),
+						cost + 1, tail);
+
+			tail = visit(PoseState.turn(state, 1), cost + 1, tail);
+			tail = visit(PoseState.turn(state, 3), cost + 1, tail);
+		}
+
+		if (scored < tail && head == tail)
+			score(scored, tail);
+
+		_noOfVisited = tail;
+
+		_noOfCandidates = Math.max(scored, tail) - 1;
+	}
+
+	/**
+	 * Scores a range of candidates, of the same travel cost, and keeps track
+	 * of the best one so far
+	 */
+	private void score(int from, int to) {
+
+		if (to - from <= CANDIDATES_PER_TASK) {
+			for (int i = from; i < to; i++)
+				_gains[i] = getGain(_candidates[i]);
+		} else {
+			ScoreTask task = new ScoreTask(from, to);
+			if (ForkJoinTask.inForkJoinPool())
+				task.invoke();
+			else
+				POOL.invoke(task);
+		}
+
+		// Highest gain per travel cost, and the first state for a tie, so
+		// the result does not depend on the scheduling
+		for (int i = from; i < to; i++) {
+			if (_gains[i] == 0)
+				continue;
+
+			if (_bestCandidate == -1
+					|| (long) _gains[i] * _costs[_candidates[_bestCandidate]] > (long) _gains[_bestCandidate]
+							* _costs[_candidates[i]])
+				_bestCandidate = i;
+		}
+	}
+
+	private int visit(int state, int cost, int tail) {
+		if (_costs[state] != -1)
+			return tail;
+
+		_costs[state] = cost;
+		_candidates[tail] = state;
+		return tail + 1;
+	}
+
+	/**
+	 * Counts the unexplored grids the sensors would see from a state
+	 */
+	private int getGain(int state) {
+
+		GridStore store = _map.getGridStore();
+		int pos = PoseState.getPos(state);
+		int heading = PoseState.getHeading(state);
+		int centreRow = (pos / _cols) + (RobotConstants.ROBOT_SIZE / 2);
+		int centreCol = (pos % _cols) + (RobotConstants.ROBOT_SIZE / 2);
+
+		int gain = 0;
+		for (int sensor = 0; sensor < _noOfSensors; sensor++) {
+
+			int layout = (heading * _noOfSensors) + sensor;
+			int sensorRow = centreRow + _sensorRows[layout];
+			int sensorCol = centreCol + _sensorCols[layout];
+			int deltaRow = _sensorDeltaRows[layout];
+			int deltaCol = _sensorDeltaCols[layout];
+
+			for (int range = _sensorMinRanges[sensor]; range <= _sensorMaxRanges[sensor]; range++) {
+				int gridRow = sensorRow + (range * deltaRow);
+				int gridCol = sensorCol + (range * deltaCol);
+				if (_map.isBorderWalls(gridRow, gridCol))
+					break;
+
+				int index = store.indexOf(gridRow, gridCol);
+				if (store.isExploredObstacle(index))
+					break;
+
+				// The start & goal zones are only explored by going there
+				if (!store.isExplored(index)
+						&& !_map.isStartZone(gridRow, gridCol)
+						&& !_map.isGoalZone(gridRow, gridCol))
+					gain++;
+			}
+		}
+
+		return gain;
+	}
+
+	/**
+	 * Works out where the sensors are relative to the centre of the robot,
+	 * for each heading of the robot
+	 */
+	private void setSensorLayout(int row, int col, DIRECTION dir,
+			List<Sensor> sensors) {
+
+		int noOfSensors = sensors.size();
+		if (noOfSensors != _noOfSensors || _sensorRows == null) {
+			_noOfSensors = noOfSensors;
+			_sensorRows = new int[PoseState.NO_OF_HEADINGS * noOfSensors];
+			_sensorCols = new int[PoseState.NO_OF_HEADINGS * noOfSensors];
+			_sensorDeltaRows = new int[PoseState.NO_OF_HEADINGS * noOfSensors];
+			_sensorDeltaCols = new int[PoseState.NO_OF_HEADINGS * noOfSensors];
+			_sensorMinRanges = new int[noOfSensors];
+			_sensorMaxRanges = new int[noOfSensors];
+		}
+		_maxGain = 0;
+
+		int centreRow = row + (RobotConstants.ROBOT_SIZE / 2);
+		int centreCol = col + (RobotConstants.ROBOT_SIZE / 2);
+
+		for (int sensor = 0; sensor < noOfSensors; sensor++) {
+			Sensor s = sensors.get(sensor);
+
+			// Turn the sensor back to where it is with the robot facing NORTH
+			int rowOffset = s.getSensorPosRow() - centreRow;
+			int colOffset = s.getSensorPosCol() - centreCol;
+			for (int turn = dir.ordinal(); turn < PoseState.NO_OF_HEADINGS; turn++) {
+				int temp = rowOffset;
+				rowOffset = colOffset;
+				colOffset = -temp;
+			}
+			int sensorDir = s.getSensorDirection().ordinal() - dir.ordinal();
+
+			// Then clockwise, a heading at a time
+			for (int heading = 0; heading < PoseState.NO_OF_HEADINGS; heading++) {
+				int index = (heading * noOfSensors) + sensor;
+				int headingDir = (sensorDir + heading + PoseState.NO_OF_HEADINGS)
+						% PoseState.NO_OF_HEADINGS;
+
+				_sensorRows[index] = rowOffset;
+				_sensorCols[index] = colOffset;
+				_sensorDeltaRows[index] = DIRECTION.getDeltaRow(headingDir);
+				_sensorDeltaCols[index] = DIRECTION.getDeltaCol(headingDir);
+
+				int temp = rowOffset;
+				rowOffset = colOffset;
+				colOffset = -temp;
+			}
+
+			_sensorMinRanges[sensor] = Math.max(s.getMinRange(), 1);
+			_sensorMaxRanges[sensor] = s.getMaxRange();
+			_maxGain += Math.max(0,
+					_sensorMaxRanges[sensor] - _sensorMinRanges[sensor] + 1);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package robot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Stack;
+
+import map.Grid;
+import map.GridStore;
+import map.RealMap;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Compares the original shortest path search against the AStarPlanner,
+ * from the start to the goal on fully explored arenas
+ * <p>
+ * Also times the goal DistanceField, both building the field and looking up
+ * a path once it has been built, and the TimeOptimalPlanner with the default
+ * MotionModel. The A* path and the fastest path are compiled into Arduino
+ * programs, and their predicted times compared.
+ * <p>
+ * Usage: PathPlannerBenchmark [map file]...<br>
+ * Uses the Old_Arena_*.txt files in the working directory by default
+ */
+public class PathPlannerBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 2000;
+	private static final int ITERATIONS = 5000;
+
+	public static void main(String[] args) throws IOException {
+
+		System.setProperty("java.awt.headless", "true");
+
+		File[] mapFiles = null;
+		if (args.length > 0) {
+			mapFiles = new File[args.length];
+			for (int i = 0; i < args.length; i++)
+				mapFiles[i] = new File(args[i]);
+		} else {
+			mapFiles = new File(".").listFiles(new FilenameFilter() {
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.startsWith("Old_Arena_") && name.endsWith(".txt");
+				}
+			});
+			Arrays.sort(mapFiles);
+		}
+
+		System.out.println(String.format("%-24s %12s %12s %8s %10s %10s %12s %12s %10s %12s %10s %10s",
+				"Arena", "Scan (us)", "A* (us)", "Speedup", "Scan Path",
+				"A* Path", "Build (us)", "Lookup (us)", "Field Path",
+				"Fastest (us)", "A* (s)", "Fastest (s)"));
+
+		for (File mapFile : mapFiles) {
+			benchmark(mapFile);
+		}
+	}
+
+	private static void benchmark(File mapFile) throws IOException {
+
+		RealMap realMap = new RealMap();
+		try (BufferedReader br = new BufferedReader(new FileReader(mapFile))) {
+			realMap.loadFromMapString(br.readLine());
+		}
+
+		// Robot map with every grid explored
+		RobotMap robotMap = new RobotMap(realMap);
+		robotMap.resetRobotMap();
+		GridStore realStore = realMap.getGridStore();
+		GridStore robotStore = robotMap.getGridStore();
+		for (int row = 0; row < robotMap.getRows(); row++) {
+			for (int col = 0; col < robotMap.getCols(); col++) {
+				int index = realStore.indexOf(row, col);
+				if (realStore.isObstacle(index))
+					robotStore.markAsObstacle(index);
+				else
+					robotStore.markAsFreeGrid(index);
+			}
+		}
+
+		Robot robot = new Robot(RobotConstants.DEFAULT_START_ROW,
+				RobotConstants.DEFAULT_START_COL, DIRECTION.NORTH);
+		robot.setHeadless(true);
+		robot.setRobotMap(robotMap);
+
+		ScanPathPlanner scanPlanner = new ScanPathPlanner(robot);
+		AStarPlanner planner = new AStarPlanner(robotMap);
+		MotionModel motionModel = new MotionModel();
+		TimeOptimalPlanner fastestPlanner = new TimeOptimalPlanner(robotMap,
+				motionModel);
+		DistanceField goalField = new DistanceField(robotMap,
+				robotMap.getGoalZoneRow(), robotMap.getGoalZoneCol());
+
+		Grid startGrid = robotMap.getGrid(RobotConstants.DEFAULT_START_ROW,
+				RobotConstants.DEFAULT_START_COL);
+		Grid goalGrid = robotMap.getGrid(robotMap.getGoalZoneRow(),
+				robotMap.getGoalZoneCol());
+
+		Stack<Grid> scanPath = null;
+		Stack<Grid> aStarPath = null;
+		Stack<Grid> fieldPath = null;
+		Stack<Grid> fastestPath = null;
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			scanPath = scanPlanner.findShortestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+			aStarPath = planner.findShortestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+			fieldPath = goalField.getPath(startGrid, DIRECTION.NORTH);
+			fastestPath = fastestPlanner.findFastestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+		}
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			scanPath = scanPlanner.findShortestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+		}
+		long scanTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			aStarPath = planner.findShortestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+		}
+		long aStarTime = System.nanoTime() - startTime;
+
+		// Force the field to be built again by changing the map back & forth
+		Grid startZoneGrid = robotMap.getGrid(1, 1);
+		startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			startZoneGrid.setExplored(false);
+			startZoneGrid.setExplored(true);
+			goalField.update();
+		}
+		long buildTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			fieldPath = goalField.getPath(startGrid, DIRECTION.NORTH);
+		}
+		long lookupTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			fastestPath = fastestPlanner.findFastestPath(startGrid, goalGrid,
+					DIRECTION.NORTH);
+		}
+		long fastestTime = System.nanoTime() - startTime;
+
+		// Both are optimal, so only the costs have to match
+		int aStarCost = planner.getLastPathCost();
+		int fieldCost = goalField.getCost(startGrid.getRow(),
+				startGrid.getCol(), DIRECTION.NORTH);
+
+		System.out.println(String.format("%-24s %12.2f %12.2f %7.1fx %10s %10s %12.2f %12.2f %10s %12.2f %10.2f %10.2f%s",
+				mapFile.getName(), scanTime / 1000.0 / ITERATIONS,
+				aStarTime / 1000.0 / ITERATIONS, (double) scanTime / aStarTime,
+				(scanPath == null) ? "None" : (scanPath.size() - 1),
+				(aStarPath == null) ? "None" : (aStarPath.size() - 1),
+				buildTime / 1000.0 / ITERATIONS,
+				lookupTime / 1000.0 / ITERATIONS,
+				(fieldPath == null) ? "None" : (fieldPath.size() - 1),
+				fastestTime / 1000.0 / ITERATIONS,
+				getProgramTime(robot, aStarPath, motionModel),
+				getProgramTime(robot, fastestPath, motionModel),
+				(aStarCost == fieldCost) ? "" : " (Cost mismatch)"));
+	}
+
+	/**
+	 * Predicts the time of a path from the start, compiled into an Arduino
+	 * program
+	 *
+	 * @return The time in seconds, or -1 if there is no path
+	 */
+	private static double getProgramTime(Robot robot, Stack<Grid> path,
+			MotionModel motionModel) {
+
+		if (path == null)
+			return -1;
+
+		Stack<Grid> pathCopy = new Stack<Grid>();
+		pathCopy.addAll(path);
+
+		InstructionCompiler compiler = new InstructionCompiler(robot,
+				robot.getRobotMapPosRow(), robot.getRobotMapPosCol(),
+				robot.getRobotDir());
+		compiler.addInstructions(robot.generateThePath(pathCopy));
+
+		return motionModel.getProgramTime(compiler.getProgram());
+	}
+}
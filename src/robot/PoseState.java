@@ -0,0 +1,51 @@
+package robot;
+
+/**
+ * Encoding of the robot's poses (row, col, heading) as states, for the
+ * planners' per state arrays
+ * <p>
+ * state = ((row * cols) + col) * NO_OF_HEADINGS + heading, where the heading
+ * is the ordinal of the robot's DIRECTION, so the states of a position are
+ * next to each other, and the position is the grid index within the map.
+ * <p>
+ * A position is only valid if the robot fits there, see
+ * {@link RobotFootprint}.
+ */
+final class PoseState {
+
+	static final int NO_OF_HEADINGS = 4;
+
+	private PoseState() {
+
+	}
+
+	static int toState(int pos, int heading) {
+		return (pos * NO_OF_HEADINGS) + heading;
+	}
+
+	static int toState(int row, int col, int cols, int heading) {
+		return toState((row * cols) + col, heading);
+	}
+
+	/**
+	 * Gets the position of a state, i.e. (row * cols) + col
+	 */
+	static int getPos(int state) {
+		return state / NO_OF_HEADINGS;
+	}
+
+	static int getHeading(int state) {
+		return state % NO_OF_HEADINGS;
+	}
+
+	/**
+	 * Gets the state of turning on the spot
+	 *
+	 * @param quarterTurns
+	 *            Number of 90 degree turns clockwise, [0, NO_OF_HEADINGS)
+	 */
+	static int turn(int state, int quarterTurns) {
+		return toState(getPos(state), (getHeading(state) + quarterTurns)
+				% NO_OF_HEADINGS);
+	}
+}
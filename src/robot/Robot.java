@@ -1,21 +1,22 @@
 package robot;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Queue;
 import java.util.Stack;
 
-import javax.swing.Timer;
 
 import leaderboard.CommMgr;
+import leaderboard.LatencyMonitor;
+import leaderboard.LatencyMonitor.STAGE;
 import map.Grid;
+import map.GridStore;
 import map.MapConstants;
 import map.RealMap;
+import map.SharedGridStore;
 import robot.RobotConstants.DIRECTION;
+import robot.RobotScheduler.LEG;
 
 public class Robot implements Serializable {
 
@@ -51,13 +52,17 @@ public class Robot implements Serializable {
 	private transient RealMap _realMap = null; // For detecting obstacles
 
 	// Some memory for the robot here
-	private transient boolean _bPreviousLeftWall = false;
-	private transient boolean _bReachedGoal = false;
 	private transient boolean _bExplorationComplete = false;
 
-	// Timer for controlling robot movement
-	private transient Timer _exploreTimer = null;
-	private transient int _timerIntervals = 0;
+	// Decides on the next moves during exploration, see getExplorationStrategy
+	private transient ExplorationStrategy _explorationStrategy = null;
+	private transient SensedMap _sensedMap = null;
+
+	// Steps every leg of the robot, see getScheduler()
+	private transient RobotScheduler _scheduler = null;
+
+	// Live counters of the control loop, see getMetrics()
+	private transient RobotMetrics _metrics = null;
 
 	// Number of explored grids required to reach coverage limit
 	private transient int _explorationTarget = 0;
@@ -65,28 +70,67 @@ public class Robot implements Serializable {
 	// Elapsed time for the exploration phase (in milliseconds)
 	private transient int _elapsedExplorationTime = 0;
 
+	// True if the robot is driven by a headless simulation, in virtual time
+	private transient boolean _bHeadless = false;
+
+	// True if the current legs are simulated instead of physical
+	private transient boolean _bSimulation = false;
+
+	// Number of moves and turns (90 degrees each) made since the last reset
+	private transient int _moveCount = 0;
+	private transient int _turnCount = 0;
+
+	// Time spent finding shortest paths since the last reset (in nanoseconds)
+	private transient long _planningTime = 0;
+
+	// For finding shortest paths on the robot map
+	private transient AStarPlanner _pathPlanner = null;
+
+	// Best paths to the goal & start, reused until the robot map changes
+	private transient DistanceField _goalField = null;
+	private transient DistanceField _startField = null;
+
+	// For finding the fastest paths instead, if a motion model has been set
+	private transient MotionModel _motionModel = null;
+	private transient TimeOptimalPlanner _fastestPathPlanner = null;
+
+	// Picks the poses to explore the remaining unexplored grids from
+	private transient NextBestViewPlanner _nextBestViewPlanner = null;
+
+	// Noise on the simulated sensor readings, null for perfect sensors
+	private transient SensorNoise _sensorNoise = null;
+
 	// For performing shortest path
 	private transient Queue<INSTRUCTION> _shortestPathInstructions = null;
-	private transient Timer _shortestPathTimer = null;
 
 	// For unexploring unexplored areas
 	private transient Queue<INSTRUCTION> _exploreUnexploredInstructions = null;
-	private transient Timer _exploreUnexploredTimer = null;
-	private transient Stack<Grid> _unexploredGrids = null;
+	private transient Grid _exploreUnexploredTarget = null;
+
+	// For exploring together with other robots, see joinTeam()
+	private transient int _robotId = 0;
+	private transient SharedGridStore _sharedStore = null;
+	private transient FrontierCoordinator _frontierCoordinator = null;
+
+	// Versions of the robot map & claims when the robot started waiting for
+	// the other robots, added together (both only ever increase)
+	private transient long _teamVersion = -1;
 
 	// For physical exploration
-	private transient Timer _phyExploreTimer = null;
 	private transient boolean _bPhyExConnected = false;
 	private transient int _phyExErrors = 0;
 	private transient String _phyExRcvMsg = null;
+
+	// Latest sensor readings from the Arduino, one per sensor
+	private transient int[] _phySensorReadings = null;
 	private transient boolean _bPhyExStarted = false;
 	private transient static final String START_PHY_EXPLORE = "1,EXPLORE";
 	private transient String _phyExCmdMsg = null;
+	private transient boolean _bEmergencyRecalibration = false;
 	private transient int _movesSinceLastCalibration = 0;
 	private transient static final int MAX_MOVES_BEFORE_CALIBRATION = 5;
 
 	// For physical shortest path
-	private transient Timer _phySpTimer = null;
 	private transient boolean _bPhySpConnected = false;
 	private transient int _phySpErrors = 0;
 	private transient String _phySpRcvMsg = null;
@@ -130,6 +174,20 @@ public class Robot implements Serializable {
 		_realMap = realMap;
 	}
 
+	/**
+	 * Adds noise to the simulated sensor readings - ONLY FOR SIMULATOR
+	 * 
+	 * @param sensorNoise
+	 *            The noise model, or null for perfect sensors
+	 */
+	public void setSensorNoise(SensorNoise sensorNoise) {
+		_sensorNoise = sensorNoise;
+	}
+
+	public SensorNoise getSensorNoise() {
+		return _sensorNoise;
+	}
+
 	/**
 	 * Adds a new sensor to the robot
 	 * 
@@ -155,40 +213,43 @@ public class Robot implements Serializable {
 	 */
 	public void startExploration() {
 
-		System.out.println("\nStarting exploration!");
+		log("\nStarting exploration!");
 
-		// Calculate timer intervals based on the user selected steps per second
-		_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
-		System.out.println("Steps Per Second: " + _stepsPerSecond
-				+ ", Timer Interval: " + _timerIntervals);
+		_bSimulation = true;
+
+		log("Steps Per Second: " + _stepsPerSecond
+				+ ", Timer Interval: " + getTimerIntervals());
 
 		// Calculate number of explored grids required
-		_explorationTarget = (int) ((_coverageLimit / 100.0) * ((MapConstants.MAP_ROWS - 2) * (MapConstants.MAP_COLS - 2)));
-		System.out.println("Exploration target (In grids): "
+		_explorationTarget = (int) ((_coverageLimit / 100.0) * _robotMap.getGridStore().getNoOfInteriorGrids());
+		log("Exploration target (In grids): "
 				+ _explorationTarget);
 
 		// Reset the elapsed exploration time (in milliseconds)
 		_elapsedExplorationTime = 0;
 
-		_exploreTimer = new Timer(_timerIntervals, new ActionListener() {
+		startLeg(LEG.EXPLORE, new Runnable() {
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
-
-				if (_exploreTimer != null && _bExplorationComplete) {
-					_exploreTimer.stop();
-					_exploreTimer = null;
-				} else {
-					// Make the next move
-					makeNextMove();
-
-					// Update elapsed time
-					_elapsedExplorationTime += _timerIntervals;
-				}
+			public void run() {
+				exploreTick();
 			}
 		});
-		_exploreTimer.setRepeats(true);
-		_exploreTimer.setInitialDelay(1000);
-		_exploreTimer.start();
+	}
+
+	/**
+	 * Performs one step of the exploration phase
+	 */
+	private void exploreTick() {
+
+		if (_bExplorationComplete) {
+			getScheduler().stop(LEG.EXPLORE);
+		} else {
+			// Make the next move
+			makeNextMove();
+
+			// Update elapsed time
+			_elapsedExplorationTime += getTimerIntervals();
+		}
 	}
 
 	/**
@@ -196,199 +257,398 @@ public class Robot implements Serializable {
 	 */
 	public void stopExploration() {
 
-		if (_exploreTimer != null) {
-			_exploreTimer.stop();
-			_exploreTimer = null;
-		}
+		getScheduler().stopAll();
 	}
 
 	/** For exploring any unexplored area */
 	public void startExploringUnexplored(Grid current, DIRECTION currDir,
-			Grid target, Grid[][] robotMap) {
+			Grid target) {
 
 		Stack<Grid> exploreUnexploredPath = findShortestPath(current, target,
-				currDir, robotMap);
+				currDir);
 
-		if (exploreUnexploredPath == null) {
+		// Move on to the next unexplored grid until one can be reached
+		while (exploreUnexploredPath == null
+				|| isStuckOnTarget(exploreUnexploredPath, target)) {
 
-			System.out.println("startExploringUnexplored()"
+			log("startExploringUnexplored()"
 					+ " -> shortestPath is NULL");
 
-			if (_unexploredGrids.isEmpty()) {
+			target = getNextUnexploredGrid(target);
+			if (target == null) {
+
+				// Wait for the other robots to open up more of the arena
+				if (waitForTeam()) {
+					startExploreUnexploredLeg(new ArrayDeque<INSTRUCTION>(), null);
+					return;
+				}
+
 				// Start the shortest path back to the starting grid
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
 				if (!withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
-					System.out.println("I need to go back to the start");
+					log("I need to go back to the start");
 					startShortestPath(currentGrid, _robotDirection,
-							startingGrid, robotMap);
+							startingGrid);
 				}
-			} else {
-				startExploringUnexplored(current, currDir,
-						_unexploredGrids.pop(), robotMap);
+				return;
 			}
-		} else {
 
-			_exploreUnexploredInstructions = generateThePath(exploreUnexploredPath);
+			exploreUnexploredPath = findShortestPath(current, target,
+					currDir);
+		}
 
-			// Calculate timer intervals based on the user
-			// selected steps per second
-			_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
+		if (_frontierCoordinator != null)
+			_frontierCoordinator.claim(_robotId, _robotMap.getGridStore()
+					.indexOf(target.getRow(), target.getCol()));
 
-			_exploreUnexploredTimer = new Timer(_timerIntervals,
-					new ActionListener() {
-						@Override
-						public void actionPerformed(ActionEvent arg0) {
+		startExploreUnexploredLeg(compilePath(exploreUnexploredPath)
+				.getInstructions(), target);
+	}
 
-							if (_exploreUnexploredInstructions.isEmpty()) {
-								
-								if(_exploreUnexploredTimer != null) {
-									_exploreUnexploredTimer.stop();
-									_exploreUnexploredTimer = null;
-								}
-
-								// Check to see if there are
-								// anymore unexplored grids
-								_unexploredGrids = getUnexploredGrids();
-								if (!_unexploredGrids.isEmpty()) {
-
-									// Start shortest path to the next
-									// unexplored grid
-									Grid[][] robotMap = _robotMap.getMapGrids();
-									Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-
-									startExploringUnexplored(currentGrid,
-											_robotDirection,
-											_unexploredGrids.pop(), robotMap);
-								} else {
-
-									// Start the shortest path back to the
-									// starting grid
-									Grid[][] robotMap = _robotMap.getMapGrids();
-									Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-									Grid startingGrid = robotMap[1][1];
-
-									if (currentGrid != startingGrid) {
-										startShortestPath(currentGrid,
-												_robotDirection, startingGrid,
-												robotMap);
-									}
-								}
-
-							} else {
-
-								// Perform next instruction
-								switch (_exploreUnexploredInstructions.poll()) {
-								case MOVE_STRAIGHT:
-									moveStraight();
-									break;
-								case TURN_LEFT:
-									turnLeft();
-									break;
-								case TURN_RIGHT:
-									turnRight();
-									break;
-								}
-								Robot.this.sense();
-							}
-						}
-					});
-			_exploreUnexploredTimer.setRepeats(true);
-			_exploreUnexploredTimer.setInitialDelay(0);
-			_exploreUnexploredTimer.start();
+	/**
+	 * Starts the next leg towards an unexplored area<br>
+	 * On its own, the robot heads for the next best view, and within a team,
+	 * for the next unexplored grid which has not been claimed
+	 * 
+	 * @return False if there are no unexplored areas left to head for
+	 */
+	private boolean startNextUnexploredLeg() {
+
+		if (_frontierCoordinator == null)
+			return startExploringNextBestView();
+
+		Grid unexploredGrid = getNextUnexploredGrid(null);
+		if (unexploredGrid == null)
+			return false;
+
+		Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+
+		startExploringUnexplored(currentGrid, _robotDirection,
+				unexploredGrid);
+		return true;
+	}
+
+	/**
+	 * Starts a leg to the pose from which the robot sees the most unexplored
+	 * grids for the moves & turns it takes to get there
+	 * 
+	 * @return False if no unexplored grid can be seen from anywhere the
+	 *         robot can get to
+	 */
+	private boolean startExploringNextBestView() {
+
+		long startTime = System.nanoTime();
+		NextBestViewPlanner.View view = _nextBestViewPlanner.findNextBestView(
+				_robotMapPosRow, _robotMapPosCol, _robotDirection, _sensors);
+		_planningTime += System.nanoTime() - startTime;
+
+		if (view == null)
+			return false;
+
+		log("startExploringNextBestView() -> " + view.getRow() + ", "
+				+ view.getCol() + " " + view.getDirection() + ", Gain: "
+				+ view.getGain() + ", Cost: " + view.getCost());
+
+		Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+		Grid viewGrid = _robotMap.getGrid(view.getRow(), view.getCol());
+
+		Stack<Grid> path = findShortestPath(currentGrid, viewGrid,
+				_robotDirection);
+		if (path == null)
+			return false;
+
+		InstructionCompiler compiler = compilePath(path);
+		compiler.turnTo(view.getDirection());
+
+		startExploreUnexploredLeg(compiler.getInstructions(), viewGrid);
+		return true;
+	}
+
+	/**
+	 * Starts a leg towards an unexplored area
+	 * 
+	 * @param instructions
+	 *            The instructions to get there, or none if the robot is
+	 *            waiting for the other robots of its team
+	 * @param target
+	 *            The unexplored grid, or null if waiting
+	 */
+	private void startExploreUnexploredLeg(Queue<INSTRUCTION> instructions,
+			Grid target) {
+
+		_exploreUnexploredInstructions = instructions;
+		_exploreUnexploredTarget = target;
+
+		startLeg(LEG.EXPLORE_UNEXPLORED, new Runnable() {
+			@Override
+			public void run() {
+				exploreUnexploredTick();
+			}
+		});
+	}
+
+	/**
+	 * Performs one step of the current leg towards an unexplored area
+	 */
+	private void exploreUnexploredTick() {
+
+		if (_frontierCoordinator != null) {
+
+			// Legs without any moves do not sense, so pull in the rest of
+			// the team's readings here as well
+			pullSharedMap();
+
+			if (_exploreUnexploredTarget == null) {
+
+				// Keep waiting until the map or the claims change
+				if (getTeamVersion() == _teamVersion)
+					return;
+
+			} else if (_exploreUnexploredTarget.isExplored()) {
+
+				// Another robot got there first
+				_exploreUnexploredInstructions.clear();
+			}
+		}
+
+		if (_exploreUnexploredInstructions.isEmpty()) {
+			
+			getScheduler().stop(LEG.EXPLORE_UNEXPLORED);
+
+			// Check to see if there are
+			// anymore unexplored grids
+			if (startNextUnexploredLeg()) {
+
+				// Heading for the next unexplored area
+			} else if (waitForTeam()) {
+
+				// Wait for the other robots to open up more of the arena
+				startExploreUnexploredLeg(new ArrayDeque<INSTRUCTION>(), null);
+			} else {
+
+				// Start the shortest path back to the
+				// starting grid
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
+
+				if (!currentGrid.equals(startingGrid)) {
+					startShortestPath(currentGrid,
+							_robotDirection, startingGrid);
+				}
+			}
+
+		} else {
+
+			// Perform next instruction
+			switch (_exploreUnexploredInstructions.poll()) {
+			case MOVE_STRAIGHT:
+				moveStraight();
+				break;
+			case TURN_LEFT:
+				turnLeft();
+				break;
+			case TURN_RIGHT:
+				turnRight();
+				break;
+			}
+			this.sense();
 		}
 	}
 
 	/** For triggering the shortest path algorithm */
 	public void startShortestPath() {
 
-		Grid[][] robotMap = _robotMap.getMapGrids();
+		_bSimulation = true;
 
-		Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
 
-		int goalGridRow = MapConstants.GOAL_GRID_ROW; // Row 13
-		int goalGridCol = MapConstants.GOAL_GRID_COL; // Column 18
-		Grid goalGrid = robotMap[goalGridRow][goalGridCol];
+		Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
 
-		System.out
-				.println("\nstartShortestPath(void) -> Starting row, col: "
-						+ _robotMapPosRow + ", " + _robotMapPosCol
-						+ ", Goal row, col: " + goalGridRow + ", "
-						+ goalGridCol + "\n");
+		int goalGridRow = _robotMap.getGoalZoneRow();
+		int goalGridCol = _robotMap.getGoalZoneCol();
+		Grid goalGrid = _robotMap.getGrid(goalGridRow, goalGridCol);
+
+		log("\nstartShortestPath(void) -> Starting row, col: "
+				+ _robotMapPosRow + ", " + _robotMapPosCol
+				+ ", Goal row, col: " + goalGridRow + ", "
+				+ goalGridCol + "\n");
 
-		startShortestPath(currentGrid, _robotDirection, goalGrid, robotMap);
+		startShortestPath(currentGrid, _robotDirection, goalGrid);
 	}
 
 	/** For starting shortest path */
 	private void startShortestPath(Grid current, DIRECTION currDir,
-			Grid target, Grid[][] robotMap) {
+			Grid target) {
 
-		Stack<Grid> shortestPath = findShortestPath(current, target, currDir,
-				robotMap);
+		Stack<Grid> shortestPath = findShortestPath(current, target, currDir);
 
 		if (shortestPath == null) {
 
-			System.out.println("startShortestPath() -> shortestPath is NULL");
+			log("startShortestPath() -> shortestPath is NULL");
 			return;
 		}
 
-		_shortestPathInstructions = generateThePath(shortestPath);
+		_shortestPathInstructions = compilePath(shortestPath).getInstructions();
 
-		// Calculate timer intervals based on the user selected steps per second
-		_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
-		System.out.println("Steps Per Second: " + _stepsPerSecond
-				+ ", Timer Interval: " + _timerIntervals);
+		log("Steps Per Second: " + _stepsPerSecond
+				+ ", Timer Interval: " + getTimerIntervals());
 
-		_shortestPathTimer = new Timer(_timerIntervals, new ActionListener() {
+		startLeg(LEG.SHORTEST_PATH, new Runnable() {
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
+			public void run() {
+				shortestPathTick();
+			}
+		});
+	}
 
-				if (_shortestPathInstructions.isEmpty()) {
-					
-					// If target grid is within the start zone, i.e.
-					// shortestPath is being used to go back to the start zone
-					if(_robotMap.isStartZone(_robotMapPosRow, _robotMapPosCol)) {
-						System.out.println("startShortestPath()->"
-								+ " Current Direction: " + _robotDirection);
-						
-						// If the robot is not facing the specified starting direction
-						if (_robotDirection != _robotStartDir) {
+	/**
+	 * Performs one step of the current shortest path
+	 */
+	private void shortestPathTick() {
 
-							// Turn the robot to match the specified starting direction
-							while (_robotDirection != _robotStartDir) {
-								turnRight();
-							}
-							
-							System.out.println("startShortestPath()->"
-									+ " Final Ending Direction: " + _robotDirection);
-						}
-					}
-					
-					if(_shortestPathTimer != null) {
-						_shortestPathTimer.stop();
-						_shortestPathTimer = null;
-					}
-				} else {
+		if (_shortestPathInstructions.isEmpty()) {
+			
+			// If target grid is within the start zone, i.e.
+			// shortestPath is being used to go back to the start zone
+			if(_robotMap.isStartZone(_robotMapPosRow, _robotMapPosCol)) {
+				log("startShortestPath()->"
+						+ " Current Direction: " + _robotDirection);
+				
+				// If the robot is not facing the specified starting direction
+				if (_robotDirection != _robotStartDir) {
 
-					// Perform next instruction
-					switch (_shortestPathInstructions.poll()) {
-					case MOVE_STRAIGHT:
-						moveStraight();
-						break;
-					case TURN_LEFT:
-						turnLeft();
-						break;
-					case TURN_RIGHT:
+					// Turn the robot to match the specified starting direction
+					while (_robotDirection != _robotStartDir) {
 						turnRight();
-						break;
 					}
+					
+					log("startShortestPath()->"
+							+ " Final Ending Direction: " + _robotDirection);
 				}
 			}
+			
+			getScheduler().stop(LEG.SHORTEST_PATH);
+		} else {
+
+			// Perform next instruction
+			switch (_shortestPathInstructions.poll()) {
+			case MOVE_STRAIGHT:
+				moveStraight();
+				break;
+			case TURN_LEFT:
+				turnLeft();
+				break;
+			case TURN_RIGHT:
+				turnRight();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Compiles the instructions along a path, from the robot's current pose
+	 * <p>
+	 * The simulated legs carry out the compiled instructions, so that they
+	 * move the same way as the physical robot, which is sent the program
+	 */
+	private InstructionCompiler compilePath(Stack<Grid> path) {
+
+		InstructionCompiler compiler = new InstructionCompiler(this,
+				_robotMapPosRow, _robotMapPosCol, _robotDirection);
+		compiler.addInstructions(generateThePath(path));
+
+		return compiler;
+	}
+
+	/**
+	 * Gets the scheduler which steps every leg of the robot, both simulated
+	 * & physical, at the user selected steps per second
+	 * <p>
+	 * The scheduler runs in virtual time when the robot is headless, and in
+	 * wall-clock time, on its own thread, otherwise
+	 */
+	private RobotScheduler getScheduler() {
+		if (_scheduler == null)
+			_scheduler = new RobotScheduler("Simulation", _bHeadless,
+					_stepsPerSecond);
+		return _scheduler;
+	}
+
+	/**
+	 * Starts a leg on the scheduler
+	 * <p>
+	 * Every step is counted in the robot's metrics, and unless the robot is
+	 * headless, a snapshot of the robot map is published
+	 * after every step, and the robot map samples the latest snapshot at its
+	 * own frame rate
+	 * 
+	 * @param leg
+	 *            The leg that is starting
+	 * @param tick
+	 *            Performs one step of the leg
+	 */
+	private void startLeg(LEG leg, final Runnable tick) {
+
+		final RobotMetrics metrics = getMetrics();
+		final boolean bPublish = !_bHeadless;
+
+		getScheduler().start(leg, new Runnable() {
+			@Override
+			public void run() {
+				metrics.stepExecuted();
+				tick.run();
+				if (bPublish)
+					_robotMap.publishSnapshot();
+			}
 		});
-		_shortestPathTimer.setRepeats(true);
-		_shortestPathTimer.setInitialDelay(0);
-		_shortestPathTimer.start();
+	}
+
+	/**
+	 * Gets the live counters of the robot's control loop, which can be
+	 * registered with JMX, see {@link RobotMetrics#register}
+	 */
+	public RobotMetrics getMetrics() {
+		if (_metrics == null)
+			_metrics = new RobotMetrics(this);
+		return _metrics;
+	}
+
+	/**
+	 * Indicates whether the scheduler's thread is stepping the robot<br>
+	 * While it is, the robot & its map must not be read from other threads,
+	 * except through the robot map's snapshots
+	 */
+	public boolean isSimulationRunning() {
+		return _scheduler != null && _scheduler.isRunning();
+	}
+
+	/**
+	 * Performs the next step of whichever leg (exploration, exploring
+	 * unexplored areas or shortest path) is due next
+	 * <p>
+	 * NOTE: Only meant to be used when the robot is headless, see
+	 * {@link #setHeadless}
+	 * 
+	 * @return True if a step was performed, false if there is no active leg
+	 */
+	public boolean simulateNextStep() {
+		return getScheduler().runNext();
+	}
+
+	/**
+	 * Performs the next step of every leg which is due at the same time,
+	 * i.e. every physical leg (exploration, exploring unexplored areas and
+	 * shortest path) which is currently active, as if they had been stepped
+	 * together in wall-clock time
+	 * <p>
+	 * NOTE: Only meant to be used when the robot is headless, e.g. for
+	 * replaying a recorded run, see {@link #setHeadless}
+	 * 
+	 * @return True if a step was performed, false if there is no active leg
+	 */
+	public boolean simulateNextPhysicalStep() {
+		return getScheduler().runAllDue();
 	}
 
 	/**
@@ -404,9 +664,6 @@ public class Robot implements Serializable {
 		// Sense its surroundings
 		this.sense();
 
-		_robotMap.revalidate();
-		_robotMap.repaint();
-
 		// Logic to make the next move
 		this.logic();
 	}
@@ -422,23 +679,18 @@ public class Robot implements Serializable {
 		if (_bExplorationComplete)
 			return;
 
-		// Robot reached goal zone
-		if (withinGoalZone(_robotMapPosRow, _robotMapPosCol))
-			_bReachedGoal = true;
-
 		if (_bCoverageLimited) {
 			if (coverageLimitReached()) {
 
 				// Stop exploration
 				_bExplorationComplete = true;
+				releaseClaim();
 
 				// Start the shortest path back to the starting grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
-				startShortestPath(currentGrid, _robotDirection, startingGrid,
-						robotMap);
+				startShortestPath(currentGrid, _robotDirection, startingGrid);
 
 				return;
 			}
@@ -449,66 +701,124 @@ public class Robot implements Serializable {
 
 				// Stop exploration
 				_bExplorationComplete = true;
+				releaseClaim();
 
 				// Start the shortest path back to the starting grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
-				startShortestPath(currentGrid, _robotDirection, startingGrid,
-						robotMap);
+				startShortestPath(currentGrid, _robotDirection, startingGrid);
 
 				return;
 			}
 		}
 
-		if (_bReachedGoal && withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
+		// The rest of the team has explored everything else
+		if (_frontierCoordinator != null
+				&& _robotMap.getGridStore().getNoOfUnexploredInteriorGrids() == 0) {
 
+			// Stop exploration
 			_bExplorationComplete = true;
+			releaseClaim();
+
+			// Start the shortest path back to the starting grid
+			Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+			Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
-			_unexploredGrids = getUnexploredGrids();
-			if (!_unexploredGrids.isEmpty()) {
+			startShortestPath(currentGrid, _robotDirection, startingGrid);
 
-				// Start shortest path to the first unexplored grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
+			return;
+		}
+
+		Queue<INSTRUCTION> moves = getNextMoves();
+		if (moves == null) {
+
+			_bExplorationComplete = true;
+
+			Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+
+			// Team helpers do not explore with the strategy at all
+			boolean bExploreLeftovers = (_frontierCoordinator != null && _robotId > 0)
+					|| getExplorationStrategy().leavesUnexploredGrids();
+
+			if (bExploreLeftovers && startNextUnexploredLeg()) {
+
+				// Heading for the first unexplored area
+			} else {
+				releaseClaim();
 
-				startExploringUnexplored(currentGrid, _robotDirection,
-						_unexploredGrids.pop(), robotMap);
+				// Start the shortest path back to the starting grid
+				if (!withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
+					Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
+					startShortestPath(currentGrid, _robotDirection,
+							startingGrid);
+				}
 			}
 
 			return;
 		}
 
-		boolean frontWall = hasFrontWall();
-		boolean leftWall = hasLeftWall();
-		boolean rightWall = hasRightWall();
+		performMoves(moves);
+	}
 
-		// (No leftWall AND previousLeftWall) OR
-		// (frontWall AND No leftWall AND rightWall)
-		if ((!leftWall && _bPreviousLeftWall) || (frontWall && !leftWall
-				&& rightWall))
-			turnLeft();
+	/**
+	 * Asks the exploration strategy for the robot's next moves
+	 * <p>
+	 * Only the first robot of a team explores with the strategy, the others
+	 * head straight for the unexplored areas
+	 * 
+	 * @return The next moves, or null if the strategy is done exploring
+	 */
+	private Queue<INSTRUCTION> getNextMoves() {
 
-		// (frontWall AND No rightWall)
-		else if (frontWall && !rightWall)
-			turnRight();
+		if (_frontierCoordinator != null && _robotId > 0)
+			return null;
 
-		// (frontWall AND leftWall AND rightWall)
-		else if (frontWall && leftWall && rightWall)
-			turn180();
+		return getExplorationStrategy().nextMoves(_sensedMap, _robotMapPosRow,
+				_robotMapPosCol, _robotDirection);
+	}
 
-		else
-			moveStraight();
+	/**
+	 * Carries out the moves decided on by the exploration strategy<br>
+	 * For the physical robot, the commands of all of the moves are sent in
+	 * a single message
+	 */
+	private void performMoves(Queue<INSTRUCTION> moves) {
+
+		String cmdMsg = "";
+		for (INSTRUCTION inst : moves) {
 
-		// Save current leftWall state into _bPreviousLeftWall
-		_bPreviousLeftWall = leftWall;
+			// A move which is not valid sends no command
+			_phyExCmdMsg = null;
+
+			switch (inst) {
+			case MOVE_STRAIGHT:
+				moveStraight();
+				break;
+			case TURN_LEFT:
+				turnLeft();
+				break;
+			case TURN_RIGHT:
+				turnRight();
+				break;
+			}
+
+			if (_phyExCmdMsg != null)
+				cmdMsg += _phyExCmdMsg;
+		}
+
+		_phyExCmdMsg = cmdMsg.isEmpty() ? null : cmdMsg;
 	}
 
 	/**
 	 * This should update the robot's map based on available sensor information
 	 */
 	public void sense() {
+
+		long startTime = System.nanoTime();
+
+		// Start from what the rest of the team has sensed
+		pullSharedMap();
 		
 		// Weightage of the sensors
 		double[] sensorWeightage = {3.0, 3.0, 3.0, 1.5, 1.0, 1.0};
@@ -517,6 +827,14 @@ public class Robot implements Serializable {
 		
 		for (Sensor s : _sensors) {
 			int freeGrids = s.sense(_realMap);
+			if (_sensorNoise != null)
+				freeGrids = _sensorNoise.apply(sensorIndex, s, freeGrids);
+
+			// Sensors beyond the weightage table are trusted the least
+			double weightage = (sensorIndex < sensorWeightage.length) ?
+					sensorWeightage[sensorIndex] : 1.0;
+			sensorIndex++;
+
 			int sensorPosRow = s.getSensorPosRow();
 			int sensorPosCol = s.getSensorPosCol();
 			DIRECTION sensorDir = s.getSensorDirection();
@@ -529,7 +847,7 @@ public class Robot implements Serializable {
 			 * freeGrids);
 			 */
 
-			Grid[][] robotMapGrids = _robotMap.getMapGrids();
+			GridStore robotMapStore = _robotMap.getGridStore();
 			for (int currGrid = sensorMinRange; currGrid <= sensorMaxRange; currGrid++) {
 
 				int gridRow = sensorPosRow
@@ -539,17 +857,27 @@ public class Robot implements Serializable {
 				int gridCol = sensorPosCol
 						+ ((sensorDir == DIRECTION.WEST) ? (-1 * currGrid)
 								: (sensorDir == DIRECTION.EAST) ? currGrid : 0);
+
+				// Noisy readings may go past the border walls
+				if(gridRow < 0 || gridRow >= _robotMap.getRows() ||
+						gridCol < 0 || gridCol >= _robotMap.getCols()) {
+					break;
+				}
+				
+				int gridIndex = robotMapStore.indexOf(gridRow, gridCol);
 				
 				// Calculate the truth value to be used for the current reading
 				double truthValue = 1.0/((double) currGrid);
-				truthValue *= sensorWeightage[sensorIndex];
+				truthValue *= weightage;
 
 				// If the current grid is within number of free grids detected
 				if (currGrid <= freeGrids) {
 					//robotMapGrids[gridRow][gridCol].setExplored(true);
 					
-					robotMapGrids[gridRow][gridCol].markAsFreeGrid(
-							truthValue);
+					robotMapStore.markAsFreeGrid(gridIndex, (float) truthValue);
+					if (_sharedStore != null)
+						_sharedStore.markAsFreeGrid(_robotId, gridIndex,
+								(float) truthValue);
 					
 				} else {
 
@@ -557,154 +885,43 @@ public class Robot implements Serializable {
 					// but greater than number of free grids
 					// i.e. current grid is an obstacle
 					//robotMapGrids[gridRow][gridCol].setExplored(true);
-					
-					if(!_robotMap.isStartZone(gridRow, gridCol) &&
-							!_robotMap.isGoalZone(gridRow, gridCol)) {
-						//robotMapGrids[gridRow][gridCol].markAsObstacle();
-						
-						robotMapGrids[gridRow][gridCol]
-								.markAsObstacle(truthValue);
-					}
-
-					break;
-				}
-			}
-		}
-	}
-
-	/**
-	 * Check for walls directly in front of the robot
-	 * 
-	 * @return True if there is a wall/obstacle in front of the robot
-	 */
-	public boolean hasFrontWall() {
-
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
-		int frontWallRow, frontWallCol;
-
-		switch (_robotDirection) {
-		case EAST:
-			frontWallRow = _robotMapPosRow;
-			frontWallCol = _robotMapPosCol + RobotConstants.ROBOT_SIZE;
-			for (int currRow = frontWallRow; currRow < frontWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][frontWallCol].isExplored()
-						&& robotMapGrids[currRow][frontWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, frontWallCol)) {
-					return true;
-				}
-			}
-			break;
-		case NORTH:
-			frontWallRow = (_robotMapPosRow - 1);
-			frontWallCol = _robotMapPosCol;
-			for (int currCol = frontWallCol; currCol < frontWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[frontWallRow][currCol].isExplored()
-						&& robotMapGrids[frontWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(frontWallRow, currCol)) {
-					return true;
-				}
-			}
-			break;
-		case SOUTH:
-			frontWallRow = _robotMapPosRow + RobotConstants.ROBOT_SIZE;
-			frontWallCol = _robotMapPosCol;
-			for (int currCol = frontWallCol; currCol < frontWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[frontWallRow][currCol].isExplored()
-						&& robotMapGrids[frontWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(frontWallRow, currCol)) {
-					return true;
-				}
-			}
-			break;
-		case WEST:
-			frontWallRow = _robotMapPosRow;
-			frontWallCol = (_robotMapPosCol - 1);
-			for (int currRow = frontWallRow; currRow < frontWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][frontWallCol].isExplored()
-						&& robotMapGrids[currRow][frontWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, frontWallCol)) {
-					return true;
-				}
-			}
-			break;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Check for walls on the left of the robot
-	 * 
-	 * @return True if there is a wall/obstacle on the left of the robot
-	 */
-	public boolean hasLeftWall() {
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
-		int leftWallRow, leftWallCol;
-
-		switch (_robotDirection) {
-		case EAST:
-			leftWallRow = _robotMapPosRow - 1;
-			leftWallCol = _robotMapPosCol;
-			for (int currCol = leftWallCol; currCol < leftWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[leftWallRow][currCol].isExplored()
-						&& robotMapGrids[leftWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(leftWallRow, currCol)) {
-					return true;
-				}
-			}
-			break;
-		case NORTH:
-			leftWallRow = _robotMapPosRow;
-			leftWallCol = _robotMapPosCol - 1;
-			for (int currRow = leftWallRow; currRow < leftWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][leftWallCol].isExplored()
-						&& robotMapGrids[currRow][leftWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, leftWallCol)) {
-					return true;
-				}
-			}
-			break;
-		case SOUTH:
-			leftWallRow = _robotMapPosRow;
-			leftWallCol = (_robotMapPosCol + RobotConstants.ROBOT_SIZE);
-			for (int currRow = leftWallRow; currRow < leftWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][leftWallCol].isExplored()
-						&& robotMapGrids[currRow][leftWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, leftWallCol)) {
-					return true;
-				}
-			}
-			break;
-		case WEST:
-			leftWallRow = (_robotMapPosRow + RobotConstants.ROBOT_SIZE);
-			leftWallCol = _robotMapPosCol;
-			for (int currCol = leftWallCol; currCol < leftWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[leftWallRow][currCol].isExplored()
-						&& robotMapGrids[leftWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(leftWallRow, currCol)) {
-					return true;
+					
+					if(!_robotMap.isStartZone(gridRow, gridCol) &&
+							!_robotMap.isGoalZone(gridRow, gridCol)) {
+						//robotMapGrids[gridRow][gridCol].markAsObstacle();
+						
+						robotMapStore.markAsObstacle(gridIndex, (float) truthValue);
+						if (_sharedStore != null)
+							_sharedStore.markAsObstacle(_robotId, gridIndex,
+									(float) truthValue);
+					}
+
+					break;
 				}
 			}
-			break;
 		}
 
-		return false;
+		getMetrics().sensed(startTime);
+	}
+
+	/**
+	 * Check for walls directly in front of the robot
+	 * 
+	 * @return True if there is a wall/obstacle in front of the robot
+	 */
+	public boolean hasFrontWall() {
+		return _sensedMap.hasFrontWall(_robotMapPosRow, _robotMapPosCol,
+				_robotDirection);
+	}
+
+	/**
+	 * Check for walls on the left of the robot
+	 * 
+	 * @return True if there is a wall/obstacle on the left of the robot
+	 */
+	public boolean hasLeftWall() {
+		return _sensedMap.hasLeftWall(_robotMapPosRow, _robotMapPosCol,
+				_robotDirection);
 	}
 
 	/**
@@ -713,65 +930,8 @@ public class Robot implements Serializable {
 	 * @return True if there is a wall/obstacle on the right of the robot
 	 */
 	public boolean hasRightWall() {
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
-		int rightWallRow, rightWallCol;
-
-		switch (_robotDirection) {
-		case EAST:
-			rightWallRow = _robotMapPosRow + RobotConstants.ROBOT_SIZE;
-			rightWallCol = _robotMapPosCol;
-			for (int currCol = rightWallCol; currCol < rightWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[rightWallRow][currCol].isExplored()
-						&& robotMapGrids[rightWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(rightWallRow, currCol)) {
-					return true;
-				}
-			}
-			break;
-		case NORTH:
-			rightWallRow = _robotMapPosRow;
-			rightWallCol = _robotMapPosCol + RobotConstants.ROBOT_SIZE;
-			for (int currRow = rightWallRow; currRow < rightWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][rightWallCol].isExplored()
-						&& robotMapGrids[currRow][rightWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, rightWallCol)) {
-					return true;
-				}
-			}
-			break;
-		case SOUTH:
-			rightWallRow = _robotMapPosRow;
-			rightWallCol = (_robotMapPosCol - 1);
-			for (int currRow = rightWallRow; currRow < rightWallRow
-					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][rightWallCol].isExplored()
-						&& robotMapGrids[currRow][rightWallCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(currRow, rightWallCol)) {
-					return true;
-				}
-			}
-			break;
-		case WEST:
-			rightWallRow = (_robotMapPosRow - 1);
-			rightWallCol = _robotMapPosCol;
-			for (int currCol = rightWallCol; currCol < rightWallCol
-					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[rightWallRow][currCol].isExplored()
-						&& robotMapGrids[rightWallRow][currCol].isObstacle())
-					return true;
-				else if(_robotMap.isBorderWalls(rightWallRow, currCol)) {
-					return true;
-				}
-			}
-			break;
-		}
-
-		return false;
+		return _sensedMap.hasRightWall(_robotMapPosRow, _robotMapPosCol,
+				_robotDirection);
 	}
 
 	/**
@@ -793,13 +953,17 @@ public class Robot implements Serializable {
 			updatePosition(newRobotMapPosRow, newRobotMapPosCol);
 			
 			markCurrentPosAsVisited();
+			_moveCount++;
+			getMetrics().moved();
 
 			_phyExCmdMsg = "f;"; // Move straight
 		} else {
-			System.out.println("INVALID MOVE! Robot will be out of bounds or"
+			log("INVALID MOVE! Robot will be out of bounds or"
 					+ " bump into an known obstacle..");
 
-			requestSensorReadings();
+			// A headless robot is never connected to the physical robot
+			if (!_bHeadless)
+				requestSensorReadings();
 		}
 	}
 
@@ -840,6 +1004,10 @@ public class Robot implements Serializable {
 		return _robotDirection;
 	}
 
+	public RobotMap getRobotMap() {
+		return _robotMap;
+	}
+
 	/** For initializing the robot map */
 	public void setRobotMap(RobotMap robotMap) {
 		_robotMap = robotMap;
@@ -847,26 +1015,79 @@ public class Robot implements Serializable {
 		// Pass a reference of the robot to the robot map
 		// Just for rendering purposes
 		_robotMap.setRobot(this);
+
+		_sensedMap = new SensedMap(_robotMap);
+		_pathPlanner = new AStarPlanner(_robotMap);
+		_nextBestViewPlanner = new NextBestViewPlanner(_robotMap);
+		_goalField = new DistanceField(_robotMap, _robotMap.getGoalZoneRow(),
+				_robotMap.getGoalZoneCol());
+		_startField = new DistanceField(_robotMap,
+				_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
+
+		if (_motionModel != null)
+			_fastestPathPlanner = new TimeOptimalPlanner(_robotMap, _motionModel);
+	}
+
+	/**
+	 * Plans every path by the predicted time of the physical robot, instead
+	 * of by the number of moves & turns
+	 *
+	 * @param motionModel
+	 *            The motion model to predict the times with, or null to plan
+	 *            by moves & turns again
+	 */
+	public void setMotionModel(MotionModel motionModel) {
+		_motionModel = motionModel;
+
+		_fastestPathPlanner = (motionModel != null && _robotMap != null) ? new TimeOptimalPlanner(
+				_robotMap, motionModel) : null;
+	}
+
+	public MotionModel getMotionModel() {
+		return _motionModel;
+	}
+
+	/**
+	 * Sets the strategy which decides on the robot's moves during the
+	 * exploration phase, from the next reset of the robot's state onwards
+	 */
+	public void setExplorationStrategy(ExplorationStrategy explorationStrategy) {
+		_explorationStrategy = explorationStrategy;
+	}
+
+	/**
+	 * Gets the exploration strategy, following the left wall by default
+	 */
+	public ExplorationStrategy getExplorationStrategy() {
+		if (_explorationStrategy == null)
+			_explorationStrategy = new WallFollowerStrategy();
+		return _explorationStrategy;
 	}
 
 	/** To reset the robot's starting state */
 	public void resetRobotState(int startMapPosRow, int startMapPosCol,
 			DIRECTION startDir) {
 		
+		getScheduler().stopAll();
+
 		_robotStartDir = startDir;
 
-		// Turn the robot to match the specified starting direction
+		// Rotate the robot to match the specified starting direction
 		while (_robotDirection != startDir) {
-			this.turnRight();
+			this.rotate(true);
 		}
 
 		// Update the robot's position to match the specified starting position
 		this.updatePosition(startMapPosRow, startMapPosCol);
 
 		// Reset variables used for exploration
-		_bReachedGoal = false;
 		_bExplorationComplete = false;
-		_bPreviousLeftWall = false;
+		getExplorationStrategy().reset();
+		
+		// Reset the movement counters
+		_moveCount = 0;
+		_turnCount = 0;
+		_planningTime = 0;
 	}
 
 	/**
@@ -878,13 +1099,17 @@ public class Robot implements Serializable {
 		int robotMapPosRow = this.getRobotMapPosRow();
 		int robotMapPosCol = this.getRobotMapPosCol();
 
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore store = _robotMap.getGridStore();
 		for (int mapRow = robotMapPosRow; mapRow < robotMapPosRow
 				+ RobotConstants.ROBOT_SIZE; mapRow++) {
 			for (int mapCol = robotMapPosCol; mapCol < robotMapPosCol
 					+ RobotConstants.ROBOT_SIZE; mapCol++) {
 
-				robotMapGrids[mapRow][mapCol].setExplored(true);
+				store.setExplored(store.indexOf(mapRow, mapCol), true);
+
+				if (_sharedStore != null)
+					_sharedStore.markAsFreeGrid(_robotId, store.indexOf(
+							mapRow, mapCol), 0);
 			}
 		}
 	}
@@ -955,6 +1180,7 @@ public class Robot implements Serializable {
 			int timeLimit, boolean bCoverageLimited, boolean bTimeLimited) {
 
 		_stepsPerSecond = stepsPerSecond;
+		getScheduler().setStepsPerSecond(stepsPerSecond);
 		_coverageLimit = coverageLimit;
 		_timeLimit = timeLimit;
 		_bCoverageLimited = bCoverageLimited;
@@ -970,6 +1196,68 @@ public class Robot implements Serializable {
 		return _bExplorationComplete;
 	}
 
+	/**
+	 * Lets the robot be driven by a headless simulation
+	 * <p>
+	 * When headless, the legs are stepped in virtual time; each step is
+	 * performed by calling {@link #simulateNextStep} instead
+	 * 
+	 * @param bHeadless
+	 *            True if the robot is driven by a headless simulation
+	 */
+	public void setHeadless(boolean bHeadless) {
+
+		if (_scheduler != null && _scheduler.isVirtualTime() != bHeadless) {
+			_scheduler.stopAll();
+			_scheduler = null;
+		}
+		_bHeadless = bHeadless;
+	}
+
+	/**
+	 * Gets the interval between two steps, based on the steps per second
+	 * 
+	 * @return The (simulated) duration of one step, in milliseconds
+	 */
+	public int getTimerIntervals() {
+		return getScheduler().getStepIntervalMillis();
+	}
+
+	/**
+	 * Gets the elapsed time of the exploration phase
+	 * 
+	 * @return The elapsed exploration time, in milliseconds
+	 */
+	public int getElapsedExplorationTime() {
+		return _elapsedExplorationTime;
+	}
+
+	/** Number of grids moved since the robot's state was last reset */
+	public int getMoveCount() {
+		return _moveCount;
+	}
+
+	/** Number of 90 degree turns made since the robot's state was last reset */
+	public int getTurnCount() {
+		return _turnCount;
+	}
+
+	/** Time spent finding shortest paths since the robot's state was last reset */
+	public long getPlanningTime() {
+		return _planningTime;
+	}
+
+	/**
+	 * Prints out a message, unless the robot is headless
+	 * 
+	 * @param msg
+	 *            The message to be printed
+	 */
+	private void log(String msg) {
+		if (!_bHeadless)
+			System.out.println(msg);
+	}
+
 	/**
 	 * Simulate the robot's next move
 	 * <p>
@@ -1003,8 +1291,8 @@ public class Robot implements Serializable {
 		int robotSize = RobotConstants.ROBOT_SIZE - 1;
 
 		return ((robotPosRow >= 1)
-				&& ((robotPosRow + robotSize) <= (MapConstants.MAP_ROWS - 2))
-				&& (robotPosCol >= 1) && ((robotPosCol + robotSize) <= (MapConstants.MAP_COLS - 2)));
+				&& ((robotPosRow + robotSize) <= (_robotMap.getRows() - 2))
+				&& (robotPosCol >= 1) && ((robotPosCol + robotSize) <= (_robotMap.getCols() - 2)));
 	}
 
 	/**
@@ -1016,14 +1304,13 @@ public class Robot implements Serializable {
 	private boolean checkForObstacles(int robotPosRow, int robotPosCol) {
 
 		// Check for obstacles within robot's new position
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore robotMapStore = _robotMap.getGridStore();
 		for (int mapRow = robotPosRow; mapRow < robotPosRow
 				+ RobotConstants.ROBOT_SIZE; mapRow++) {
-			for (int mapCol = robotPosCol; mapCol < robotPosCol
-					+ RobotConstants.ROBOT_SIZE; mapCol++) {
+			int index = robotMapStore.indexOf(mapRow, robotPosCol);
+			for (int mapCol = 0; mapCol < RobotConstants.ROBOT_SIZE; mapCol++) {
 
-				if (robotMapGrids[mapRow][mapCol].isExplored()
-						&& robotMapGrids[mapRow][mapCol].isObstacle())
+				if (robotMapStore.isExploredObstacle(index + mapCol))
 					return false;
 			}
 		}
@@ -1041,49 +1328,7 @@ public class Robot implements Serializable {
 	 * @return True if the robot is within the start zone
 	 */
 	private boolean withinStartZone(int robotMapPosRow, int robotMapPosCol) {
-
-		// Check if the entire robot is within the start zone
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
-		for (int mapRow = robotMapPosRow; mapRow < robotMapPosRow
-				+ RobotConstants.ROBOT_SIZE; mapRow++) {
-			for (int mapCol = robotMapPosCol; mapCol < robotMapPosCol
-					+ RobotConstants.ROBOT_SIZE; mapCol++) {
-
-				if (!robotMapGrids[mapRow][mapCol].isExplored())
-					return false;
-				else if (!_robotMap.isStartZone(mapRow, mapCol))
-					return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Check if the robot is within the goal zone
-	 *
-	 * @param robotMapPosRow
-	 *            The robot's current row
-	 * @param robotMapPosCol
-	 *            The robot's current column
-	 * 
-	 * @return True if the robot is within the goal zone
-	 */
-	private boolean withinGoalZone(int robotMapPosRow, int robotMapPosCol) {
-
-		// Check if the entire robot is within the start zone
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
-		for (int mapRow = robotMapPosRow; mapRow < robotMapPosRow
-				+ RobotConstants.ROBOT_SIZE; mapRow++) {
-			for (int mapCol = robotMapPosCol; mapCol < robotMapPosCol
-					+ RobotConstants.ROBOT_SIZE; mapCol++) {
-
-				if (!robotMapGrids[mapRow][mapCol].isExplored())
-					return false;
-				else if (!_robotMap.isGoalZone(mapRow, mapCol))
-					return false;
-			}
-		}
-		return true;
+		return _sensedMap.isWithinStartZone(robotMapPosRow, robotMapPosCol);
 	}
 
 	/**
@@ -1101,29 +1346,9 @@ public class Robot implements Serializable {
 		int deltaCol = newRobotMapPosCol - _robotMapPosCol;
 
 		// Update the path in the robot map
-		RobotMap.PathGrid[][] pathGrids = null;
 		if (_robotMap != null)
-			pathGrids = _robotMap.getPathGrids();
-		if (pathGrids != null) {
-			switch (_robotDirection) {
-			case EAST:
-				pathGrids[_robotMapPosRow][_robotMapPosCol].cE = true;
-				pathGrids[newRobotMapPosRow][newRobotMapPosCol].cW = true;
-				break;
-			case NORTH:
-				pathGrids[_robotMapPosRow][_robotMapPosCol].cN = true;
-				pathGrids[newRobotMapPosRow][newRobotMapPosCol].cS = true;
-				break;
-			case SOUTH:
-				pathGrids[_robotMapPosRow][_robotMapPosCol].cS = true;
-				pathGrids[newRobotMapPosRow][newRobotMapPosCol].cN = true;
-				break;
-			case WEST:
-				pathGrids[_robotMapPosRow][_robotMapPosCol].cW = true;
-				pathGrids[newRobotMapPosRow][newRobotMapPosCol].cE = true;
-				break;
-			}
-		}
+			_robotMap.addPath(_robotMapPosRow, _robotMapPosCol,
+					newRobotMapPosRow, newRobotMapPosCol, _robotDirection);
 
 		// Update the actual position of the robot
 		_robotMapPosRow = newRobotMapPosRow;
@@ -1143,6 +1368,19 @@ public class Robot implements Serializable {
 	 *            True if robot is turning in the clockwise direction
 	 */
 	private void turn(boolean bClockwise) {
+		rotate(bClockwise);
+		_turnCount++;
+		getMetrics().turned();
+	}
+
+	/**
+	 * Rotates the robot and its sensors by 90 degrees, without counting it as
+	 * a turn
+	 * 
+	 * @param bClockwise
+	 *            True if robot is rotating in the clockwise direction
+	 */
+	private void rotate(boolean bClockwise) {
 
 		// Center of robot
 		int xC = 0;
@@ -1205,397 +1443,54 @@ public class Robot implements Serializable {
 	/** LiangLiang's part starts here ************************************* */
 
 	private Stack<Grid> findShortestPath(Grid startingGrid, Grid endingGrid,
-			DIRECTION dir, Grid[][] map) {
+			DIRECTION dir) {
 
-		Grid endGrid = null;
-		Grid startGrid = startingGrid;
-
-		int endingGridRow = endingGrid.getRow();
-		int endingGridCol = endingGrid.getCol();
+		long startTime = System.nanoTime();
+		Stack<Grid> shortestPath = null;
+		int nodesExpanded = 0;
 
-		if (testNextMove(endingGridRow, endingGridCol, true)) {
+		Grid endGrid = null;
+		if (testNextMove(endingGrid.getRow(), endingGrid.getCol(), true))
 			endGrid = endingGrid;
-
-		} else {
+		else
 			endGrid = findReachableGrid(endingGrid);
-			if (endGrid == null)
-				return null;
-		}
-
-		System.out.println("findShortestPath() -> Reachable end grid: "
-				+ endGrid.getRow() + ", " + endGrid.getCol());
 
-		Stack<Grid> shortestPath = new Stack<Grid>();
-		Stack<Grid> checkedGrids = new Stack<Grid>();
+		if (endGrid != null) {
+			log("findShortestPath() -> Reachable end grid: "
+					+ endGrid.getRow() + ", " + endGrid.getCol());
 
-		shortestPath.push(endGrid);
-		checkedGrids.push(startGrid);
-
-		Grid targetGrid = null;
-		Grid nextGrid = startGrid;
-		Grid[] neighbouringGrids = new Grid[4];
-
-		boolean bFoundShortestPath = false;
-		Stack<DIRECTION> currDir = new Stack<DIRECTION>();
-		currDir.push(dir);
-		// Array of direction on each grid that moves to it
-		// 1: east, 2: west, 4: south, 8: north;
-		int[][] gridDir = new int[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-		for (int i = 0; i < MapConstants.MAP_ROWS; i++) {
-			for (int j = 0; j < MapConstants.MAP_COLS; j++) {
-				gridDir[i][j] = 0;
-			}
-		}
-
-		double[][] gValues = new double[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-
-		// Initialization of gValues array
-		for (int i = 0; i < MapConstants.MAP_ROWS; i++) {
-			for (int j = 0; j < MapConstants.MAP_COLS; j++) {
-				if (map[i][j].isObstacle() || _robotMap.isBorderWalls(i, j))
-					gValues[i][j] = Double.NEGATIVE_INFINITY;
-				else
-					gValues[i][j] = 0;
-			}
-		}
-
-		System.out.println("\nfindShortestPath() ->"
-				+ " Starting search for shortest path!");
-		
-		// Start looking for the shortest path
-		while (!bFoundShortestPath) {
-
-			targetGrid = nextGrid;
-			int targetGridRow = targetGrid.getRow();
-			int targetGridCol = targetGrid.getCol();
-
-			/*
-			 * System.out.println("\t\ttargetGrid (row, col): " + targetGridRow
-			 * + ", " + targetGridCol);
-			 */
-
-			// The four direct neighbouring grids of targetGrid
-			// 0 - Eastern Grid, 1 - Western Grid
-			// 2 - Southern Grid, 3 - Northest Grid
-			neighbouringGrids[0] = map[targetGrid.getRow()][targetGrid.getCol() + 1];
-			neighbouringGrids[1] = map[targetGrid.getRow()][targetGrid.getCol() - 1];
-			neighbouringGrids[2] = map[targetGrid.getRow() + 1][targetGrid
-					.getCol()];
-			neighbouringGrids[3] = map[targetGrid.getRow() - 1][targetGrid
-					.getCol()];
-
-			for (int neighbourGridIndex = 0; neighbourGridIndex < 4; neighbourGridIndex++) {
-
-				int deltaG = 0;
-				if ((neighbourGridIndex == 0 && currDir
-						.contains(DIRECTION.EAST))
-						|| (neighbourGridIndex == 1 && currDir
-								.contains(DIRECTION.WEST))
-						|| (neighbourGridIndex == 2 && currDir
-								.contains(DIRECTION.SOUTH))
-						|| (neighbourGridIndex == 3 && currDir
-								.contains(DIRECTION.NORTH))) {
-
-					deltaG = RobotConstants.MOVE_COST;
-				} else {
-					deltaG = RobotConstants.MOVE_COST
-							+ RobotConstants.TURN_COST;
-				}
-
-				int neighbourGridRow = neighbouringGrids[neighbourGridIndex]
-						.getRow();
-				int neighbourGridCol = neighbouringGrids[neighbourGridIndex]
-						.getCol();
-
-				// If this grid has not been explored, give it an initial value
-				if (gValues[neighbourGridRow][neighbourGridCol] == 0) {
-
-					gValues[neighbourGridRow][neighbourGridCol] = gValues[targetGridRow][targetGridCol]
-							+ deltaG;
-				}
-				// Check if the new value is lesser than the currently assigned
-				// value
-				else if ((gValues[targetGridRow][targetGridCol] + deltaG) <
-						gValues[neighbourGridRow][neighbourGridCol]) {
-
-					gValues[neighbourGridRow][neighbourGridCol] = gValues[targetGridRow][targetGridCol]
-							+ deltaG;
-				}
-			}
-
-			// Keep startGrid gValue unchanged
-			gValues[startGrid.getRow()][startGrid.getCol()] = 0;
-
-			// Use minimum to find the next grid to go to
-			nextGrid = minimum(targetGrid, endGrid, checkedGrids, gValues);
-
-			// Determine the direct neighbours of the next grid
-			Grid[] nextGridNeighbours = new Grid[4];
-
-			// The four direct neighbouring grids of nextGrid
-			// 0 - Eastern Grid, 1 - Western Grid
-			// 2 - Southern Grid, 3 - Northest Grid
-			nextGridNeighbours[0] = map[nextGrid.getRow()][nextGrid.getCol() + 1];
-			nextGridNeighbours[1] = map[nextGrid.getRow()][nextGrid.getCol() - 1];
-			nextGridNeighbours[2] = map[nextGrid.getRow() + 1][nextGrid
-					.getCol()];
-			nextGridNeighbours[3] = map[nextGrid.getRow() - 1][nextGrid
-					.getCol()];
-
-			// Find the grid that it came from
-			double tempMin = Double.POSITIVE_INFINITY;
-			Stack<Grid> tempGrids = new Stack<Grid>();
-			for (Grid nextGridNeighbour : nextGridNeighbours) {
-				int nextGridNeighbourRow = nextGridNeighbour.getRow();
-				int nextGridNeighbourCol = nextGridNeighbour.getCol();
-
-				if ((tempMin > gValues[nextGrid.getRow()][nextGrid.getCol()]
-						- gValues[nextGridNeighbourRow][nextGridNeighbourCol])
-						&& (checkedGrids.contains(nextGridNeighbour))) {
-
-					if(gValues[nextGrid.getRow()][nextGrid.getCol()]
-							- gValues[nextGridNeighbourRow][nextGridNeighbourCol] 
-							== RobotConstants.MOVE_COST
-							||
-							gValues[nextGrid.getRow()][nextGrid.getCol()]
-							- gValues[nextGridNeighbourRow][nextGridNeighbourCol] 
-							== RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
-						tempMin = gValues[nextGrid.getRow()][nextGrid.getCol()]
-								- gValues[nextGridNeighbourRow][nextGridNeighbourCol];
-					
-					}
-				}
-			}
-			if (tempMin == RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
-				for (Grid nextGridNeighbour : nextGridNeighbours) {
-					int nextGridNeighbourRow = nextGridNeighbour.getRow();
-					int nextGridNeighbourCol = nextGridNeighbour.getCol();
-
-					if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
-							.getRow()][nextGrid.getCol()] - tempMin
-							&& checkedGrids.contains(nextGridNeighbour)) {
-						tempGrids.push(nextGridNeighbour);
-					}
-				}
-			} else if (tempMin == RobotConstants.MOVE_COST) {
-				for (Grid nextGridNeighbour : nextGridNeighbours) {
-					int nextGridNeighbourRow = nextGridNeighbour.getRow();
-					int nextGridNeighbourCol = nextGridNeighbour.getCol();
-
-					if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
-							.getRow()][nextGrid.getCol()] - tempMin
-							&& checkedGrids.contains(nextGridNeighbour)
-							&& (transI2D(gridDir[nextGridNeighbourRow][nextGridNeighbourCol]) == null
-							|| transI2D(
-									gridDir[nextGridNeighbourRow][nextGridNeighbourCol])
-									.contains(
-											getDirFromXToY(nextGridNeighbour,
-													nextGrid)))) {
-						tempGrids.push(nextGridNeighbour);
-					} else if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
-							.getRow()][nextGrid.getCol()] - 21
-							&& checkedGrids.contains(nextGridNeighbour)) {
-						tempGrids.push(nextGridNeighbour);
-					}
-				}
-			}
+			// Fastest paths come from the motion model, and otherwise paths
+			// to the goal or the start come from the distance fields
+			if (_fastestPathPlanner != null) {
+				shortestPath = _fastestPathPlanner.findFastestPath(
+						startingGrid, endGrid, dir);
+				nodesExpanded += _fastestPathPlanner.getNodesExpanded();
+			} else if (_goalField.isTarget(endGrid))
+				shortestPath = _goalField.getPath(startingGrid, dir);
+			else if (_startField.isTarget(endGrid))
+				shortestPath = _startField.getPath(startingGrid, dir);
 
-			// Update the direction that the robot is currently facing
-			currDir.clear();
-			while (!tempGrids.isEmpty()) {
-				Grid tempGrid = tempGrids.pop();
-				if (tempGrid.getCol() != nextGrid.getCol()) {
-
-					currDir.push((tempGrid.getCol() - nextGrid.getCol() == -1) ? DIRECTION.EAST
-							: DIRECTION.WEST);
-					gridDir[nextGrid.getRow()][nextGrid.getCol()] += (tempGrid
-							.getCol() - nextGrid.getCol() == -1) ? 1 : 2;
-				} else if (tempGrid.getRow() != nextGrid.getRow()) {
-
-					currDir.push((tempGrid.getRow() - nextGrid.getRow() == -1) ? DIRECTION.SOUTH
-							: DIRECTION.NORTH);
-					gridDir[nextGrid.getRow()][nextGrid.getCol()] += (tempGrid
-							.getRow() - nextGrid.getRow() == -1) ? 4 : 8;
-				}
-			}
-			if (checkedGrids.contains(nextGrid)) {
-				System.out.println("findShortestPath() -> Path not found!");
-				return null;
+			if (shortestPath == null) {
+				shortestPath = _pathPlanner.findShortestPath(startingGrid,
+						endGrid, dir);
+				nodesExpanded += _pathPlanner.getNodesExpanded();
 			}
 
-			checkedGrids.push(nextGrid);
-
-			if (checkedGrids.peek() == endGrid)
-				bFoundShortestPath = true;
+			if (shortestPath == null)
+				log("findShortestPath() -> Path not found!");
+			else
+				log("findShortestPath() -> Path found! Generated Path length: "
+						+ (shortestPath.size() - 1));
 		}
 
-		System.out.println("findShortestPath() -> Path found!");
-
-		// Generating actual shortest Path by tracing from end to start
-		Grid currentGrid = endGrid;
-		int pathLength = 0;
-		DIRECTION tempDir = currDir.peek();
-		while (shortestPath.peek() != startGrid) {
-
-			// Determine the direct neighbours of the current grid
-			Grid[] currGridNeighbours = new Grid[4];
-
-			// The four direct neighbouring grids of currentGrid
-			// 0 - Eastern Grid, 1 - Western Grid
-			// 2 - Southern Grid, 3 - Northest Grid
-			currGridNeighbours[0] = map[currentGrid.getRow()][currentGrid
-					.getCol() + 1];
-			currGridNeighbours[1] = map[currentGrid.getRow()][currentGrid
-					.getCol() - 1];
-			currGridNeighbours[2] = map[currentGrid.getRow() + 1][currentGrid
-					.getCol()];
-			currGridNeighbours[3] = map[currentGrid.getRow() - 1][currentGrid
-					.getCol()];
-
-			double tempMin = Double.POSITIVE_INFINITY;
-			Grid tempGrid = null;
-
-			for (Grid currGridNeighbour : currGridNeighbours) {
-				int currGridNeighbourRow = currGridNeighbour.getRow();
-				int currGridNeighbourCol = currGridNeighbour.getCol();
-
-				if ((tempMin > gValues[currentGrid.getRow()][currentGrid
-						.getCol()]
-						- gValues[currGridNeighbourRow][currGridNeighbourCol])
-						&& (checkedGrids.contains(currGridNeighbour))
-						&& gValues[currentGrid.getRow()][currentGrid.getCol()]
-								- gValues[currGridNeighbourRow][currGridNeighbourCol] > 0) {
-
-					if(gValues[currentGrid.getRow()][currentGrid.getCol()]
-							- gValues[currGridNeighbourRow][currGridNeighbourCol] 
-							== RobotConstants.MOVE_COST
-							||
-							gValues[currentGrid.getRow()][currentGrid.getCol()]
-							- gValues[currGridNeighbourRow][currGridNeighbourCol] 
-							== RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
-						tempMin = gValues[currentGrid.getRow()][currentGrid.getCol()]
-								- gValues[currGridNeighbourRow][currGridNeighbourCol];
-					
-					}
-				}
-			}
-
-			if (tempMin == RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
-				for (Grid currGridNeighbour : currGridNeighbours) {
-					int currGridNeighbourRow = currGridNeighbour.getRow();
-					int currGridNeighbourCol = currGridNeighbour.getCol();
-
-					if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
-							.getRow()][currentGrid.getCol()] - tempMin
-							&& checkedGrids.contains(currGridNeighbour)) {
-						tempGrid = currGridNeighbour;
-					}
-				}
-			} else if (tempMin == RobotConstants.MOVE_COST) {
-				for (Grid currGridNeighbour : currGridNeighbours) {
-					int currGridNeighbourRow = currGridNeighbour.getRow();
-					int currGridNeighbourCol = currGridNeighbour.getCol();
-
-					if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
-							.getRow()][currentGrid.getCol()] - tempMin
-							&& checkedGrids.contains(currGridNeighbour)
-							&& (transI2D(gridDir[currGridNeighbourRow][currGridNeighbourCol]) == null
-							|| transI2D(
-									gridDir[currGridNeighbourRow][currGridNeighbourCol])
-									.contains(
-											getDirFromXToY(currGridNeighbour,
-													currentGrid)))
-							&& tempDir == getDirFromXToY(currGridNeighbour,
-									currentGrid)) {
-						tempGrid = currGridNeighbour;
-					} else if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
-							.getRow()][currentGrid.getCol()] - 21
-							&& checkedGrids.contains(currGridNeighbour)) {
-						tempGrid = currGridNeighbour;
-					}
-				}
-
-				if (tempGrid == null) {
-					for (Grid currGridNeighbour : currGridNeighbours) {
-						int currGridNeighbourRow = currGridNeighbour.getRow();
-						int currGridNeighbourCol = currGridNeighbour.getCol();
-						if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
-								.getRow()][currentGrid.getCol()] - tempMin
-								&& checkedGrids.contains(currGridNeighbour)
-								&& (transI2D(gridDir[currGridNeighbourRow][currGridNeighbourCol]) == null
-								|| transI2D(
-										gridDir[currGridNeighbourRow][currGridNeighbourCol])
-										.contains(
-												getDirFromXToY(
-														currGridNeighbour,
-														currentGrid)))) {
-							tempGrid = currGridNeighbour;
-						}
-					}
-				}
-			}
-			if (tempGrid != null) {
-				shortestPath.push(tempGrid);
-			}
-
-			tempDir = getDirFromXToY(tempGrid, currentGrid);
-			currentGrid = tempGrid;
-			pathLength += 1;
-		}
+		_planningTime += System.nanoTime() - startTime;
+		getMetrics().shortestPathSearched(startTime, nodesExpanded);
 
-		System.out.println("findShortestPath() -> Generated Path length: "
-				+ pathLength);
 		return shortestPath;
 	}
 
-	// Finds the grid with the best f value
-	public Grid minimum(Grid startingGrid, Grid endingGrid,
-			Stack<Grid> checkedGrids, double[][] gValues) {
-
-		Grid[][] map = _robotMap.getMapGrids();
-		Grid minimumGrid = startingGrid;
-		double minimumValue = Double.POSITIVE_INFINITY;
-
-		int startingGridRow = startingGrid.getRow();
-		int startingGridCol = startingGrid.getCol();
-
-		int endingGridRow = endingGrid.getRow();
-		int endingGridCol = endingGrid.getCol();
-
-		for (int currRow = 1; currRow < MapConstants.MAP_ROWS - 1; currRow++) {
-			for (int currCol = 1; currCol < MapConstants.MAP_COLS - 1; currCol++) {
-
-				// hValue determined using the most direct path to the
-				// endingGrid
-				// 'without obstacles' and 'minimal number of turns'
-
-				double rowDifference = Math.abs(endingGridRow - currRow);
-				double colDifference = Math.abs(endingGridCol - currCol);
-
-				rowDifference *= rowDifference;
-				colDifference *= colDifference;
-
-				double hValue = Math.sqrt(rowDifference + colDifference);
-
-				if (gValues[currRow][currCol] > 0
-						&& (!checkedGrids.contains(map[currRow][currCol]))
-						&& testNextMove(currRow, currCol, true)) {
-
-					if ((minimumValue > (gValues[currRow][currCol] + hValue) || ((minimumValue == (gValues[currRow][currCol] + hValue)) && (((currRow == startingGridRow) && (currCol == startingGridCol - 1 || currCol == startingGridCol + 1)) || ((currCol == startingGridCol) && (currRow == startingGridRow - 1 || currRow == startingGridRow + 1)))))) {
-
-						minimumValue = gValues[currRow][currCol] + hValue;
-						minimumGrid = map[currRow][currCol];
-					}
-				}
-			}
-		}
-
-		return minimumGrid;
-	}
-
 	public Grid findReachableGrid(Grid target) {
 
-		Grid[][] map = _robotMap.getMapGrids();
 		Grid endGrid = null;
 		int endingGridRow = target.getRow();
 		int endingGridCol = target.getCol();
@@ -1604,72 +1499,72 @@ public class Robot implements Serializable {
 		if ((endingGridRow >= 1 && endingGridCol - RobotConstants.ROBOT_SIZE >= 1)
 				&& testNextMove(endingGridRow , endingGridCol - RobotConstants.ROBOT_SIZE, true)) {
 
-			endGrid = map[endingGridRow ][endingGridCol - RobotConstants.ROBOT_SIZE];
+			endGrid = _robotMap.getGrid(endingGridRow, endingGridCol - RobotConstants.ROBOT_SIZE);
 		}
 		// Scenario 2: (Row - 1, Col - RobotConstants.ROBOT_SIZE) reachable
 		else if ((endingGridRow - 1 >= 1 && endingGridCol - RobotConstants.ROBOT_SIZE >= 1)
 				&& testNextMove(endingGridRow - 1, endingGridCol - RobotConstants.ROBOT_SIZE, true)) {
 
-			endGrid = map[endingGridRow - 1][endingGridCol - RobotConstants.ROBOT_SIZE];
+			endGrid = _robotMap.getGrid(endingGridRow - 1, endingGridCol - RobotConstants.ROBOT_SIZE);
 		}
 		// Scenario 3: (Row - 2, Col - RobotConstants.ROBOT_SIZE) reachable
 		else if ((endingGridRow - 2 >= 1 && endingGridCol - RobotConstants.ROBOT_SIZE >= 1)
 				&& testNextMove(endingGridRow - 2, endingGridCol - RobotConstants.ROBOT_SIZE, true)) {
 
-			endGrid = map[endingGridRow - 2][endingGridCol - RobotConstants.ROBOT_SIZE];
+			endGrid = _robotMap.getGrid(endingGridRow - 2, endingGridCol - RobotConstants.ROBOT_SIZE);
 		}
 		// Scenario 4: (Row - RobotConstants.ROBOT_SIZE, Col) reachable
 		else if ((endingGridRow - RobotConstants.ROBOT_SIZE >= 1 && endingGridCol  >= 1)
 				&& testNextMove(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol , true)) {
 
-			endGrid = map[endingGridRow - RobotConstants.ROBOT_SIZE][endingGridCol];
+			endGrid = _robotMap.getGrid(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol);
 		}
 		// Scenario 5: (Row - RobotConstants.ROBOT_SIZE, Col - 1) reachable
 		else if ((endingGridRow - RobotConstants.ROBOT_SIZE >= 1 && endingGridCol - 1 >= 1)
 				&& testNextMove(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol - 1, true)) {
-			endGrid = map[endingGridRow - RobotConstants.ROBOT_SIZE][endingGridCol - 1];
+			endGrid = _robotMap.getGrid(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol - 1);
 		}
 		// Scenario 6: (Row - RobotConstants.ROBOT_SIZE, Col - 2) reachable
 		else if ((endingGridRow - RobotConstants.ROBOT_SIZE >= 1 && endingGridCol - 2 >= 1)
 				&& testNextMove(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol - 2, true)) {
 
-			endGrid = map[endingGridRow - RobotConstants.ROBOT_SIZE][endingGridCol - 2];
+			endGrid = _robotMap.getGrid(endingGridRow - RobotConstants.ROBOT_SIZE, endingGridCol - 2);
 		}
 		// Scenario 7: (Row , Col + 1) reachable
-		else if ((endingGridRow >= 1 && endingGridCol + 1 <= 20)
+		else if ((endingGridRow >= 1 && endingGridCol + 1 <= _robotMap.getCols() - 2)
 				&& testNextMove(endingGridRow , endingGridCol + 1, true)) {
 
-			endGrid = map[endingGridRow ][endingGridCol + 1];
+			endGrid = _robotMap.getGrid(endingGridRow, endingGridCol + 1);
 		}
 		// Scenario 8: (Row - 1, Col + 1) reachable
-		else if ((endingGridRow - 1 >= 1 && endingGridCol + 1 <= 20)
+		else if ((endingGridRow - 1 >= 1 && endingGridCol + 1 <= _robotMap.getCols() - 2)
 				&& testNextMove(endingGridRow - 1, endingGridCol + 1, true)) {
 
-			endGrid = map[endingGridRow - 1][endingGridCol + 1];
+			endGrid = _robotMap.getGrid(endingGridRow - 1, endingGridCol + 1);
 		}
 		// Scenario 9: (Row - 2, Col + 1) reachable
-		else if ((endingGridRow - 2 >= 1 && endingGridCol + 1 <= 20)
+		else if ((endingGridRow - 2 >= 1 && endingGridCol + 1 <= _robotMap.getCols() - 2)
 				&& testNextMove(endingGridRow - 2, endingGridCol + 1, true)) {
 
-			endGrid = map[endingGridRow - 2][endingGridCol + 1];
+			endGrid = _robotMap.getGrid(endingGridRow - 2, endingGridCol + 1);
 		}
 		// Scenario 10: (Row + 1, Col ) reachable
-		else if ((endingGridRow + 1 <= 15 && endingGridCol  >= 1)
+		else if ((endingGridRow + 1 <= _robotMap.getRows() - 2 && endingGridCol  >= 1)
 				&& testNextMove(endingGridRow + 1, endingGridCol , true)) {
 
-			endGrid = map[endingGridRow + 1][endingGridCol ];
+			endGrid = _robotMap.getGrid(endingGridRow + 1, endingGridCol);
 		}
 		// Scenario 11: (Row + 1, Col - 1) reachable
-		else if ((endingGridRow + 1 <= 15 && endingGridCol - 1 >= 1)
+		else if ((endingGridRow + 1 <= _robotMap.getRows() - 2 && endingGridCol - 1 >= 1)
 				&& testNextMove(endingGridRow + 1, endingGridCol - 1, true)) {
 			
-			endGrid = map[endingGridRow + 1][endingGridCol - 1];
+			endGrid = _robotMap.getGrid(endingGridRow + 1, endingGridCol - 1);
 		}
 		// Scenario 12: (Row + 1, Col - 2) reachable
-		else if ((endingGridRow + 1 <= 15 && endingGridCol - 2 >= 1)
+		else if ((endingGridRow + 1 <= _robotMap.getRows() - 2 && endingGridCol - 2 >= 1)
 				&& testNextMove(endingGridRow + 1, endingGridCol - 2, true)) {
 			
-			endGrid = map[endingGridRow + 1][endingGridCol - 2];
+			endGrid = _robotMap.getGrid(endingGridRow + 1, endingGridCol - 2);
 		}
 		
 		return endGrid;
@@ -1678,7 +1573,7 @@ public class Robot implements Serializable {
 	// Queue of Instructions to move along the shortest path
 	public Queue<INSTRUCTION> generateThePath(Stack<Grid> path) {
 
-		System.out.println("\ngenerateThePath() -> Generating path!");
+		log("\ngenerateThePath() -> Generating path!");
 		Grid nextGrid = null;
 		Queue<INSTRUCTION> shortestPath = new ArrayDeque<INSTRUCTION>();
 
@@ -1775,51 +1670,144 @@ public class Robot implements Serializable {
 				currDir = DIRECTION.SOUTH;
 			}
 
-			// Correct Direction now, move straight
-			shortestPath.add(INSTRUCTION.MOVE_STRAIGHT);
+			// Correct Direction now, move straight
+			shortestPath.add(INSTRUCTION.MOVE_STRAIGHT);
+
+			// Update the current position
+			currRow = nextGridRow;
+			currCol = nextGridCol;
+		}
+
+		return shortestPath;
+	}
+
+	/** LiangLiang's part ends here ************************************* */
+
+	private boolean coverageLimitReached() {
+		return _robotMap.getGridStore().getNoOfExploredInteriorGrids() >= _explorationTarget;
+	}
+
+	/**
+	 * Gets the next unexplored grid in row-major order
+	 * 
+	 * @param previous
+	 *            The grid to search after, or null to search from the first
+	 *            grid
+	 * 
+	 * @return The unexplored grid, or null if there are no unexplored grids
+	 */
+	private Grid getNextUnexploredGrid(Grid previous) {
+
+		GridStore store = _robotMap.getGridStore();
+		int fromIndex = (previous == null) ? 0 : store.indexOf(
+				previous.getRow(), previous.getCol()) + 1;
+
+		// Leave the areas claimed by the other robots of the team to them
+		int index = (_frontierCoordinator != null) ? _frontierCoordinator
+				.nextUnclaimed(_robotId, store, fromIndex) : store
+				.nextUnexploredInterior(fromIndex);
+		if (index == -1)
+			return null;
+
+		return _robotMap.getGrid(index / store.getCols(), index
+				% store.getCols());
+	}
 
-			// Update the current position
-			currRow = nextGridRow;
-			currCol = nextGridCol;
-		}
+	/**
+	 * Lets the robot explore together with other robots, on the same arena
+	 * <p>
+	 * Everything the robot senses is also merged into the shared store, and
+	 * whatever the other robots have sensed is pulled into the robot map
+	 * before each reading. Only the first robot (ID 0) follows the walls to
+	 * the goal zone & back, the others head straight for the unexplored
+	 * grids handed out by the coordinator.
+	 * <p>
+	 * NOTE: The robots do not see each other, i.e. they may drive through
+	 * each other
+	 * 
+	 * @param robotId
+	 *            The robot's ID within the team, [0, number of robots)
+	 * @param sharedStore
+	 *            The explored map shared by the team, of the same size as
+	 *            the robot map
+	 * @param frontierCoordinator
+	 *            Hands out unexplored grids to the team
+	 */
+	public void joinTeam(int robotId, SharedGridStore sharedStore,
+			FrontierCoordinator frontierCoordinator) {
+		_robotId = robotId;
+		_sharedStore = sharedStore;
+		_frontierCoordinator = frontierCoordinator;
+	}
 
-		return shortestPath;
+	/**
+	 * Lets the robot explore on its own again
+	 */
+	public void leaveTeam() {
+		_robotId = 0;
+		_sharedStore = null;
+		_frontierCoordinator = null;
 	}
 
-	/** LiangLiang's part ends here ************************************* */
+	/**
+	 * Pulls whatever the other robots of the team have sensed into the
+	 * robot map
+	 */
+	private void pullSharedMap() {
+		if (_sharedStore != null)
+			_sharedStore.pullInto(_robotId, _robotMap.getGridStore());
+	}
 
-	private boolean coverageLimitReached() {
+	/**
+	 * Checks whether to wait for the other robots of the team, when there is
+	 * no unexplored grid left to head for<br>
+	 * Either way, the robot's claim is released
+	 * 
+	 * @return True if another robot is still exploring, and may open up more
+	 *         of the arena
+	 */
+	private boolean waitForTeam() {
 
-		Grid[][] map = _robotMap.getMapGrids();
-		int noOfExploredGrids = 0;
+		if (_frontierCoordinator == null)
+			return false;
 
-		for (int i = 1; i < MapConstants.MAP_ROWS - 1; i++) {
-			for (int j = 1; j < MapConstants.MAP_COLS - 1; j++) {
-				if (map[i][j].isExplored())
-					noOfExploredGrids++;
-			}
-		}
+		releaseClaim();
+		if (!_frontierCoordinator.hasOtherActiveRobots(_robotId))
+			return false;
 
-		return noOfExploredGrids >= _explorationTarget;
+		_teamVersion = getTeamVersion();
+		return true;
 	}
 
-	private Stack<Grid> getUnexploredGrids() {
-		Stack<Grid> unexploredGrids = new Stack<Grid>();
+	/**
+	 * Checks whether a path towards an unexplored grid is empty, i.e. the
+	 * robot is already as close as it can get, but still cannot sense it
+	 * <p>
+	 * On its own, the robot would keep heading for the same grid, which is
+	 * left as it is. Within a team, it would hold on to its claim forever,
+	 * so the grid is left out by the whole team from then on instead.
+	 */
+	private boolean isStuckOnTarget(Stack<Grid> path, Grid target) {
 
-		Grid[][] map = _robotMap.getMapGrids();
-		for (int i = 1; i < MapConstants.MAP_ROWS - 1; i++) {
-			for (int j = 1; j < MapConstants.MAP_COLS - 1; j++) {
-				if (!map[i][j].isExplored()) {
-					unexploredGrids.push(map[i][j]);
-				}
-			}
-		}
+		if (_frontierCoordinator == null || path.size() > 1)
+			return false;
 
-		if (!unexploredGrids.isEmpty()) {
-			Collections.reverse(unexploredGrids);
-		}
+		_frontierCoordinator.markUnreachable(_robotMap.getGridStore()
+				.indexOf(target.getRow(), target.getCol()));
+		return true;
+	}
+
+	/**
+	 * Lets the rest of the team know that the robot has stopped exploring
+	 */
+	private void releaseClaim() {
+		if (_frontierCoordinator != null)
+			_frontierCoordinator.release(_robotId);
+	}
 
-		return unexploredGrids;
+	private long getTeamVersion() {
+		return _robotMap.getGridStore().getVersion()
+				+ _frontierCoordinator.getVersion();
 	}
 
 	public static enum INSTRUCTION {
@@ -1861,91 +1849,24 @@ public class Robot implements Serializable {
 			boolean bUnexploredAsObstacle) {
 
 		// Check for obstacles within robot's new position
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore robotMapStore = _robotMap.getGridStore();
 		for (int mapRow = robotPosRow; mapRow < robotPosRow
 				+ RobotConstants.ROBOT_SIZE; mapRow++) {
-			for (int mapCol = robotPosCol; mapCol < robotPosCol
-					+ RobotConstants.ROBOT_SIZE; mapCol++) {
+			int index = robotMapStore.indexOf(mapRow, robotPosCol);
+			for (int mapCol = 0; mapCol < RobotConstants.ROBOT_SIZE; mapCol++) {
 
 				if (bUnexploredAsObstacle) {
-					if (!robotMapGrids[mapRow][mapCol].isExplored())
+					if (!robotMapStore.isExplored(index + mapCol))
 						return false;
 				}
 
-				if (robotMapGrids[mapRow][mapCol].isExplored()
-						&& robotMapGrids[mapRow][mapCol].isObstacle())
+				if (robotMapStore.isExploredObstacle(index + mapCol))
 					return false;
 			}
 		}
 		return true;
 	}
 
-	private DIRECTION getDirFromXToY(Grid x, Grid y) {
-		if (y.getRow() == x.getRow()) {
-			if (y.getCol() == x.getCol() + 1) {
-				return DIRECTION.EAST;
-			} else if (y.getCol() == x.getCol() - 1) {
-				return DIRECTION.WEST;
-			}
-		} else if (y.getCol() == x.getCol()) {
-			if (y.getRow() == x.getRow() + 1) {
-				return DIRECTION.SOUTH;
-			} else if (y.getRow() == x.getRow() - 1) {
-				return DIRECTION.NORTH;
-			}
-		}
-
-		// Shouldn't happen unless Grid x == Grid y
-		return null;
-	}
-
-	// Translate integer to direction
-	public Stack<DIRECTION> transI2D(int num) {
-		Stack<DIRECTION> dir = new Stack<DIRECTION>();
-		switch (num) {
-		case 0:
-			dir = null;
-			break;
-		case 1:
-			dir.push(DIRECTION.EAST);
-			break;
-		case 2:
-			dir.push(DIRECTION.WEST);
-			break;
-		case 3:
-			dir.push(DIRECTION.EAST);
-			dir.push(DIRECTION.WEST);
-			break;
-		case 4:
-			dir.push(DIRECTION.SOUTH);
-			break;
-		case 5:
-			dir.push(DIRECTION.EAST);
-			dir.push(DIRECTION.SOUTH);
-			break;
-		case 6:
-			dir.push(DIRECTION.WEST);
-			dir.push(DIRECTION.SOUTH);
-			break;
-		case 8:
-			dir.push(DIRECTION.NORTH);
-			break;
-		case 9:
-			dir.push(DIRECTION.EAST);
-			dir.push(DIRECTION.NORTH);
-			break;
-		case 10:
-			dir.push(DIRECTION.WEST);
-			dir.push(DIRECTION.NORTH);
-			break;
-		case 12:
-			dir.push(DIRECTION.SOUTH);
-			dir.push(DIRECTION.NORTH);
-			break;
-		}
-		return dir;
-	}
-
 	/** Wifi connection related functions starts here ********************** */
 
 	/**
@@ -1955,13 +1876,13 @@ public class Robot implements Serializable {
 
 		System.out.println("\nStarting physical exploration!");
 
-		// Calculate timer intervals based on the user selected steps per second
-		_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
+		_bSimulation = false;
+
 		System.out.println("Steps Per Second: " + _stepsPerSecond
-				+ ", Timer Interval: " + _timerIntervals);
+				+ ", Timer Interval: " + getTimerIntervals());
 
 		// Calculate number of explored grids required
-		_explorationTarget = (int) ((_coverageLimit / 100.0) * ((MapConstants.MAP_ROWS - 2) * (MapConstants.MAP_COLS - 2)));
+		_explorationTarget = (int) ((_coverageLimit / 100.0) * _robotMap.getGridStore().getNoOfInteriorGrids());
 		System.out.println("Exploration target (In grids): "
 				+ _explorationTarget);
 
@@ -1969,43 +1890,46 @@ public class Robot implements Serializable {
 		_elapsedExplorationTime = 0;
 
 		// Reset all variables used
-		_phyExploreTimer = null;
 		_bPhyExConnected = false;
 		_phyExErrors = 0;
 		_phyExRcvMsg = null;
+		_phySensorReadings = new int[_sensors.size()];
+		LatencyMonitor.getLatencyMonitor().reset();
+		CommMgr.getCommMgr().startRecording();
 		_bPhyExStarted = false;
+		_bEmergencyRecalibration = false;
 		_movesSinceLastCalibration = 0;
 
-		_phyExploreTimer = new Timer(_timerIntervals, new ActionListener() {
+		startLeg(LEG.PHYSICAL_EXPLORE, new Runnable() {
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
+			public void run() {
 
 				if (!_bPhyExConnected) {
 					CommMgr mgr = CommMgr.getCommMgr();
-					_bPhyExConnected = mgr.setConnection(_timerIntervals - 20);
+					_bPhyExConnected = mgr.setConnection(getTimerIntervals() - 20);
 					if (_bPhyExConnected) {
 						System.out.println("CONNECTED!!");
 					}
 
 					if (!_bPhyExConnected) {
 						_phyExErrors++;
+						getMetrics().reconnectAttempted();
 
 						if (_phyExErrors >= 30) {
 							System.out
 									.println("Too many errors, stopped reconnection!");
 							mgr.closeConnection();
 
-							if (_phyExploreTimer != null) {
-								_phyExploreTimer.stop();
-								_phyExploreTimer = null;
-							}
+							getScheduler().stop(LEG.PHYSICAL_EXPLORE);
 						}
 					}
 					return;
 				} else {
-					if (_phyExploreTimer != null && _bExplorationComplete) {
-						_phyExploreTimer.stop();
-						_phyExploreTimer = null;
+					if (_bExplorationComplete) {
+						getScheduler().stop(LEG.PHYSICAL_EXPLORE);
+
+						LatencyMonitor.getLatencyMonitor().printSummary(
+								"Physical exploration");
 					} else {
 
 						if (_bPhyExStarted) {
@@ -2013,11 +1937,12 @@ public class Robot implements Serializable {
 							makeNextPhysicalMove();
 
 							// Update elapsed time
-							_elapsedExplorationTime += _timerIntervals;
+							_elapsedExplorationTime += getTimerIntervals();
 							
 						} else {
 							// Try to get message
-							_phyExRcvMsg = CommMgr.getCommMgr().recvMsg();
+							_phyExRcvMsg = CommMgr.getCommMgr().poll(
+									CommMgr.MSG_TYPE_ANDROID);
 
 							if (_phyExRcvMsg != null
 									&& _phyExRcvMsg.equals(START_PHY_EXPLORE)) {
@@ -2028,195 +1953,185 @@ public class Robot implements Serializable {
 								// Send out first message to Arduino to
 								// do initial calibration and get sensor reading
 								String outputMsg = "l;l;c;o;c;o;m;";
-								CommMgr.getCommMgr().sendMsg(outputMsg,
-										CommMgr.MSG_TYPE_ARDUINO, false);
+								CommMgr.getCommMgr().offer(outputMsg,
+										CommMgr.MSG_TYPE_ARDUINO);
 							}
 						}
 					}
 				}
 			}
 		});
-		_phyExploreTimer.setRepeats(true);
-		_phyExploreTimer.setInitialDelay(0);
-		_phyExploreTimer.start();
 	}
 
 	/** Function for stopping physical exploration */
 	public void stopPhysicalExploration() {
 
-		if (_phyExploreTimer != null) {
-			_phyExploreTimer.stop();
-			_phyExploreTimer = null;
-		}
+		getScheduler().stopAll();
 
-		System.out.println(CommMgr.getCommMgr().recvMsg());
+		System.out.println(CommMgr.getCommMgr().poll(
+				CommMgr.MSG_TYPE_ARDUINO));
 
 		// Reset all variables
-		_phyExploreTimer = null;
 		_bPhyExConnected = false;
 		_phyExErrors = 0;
 		_phyExRcvMsg = null;
 		_bPhyExStarted = false;
+		_bEmergencyRecalibration = false;
 		_movesSinceLastCalibration = 0;
 
 		System.out.println("Stopping physical exploration!!");
+		LatencyMonitor.getLatencyMonitor().printSummary("Physical exploration");
+		CommMgr.getCommMgr().stopRecording();
 	}
 
 	/** For physically exploring any unexplored area */
 	public void startPhyExploringUnexplored(Grid current, DIRECTION currDir,
-			Grid target, Grid[][] robotMap) {
+			Grid target) {
 
 		Stack<Grid> exploreUnexploredPath = findShortestPath(current, target,
-				currDir, robotMap);
+				currDir);
 
-		if (exploreUnexploredPath == null) {
+		// Move on to the next unexplored grid until one can be reached
+		while (exploreUnexploredPath == null) {
 
 			System.out.println("startPhyExploringUnexplored()"
 					+ " -> exploreUnexploredPath is NULL");
 
-			if (_unexploredGrids.isEmpty()) {
+			target = getNextUnexploredGrid(target);
+			if (target == null) {
 				// Start the shortest path back to the starting grid
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
 				if (!withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
 					System.out.println("I need to go back to the start");
 					startPhysicalShortestPath(currentGrid, _robotDirection,
-							startingGrid, robotMap);
+							startingGrid);
 				}
 				else {
 					// Within start zone, perform end of exploration calibration
 					endOfExplorationCalibration();
 				}
-			} else {
-				startPhyExploringUnexplored(current, currDir,
-						_unexploredGrids.pop(), robotMap);
+				return;
 			}
-		} else {
 
-			_exploreUnexploredInstructions = generateThePath(exploreUnexploredPath);
-
-			//requestSensorReadings();
-
-			// Calculate timer intervals based on the user
-			// selected steps per second
-			_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
-
-			_exploreUnexploredTimer = new Timer(_timerIntervals,
-					new ActionListener() {
-						@Override
-						public void actionPerformed(ActionEvent arg0) {
-
-							if (_exploreUnexploredInstructions.isEmpty()) {
-								_exploreUnexploredTimer.stop();
-								_exploreUnexploredTimer = null;
-
-								// Check to see if there are
-								// anymore unexplored grids
-								_unexploredGrids = getUnexploredGrids();
-								if (!_unexploredGrids.isEmpty()) {
-
-									// Start shortest path to the next
-									// unexplored grid
-									Grid[][] robotMap = _robotMap.getMapGrids();
-									Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-
-									startPhyExploringUnexplored(currentGrid,
-											_robotDirection,
-											_unexploredGrids.pop(), robotMap);
-								} else {
-
-									// Start the shortest path back to the
-									// starting grid
-									Grid[][] robotMap = _robotMap.getMapGrids();
-									Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-									Grid startingGrid = robotMap[1][1];
-
-									if (currentGrid != startingGrid) {
-										startPhysicalShortestPath(currentGrid,
-												_robotDirection, startingGrid,
-												robotMap);
-									}
-									else {
-										// Within start zone, perform end of
-										// exploration calibration
-										endOfExplorationCalibration();
-									}
-								}
-
-							} else {
-
-								// Try to get message
-								_phyExRcvMsg = CommMgr.getCommMgr().recvMsg();
-
-								if (_phyExRcvMsg != null) {
-
-									// Sense its surroundings using actual
-									// sensor readings
-									Robot.this.physicalSense(_phyExRcvMsg);
-
-									_robotMap.revalidate();
-									_robotMap.repaint();
-
-									// Perform next instruction
-									switch (_exploreUnexploredInstructions
-											.poll()) {
-									case MOVE_STRAIGHT:
-										moveStraight();
-										break;
-									case TURN_LEFT:
-										turnLeft();
-										break;
-									case TURN_RIGHT:
-										turnRight();
-										break;
-									}
-
-									if (_phyExCmdMsg != null) {
-										String outputMsg = _phyExCmdMsg;
-										
-										CommMgr.getCommMgr()
-												.sendMsg(
-														outputMsg,
-														CommMgr.MSG_TYPE_ARDUINO,
-														false);
-										_phyExCmdMsg = null;
-									}
-								}
-							}
-						}
-					});
-			_exploreUnexploredTimer.setRepeats(true);
-			_exploreUnexploredTimer.setInitialDelay(0);
-			_exploreUnexploredTimer.start();
+			exploreUnexploredPath = findShortestPath(current, target,
+					currDir);
 		}
+
+		// Compile the whole leg into a single command string, which ends with
+		// m; for the Arduino to reply with its sensor readings once it is done
+		InstructionCompiler compiler = new InstructionCompiler(this,
+				_robotMapPosRow, _robotMapPosCol, _robotDirection);
+		compiler.setCalibrationInterval(MAX_MOVES_BEFORE_CALIBRATION,
+				_movesSinceLastCalibration);
+		compiler.addInstructions(generateThePath(exploreUnexploredPath));
+		compiler.addCommand('m');
+		_movesSinceLastCalibration = compiler.getMovesSinceCalibration();
+
+		System.out.println("startPhyExploringUnexplored() -> "
+				+ "Command string to be sent: " + compiler.getProgram());
+		CommMgr.getCommMgr().offer(compiler.getProgram(),
+				CommMgr.MSG_TYPE_ARDUINO);
+
+		// For the simulator to carry out the same leg
+		_exploreUnexploredInstructions = compiler.getInstructions();
+
+		startLeg(LEG.EXPLORE_UNEXPLORED, new Runnable() {
+			@Override
+			public void run() {
+
+				if (!_exploreUnexploredInstructions.isEmpty()) {
+
+					// Perform next instruction, which has already
+					// been sent out as part of the leg
+					switch (_exploreUnexploredInstructions.poll()) {
+					case MOVE_STRAIGHT:
+						moveStraight();
+						break;
+					case TURN_LEFT:
+						turnLeft();
+						break;
+					case TURN_RIGHT:
+						turnRight();
+						break;
+					}
+					_phyExCmdMsg = null;
+					return;
+				}
+
+				// Wait for the sensor readings at the end of the leg
+				long startTime = System.nanoTime();
+				int noOfReadings = CommMgr.getCommMgr()
+						.pollSensorReadings(_phySensorReadings);
+
+				if (noOfReadings < 0)
+					return;
+
+				// Sense its surroundings using actual sensor readings
+				Robot.this.physicalSense(_phySensorReadings,
+						noOfReadings);
+				LatencyMonitor.getLatencyMonitor().record(STAGE.PARSE,
+						startTime);
+
+				getScheduler().stop(LEG.EXPLORE_UNEXPLORED);
+
+				// Check to see if there are
+				// anymore unexplored grids
+				Grid unexploredGrid = getNextUnexploredGrid(null);
+				if (unexploredGrid != null) {
+
+					// Start shortest path to the next
+					// unexplored grid
+					Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+
+					startPhyExploringUnexplored(currentGrid,
+							_robotDirection, unexploredGrid);
+				} else {
+
+					// Start the shortest path back to the
+					// starting grid
+					Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+					Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
+
+					if (!currentGrid.equals(startingGrid)) {
+						startPhysicalShortestPath(currentGrid,
+								_robotDirection, startingGrid);
+					}
+					else {
+						// Within start zone, perform end of
+						// exploration calibration
+						endOfExplorationCalibration();
+					}
+				}
+			}
+		});
 	}
 
 	/** For triggering the leaderboard shortest path algorithm */
 	public void startPhysicalShortestPath() {
 
-		Grid[][] robotMap = _robotMap.getMapGrids();
-		Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
+		_bSimulation = false;
+
+		Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
 
-		int goalGridRow = MapConstants.GOAL_GRID_ROW; // Row 13
-		int goalGridCol = MapConstants.GOAL_GRID_COL; // Column 18
-		Grid goalGrid = robotMap[goalGridRow][goalGridCol];
+		int goalGridRow = _robotMap.getGoalZoneRow();
+		int goalGridCol = _robotMap.getGoalZoneCol();
+		Grid goalGrid = _robotMap.getGrid(goalGridRow, goalGridCol);
 
 		System.out.println("\nstartPhysicalSP(void)"
 				+ " -> Starting row, col: " + _robotMapPosRow + ", "
 				+ _robotMapPosCol + ", Goal row, col: " + goalGridRow + ", "
 				+ goalGridCol + "\n");
 
-		startPhysicalShortestPath(currentGrid, _robotDirection, goalGrid,
-				robotMap);
+		startPhysicalShortestPath(currentGrid, _robotDirection, goalGrid);
 	}
 
 	/** For starting the leaderboard shortest path */
 	private void startPhysicalShortestPath(final Grid current, final DIRECTION currDir,
-			final Grid target, final Grid[][] robotMap) {
+			final Grid target) {
 
-		Stack<Grid> shortestPath = findShortestPath(current, target, currDir,
-				robotMap);
+		Stack<Grid> shortestPath = findShortestPath(current, target, currDir);
 
 		if (shortestPath == null) {
 
@@ -2225,132 +2140,58 @@ public class Robot implements Serializable {
 			return;
 		}
 
-		_shortestPathInstructions = generateThePath(shortestPath);
-
-		// Calculate timer intervals based on the user selected steps per second
-		_timerIntervals = ((1000 * 1000 / _stepsPerSecond) / 1000);
 		System.out.println("Steps Per Second: " + _stepsPerSecond
-				+ ", Timer Interval: " + _timerIntervals);
+				+ ", Timer Interval: " + getTimerIntervals());
 
 		// Reset all variables used
-		_phySpTimer = null;
 		_bPhySpConnected = false;
 		_phySpErrors = 0;
 		_phySpRcvMsg = null;
 		_bPhySpStarted = false;
 		_phySpCmdMsg = null;
 		
-		// Create the shortest path command string
-		DIRECTION endingDir = currDir;
-		_phySpCmdMsg = (_bPhyExStarted ? "s;" : "s;");
-		
-		ArrayDeque<INSTRUCTION> setOfInst = new ArrayDeque<INSTRUCTION>();
-		if(!_shortestPathInstructions.isEmpty())
-			setOfInst.add(_shortestPathInstructions.poll());
-		
-		while (!_shortestPathInstructions.isEmpty()) {
-			
-			INSTRUCTION currInst = _shortestPathInstructions.poll();
-			if(currInst.toString().equals(setOfInst.peekLast().toString())) {
-				setOfInst.add(currInst);
-			}
-			else {
-				INSTRUCTION nextInst = setOfInst.peekLast();
-				boolean bIsDirection = false;
-				switch (nextInst) {
-				case MOVE_STRAIGHT:
-					_phySpCmdMsg += "f";
-					break;
-				case TURN_LEFT:
-					_phySpCmdMsg += "l";
-					endingDir = DIRECTION.getPrevious(endingDir);
-					bIsDirection = true;
-					break;
-				case TURN_RIGHT:
-					_phySpCmdMsg += "o";
-					endingDir = DIRECTION.getNext(endingDir);
-					bIsDirection = true;
-					break;
-				}
-				int size = setOfInst.size();
-				
-				if(!bIsDirection) {
-					_phySpCmdMsg += ((size > 1) ? (size + ";") : ";");
-				}
-				else {
-					_phySpCmdMsg += ((size > 1) ? ((size*90) + ";") : ";");
-				}
-				setOfInst.clear();
-				setOfInst.add(currInst);
-			}
-		}
-		
-		if(!setOfInst.isEmpty()) {
-			INSTRUCTION nextInst = setOfInst.peekLast();
-			boolean bIsDirection = false;
-			switch (nextInst) {
-			case MOVE_STRAIGHT:
-				_phySpCmdMsg += "f";
-				break;
-			case TURN_LEFT:
-				_phySpCmdMsg += "l";
-				endingDir = DIRECTION.getPrevious(endingDir);
-				bIsDirection = true;
-				break;
-			case TURN_RIGHT:
-				_phySpCmdMsg += "o";
-				endingDir = DIRECTION.getNext(endingDir);
-				bIsDirection = true;
-				break;
-			}
-			int size = setOfInst.size();
-			if(!bIsDirection) {
-				_phySpCmdMsg += ((size > 1) ? (size + ";") : ";");
-			}
-			else {
-				_phySpCmdMsg += ((size > 1) ? ((size*90) + ";") : ";");
-			}
-			setOfInst.clear();
-		}
-		
-		System.out.println("Check physyical sp: Out of sp inst generation loop!!");
-		
-		
+		// Compile the whole shortest path into a single command string,
+		// which starts with s; to turn off exploration mode for the Arduino
+		InstructionCompiler compiler = new InstructionCompiler(this,
+				_robotMapPosRow, _robotMapPosCol, _robotDirection);
+		compiler.setCalibrationInterval(MAX_MOVES_BEFORE_CALIBRATION,
+				_movesSinceLastCalibration);
+		compiler.addCommand('s');
+		compiler.addInstructions(generateThePath(shortestPath));
+
 		// If target grid is within the start zone, i.e.
 		// shortestPath is being used to go back to the start zone
 		if(_robotMap.isStartZone(target.getRow(), target.getCol())) {
 			System.out.println("startPhysicalSP() -> "
-					+ "Current Ending Direction: " + endingDir);
+					+ "Current Ending Direction: " + compiler.getDirection());
 			
 			// If the robot is not facing the specified starting direction
-			if (endingDir != _robotStartDir) {
+			if (compiler.getDirection() != _robotStartDir) {
 
 				// Turn the robot to match the specified starting direction
-				while (endingDir != _robotStartDir) {
-					endingDir = DIRECTION.getNext(endingDir);
-					_phySpCmdMsg += "o;";
-				}
-
-				_phySpCmdMsg += "l;c;o;";
+				compiler.turnTo(_robotStartDir);
+				compiler.calibrateLeft();
 			}
 			
 			System.out.println("startPhysicalSP() -> "
-					+ "Final Ending Direction: " + endingDir);
+					+ "Final Ending Direction: " + compiler.getDirection());
 		}
 		
+		_phySpCmdMsg = compiler.getProgram();
+		
 		System.out.println("startPhysicalSP() -> Command string to be sent: "
 				+ _phySpCmdMsg);
 
-		_phySpTimer = new Timer(_timerIntervals, new ActionListener() {
+		startLeg(LEG.PHYSICAL_SHORTEST_PATH, new Runnable() {
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
+			public void run() {
 
 				if (!_bPhySpConnected && !_bPhyExConnected) {
 					CommMgr mgr = CommMgr.getCommMgr();
 					
 					_bPhySpConnected = mgr.isConnected();
 					if(!_bPhySpConnected) {
-						_bPhySpConnected = mgr.setConnection(_timerIntervals - 20);
+						_bPhySpConnected = mgr.setConnection(getTimerIntervals() - 20);
 					}
 					
 					if (_bPhySpConnected) {
@@ -2360,16 +2201,14 @@ public class Robot implements Serializable {
 
 					if (!_bPhySpConnected) {
 						_phySpErrors++;
+						getMetrics().reconnectAttempted();
 
 						if (_phySpErrors >= 30) {
 							System.out.println("Too many errors,"
 									+ " stopped reconnection!");
 							mgr.closeConnection();
 
-							if (_phySpTimer != null) {
-								_phySpTimer.stop();
-								_phySpTimer = null;
-							}
+							getScheduler().stop(LEG.PHYSICAL_SHORTEST_PATH);
 						}
 					}
 					return;
@@ -2377,7 +2216,8 @@ public class Robot implements Serializable {
 
 				if (!_bPhySpStarted && !_bPhyExStarted) {
 					// Try to get message
-					_phySpRcvMsg = CommMgr.getCommMgr().recvMsg();
+					_phySpRcvMsg = CommMgr.getCommMgr().poll(
+							CommMgr.MSG_TYPE_ANDROID);
 
 					if (_phySpRcvMsg == null) {
 						_phySpErrors++;
@@ -2401,24 +2241,18 @@ public class Robot implements Serializable {
 				
 				if (_bPhySpStarted || _bPhyExStarted) {
 
-					CommMgr.getCommMgr().sendMsg(_phySpCmdMsg,
-							CommMgr.MSG_TYPE_ARDUINO, false);
+					CommMgr.getCommMgr().offer(_phySpCmdMsg,
+							CommMgr.MSG_TYPE_ARDUINO);
 					
 					// For the simulator to execute the shortest path as well
-					startShortestPath(current, currDir, target, robotMap);
+					startShortestPath(current, currDir, target);
 					
-					// Timer can be stopped once shortest path command
+					// Leg can be stopped once shortest path command
 					// has been sent out
-					if (_phySpTimer != null) {
-						_phySpTimer.stop();
-						_phySpTimer = null;
-					}
+					getScheduler().stop(LEG.PHYSICAL_SHORTEST_PATH);
 				}
 			}
 		});
-		_phySpTimer.setRepeats(true);
-		_phySpTimer.setInitialDelay(0);
-		_phySpTimer.start();
 	}
 
 	/**
@@ -2432,33 +2266,39 @@ public class Robot implements Serializable {
 	 */
 	public void makeNextPhysicalMove() {
 
-		// Try to get message
-		_phyExRcvMsg = CommMgr.getCommMgr().recvMsg();
+		// Try to get sensor readings
+		long startTime = System.nanoTime();
+		int noOfReadings = CommMgr.getCommMgr().pollSensorReadings(
+				_phySensorReadings);
 
-		if (_phyExRcvMsg != null) {
+		if (noOfReadings >= 0 && _bEmergencyRecalibration) {
+			emergencyRecalibrationStep(noOfReadings);
+		}
+		else if (noOfReadings >= 0) {
 
 			// Sense its surroundings using actual sensor readings
-			this.physicalSense(_phyExRcvMsg);
-
-			_robotMap.revalidate();
-			_robotMap.repaint();
+			this.physicalSense(_phySensorReadings, noOfReadings);
+			LatencyMonitor.getLatencyMonitor().record(STAGE.PARSE, startTime);
 
 			// Logic to make the next move
+			startTime = System.nanoTime();
 			this.physicalLogic();
+			LatencyMonitor.getLatencyMonitor().record(STAGE.LOGIC, startTime);
 		}
 	}
 
 	/**
 	 * This should update the robot's map based on actual sensor information
 	 * 
-	 * @param sensorStr
-	 *            The string containing all sensor readings<br>
-	 *            (e.g. "3,5;5;0;0;5;5;")
+	 * @param sensorReadings
+	 *            The number of free grids detected by each sensor<br>
+	 *            (e.g. {5, 5, 0, 0, 5, 5} for "3,5;5;0;0;5;5;")
+	 * @param noOfReadings
+	 *            The number of valid readings, sensors after these are ignored
 	 */
-	private void physicalSense(String sensorStr) {
+	private void physicalSense(int[] sensorReadings, int noOfReadings) {
 
-		sensorStr = sensorStr.substring(2, sensorStr.length());
-		String[] sensorReadings = sensorStr.split(";");
+		long startTime = System.nanoTime();
 		int sensorIndex = 0;
 		
 		// Weightage of the sensors
@@ -2466,20 +2306,18 @@ public class Robot implements Serializable {
 
 		for (Sensor s : _sensors) {
 
-			int freeGrids = 0;
-			try {
-				freeGrids = Integer.parseInt(sensorReadings[sensorIndex]);
-				
-				// Not using the reading of the 'left-back' sensor
-				if(sensorIndex == 4) {
-					sensorIndex++;
-					continue;
-				}
-				
+			if (sensorIndex >= noOfReadings)
+				break;
+
+			int freeGrids = sensorReadings[sensorIndex];
+			
+			// Not using the reading of the 'left-back' sensor
+			if(sensorIndex == 4) {
 				sensorIndex++;
-			} catch (NumberFormatException e) {
-				return;
+				continue;
 			}
+			
+			sensorIndex++;
 
 			int sensorPosRow = s.getSensorPosRow();
 			int sensorPosCol = s.getSensorPosCol();
@@ -2493,7 +2331,7 @@ public class Robot implements Serializable {
 			 * freeGrids);
 			 */
 
-			Grid[][] robotMapGrids = _robotMap.getMapGrids();
+			GridStore store = _robotMap.getGridStore();
 			for (int currGrid = sensorMinRange; currGrid <= sensorMaxRange; currGrid++) {
 
 				int gridRow = sensorPosRow
@@ -2509,8 +2347,8 @@ public class Robot implements Serializable {
 				truthValue *= sensorWeightage[sensorIndex-1];
 				
 				// Do a check here to prevent index out of bounds
-				if(gridRow < 0 || gridRow >= MapConstants.MAP_ROWS ||
-						gridCol < 0 || gridCol >= MapConstants.MAP_COLS) {
+				if(gridRow < 0 || gridRow >= _robotMap.getRows() ||
+						gridCol < 0 || gridCol >= _robotMap.getCols()) {
 					continue;
 				}
 
@@ -2522,8 +2360,8 @@ public class Robot implements Serializable {
 						// NEVER allow the robot to mark border walls as free grids
 						if(!_robotMap.isBorderWalls(gridRow, gridCol)) {
 							
-							robotMapGrids[gridRow][gridCol].markAsFreeGrid(
-									truthValue);
+							store.markAsFreeGrid(store.indexOf(gridRow,
+									gridCol), (float) truthValue);
 						}
 					} else {
 
@@ -2532,12 +2370,12 @@ public class Robot implements Serializable {
 						// i.e. current grid is an obstacle
 						
 						// Not a visited grid, not start zone, and not goal zone
-						if (!robotMapGrids[gridRow][gridCol].isVisited()) {
+						if (!store.isVisited(store.indexOf(gridRow, gridCol))) {
 							if (!_robotMap.isStartZone(gridRow, gridCol)
 									&& !_robotMap.isGoalZone(gridRow, gridCol)) {
 								
-								robotMapGrids[gridRow][gridCol]
-										.markAsObstacle(truthValue);
+								store.markAsObstacle(store.indexOf(gridRow,
+										gridCol), (float) truthValue);
 							}
 						}
 
@@ -2552,6 +2390,8 @@ public class Robot implements Serializable {
 				}
 			}
 		}
+
+		getMetrics().sensed(startTime);
 	}
 
 	/**
@@ -2565,10 +2405,6 @@ public class Robot implements Serializable {
 		if (_bExplorationComplete)
 			return;
 
-		// Robot reached goal zone
-		if (withinGoalZone(_robotMapPosRow, _robotMapPosCol))
-			_bReachedGoal = true;
-
 		if (_bCoverageLimited) {
 			if (coverageLimitReached()) {
 
@@ -2576,12 +2412,11 @@ public class Robot implements Serializable {
 				_bExplorationComplete = true;
 
 				// Start the shortest path back to the starting grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
 				startPhysicalShortestPath(currentGrid, _robotDirection,
-						startingGrid, robotMap);
+						startingGrid);
 
 				return;
 			}
@@ -2594,79 +2429,47 @@ public class Robot implements Serializable {
 				_bExplorationComplete = true;
 
 				// Start the shortest path back to the starting grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
-				Grid startingGrid = robotMap[1][1];
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
 				startPhysicalShortestPath(currentGrid, _robotDirection,
-						startingGrid, robotMap);
+						startingGrid);
 
 				return;
 			}
 		}
 
-		if (_bReachedGoal && withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
+		int currRobotMapPosRow = _robotMapPosRow;
+		int currRobotMapPosCol = _robotMapPosCol;
+		DIRECTION currRobotDir = _robotDirection;
+
+		Queue<INSTRUCTION> moves = getNextMoves();
+		if (moves == null) {
 
 			_bExplorationComplete = true;
 
-			/*
-			_unexploredGrids = getUnexploredGrids();
-			if (!_unexploredGrids.isEmpty()) {
+			if (!withinStartZone(_robotMapPosRow, _robotMapPosCol)) {
 
-				// Start shortest path to the first unexplored grid
-				Grid[][] robotMap = _robotMap.getMapGrids();
-				Grid currentGrid = robotMap[_robotMapPosRow][_robotMapPosCol];
+				// Start the shortest path back to the starting grid
+				Grid currentGrid = _robotMap.getGrid(_robotMapPosRow, _robotMapPosCol);
+				Grid startingGrid = _robotMap.getGrid(_robotMap.getStartZoneRow(), _robotMap.getStartZoneCol());
 
-				startPhyExploringUnexplored(currentGrid, _robotDirection,
-						_unexploredGrids.pop(), robotMap);
-			}
-			else {
-				// No unexplored grids to be explored
+				startPhysicalShortestPath(currentGrid, _robotDirection,
+						startingGrid);
+			} else {
 				endOfExplorationCalibration();
-			}*/
-			
-			endOfExplorationCalibration();
+			}
 
 			return;
 		}
-		
-		int currRobotMapPosRow = _robotMapPosRow;
-		int currRobotMapPosCol = _robotMapPosCol;
-		DIRECTION currRobotDir = _robotDirection;
 
-		boolean frontWall = hasFrontWall();
-		boolean leftWall = hasLeftWall();
-		boolean rightWall = hasRightWall();
-		
 		System.out.println("physicalLogic() -> " + 
-				"FrontWall: " + (frontWall ? "True" : "False") +
-				" LeftWall: " + (leftWall ? "True" : "False") +
-				" RightWall: " + (rightWall ? "True" : "False")
-				+ " PrevLeftWall: " + (_bPreviousLeftWall ? "True" : "False"));
-
-		// (No leftWall AND previousLeftWall) OR
-		// (frontWall AND No leftWall AND rightWall)
-		if ( (!leftWall && _bPreviousLeftWall) ||
-				(frontWall && !leftWall && rightWall) ) {
-			turnLeft();
-		}
-
-		// (frontWall AND No rightWall)
-		else if (frontWall && !rightWall) {
-			turnRight();
-		}
-
-		// (frontWall AND leftWall AND rightWall)
-		else if (frontWall && leftWall && rightWall) {
-			turn180();
-		}
+				"FrontWall: " + (hasFrontWall() ? "True" : "False") +
+				" LeftWall: " + (hasLeftWall() ? "True" : "False") +
+				" RightWall: " + (hasRightWall() ? "True" : "False")
+				+ " Moves: " + moves);
 
-		else {
-			moveStraight();
-		}
-		
-		// Save current leftWall state into _bPreviousLeftWall
-		_bPreviousLeftWall = leftWall;
+		performMoves(moves);
 		
 		// Increment number of moves made since last calibration
 		_movesSinceLastCalibration++;
@@ -2741,8 +2544,7 @@ public class Robot implements Serializable {
 				}
 			}
 			
-			CommMgr.getCommMgr().sendMsg(outputMsg, CommMgr.MSG_TYPE_ARDUINO,
-					false);
+			CommMgr.getCommMgr().offer(outputMsg, CommMgr.MSG_TYPE_ARDUINO);
 			_phyExCmdMsg = null;
 		}
 	}
@@ -2755,7 +2557,7 @@ public class Robot implements Serializable {
 	public boolean checkCalibrateFront(int robotMapPosRow, int robotMapPosCol,
 			DIRECTION robotDir) {
 
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore store = _robotMap.getGridStore();
 		int frontWallRow, frontWallCol;	
 		int numObstacles = 0;
 		
@@ -2765,8 +2567,7 @@ public class Robot implements Serializable {
 			frontWallCol = robotMapPosCol + RobotConstants.ROBOT_SIZE;
 			for (int currRow = frontWallRow; currRow < frontWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][frontWallCol].isExplored()
-						&& robotMapGrids[currRow][frontWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, frontWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, frontWallCol)) {
 					numObstacles++;
@@ -2778,8 +2579,7 @@ public class Robot implements Serializable {
 			frontWallCol = robotMapPosCol;
 			for (int currCol = frontWallCol; currCol < frontWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[frontWallRow][currCol].isExplored()
-						&& robotMapGrids[frontWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(frontWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(frontWallRow, currCol)) {
 					numObstacles++;
@@ -2791,8 +2591,7 @@ public class Robot implements Serializable {
 			frontWallCol = robotMapPosCol;
 			for (int currCol = frontWallCol; currCol < frontWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[frontWallRow][currCol].isExplored()
-						&& robotMapGrids[frontWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(frontWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(frontWallRow, currCol)) {
 					numObstacles++;
@@ -2804,8 +2603,7 @@ public class Robot implements Serializable {
 			frontWallCol = (robotMapPosCol - 1);
 			for (int currRow = frontWallRow; currRow < frontWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][frontWallCol].isExplored()
-						&& robotMapGrids[currRow][frontWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, frontWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, frontWallCol)) {
 					numObstacles++;
@@ -2824,7 +2622,7 @@ public class Robot implements Serializable {
 	 */
 	public boolean checkCalibrateLeft(int robotMapPosRow, int robotMapPosCol,
 			DIRECTION robotDir) {
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore store = _robotMap.getGridStore();
 		int leftWallRow, leftWallCol;
 		int numObstacles = 0;
 
@@ -2834,8 +2632,7 @@ public class Robot implements Serializable {
 			leftWallCol = robotMapPosCol;
 			for (int currCol = leftWallCol; currCol < leftWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[leftWallRow][currCol].isExplored()
-						&& robotMapGrids[leftWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(leftWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(leftWallRow, currCol)) {
 					numObstacles++;
@@ -2847,8 +2644,7 @@ public class Robot implements Serializable {
 			leftWallCol = robotMapPosCol - 1;
 			for (int currRow = leftWallRow; currRow < leftWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][leftWallCol].isExplored()
-						&& robotMapGrids[currRow][leftWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, leftWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, leftWallCol)) {
 					numObstacles++;
@@ -2860,8 +2656,7 @@ public class Robot implements Serializable {
 			leftWallCol = (robotMapPosCol + RobotConstants.ROBOT_SIZE);
 			for (int currRow = leftWallRow; currRow < leftWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][leftWallCol].isExplored()
-						&& robotMapGrids[currRow][leftWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, leftWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, leftWallCol)) {
 					numObstacles++;
@@ -2873,8 +2668,7 @@ public class Robot implements Serializable {
 			leftWallCol = robotMapPosCol;
 			for (int currCol = leftWallCol; currCol < leftWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[leftWallRow][currCol].isExplored()
-						&& robotMapGrids[leftWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(leftWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(leftWallRow, currCol)) {
 					numObstacles++;
@@ -2893,7 +2687,7 @@ public class Robot implements Serializable {
 	 */
 	public boolean checkCalibrateRight(int robotMapPosRow, int robotMapPosCol,
 			DIRECTION robotDir) {
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore store = _robotMap.getGridStore();
 		int rightWallRow, rightWallCol;
 		int numObstacles = 0;
 
@@ -2903,8 +2697,7 @@ public class Robot implements Serializable {
 			rightWallCol = robotMapPosCol;
 			for (int currCol = rightWallCol; currCol < rightWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[rightWallRow][currCol].isExplored()
-						&& robotMapGrids[rightWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(rightWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(rightWallRow, currCol)) {
 					numObstacles++;
@@ -2916,8 +2709,7 @@ public class Robot implements Serializable {
 			rightWallCol = robotMapPosCol + RobotConstants.ROBOT_SIZE;
 			for (int currRow = rightWallRow; currRow < rightWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][rightWallCol].isExplored()
-						&& robotMapGrids[currRow][rightWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, rightWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, rightWallCol)) {
 					numObstacles++;
@@ -2929,8 +2721,7 @@ public class Robot implements Serializable {
 			rightWallCol = (robotMapPosCol - 1);
 			for (int currRow = rightWallRow; currRow < rightWallRow
 					+ RobotConstants.ROBOT_SIZE; currRow++) {
-				if (robotMapGrids[currRow][rightWallCol].isExplored()
-						&& robotMapGrids[currRow][rightWallCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(currRow, rightWallCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(currRow, rightWallCol)) {
 					numObstacles++;
@@ -2942,8 +2733,7 @@ public class Robot implements Serializable {
 			rightWallCol = robotMapPosCol;
 			for (int currCol = rightWallCol; currCol < rightWallCol
 					+ RobotConstants.ROBOT_SIZE; currCol++) {
-				if (robotMapGrids[rightWallRow][currCol].isExplored()
-						&& robotMapGrids[rightWallRow][currCol].isObstacle())
+				if (store.isExploredObstacle(store.indexOf(rightWallRow, currCol)))
 					numObstacles++;
 				else if(_robotMap.isBorderWalls(rightWallRow, currCol)) {
 					numObstacles++;
@@ -2959,14 +2749,14 @@ public class Robot implements Serializable {
 	 * Mark the robot's current position as visited
 	 */
 	private void markCurrentPosAsVisited() {
-		Grid[][] robotMapGrids = _robotMap.getMapGrids();
+		GridStore store = _robotMap.getGridStore();
 		
 		for (int mapRow = _robotMapPosRow; mapRow < _robotMapPosRow
 				+ RobotConstants.ROBOT_SIZE; mapRow++) {
 			for (int mapCol = _robotMapPosCol; mapCol < _robotMapPosCol
 					+ RobotConstants.ROBOT_SIZE; mapCol++) {
 
-				robotMapGrids[mapRow][mapCol].markAsVisited();
+				store.markAsVisited(store.indexOf(mapRow, mapCol));
 			}
 		}
 	}
@@ -2975,110 +2765,91 @@ public class Robot implements Serializable {
 	 * Perform end of exploration calibration
 	 */
 	private void endOfExplorationCalibration() {
-		boolean bFrontCalibration = checkCalibrateFront(
-				_robotMapPosRow, _robotMapPosCol, _robotDirection);
-		boolean bLeftCalibration = checkCalibrateLeft(
-				_robotMapPosRow, _robotMapPosCol, _robotDirection);
-		
+
 		// Start message with s; to turn off timer, and turn off exploration
 		// mode for Arduino
-		String outputMsg = "s;";
-		
-		if(bFrontCalibration && bLeftCalibration) {
-			// In a corner with complete walls in front and on the left
-			// Turn left, calibrate, turn right, calibrate
-			outputMsg += "l;c;o;c;";
-		}
-		else {
-			if(bFrontCalibration) {
-				// Just calibrate
-				outputMsg += "c;";
-			}
-			else if(bLeftCalibration) {
-				// Turn left, calibrate, turn right
-				outputMsg += "l;c;o;";
-			}
-		}
+		InstructionCompiler compiler = new InstructionCompiler(this,
+				_robotMapPosRow, _robotMapPosCol, _robotDirection);
+		compiler.addCommand('s');
+		compiler.calibrate();
 		
 		// Reset back to the starting state to prepare for the shortest path
-		if(outputMsg != null) {
+		// If the robot is not facing the specified starting direction
+		if (_robotDirection != _robotStartDir) {
 			
-			// If the robot is not facing the specified starting direction
-			if(_robotDirection != _robotStartDir) {
+			// Turn the robot to match the specified starting direction
+			compiler.turnTo(_robotStartDir);
+			compiler.calibrateLeft();
 			
-				// Turn the robot to match the specified starting direction
-				while (_robotDirection != _robotStartDir) {
-					this.turnRight();
-					outputMsg += "o;";
-					
-					_robotMap.revalidate();
-					_robotMap.repaint();
-				}
-				
-				outputMsg += "l;c;o;";
-			}
+			while (_robotDirection != _robotStartDir)
+				turn(true);
 		}
+		_movesSinceLastCalibration = 0;
 		
-		if(outputMsg != null) {
-			CommMgr.getCommMgr().sendMsg(outputMsg,
-					CommMgr.MSG_TYPE_ARDUINO, false);
-		}
+		CommMgr.getCommMgr().offer(compiler.getProgram(),
+				CommMgr.MSG_TYPE_ARDUINO);
 	}
 
 	private void requestSensorReadings() {
-		CommMgr.getCommMgr().sendMsg("m;", CommMgr.MSG_TYPE_ARDUINO, false);
+		CommMgr.getCommMgr().offer("m;", CommMgr.MSG_TYPE_ARDUINO);
 	}
 	
+	/**
+	 * Turns the robot on the spot until it can calibrate against the walls
+	 * of the start zone, then performs the end of exploration calibration
+	 * <p>
+	 * Each step waits for a sensor reading, which is picked up by
+	 * makeNextPhysicalMove() on the physical exploration timer, so this
+	 * never blocks waiting for the Arduino.
+	 */
 	public void performEmergencyRecalibration() {
 		
+		_bEmergencyRecalibration = true;
 		requestSensorReadings();
+	}
+	
+	/**
+	 * Performs one step of the emergency recalibration
+	 * 
+	 * @param noOfReadings
+	 *            The number of sensor readings received
+	 */
+	private void emergencyRecalibrationStep(int noOfReadings) {
+		
+		this.physicalSense(_phySensorReadings, noOfReadings);
+		
+		boolean frontWall = hasFrontWall();
+		boolean leftWall = hasLeftWall();
+		boolean rightWall = hasRightWall();
 		
-		while(true) {
+		System.out.println("physicalLogic() -> " + 
+				"FrontWall: " + (frontWall ? "True" : "False") +
+				" LeftWall: " + (leftWall ? "True" : "False") +
+				" RightWall: " + (rightWall? "True" : "False"));
+		
+		// Ensure facing North, in order to have front wall &
+		// left wall for calibration
+		if(!(frontWall && leftWall && !rightWall)) {
+			turnLeft();
+		}
+		else {
 			
-			// Try to get message
-			_phyExRcvMsg = CommMgr.getCommMgr().recvMsg();
+			// Added this to ensure almightyRobot and the
+			// physical robot has the same direction
+			_robotDirection = DIRECTION.NORTH;
 			
-			if(_phyExRcvMsg != null) {
-				this.physicalSense(_phyExRcvMsg);
-				
-				boolean frontWall = hasFrontWall();
-				boolean leftWall = hasLeftWall();
-				boolean rightWall = hasRightWall();
-				
-				System.out.println("physicalLogic() -> " + 
-						"FrontWall: " + (frontWall ? "True" : "False") +
-						" LeftWall: " + (leftWall ? "True" : "False") +
-						" RightWall: " + (rightWall? "True" : "False"));
-				
-				// Ensure facing North, in order to have front wall &
-				// left wall for calibration
-				if(!(frontWall && leftWall && !rightWall)) {
-					turnLeft();
-				}
-				else {
-					
-					// Added this to ensure almightyRobot and the
-					// physical robot has the same direction
-					_robotDirection = DIRECTION.NORTH;
-					
-					endOfExplorationCalibration();
-					return;
-				}
-				
-				if (_phyExCmdMsg != null) {
-					String outputMsg = _phyExCmdMsg;
-					outputMsg += "m;";
-					
-					CommMgr.getCommMgr().sendMsg(outputMsg,
-							CommMgr.MSG_TYPE_ARDUINO, false);
-					_phyExCmdMsg = null;
-				}
-				
-				_robotMap.revalidate();
-				_robotMap.repaint();
-				
-			} // End if(_phyExCmdMsg != null)
-		} // End while(true)
+			_bEmergencyRecalibration = false;
+			endOfExplorationCalibration();
+			return;
+		}
+		
+		if (_phyExCmdMsg != null) {
+			String outputMsg = _phyExCmdMsg;
+			outputMsg += "m;";
+			
+			CommMgr.getCommMgr().offer(outputMsg, CommMgr.MSG_TYPE_ARDUINO);
+			_phyExCmdMsg = null;
+		}
 	}
 
 	/** Wifi connection related functions ends here ************************ */
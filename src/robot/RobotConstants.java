@@ -21,6 +21,45 @@ public final class RobotConstants {
 	public static enum DIRECTION {
 		NORTH, EAST, SOUTH, WEST;
 
+		// Change in row/column when moving one grid in each direction,
+		// indexed by ordinal
+		private static final int[] DELTA_ROW = { -1, 0, 1, 0 };
+		private static final int[] DELTA_COL = { 0, 1, 0, -1 };
+
+		/**
+		 * @return Change in row when moving one grid in this direction
+		 */
+		public int getDeltaRow() {
+			return DELTA_ROW[ordinal()];
+		}
+
+		/**
+		 * @return Change in column when moving one grid in this direction
+		 */
+		public int getDeltaCol() {
+			return DELTA_COL[ordinal()];
+		}
+
+		/**
+		 * For planners which keep directions as ordinals
+		 *
+		 * @param dirIndex The direction's ordinal
+		 * @return Change in row when moving one grid in that direction
+		 */
+		public static int getDeltaRow(int dirIndex) {
+			return DELTA_ROW[dirIndex];
+		}
+
+		/**
+		 * For planners which keep directions as ordinals
+		 *
+		 * @param dirIndex The direction's ordinal
+		 * @return Change in column when moving one grid in that direction
+		 */
+		public static int getDeltaCol(int dirIndex) {
+			return DELTA_COL[dirIndex];
+		}
+
 		public static DIRECTION getNext(DIRECTION currDirection) {
 			return values()[(currDirection.ordinal() + 1) % values().length];
 		}
@@ -69,6 +108,9 @@ public final class RobotConstants {
 	public static final Color C_SHORTEST_PATH = new Color(153, 0, 153, 255);
 	public static final int PATH_THICKNESS = 4;
 	
+	// Rate at which the robot map is redrawn, however fast the robot steps
+	public static final int FRAMES_PER_SECOND = 30;
+	
 	public static final Color C_SENSOR = Color.DARK_GRAY;
 	public static final Color C_SENSOR_BEAM_OUTER = new Color(220, 0, 0, 160);
 	public static final Color C_SENSOR_BEAM_INNER = new Color(255, 0, 0, 190);
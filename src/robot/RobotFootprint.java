@@ -0,0 +1,111 @@
+package robot;
+
+import map.GridStore;
+
+/**
+ * Checks whether the robot fits at positions of a map, i.e. within the
+ * arena, and only on explored grids which are not obstacles
+ * <p>
+ * Positions are the robot's top-left grid. Each position's result is cached
+ * until {@link #clear}, for planners which check the same positions many
+ * times during a search. Clearing only resets the positions checked since,
+ * so a search around the robot does not pay for the size of the map.
+ */
+class RobotFootprint {
+
+	// Values for the cached validity of each position
+	private static final byte POS_UNKNOWN = 0;
+	private static final byte POS_VALID = 1;
+	private static final byte POS_INVALID = 2;
+
+	private final GridStore _store;
+
+	// Per position cache of whether the robot fits there
+	private final byte[] _validPos;
+
+	// Positions cached since the last clear()
+	private final int[] _cachedPos;
+	private int _noOfCachedPos = 0;
+
+	RobotFootprint(GridStore store) {
+		_store = store;
+		_validPos = new byte[store.getRows() * store.getCols()];
+		_cachedPos = new int[_validPos.length];
+	}
+
+	/**
+	 * Forgets the cached positions, e.g. once more of the map is explored
+	 */
+	void clear() {
+		for (int i = 0; i < _noOfCachedPos; i++)
+			_validPos[_cachedPos[i]] = POS_UNKNOWN;
+		_noOfCachedPos = 0;
+	}
+
+	/**
+	 * Checks if the robot fits at the given position, caching the result
+	 */
+	boolean isValidPos(int row, int col) {
+
+		if (!isWithinArena(_store, row, col))
+			return false;
+
+		int pos = row * _store.getCols() + col;
+		if (_validPos[pos] == POS_UNKNOWN) {
+			_validPos[pos] = fits(_store, row, col) ? POS_VALID : POS_INVALID;
+			_cachedPos[_noOfCachedPos++] = pos;
+		}
+
+		return _validPos[pos] == POS_VALID;
+	}
+
+	/**
+	 * Checks if the whole robot is within the border walls at the given
+	 * position
+	 */
+	static boolean isWithinArena(GridStore store, int row, int col) {
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		return row >= 1 && col >= 1
+				&& row + robotSize - 1 <= store.getRows() - 2
+				&& col + robotSize - 1 <= store.getCols() - 2;
+	}
+
+	/**
+	 * Checks if the robot fits at the given position, without caching
+	 */
+	static boolean fits(GridStore store, int row, int col) {
+
+		if (!isWithinArena(store, row, col))
+			return false;
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		for (int mapRow = row; mapRow < row + robotSize; mapRow++) {
+			int index = store.indexOf(mapRow, col);
+			for (int mapCol = 0; mapCol < robotSize; mapCol++, index++) {
+				if (!store.isExplored(index) || store.isObstacle(index))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the robot can move to the given position, i.e. within the
+	 * arena, and not on any known obstacles
+	 */
+	static boolean isSafe(GridStore store, int row, int col) {
+
+		if (!isWithinArena(store, row, col))
+			return false;
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		for (int mapRow = row; mapRow < row + robotSize; mapRow++) {
+			int index = store.indexOf(mapRow, col);
+			for (int mapCol = 0; mapCol < robotSize; mapCol++, index++) {
+				if (store.isExploredObstacle(index))
+					return false;
+			}
+		}
+		return true;
+	}
+}
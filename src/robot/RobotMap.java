@@ -5,11 +5,19 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import javax.swing.BorderFactory;
-import javax.swing.border.Border;
+import javax.swing.Timer;
 
 import robot.RobotConstants.DIRECTION;
+import map.GridSet;
+import map.GridStore;
+import map.MDFCodec;
 import map.Map;
 import map.MapConstants;
 import map.RealMap;
@@ -24,9 +32,8 @@ public class RobotMap extends Map {
 	private int _mapWidth = 0;
 	private int _mapHeight = 0;
 	
-	// For rendering the map efficiently
-	private MapGrid [][] _mapGrids = null;
-	private PathGrid [][] _pathGrids = null;
+	// Directions of the traveled path through each grid, PATH_N etc.
+	private final byte [] _paths;
 	
 	// Reference to the robot
 	private Robot _robot = null;
@@ -42,12 +49,101 @@ public class RobotMap extends Map {
 	
 	private boolean _bDisplayTruthValues = true;
 	
+	// Double-buffered snapshots of the map & the robot; the back snapshot is
+	// filled in by whichever thread steps the robot, then swapped to the front
+	// (created when the first snapshot is published, so never when headless)
+	private Snapshot _backSnapshot = null;
+	private Snapshot _frontSnapshot = null;
+	private boolean _bNewSnapshot = false;
+	private final Object _publishLock = new Object();
+	private final Object _snapshotLock = new Object();
+	
+	// What is being rendered, copied from the front snapshot every frame
+	private Snapshot _renderSnapshot = null;
+	
+	// Grids changed since the last snapshot was published, grids which
+	// differ between the map & the back snapshot, and grids which may differ
+	// between the front & the rendered snapshot
+	private GridSet _publishedGrids = null;
+	private GridSet _backStaleGrids = null;
+	private GridSet _renderStaleGrids = null;
+	
+	// Samples the latest snapshot at a fixed frame rate
+	private Timer _renderTimer = null;
+	
+	// Everything except the robot, redrawn only where grids have changed
+	private BufferedImage _mapImage = null;
+	
+	// Where the robot was last painted
+	private int _paintedRobotPosRow = -1;
+	private int _paintedRobotPosCol = -1;
+	
+	private static final BasicStroke PATH_STROKE = new BasicStroke(
+			RobotConstants.PATH_THICKNESS);
+	private static final Font TRUTH_VALUE_FONT = new Font("Arial", Font.BOLD, 14);
+	
+	// Pre-rendered truth values, by the truth value x 100
+	private static final HashMap<Integer, BufferedImage> _truthValueImages = new HashMap<Integer, BufferedImage>();
+	private static final HashMap<Integer, BufferedImage> _borderTruthValueImages = new HashMap<Integer, BufferedImage>();
+	
+	// Directions of the path through a grid, within a snapshot
+	private static final byte PATH_N = 1;
+	private static final byte PATH_E = 2;
+	private static final byte PATH_S = 4;
+	private static final byte PATH_W = 8;
+	
+	// Size of a grid within its grid lines
+	private static final int GRID_INNER_SIZE = MapConstants.GRID_SIZE
+			- (MapConstants.GRID_LINE_WEIGHT * 2);
+	
 	public RobotMap(final RealMap realMap) {
-		super();
+		super(realMap.getRows(), realMap.getCols());
+		copyZones(realMap);
+		
+		_paths = new byte[_rows * _cols];
+		
+		this.setBorder(BorderFactory.createLineBorder(
+				MapConstants.C_GRID_LINE, MapConstants.GRID_LINE_WEIGHT));
+	}
+	
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		
+		if (_renderTimer == null) {
+			_renderTimer = new Timer(1000 / RobotConstants.FRAMES_PER_SECOND,
+					new ActionListener() {
+						@Override
+						public void actionPerformed(ActionEvent e) {
+							renderFrame();
+						}
+					});
+		}
+		_renderTimer.start();
+	}
+	
+	@Override
+	public void removeNotify() {
+		if (_renderTimer != null)
+			_renderTimer.stop();
+		
+		super.removeNotify();
 	}
 	
 	public void paintComponent(Graphics g) {
 		
+		if (_renderSnapshot == null)
+			_renderSnapshot = new Snapshot(_rows, _cols);
+		
+		long startTime = System.nanoTime();
+		paintRobotMap(g);
+		
+		if (_robot != null)
+			_robot.getMetrics().painted(startTime);
+	}
+	
+	private void paintRobotMap(Graphics g) {
+		
 		if (!_bMeasured) {
 			
 			_mapWidth = this.getWidth();
@@ -56,149 +152,36 @@ public class RobotMap extends Map {
 			System.out.println("\nRobotMap Graphics g; Map width: " + _mapWidth
 					+ ", Map height: " + _mapHeight);
 			
-			// Calculate the map & path grids for rendering
-			_mapGrids = new MapGrid[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-			_pathGrids = new PathGrid[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-			for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-				for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-					_mapGrids[mapRow][mapCol] = new MapGrid(
-							mapCol * MapConstants.GRID_SIZE,
-							mapRow * MapConstants.GRID_SIZE,
-							MapConstants.GRID_SIZE);
-					
-					_pathGrids[mapRow][mapCol] = new PathGrid(
-							_mapGrids[mapRow][mapCol]);
-				}
-			}		
+			// Everything except the robot is drawn onto an offscreen image,
+			// starting with a black background
+			_mapImage = new BufferedImage(Math.max(_mapWidth, 1),
+					Math.max(_mapHeight, 1), BufferedImage.TYPE_INT_RGB);
+			_renderSnapshot.store.markAllDirty();
 			
 			_bMeasured = true;
 		}
 		
-		// Clear the map
-		g.setColor(Color.BLACK);
-        g.fillRect(0, 0, _mapWidth, _mapHeight);
-        
-        Border border = BorderFactory.createLineBorder(
-				MapConstants.C_GRID_LINE, MapConstants.GRID_LINE_WEIGHT);
-        this.setBorder(border);
-        
-        // Paint the map grids
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++)
-		{
-			for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++)
-			{
-				g.setColor(MapConstants.C_GRID_LINE);
-				g.fillRect(_mapGrids[mapRow][mapCol].borderX,
-						_mapGrids[mapRow][mapCol].borderY,
-						_mapGrids[mapRow][mapCol].borderSize,
-						_mapGrids[mapRow][mapCol].borderSize);
-				
-				Color gridColor = null;
-				
-				// Determine what color to fill grid
-				if(isBorderWalls(mapRow, mapCol)) {
-					if(_grids[mapRow][mapCol].isObstacle())
-						gridColor = MapConstants.C_BORDER;
-					else
-						gridColor = MapConstants.C_BORDER_WARNING;
-				}
-				else if(_grids[mapRow][mapCol].isExplored())
-				{
-					if(isStartZone(mapRow, mapCol))
-						gridColor = MapConstants.C_START;
-					else if(isGoalZone(mapRow, mapCol))
-						gridColor = MapConstants.C_GOAL;
-					else if(_grids[mapRow][mapCol].isObstacle())
-						gridColor = MapConstants.C_OBSTACLE;
-					else
-						gridColor = MapConstants.C_FREE;
-				}
-				else
-				{
-					gridColor = MapConstants.C_UNEXPLORED;
-				}
-				
-				g.setColor(gridColor);
-				g.fillRect(_mapGrids[mapRow][mapCol].gridX,
-						_mapGrids[mapRow][mapCol].gridY,
-						_mapGrids[mapRow][mapCol].gridSize,
-						_mapGrids[mapRow][mapCol].gridSize);
-			}
-		} // End outer for loop
+		// Redraw the grids which have changed, then copy the image over
+		updateMapImage();
+		g.drawImage(_mapImage, 0, 0, null);
         
-		// Draw the traveled path
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setStroke(new BasicStroke(RobotConstants.PATH_THICKNESS));
+        // Gets information about the robot, as of the latest frame
+        int robotPosRow = _renderSnapshot.robotPosRow;
+        int robotPosCol = _renderSnapshot.robotPosCol;
+        DIRECTION robotDir = _renderSnapshot.robotDir;
         
-        if(_bShortestPath)
-        	g2.setColor(RobotConstants.C_SHORTEST_PATH);
-        else
-        	g2.setColor(RobotConstants.C_EXPLORE_PATH);
-        
-		for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-			for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-				if (_pathGrids[mapRow][mapCol].cE) {
-					g2.drawLine(_pathGrids[mapRow][mapCol].cX,
-							_pathGrids[mapRow][mapCol].cY,
-							_pathGrids[mapRow][mapCol].eX,
-							_pathGrids[mapRow][mapCol].eY);
-				}
-				if (_pathGrids[mapRow][mapCol].cN) {
-					g2.drawLine(_pathGrids[mapRow][mapCol].cX,
-							_pathGrids[mapRow][mapCol].cY,
-							_pathGrids[mapRow][mapCol].nX,
-							_pathGrids[mapRow][mapCol].nY);
-				}
-				if (_pathGrids[mapRow][mapCol].cS) {
-					g2.drawLine(_pathGrids[mapRow][mapCol].cX,
-							_pathGrids[mapRow][mapCol].cY,
-							_pathGrids[mapRow][mapCol].sX,
-							_pathGrids[mapRow][mapCol].sY);
-				}
-				if (_pathGrids[mapRow][mapCol].cW) {
-					g2.drawLine(_pathGrids[mapRow][mapCol].cX,
-							_pathGrids[mapRow][mapCol].cY,
-							_pathGrids[mapRow][mapCol].wX,
-							_pathGrids[mapRow][mapCol].wY);
-				}
-			}
-		}
-		
-		// For showing the truth values of each grid
-		if (_bDisplayTruthValues) {
-
-			Font gosuFont = new Font("Arial", Font.BOLD, 14);
-			g2.setFont(gosuFont);
-
-			for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-				for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-
-					g2.setColor(isBorderWalls(mapRow, mapCol) ? Color.WHITE
-							: Color.BLACK);
-					double truthValue = _grids[mapRow][mapCol].getTruthValue();
-					g2.drawString(String.format("%3.2f", truthValue),
-							_mapGrids[mapRow][mapCol].gridX + 5,
-							_mapGrids[mapRow][mapCol].gridY + 22);
-				}
-			}
-		}
-        
-        // Gets information about the robot
-        int robotPosRow = _robot.getRobotMapPosRow();
-        int robotPosCol = _robot.getRobotMapPosCol();        
-        DIRECTION robotDir = _robot.getRobotDir();
+        if (robotPosRow < 0 || robotPosCol < 0)
+        	return;
         
         // Draw the robot outline
 		g.setColor(RobotConstants.C_ROBOT_OUTLINE);
-		g.fillOval(_mapGrids[robotPosRow][robotPosCol].gridX,
-				_mapGrids[robotPosRow][robotPosCol].gridY,
+		g.fillOval(getGridX(robotPosCol), getGridY(robotPosRow),
 				_robotOutlineSize,
 				_robotOutlineSize);
 		
 		// Draw the robot
 		g.setColor(RobotConstants.C_ROBOT);
-		g.fillOval(_mapGrids[robotPosRow][robotPosCol].gridX + 5,
-				_mapGrids[robotPosRow][robotPosCol].gridY + 5,
+		g.fillOval(getGridX(robotPosCol) + 5, getGridY(robotPosRow) + 5,
 				_robotSize,
 				_robotSize);
 		
@@ -206,39 +189,407 @@ public class RobotMap extends Map {
 		calculateArrowPos(robotPosRow, robotPosCol, robotDir);
 		g.setColor(RobotConstants.C_ROBOT_FRONT);
 		g.fillPolygon(_arrowX, _arrowY, 3);
+		
+		_paintedRobotPosRow = robotPosRow;
+		_paintedRobotPosCol = robotPosCol;
         
-	} // End paintComponent
+	} // End paintRobotMap
+	
+	/**
+	 * Publishes a snapshot of the map, the path and the robot's position<p>
+	 * Called by the simulation thread after every step; otherwise, the robot
+	 * is stepped on the event dispatch thread and the snapshot is taken at
+	 * every frame
+	 * <p>
+	 * Only the grids which have changed since the back snapshot was last
+	 * filled in are copied, so publishing takes time in proportion to the
+	 * changes, not the size of the map
+	 */
+	public void publishSnapshot() {
+		
+		if (_robot == null)
+			return;
+		
+		synchronized (_publishLock) {
+			
+			if (_backSnapshot == null)
+				createSnapshots();
+			
+			_publishedGrids.clear();
+			_store.takeDirty(_publishedGrids);
+			_backStaleGrids.addAll(_publishedGrids);
+			
+			// Fill in the back snapshot, while the front one may be read
+			Snapshot snapshot = _backSnapshot;
+			snapshot.store.copyFrom(_store, _backStaleGrids);
+			
+			for (int i = 0; i < _backStaleGrids.getNoOfWords(); i++) {
+				int word = _backStaleGrids.getWord(i);
+				long grids = _backStaleGrids.getBits(word);
+				while (grids != 0) {
+					int gridIndex = (word << 6) + Long.numberOfTrailingZeros(grids);
+					grids &= grids - 1;
+					
+					snapshot.paths[gridIndex] = _paths[gridIndex];
+				}
+			}
+			
+			snapshot.bShortestPath = _bShortestPath;
+			snapshot.robotPosRow = _robot.getRobotMapPosRow();
+			snapshot.robotPosCol = _robot.getRobotMapPosCol();
+			snapshot.robotDir = _robot.getRobotDir();
+			
+			synchronized (_snapshotLock) {
+				_backSnapshot = _frontSnapshot;
+				_frontSnapshot = snapshot;
+				_bNewSnapshot = true;
+				
+				// The old front snapshot is now missing the latest changes,
+				// and so is the rendered snapshot
+				_backStaleGrids.clear();
+				_backStaleGrids.addAll(_publishedGrids);
+				_renderStaleGrids.addAll(_publishedGrids);
+			}
+		}
+	}
+	
+	/**
+	 * Creates the snapshots, before the first one is published<br>
+	 * Every grid differs from the map until then
+	 */
+	private void createSnapshots() {
+		
+		int noOfGrids = _rows * _cols;
+		_publishedGrids = new GridSet(noOfGrids);
+		_backStaleGrids = new GridSet(noOfGrids);
+		_backStaleGrids.addAll();
+		
+		synchronized (_snapshotLock) {
+			_backSnapshot = new Snapshot(_rows, _cols);
+			_frontSnapshot = new Snapshot(_rows, _cols);
+			_renderStaleGrids = new GridSet(noOfGrids);
+			_renderStaleGrids.addAll();
+		}
+	}
+	
+	/**
+	 * Renders the latest snapshot, once per frame
+	 */
+	private void renderFrame() {
+		
+		if (_robot != null && !_robot.isSimulationRunning())
+			publishSnapshot();
+		
+		if (takeSnapshot())
+			repaintChanged();
+	}
+	
+	/**
+	 * Copies the front snapshot into the rendered snapshot, marking the grids
+	 * which have changed as dirty
+	 * 
+	 * @return True if there was a new snapshot
+	 */
+	private boolean takeSnapshot() {
+		
+		synchronized (_snapshotLock) {
+			
+			if (!_bNewSnapshot)
+				return false;
+			
+			if (_renderSnapshot == null)
+				_renderSnapshot = new Snapshot(_rows, _cols);
+			
+			Snapshot snapshot = _frontSnapshot;
+			_renderSnapshot.store.copyFrom(snapshot.store, _renderStaleGrids);
+			
+			for (int i = 0; i < _renderStaleGrids.getNoOfWords(); i++) {
+				int word = _renderStaleGrids.getWord(i);
+				long grids = _renderStaleGrids.getBits(word);
+				while (grids != 0) {
+					int gridIndex = (word << 6) + Long.numberOfTrailingZeros(grids);
+					grids &= grids - 1;
+					
+					if (_renderSnapshot.paths[gridIndex] != snapshot.paths[gridIndex]) {
+						_renderSnapshot.paths[gridIndex] = snapshot.paths[gridIndex];
+						_renderSnapshot.store.markDirty(gridIndex);
+					}
+				}
+			}
+			_renderStaleGrids.clear();
+			
+			// The colour of the whole path changes
+			if (_renderSnapshot.bShortestPath != snapshot.bShortestPath) {
+				_renderSnapshot.bShortestPath = snapshot.bShortestPath;
+				_renderSnapshot.store.markAllDirty();
+			}
+			
+			_renderSnapshot.robotPosRow = snapshot.robotPosRow;
+			_renderSnapshot.robotPosCol = snapshot.robotPosCol;
+			_renderSnapshot.robotDir = snapshot.robotDir;
+			
+			_bNewSnapshot = false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Marks a grid as changed, e.g. when the path through it changes
+	 */
+	public void markGridDirty(int mapRow, int mapCol) {
+		_store.markDirty(_store.indexOf(mapRow, mapCol));
+	}
+	
+	/**
+	 * Requests a repaint of only the grids which have changed since the last
+	 * paint, and of where the robot was & is now
+	 */
+	private void repaintChanged() {
+		
+		if (!_bMeasured) {
+			repaint();
+			return;
+		}
+		
+		GridSet dirtyGrids = _renderSnapshot.store.getDirty();
+		for (int i = 0; i < dirtyGrids.getNoOfWords(); i++) {
+			int word = dirtyGrids.getWord(i);
+			long grids = dirtyGrids.getBits(word);
+			while (grids != 0) {
+				int gridIndex = (word << 6) + Long.numberOfTrailingZeros(grids);
+				grids &= grids - 1;
+				
+				repaint(getBorderX(gridIndex % _cols),
+						getBorderY(gridIndex / _cols), MapConstants.GRID_SIZE,
+						MapConstants.GRID_SIZE);
+			}
+		}
+		
+		repaintRobot(_paintedRobotPosRow, _paintedRobotPosCol);
+		repaintRobot(_renderSnapshot.robotPosRow, _renderSnapshot.robotPosCol);
+	}
+	
+	private void repaintRobot(int robotPosRow, int robotPosCol) {
+		
+		if (robotPosRow < 0 || robotPosCol < 0)
+			return;
+		
+		int robotAreaSize = MapConstants.GRID_SIZE * RobotConstants.ROBOT_SIZE;
+		repaint(getBorderX(robotPosCol), getBorderY(robotPosRow),
+				robotAreaSize, robotAreaSize);
+	}
+	
+	/**
+	 * Redraws the dirty grids onto the offscreen image<p>
+	 * Each grid is redrawn in full, including the parts of the path & the
+	 * truth values of its neighbours which spill over into it
+	 */
+	private void updateMapImage() {
+		
+		GridStore store = _renderSnapshot.store;
+		GridSet dirtyGrids = store.getDirty();
+		if (dirtyGrids.isEmpty())
+			return;
+		
+		Graphics2D g2 = _mapImage.createGraphics();
+		g2.setStroke(PATH_STROKE);
+		
+		for (int i = 0; i < dirtyGrids.getNoOfWords(); i++) {
+			int word = dirtyGrids.getWord(i);
+			long grids = dirtyGrids.getBits(word);
+			while (grids != 0) {
+				int gridIndex = (word << 6) + Long.numberOfTrailingZeros(grids);
+				grids &= grids - 1;
+				
+				updateGridImage(g2, store, gridIndex);
+			}
+		}
+		
+		g2.dispose();
+		store.clearDirty();
+	}
+	
+	/**
+	 * Redraws a single grid onto the offscreen image
+	 */
+	private void updateGridImage(Graphics2D g2, GridStore store, int gridIndex) {
+		
+		int mapRow = gridIndex / _cols;
+		int mapCol = gridIndex % _cols;
+		int borderX = getBorderX(mapCol);
+		int borderY = getBorderY(mapRow);
+		
+		g2.setClip(borderX, borderY, MapConstants.GRID_SIZE,
+				MapConstants.GRID_SIZE);
+		
+		g2.setColor(MapConstants.C_GRID_LINE);
+		g2.fillRect(borderX, borderY, MapConstants.GRID_SIZE,
+				MapConstants.GRID_SIZE);
+		
+		g2.setColor(getGridColor(store, mapRow, mapCol, gridIndex));
+		g2.fillRect(getGridX(mapCol), getGridY(mapRow), GRID_INNER_SIZE,
+				GRID_INNER_SIZE);
+			
+		// Draw the traveled path
+		g2.setColor(_renderSnapshot.bShortestPath ? RobotConstants.C_SHORTEST_PATH
+				: RobotConstants.C_EXPLORE_PATH);
+		for (int row = mapRow - 1; row <= mapRow + 1; row++) {
+			for (int col = mapCol - 1; col <= mapCol + 1; col++) {
+				if (row >= 0 && row < _rows && col >= 0
+						&& col < _cols) {
+					drawPath(g2, row, col,
+							_renderSnapshot.paths[store.indexOf(row, col)]);
+				}
+			}
+		}
+		
+		// For showing the truth values of each grid
+		if (_bDisplayTruthValues) {
+			for (int row = mapRow - 1; row <= mapRow + 1; row++) {
+				for (int col = mapCol - 1; col <= mapCol + 1; col++) {
+					if (row >= 0 && row < _rows && col >= 0
+							&& col < _cols) {
+						g2.drawImage(getTruthValueImage(store, row, col),
+								getBorderX(col), getBorderY(row), null);
+					}
+				}
+			}
+		}
+	}
+	
+	private Color getGridColor(GridStore store, int mapRow, int mapCol,
+			int gridIndex) {
+		
+		if(isBorderWalls(mapRow, mapCol)) {
+			if(store.isObstacle(gridIndex))
+				return MapConstants.C_BORDER;
+			else
+				return MapConstants.C_BORDER_WARNING;
+		}
+		else if(store.isExplored(gridIndex))
+		{
+			if(isStartZone(mapRow, mapCol))
+				return MapConstants.C_START;
+			else if(isGoalZone(mapRow, mapCol))
+				return MapConstants.C_GOAL;
+			else if(store.isObstacle(gridIndex))
+				return MapConstants.C_OBSTACLE;
+			else
+				return MapConstants.C_FREE;
+		}
+		else
+		{
+			return MapConstants.C_UNEXPLORED;
+		}
+	}
+	
+	/**
+	 * Draws the path from the centre of a grid to the middle of its sides
+	 */
+	private static void drawPath(Graphics2D g2, int mapRow, int mapCol,
+			byte paths) {
+		
+		int halfGridSize = MapConstants.GRID_SIZE / 2;
+		int borderX = getBorderX(mapCol);
+		int borderY = getBorderY(mapRow);
+		int cX = borderX + halfGridSize;
+		int cY = borderY + halfGridSize;
+		
+		if ((paths & PATH_E) != 0)
+			g2.drawLine(cX, cY, borderX + MapConstants.GRID_SIZE, cY);
+		if ((paths & PATH_N) != 0)
+			g2.drawLine(cX, cY, cX, borderY);
+		if ((paths & PATH_S) != 0)
+			g2.drawLine(cX, cY, cX, borderY + MapConstants.GRID_SIZE);
+		if ((paths & PATH_W) != 0)
+			g2.drawLine(cX, cY, borderX, cY);
+	}
+	
+	// Where a grid is drawn, including its grid lines
+	private static int getBorderX(int mapCol) {
+		return mapCol * MapConstants.GRID_SIZE;
+	}
+	
+	private static int getBorderY(int mapRow) {
+		return mapRow * MapConstants.GRID_SIZE;
+	}
+	
+	// Where a grid is drawn, within its grid lines
+	private static int getGridX(int mapCol) {
+		return getBorderX(mapCol) + MapConstants.GRID_LINE_WEIGHT;
+	}
+	
+	private static int getGridY(int mapRow) {
+		return getBorderY(mapRow) + MapConstants.GRID_LINE_WEIGHT;
+	}
+	
+	/**
+	 * Gets the pre-rendered truth value of a grid, transparent except for the
+	 * text<p>
+	 * The image is two grids wide, as the text may spill over into the next grid
+	 */
+	private BufferedImage getTruthValueImage(GridStore store, int mapRow,
+			int mapCol) {
+		
+		boolean bBorderWalls = isBorderWalls(mapRow, mapCol);
+		float truthValue = store.getTruthValue(store.indexOf(mapRow, mapCol));
+		
+		// Truth values are shown to 2 decimal places
+		int key = (int) Math.round(truthValue * 100.0);
+		HashMap<Integer, BufferedImage> truthValueImages = bBorderWalls ? _borderTruthValueImages
+				: _truthValueImages;
+		
+		BufferedImage truthValueImage = truthValueImages.get(key);
+		if (truthValueImage == null) {
+			truthValueImage = new BufferedImage(MapConstants.GRID_SIZE * 2,
+					MapConstants.GRID_SIZE, BufferedImage.TYPE_INT_ARGB);
+			
+			Graphics2D g2 = truthValueImage.createGraphics();
+			g2.setFont(TRUTH_VALUE_FONT);
+			g2.setColor(bBorderWalls ? Color.WHITE : Color.BLACK);
+			g2.drawString(String.format("%3.2f", key / 100.0),
+					MapConstants.GRID_LINE_WEIGHT + 5,
+					MapConstants.GRID_LINE_WEIGHT + 22);
+			g2.dispose();
+			
+			truthValueImages.put(key, truthValueImage);
+		}
+		
+		return truthValueImage;
+	}
 	
 	/**
 	 * Resets the robot map such that all grids are unexplored!
 	 */
 	public void resetRobotMap() {
 		
-		for (int row = 0; row < MapConstants.MAP_ROWS; row++)
+		for (int row = 0; row < _rows; row++)
 		{
-			for (int col = 0; col < MapConstants.MAP_COLS; col++)
+			for (int col = 0; col < _cols; col++)
 			{
+				int index = _store.indexOf(row, col);
+
 				// Obstacle - Border walls
 				if(isBorderWalls(row, col))
 				{
-					_grids[row][col].resetGrid();
-					_grids[row][col].markAsObstacle(9.99);
-					_grids[row][col].setExplored(false);
+					_store.resetGrid(index);
+					_store.markAsObstacle(index, 9.99f);
+					_store.setExplored(index, false);
 				}
 				else if(isStartZone(row, col) || isGoalZone(row, col)) {
-					_grids[row][col].resetGrid();
-					_grids[row][col].markAsFreeGrid(9.99);
-					_grids[row][col].setExplored(false);
+					_store.resetGrid(index);
+					_store.markAsFreeGrid(index, 9.99f);
+					_store.setExplored(index, false);
 				}
 				else {
-					_grids[row][col].resetGrid();
+					_store.resetGrid(index);
 				}
 			}
 		}
 		
 		// Clear all path information
-		if(_pathGrids != null)
-			resetPathGrids();
+		resetPathGrids();
 		
 		// Reset status
 		_bShortestPath = false;
@@ -248,52 +599,24 @@ public class RobotMap extends Map {
 	 * Generate MDF string for Part 1
 	 */
 	public String generateMDFStringPart1() {
-		
-		String mapString = "11"; // First two bits set to 11
-		
-		for (int col = 1; col < (MapConstants.MAP_COLS - 1); col++)
-		{
-			for (int row = 1; row < (MapConstants.MAP_ROWS - 1); row++)
-			{
-				mapString += _grids[row][col].isExplored() ? "1" : "0";
-			}
-		}
-		
-		// Last two bits set to 11
-		return binaryToHex(mapString + "11");
+		return MDFCodec.encodePart1(_store);
 	}
 	
 	/**
 	 * Generate MDF string for Part 2
 	 */
 	public String generateMDFStringPart2() {
-		
-		String mapString = "";
-		
-		for (int col = 1; col < (MapConstants.MAP_COLS - 1); col++)
-		{
-			for (int row = 1; row < (MapConstants.MAP_ROWS - 1); row++)
-			{
-				if(_grids[row][col].isExplored())
-					mapString += _grids[row][col].isObstacle() ? "1" : "0";
-			}
-		}
-		
-		// Pad with '0' to make the length a multiple of 8
-		int mapStringLength = mapString.length();
-		int paddingLength = mapStringLength % 8;
-		
-		if(paddingLength != 0) {
-			
-			// Find the number of required bits
-			paddingLength = 8 - paddingLength;
-			
-			for(int i = 0; i < paddingLength; i++) {
-				mapString += "0";
-			}
-		}
-		
-		return binaryToHex(mapString);
+		return MDFCodec.encodePart2(_store);
+	}
+	
+	/**
+	 * Rebuilds the robot map from saved MDF strings
+	 * 
+	 * @param MDFString1 MDF string for Part 1
+	 * @param MDFString2 MDF string for Part 2
+	 */
+	public void loadFromMDFStrings(String MDFString1, String MDFString2) {
+		MDFCodec.decode(MDFString1, MDFString2, _store);
 	}
 	
 	public void setRobot(Robot robot) {
@@ -304,8 +627,51 @@ public class RobotMap extends Map {
 		_robotSize = _robotOutlineSize - 10;	
 	}
 	
-	public PathGrid [][] getPathGrids() {
-		return _pathGrids;
+	/**
+	 * Adds a move of the robot to the traveled path
+	 * 
+	 * @param fromRow
+	 *            Row of the robot before the move
+	 * @param fromCol
+	 *            Column of the robot before the move
+	 * @param toRow
+	 *            Row of the robot after the move
+	 * @param toCol
+	 *            Column of the robot after the move
+	 * @param dir
+	 *            Direction the robot is facing
+	 */
+	public void addPath(int fromRow, int fromCol, int toRow, int toCol,
+			DIRECTION dir) {
+		
+		byte fromPath;
+		byte toPath;
+		switch (dir) {
+		case NORTH:
+			fromPath = PATH_N;
+			toPath = PATH_S;
+			break;
+		case SOUTH:
+			fromPath = PATH_S;
+			toPath = PATH_N;
+			break;
+		case EAST:
+			fromPath = PATH_E;
+			toPath = PATH_W;
+			break;
+		default:
+			fromPath = PATH_W;
+			toPath = PATH_E;
+			break;
+		}
+		
+		int fromIndex = _store.indexOf(fromRow, fromCol);
+		int toIndex = _store.indexOf(toRow, toCol);
+		_paths[fromIndex] |= fromPath;
+		_paths[toIndex] |= toPath;
+		
+		_store.markDirty(fromIndex);
+		_store.markDirty(toIndex);
 	}
 	
 	public void setRenderingShortestPath(boolean bShortestPath) {
@@ -315,39 +681,9 @@ public class RobotMap extends Map {
 	
 	private void resetPathGrids() {
 		
-		if (_pathGrids != null) {
-			for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-				for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-					_pathGrids[mapRow][mapCol].cE = false;
-					_pathGrids[mapRow][mapCol].cN = false;
-					_pathGrids[mapRow][mapCol].cS = false;
-					_pathGrids[mapRow][mapCol].cW = false;
-				}
-			}
-		}
-	}
-	
-	private String binaryToHex(String binaryString) {
-		
-		int binStrLength = binaryString.length();
-		StringBuilder hexSb = new StringBuilder();
-		
-		for(int charIndex = 0; charIndex < binStrLength; charIndex += 4) {
-			
-			int value = 0;
-			if(binaryString.charAt(charIndex) == '1')
-				value += 8;
-			if(binaryString.charAt(charIndex + 1) == '1')
-				value += 4;
-			if(binaryString.charAt(charIndex + 2) == '1')
-				value += 2;
-			if(binaryString.charAt(charIndex + 3) == '1')
-				value += 1;
-			
-			hexSb.append(Integer.toHexString(value).toUpperCase());
-		}
-		
-		return hexSb.toString();
+		// The path may go through any grid
+		_store.markAllDirty();
+		Arrays.fill(_paths, (byte) 0);
 	}
 	
 	private void calculateArrowPos(int robotPosRow, int robotPosCol,
@@ -356,11 +692,11 @@ public class RobotMap extends Map {
 		int quarterRobotSize = _robotOutlineSize / 4;
 		int halfRobotSize = _robotOutlineSize / 2;
 		
-		int x1 = quarterRobotSize + _mapGrids[robotPosRow][robotPosCol].gridX;
-		int y1 = halfRobotSize + _mapGrids[robotPosRow][robotPosCol].gridY;
+		int x1 = quarterRobotSize + getGridX(robotPosCol);
+		int y1 = halfRobotSize + getGridY(robotPosRow);
 		
-		int x2 = halfRobotSize + _mapGrids[robotPosRow][robotPosCol].gridX;
-		int y2 = quarterRobotSize + _mapGrids[robotPosRow][robotPosCol].gridY;
+		int x2 = halfRobotSize + getGridX(robotPosCol);
+		int y2 = quarterRobotSize + getGridY(robotPosRow);
 		
 		int x3 = x1 + halfRobotSize;
 		int y3 = y1;
@@ -388,56 +724,26 @@ public class RobotMap extends Map {
 		}
 	}
 	
-	private class MapGrid {
-		public int borderX;
-		public int borderY;
-		public int borderSize;
-		
-		public int gridX;
-		public int gridY;
-		public int gridSize;
+	/**
+	 * The state of the map & the robot needed for rendering, at one point in
+	 * time<br>
+	 * The dirty flags of the store are only used by the rendered snapshot
+	 */
+	private static class Snapshot {
 		
-		public MapGrid(int borderX, int borderY, int borderSize) {
-			this.borderX = borderX;
-			this.borderY = borderY;
-			this.borderSize = borderSize;
-			
-			this.gridX = borderX + MapConstants.GRID_LINE_WEIGHT;
-			this.gridY = borderY + MapConstants.GRID_LINE_WEIGHT;
-			this.gridSize = borderSize - (MapConstants.GRID_LINE_WEIGHT * 2);
-		}
-	}
-	
-	public class PathGrid {
+		public final GridStore store;
 		
-		public int nX, nY;
-		public int eX, eY;
-		public int sX, sY;
-		public int wX, wY;
-		public int cX, cY;
+		// Directions of the path through each grid, PATH_N etc.
+		public final byte [] paths;
+		public boolean bShortestPath = false;
 		
-		public boolean cN, cE, cS, cW;
+		public int robotPosRow = -1;
+		public int robotPosCol = -1;
+		public DIRECTION robotDir = null;
 		
-		public PathGrid(MapGrid mapGrid) {
-			
-			int halfGridSize = mapGrid.borderSize / 2;
-			
-			this.nX = mapGrid.borderX + halfGridSize;
-			this.nY = mapGrid.borderY;
-			
-			this.eX = mapGrid.borderX + mapGrid.borderSize;
-			this.eY = mapGrid.borderY + halfGridSize;
-			
-			this.sX = mapGrid.borderX + halfGridSize;
-			this.sY = mapGrid.borderY + mapGrid.borderSize;
-			
-			this.wX = mapGrid.borderX;
-			this.wY = mapGrid.borderY + halfGridSize;
-			
-			this.cX = mapGrid.borderX + halfGridSize;
-			this.cY = mapGrid.borderY + halfGridSize;
-			
-			cN = cE = cS = cW = false;
+		public Snapshot(int rows, int cols) {
+			store = new GridStore(rows, cols);
+			paths = new byte[rows * cols];
 		}
 	}
 }
@@ -0,0 +1,239 @@
+package robot;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import leaderboard.CommMgr;
+import map.GridStore;
+
+/**
+ * Live counters & gauges of a robot's control loop, e.g. its steps, moves,
+ * path searches & sensing time
+ * <p>
+ * The robot always keeps count. Updating a counter is lock-free and does not
+ * create any objects; each robot has its own counters, so the robots of a
+ * batch run never contend for them. The gauges, e.g. the coverage & pose,
+ * are read from the robot when asked for.
+ * <p>
+ * Call {@link #register} to make the counters available to JMX clients, e.g.
+ * JConsole, under "robot:type=Robot,name=...".
+ */
+public class RobotMetrics implements RobotMetricsMBean {
+
+	private final Robot _robot;
+
+	private final AtomicLong _stepsExecuted = new AtomicLong();
+	private final AtomicLong _moves = new AtomicLong();
+	private final AtomicLong _turns = new AtomicLong();
+	private final AtomicLong _senseCount = new AtomicLong();
+	private final AtomicLong _senseTime = new AtomicLong();
+	private final AtomicLong _shortestPathSearches = new AtomicLong();
+	private final AtomicLong _shortestPathTime = new AtomicLong();
+	private final AtomicLong _nodesExpanded = new AtomicLong();
+	private final AtomicLong _paintCount = new AtomicLong();
+	private final AtomicLong _paintTime = new AtomicLong();
+	private final AtomicLong _reconnectAttempts = new AtomicLong();
+
+	// Name the metrics are registered under, null if not registered
+	private ObjectName _objectName = null;
+
+	RobotMetrics(Robot robot) {
+		_robot = robot;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, replacing any
+	 * metrics registered under the same name
+	 *
+	 * @param name
+	 *            Name of the robot, e.g. "Simulator"
+	 * @return True if the metrics have been registered
+	 */
+	public synchronized boolean register(String name) {
+
+		unregister();
+
+		try {
+			ObjectName objectName = new ObjectName("robot:type=Robot,name="
+					+ ObjectName.quote(name));
+
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(this, objectName);
+
+			_objectName = objectName;
+			return true;
+		} catch (JMException e) {
+			System.out.println("RobotMetrics -> Unable to register " + name
+					+ ": " + e);
+			return false;
+		}
+	}
+
+	public synchronized void unregister() {
+
+		if (_objectName == null)
+			return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					_objectName);
+		} catch (JMException e) {
+			System.out.println("RobotMetrics -> Unable to unregister "
+					+ _objectName + ": " + e);
+		}
+		_objectName = null;
+	}
+
+	void stepExecuted() {
+		_stepsExecuted.incrementAndGet();
+	}
+
+	void moved() {
+		_moves.incrementAndGet();
+	}
+
+	void turned() {
+		_turns.incrementAndGet();
+	}
+
+	/**
+	 * @param startTime
+	 *            System.nanoTime() before sensing
+	 */
+	void sensed(long startTime) {
+		_senseCount.incrementAndGet();
+		_senseTime.addAndGet(System.nanoTime() - startTime);
+	}
+
+	/**
+	 * @param startTime
+	 *            System.nanoTime() before the search
+	 * @param nodesExpanded
+	 *            Number of states expanded by the search
+	 */
+	void shortestPathSearched(long startTime, int nodesExpanded) {
+		_shortestPathSearches.incrementAndGet();
+		_shortestPathTime.addAndGet(System.nanoTime() - startTime);
+		if (nodesExpanded > 0)
+			_nodesExpanded.addAndGet(nodesExpanded);
+	}
+
+	/**
+	 * @param startTime
+	 *            System.nanoTime() before painting the robot map
+	 */
+	void painted(long startTime) {
+		_paintCount.incrementAndGet();
+		_paintTime.addAndGet(System.nanoTime() - startTime);
+	}
+
+	void reconnectAttempted() {
+		_reconnectAttempts.incrementAndGet();
+	}
+
+	@Override
+	public long getStepsExecuted() {
+		return _stepsExecuted.get();
+	}
+
+	@Override
+	public long getMoves() {
+		return _moves.get();
+	}
+
+	@Override
+	public long getTurns() {
+		return _turns.get();
+	}
+
+	@Override
+	public long getSenseCount() {
+		return _senseCount.get();
+	}
+
+	@Override
+	public long getSenseTime() {
+		return _senseTime.get();
+	}
+
+	@Override
+	public long getShortestPathSearches() {
+		return _shortestPathSearches.get();
+	}
+
+	@Override
+	public long getShortestPathTime() {
+		return _shortestPathTime.get();
+	}
+
+	@Override
+	public long getNodesExpanded() {
+		return _nodesExpanded.get();
+	}
+
+	@Override
+	public long getPaintCount() {
+		return _paintCount.get();
+	}
+
+	@Override
+	public long getPaintTime() {
+		return _paintTime.get();
+	}
+
+	@Override
+	public long getReconnectAttempts() {
+		return _reconnectAttempts.get();
+	}
+
+	@Override
+	public long getCalibrationsSent() {
+		return CommMgr.getCommMgr().getNoOfCalibrationsSent();
+	}
+
+	@Override
+	public long getMessagesSent() {
+		return CommMgr.getCommMgr().getNoOfMsgsSent();
+	}
+
+	@Override
+	public long getMessagesReceived() {
+		return CommMgr.getCommMgr().getNoOfMsgsReceived();
+	}
+
+	@Override
+	public double getCoverage() {
+
+		RobotMap robotMap = _robot.getRobotMap();
+		if (robotMap == null)
+			return 0;
+
+		GridStore store = robotMap.getGridStore();
+		if (store.getNoOfInteriorGrids() == 0)
+			return 0;
+
+		return 100.0 * store.getNoOfExploredInteriorGrids()
+				/ store.getNoOfInteriorGrids();
+	}
+
+	@Override
+	public int getPosRow() {
+		return _robot.getRobotMapPosRow();
+	}
+
+	@Override
+	public int getPosCol() {
+		return _robot.getRobotMapPosCol();
+	}
+
+	@Override
+	public String getDirection() {
+		return String.valueOf(_robot.getRobotDir());
+	}
+}
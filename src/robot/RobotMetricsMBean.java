@@ -0,0 +1,49 @@
+package robot;
+
+/**
+ * Live counters & gauges of a robot's control loop, for JMX clients such as
+ * JConsole, see {@link RobotMetrics}
+ * <p>
+ * Counters only ever increase, from the creation of the robot. Times are in
+ * nanoseconds.
+ */
+public interface RobotMetricsMBean {
+
+	long getStepsExecuted();
+
+	long getMoves();
+
+	long getTurns();
+
+	long getSenseCount();
+
+	long getSenseTime();
+
+	long getShortestPathSearches();
+
+	long getShortestPathTime();
+
+	long getNodesExpanded();
+
+	long getPaintCount();
+
+	long getPaintTime();
+
+	long getReconnectAttempts();
+
+	/** Number of calibrations in the messages sent to the Arduino */
+	long getCalibrationsSent();
+
+	long getMessagesSent();
+
+	long getMessagesReceived();
+
+	/** Percentage of the interior grids the robot has explored */
+	double getCoverage();
+
+	int getPosRow();
+
+	int getPosCol();
+
+	String getDirection();
+}
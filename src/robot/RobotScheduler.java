@@ -0,0 +1,322 @@
+package robot;
+
+import java.util.PriorityQueue;
+
+/**
+ * Steps the robot's legs, e.g. the exploration or the shortest path, from a
+ * single queue of timestamped ticks
+ * <p>
+ * Every leg ticks once per step interval, which is based on the robot's
+ * steps per second:<br>
+ * A leg started from a tick, e.g. when one leg hands over to the next, first
+ * ticks one interval after that tick; a leg started from anywhere else, e.g.
+ * a button, first ticks straight away.<br>
+ * Each tick is due one interval after the leg's previous tick was due, so if
+ * the ticks fall behind, the late ticks are run back to back instead of
+ * being skipped.<br>
+ * Ticks due at the same time are run in the order of the legs, see
+ * {@link LEG}.
+ * <p>
+ * In wall-clock mode, the ticks are run at their due time on the
+ * scheduler's own thread, which is started when a leg starts and finishes
+ * once there are no more legs. In virtual-time mode, the clock jumps
+ * straight to the next tick, and the ticks are run by calling
+ * {@link #runNext()}, as fast as the caller likes.
+ */
+class RobotScheduler {
+
+	/**
+	 * The legs, in the order their ticks are run when due at the same time
+	 */
+	enum LEG {
+		EXPLORE, PHYSICAL_EXPLORE, EXPLORE_UNEXPLORED, PHYSICAL_SHORTEST_PATH, SHORTEST_PATH
+	}
+
+	/**
+	 * The next tick of a leg
+	 */
+	private static class Event implements Comparable<Event> {
+
+		private final LEG _leg;
+		private final Runnable _tick;
+		private long _time;
+
+		private Event(LEG leg, Runnable tick, long time) {
+			_leg = leg;
+			_tick = tick;
+			_time = time;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			if (_time != other._time)
+				return (_time < other._time) ? -1 : 1;
+			return _leg.compareTo(other._leg);
+		}
+	}
+
+	private final String _name;
+	private final boolean _bVirtualTime;
+
+	// Time between two ticks of a leg (in nanoseconds)
+	private long _stepInterval;
+
+	private final PriorityQueue<Event> _queue = new PriorityQueue<Event>();
+
+	// Next tick of each leg, null if the leg is not active
+	private final Event[] _legs = new Event[LEG.values().length];
+
+	// Tick being run, and the thread running it
+	private Event _current = null;
+	private Thread _currentThread = null;
+
+	// Time of the last tick run, for virtual-time mode (in nanoseconds)
+	private long _virtualTime = 0;
+
+	// Runs the ticks in wall-clock mode, null while there are no legs
+	private Thread _thread = null;
+
+	/**
+	 * @param name
+	 *            Name of the scheduler's thread
+	 * @param bVirtualTime
+	 *            True to run the ticks in virtual time, by calling
+	 *            {@link #runNext()}
+	 * @param stepsPerSecond
+	 *            The number of ticks of a leg per second
+	 */
+	RobotScheduler(String name, boolean bVirtualTime, int stepsPerSecond) {
+		_name = name;
+		_bVirtualTime = bVirtualTime;
+		setStepsPerSecond(stepsPerSecond);
+	}
+
+	boolean isVirtualTime() {
+		return _bVirtualTime;
+	}
+
+	/**
+	 * Changes the pace of the legs, from the next tick of each leg onwards
+	 */
+	synchronized void setStepsPerSecond(int stepsPerSecond) {
+		_stepInterval = 1000000000L / Math.max(stepsPerSecond, 1);
+	}
+
+	/**
+	 * Gets the time between two ticks of a leg
+	 *
+	 * @return The step interval, in milliseconds
+	 */
+	synchronized int getStepIntervalMillis() {
+		return (int) (_stepInterval / 1000000L);
+	}
+
+	/**
+	 * Starts a leg, replacing the leg if it is already active
+	 *
+	 * @param leg
+	 *            The leg to start
+	 * @param tick
+	 *            Performs one step of the leg
+	 */
+	synchronized void start(LEG leg, Runnable tick) {
+
+		stop(leg);
+
+		long time = (_current != null && Thread.currentThread() == _currentThread) ? (_current._time + _stepInterval)
+				: now();
+
+		Event event = new Event(leg, tick, time);
+		_legs[leg.ordinal()] = event;
+		_queue.add(event);
+
+		if (!_bVirtualTime && _thread == null) {
+			_thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					runWallClock();
+				}
+			}, _name);
+			_thread.setDaemon(true);
+			_thread.start();
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Stops a leg, which does nothing if the leg is not active<br>
+	 * A leg may stop itself during its own tick
+	 */
+	synchronized void stop(LEG leg) {
+
+		Event event = _legs[leg.ordinal()];
+		if (event != null) {
+			_queue.remove(event);
+			_legs[leg.ordinal()] = null;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Stops every leg, and waits for the tick being run to finish, unless
+	 * called from that tick
+	 */
+	synchronized void stopAll() {
+
+		for (LEG leg : LEG.values())
+			stop(leg);
+
+		while (_current != null && Thread.currentThread() != _currentThread) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	synchronized boolean isActive(LEG leg) {
+		return _legs[leg.ordinal()] != null;
+	}
+
+	/**
+	 * Checks if the scheduler's own thread is running the ticks, i.e. in
+	 * wall-clock mode while there are any legs
+	 */
+	synchronized boolean isRunning() {
+		return _thread != null;
+	}
+
+	/**
+	 * Runs the next tick, in virtual-time mode
+	 *
+	 * @return True if a tick was run, false if there are no legs
+	 */
+	boolean runNext() {
+
+		Event event;
+		synchronized (this) {
+			event = _queue.poll();
+			if (event == null)
+				return false;
+
+			begin(event);
+		}
+
+		run(event);
+		return true;
+	}
+
+	/**
+	 * Runs every tick due at the time of the next tick, in virtual-time mode,
+	 * i.e. one tick of every leg which is in step with the next one
+	 *
+	 * @return True if any tick was run, false if there are no legs
+	 */
+	boolean runAllDue() {
+
+		Event event;
+		synchronized (this) {
+			event = _queue.peek();
+			if (event == null)
+				return false;
+		}
+
+		long time = event._time;
+		while (true) {
+			synchronized (this) {
+				event = _queue.peek();
+				if (event == null || event._time != time)
+					return true;
+
+				_queue.poll();
+				begin(event);
+			}
+
+			run(event);
+		}
+	}
+
+	/**
+	 * Runs the ticks at their due time, until there are no more legs
+	 */
+	private void runWallClock() {
+
+		while (true) {
+			Event event;
+			synchronized (this) {
+				while (true) {
+					event = _queue.peek();
+					if (event == null || _thread != Thread.currentThread()) {
+						if (_thread == Thread.currentThread())
+							_thread = null;
+						notifyAll();
+						return;
+					}
+
+					long waitTime = event._time - System.nanoTime();
+					if (waitTime <= 0)
+						break;
+
+					try {
+						wait(waitTime / 1000000L, (int) (waitTime % 1000000L));
+					} catch (InterruptedException e) {
+						_thread = null;
+						return;
+					}
+				}
+
+				_queue.poll();
+				begin(event);
+			}
+
+			run(event);
+		}
+	}
+
+	private long now() {
+		return _bVirtualTime ? _virtualTime : System.nanoTime();
+	}
+
+	private void begin(Event event) {
+		_current = event;
+		_currentThread = Thread.currentThread();
+		if (_bVirtualTime)
+			_virtualTime = Math.max(_virtualTime, event._time);
+	}
+
+	/**
+	 * Runs a tick, then queues the leg's next tick, unless the leg has been
+	 * stopped or started again during the tick<br>
+	 * In wall-clock mode, a tick which throws is reported, and the leg keeps
+	 * going, same as with a Swing timer
+	 */
+	private void run(Event event) {
+
+		try {
+			event._tick.run();
+		} catch (RuntimeException e) {
+
+			// Whoever runs the ticks in virtual time deals with it instead
+			if (_bVirtualTime)
+				throw e;
+
+			System.out.println("RobotScheduler -> " + event._leg
+					+ " Exception: " + e);
+			e.printStackTrace();
+		} finally {
+			synchronized (this) {
+				_current = null;
+				_currentThread = null;
+
+				if (_legs[event._leg.ordinal()] == event) {
+					event._time += _stepInterval;
+					_queue.add(event);
+				}
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package robot;
+
+import java.util.Stack;
+
+import map.Grid;
+import map.GridStore;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * The original shortest path search, which scans the whole map for the grid
+ * with the best f value on every expansion
+ * <p>
+ * Replaced by {@link AStarPlanner}, only kept for the
+ * {@link PathPlannerBenchmark} to compare against.
+ */
+class ScanPathPlanner {
+
+	private final Robot _robot;
+	private final RobotMap _robotMap;
+	private final GridStore _store;
+
+	ScanPathPlanner(Robot robot) {
+		_robot = robot;
+		_robotMap = robot.getRobotMap();
+		_store = _robotMap.getGridStore();
+	}
+
+	/**
+	 * Finds the shortest path, like {@link AStarPlanner#findShortestPath}
+	 * 
+	 * @return A stack of grids with the starting grid on top and the end grid
+	 *         at the bottom, or null if there is no path
+	 */
+	Stack<Grid> findShortestPath(Grid startingGrid, Grid endingGrid,
+			DIRECTION dir) {
+
+		Grid endGrid = null;
+		Grid startGrid = startingGrid;
+
+		int endingGridRow = endingGrid.getRow();
+		int endingGridCol = endingGrid.getCol();
+
+		if (RobotFootprint.fits(_store, endingGridRow, endingGridCol)) {
+			endGrid = endingGrid;
+
+		} else {
+			endGrid = _robot.findReachableGrid(endingGrid);
+			if (endGrid == null)
+				return null;
+		}
+
+		Stack<Grid> shortestPath = new Stack<Grid>();
+		Stack<Grid> checkedGrids = new Stack<Grid>();
+
+		shortestPath.push(endGrid);
+		checkedGrids.push(startGrid);
+
+		Grid targetGrid = null;
+		Grid nextGrid = startGrid;
+		Grid[] neighbouringGrids = new Grid[4];
+
+		boolean bFoundShortestPath = false;
+		Stack<DIRECTION> currDir = new Stack<DIRECTION>();
+		currDir.push(dir);
+		// Array of direction on each grid that moves to it
+		// 1: east, 2: west, 4: south, 8: north;
+		int[][] gridDir = new int[_robotMap.getRows()][_robotMap.getCols()];
+		for (int i = 0; i < _robotMap.getRows(); i++) {
+			for (int j = 0; j < _robotMap.getCols(); j++) {
+				gridDir[i][j] = 0;
+			}
+		}
+
+		double[][] gValues = new double[_robotMap.getRows()][_robotMap.getCols()];
+
+		// Initialization of gValues array
+		for (int i = 0; i < _robotMap.getRows(); i++) {
+			for (int j = 0; j < _robotMap.getCols(); j++) {
+				if (_robotMap.getGrid(i, j).isObstacle() || _robotMap.isBorderWalls(i, j))
+					gValues[i][j] = Double.NEGATIVE_INFINITY;
+				else
+					gValues[i][j] = 0;
+			}
+		}
+
+		
+		// Start looking for the shortest path
+		while (!bFoundShortestPath) {
+
+			targetGrid = nextGrid;
+			int targetGridRow = targetGrid.getRow();
+			int targetGridCol = targetGrid.getCol();
+
+			/*
+			 * System.out.println("\t\ttargetGrid (row, col): " + targetGridRow
+			 * + ", " + targetGridCol);
+			 */
+
+			// The four direct neighbouring grids of targetGrid
+			// 0 - Eastern Grid, 1 - Western Grid
+			// 2 - Southern Grid, 3 - Northest Grid
+			neighbouringGrids[0] = _robotMap.getGrid(targetGrid.getRow(), targetGrid.getCol() + 1);
+			neighbouringGrids[1] = _robotMap.getGrid(targetGrid.getRow(), targetGrid.getCol() - 1);
+			neighbouringGrids[2] = _robotMap.getGrid(targetGrid.getRow() + 1, targetGrid
+					.getCol());
+			neighbouringGrids[3] = _robotMap.getGrid(targetGrid.getRow() - 1, targetGrid
+					.getCol());
+
+			for (int neighbourGridIndex = 0; neighbourGridIndex < 4; neighbourGridIndex++) {
+
+				int deltaG = 0;
+				if ((neighbourGridIndex == 0 && currDir
+						.contains(DIRECTION.EAST))
+						|| (neighbourGridIndex == 1 && currDir
+								.contains(DIRECTION.WEST))
+						|| (neighbourGridIndex == 2 && currDir
+								.contains(DIRECTION.SOUTH))
+						|| (neighbourGridIndex == 3 && currDir
+								.contains(DIRECTION.NORTH))) {
+
+					deltaG = RobotConstants.MOVE_COST;
+				} else {
+					deltaG = RobotConstants.MOVE_COST
+							+ RobotConstants.TURN_COST;
+				}
+
+				int neighbourGridRow = neighbouringGrids[neighbourGridIndex]
+						.getRow();
+				int neighbourGridCol = neighbouringGrids[neighbourGridIndex]
+						.getCol();
+
+				// If this grid has not been explored, give it an initial value
+				if (gValues[neighbourGridRow][neighbourGridCol] == 0) {
+
+					gValues[neighbourGridRow][neighbourGridCol] = gValues[targetGridRow][targetGridCol]
+							+ deltaG;
+				}
+				// Check if the new value is lesser than the currently assigned
+				// value
+				else if ((gValues[targetGridRow][targetGridCol] + deltaG) <
+						gValues[neighbourGridRow][neighbourGridCol]) {
+
+					gValues[neighbourGridRow][neighbourGridCol] = gValues[targetGridRow][targetGridCol]
+							+ deltaG;
+				}
+			}
+
+			// Keep startGrid gValue unchanged
+			gValues[startGrid.getRow()][startGrid.getCol()] = 0;
+
+			// Use minimum to find the next grid to go to
+			nextGrid = minimum(targetGrid, endGrid, checkedGrids, gValues);
+
+			// Determine the direct neighbours of the next grid
+			Grid[] nextGridNeighbours = new Grid[4];
+
+			// The four direct neighbouring grids of nextGrid
+			// 0 - Eastern Grid, 1 - Western Grid
+			// 2 - Southern Grid, 3 - Northest Grid
+			nextGridNeighbours[0] = _robotMap.getGrid(nextGrid.getRow(), nextGrid.getCol() + 1);
+			nextGridNeighbours[1] = _robotMap.getGrid(nextGrid.getRow(), nextGrid.getCol() - 1);
+			nextGridNeighbours[2] = _robotMap.getGrid(nextGrid.getRow() + 1, nextGrid
+					.getCol());
+			nextGridNeighbours[3] = _robotMap.getGrid(nextGrid.getRow() - 1, nextGrid
+					.getCol());
+
+			// Find the grid that it came from
+			double tempMin = Double.POSITIVE_INFINITY;
+			Stack<Grid> tempGrids = new Stack<Grid>();
+			for (Grid nextGridNeighbour : nextGridNeighbours) {
+				int nextGridNeighbourRow = nextGridNeighbour.getRow();
+				int nextGridNeighbourCol = nextGridNeighbour.getCol();
+
+				if ((tempMin > gValues[nextGrid.getRow()][nextGrid.getCol()]
+						- gValues[nextGridNeighbourRow][nextGridNeighbourCol])
+						&& (checkedGrids.contains(nextGridNeighbour))) {
+
+					if(gValues[nextGrid.getRow()][nextGrid.getCol()]
+							- gValues[nextGridNeighbourRow][nextGridNeighbourCol] 
+							== RobotConstants.MOVE_COST
+							||
+							gValues[nextGrid.getRow()][nextGrid.getCol()]
+							- gValues[nextGridNeighbourRow][nextGridNeighbourCol] 
+							== RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
+						tempMin = gValues[nextGrid.getRow()][nextGrid.getCol()]
+								- gValues[nextGridNeighbourRow][nextGridNeighbourCol];
+					
+					}
+				}
+			}
+			if (tempMin == RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
+				for (Grid nextGridNeighbour : nextGridNeighbours) {
+					int nextGridNeighbourRow = nextGridNeighbour.getRow();
+					int nextGridNeighbourCol = nextGridNeighbour.getCol();
+
+					if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
+							.getRow()][nextGrid.getCol()] - tempMin
+							&& checkedGrids.contains(nextGridNeighbour)) {
+						tempGrids.push(nextGridNeighbour);
+					}
+				}
+			} else if (tempMin == RobotConstants.MOVE_COST) {
+				for (Grid nextGridNeighbour : nextGridNeighbours) {
+					int nextGridNeighbourRow = nextGridNeighbour.getRow();
+					int nextGridNeighbourCol = nextGridNeighbour.getCol();
+
+					if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
+							.getRow()][nextGrid.getCol()] - tempMin
+							&& checkedGrids.contains(nextGridNeighbour)
+							&& (transI2D(gridDir[nextGridNeighbourRow][nextGridNeighbourCol]) == null
+							|| transI2D(
+									gridDir[nextGridNeighbourRow][nextGridNeighbourCol])
+									.contains(
+											getDirFromXToY(nextGridNeighbour,
+													nextGrid)))) {
+						tempGrids.push(nextGridNeighbour);
+					} else if (gValues[nextGridNeighbourRow][nextGridNeighbourCol] == gValues[nextGrid
+							.getRow()][nextGrid.getCol()] - 21
+							&& checkedGrids.contains(nextGridNeighbour)) {
+						tempGrids.push(nextGridNeighbour);
+					}
+				}
+			}
+
+			// Update the direction that the robot is currently facing
+			currDir.clear();
+			while (!tempGrids.isEmpty()) {
+				Grid tempGrid = tempGrids.pop();
+				if (tempGrid.getCol() != nextGrid.getCol()) {
+
+					currDir.push((tempGrid.getCol() - nextGrid.getCol() == -1) ? DIRECTION.EAST
+							: DIRECTION.WEST);
+					gridDir[nextGrid.getRow()][nextGrid.getCol()] += (tempGrid
+							.getCol() - nextGrid.getCol() == -1) ? 1 : 2;
+				} else if (tempGrid.getRow() != nextGrid.getRow()) {
+
+					currDir.push((tempGrid.getRow() - nextGrid.getRow() == -1) ? DIRECTION.SOUTH
+							: DIRECTION.NORTH);
+					gridDir[nextGrid.getRow()][nextGrid.getCol()] += (tempGrid
+							.getRow() - nextGrid.getRow() == -1) ? 4 : 8;
+				}
+			}
+			if (checkedGrids.contains(nextGrid)) {
+				return null;
+			}
+
+			checkedGrids.push(nextGrid);
+
+			if (checkedGrids.peek().equals(endGrid))
+				bFoundShortestPath = true;
+		}
+
+		// Generating actual shortest Path by tracing from end to start
+		Grid currentGrid = endGrid;
+		DIRECTION tempDir = currDir.peek();
+		while (!shortestPath.peek().equals(startGrid)) {
+
+			// Determine the direct neighbours of the current grid
+			Grid[] currGridNeighbours = new Grid[4];
+
+			// The four direct neighbouring grids of currentGrid
+			// 0 - Eastern Grid, 1 - Western Grid
+			// 2 - Southern Grid, 3 - Northest Grid
+			currGridNeighbours[0] = _robotMap.getGrid(currentGrid.getRow(), currentGrid
+					.getCol() + 1);
+			currGridNeighbours[1] = _robotMap.getGrid(currentGrid.getRow(), currentGrid
+					.getCol() - 1);
+			currGridNeighbours[2] = _robotMap.getGrid(currentGrid.getRow() + 1, currentGrid
+					.getCol());
+			currGridNeighbours[3] = _robotMap.getGrid(currentGrid.getRow() - 1, currentGrid
+					.getCol());
+
+			double tempMin = Double.POSITIVE_INFINITY;
+			Grid tempGrid = null;
+
+			for (Grid currGridNeighbour : currGridNeighbours) {
+				int currGridNeighbourRow = currGridNeighbour.getRow();
+				int currGridNeighbourCol = currGridNeighbour.getCol();
+
+				if ((tempMin > gValues[currentGrid.getRow()][currentGrid
+						.getCol()]
+						- gValues[currGridNeighbourRow][currGridNeighbourCol])
+						&& (checkedGrids.contains(currGridNeighbour))
+						&& gValues[currentGrid.getRow()][currentGrid.getCol()]
+								- gValues[currGridNeighbourRow][currGridNeighbourCol] > 0) {
+
+					if(gValues[currentGrid.getRow()][currentGrid.getCol()]
+							- gValues[currGridNeighbourRow][currGridNeighbourCol] 
+							== RobotConstants.MOVE_COST
+							||
+							gValues[currentGrid.getRow()][currentGrid.getCol()]
+							- gValues[currGridNeighbourRow][currGridNeighbourCol] 
+							== RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
+						tempMin = gValues[currentGrid.getRow()][currentGrid.getCol()]
+								- gValues[currGridNeighbourRow][currGridNeighbourCol];
+					
+					}
+				}
+			}
+
+			if (tempMin == RobotConstants.MOVE_COST + RobotConstants.TURN_COST) {
+				for (Grid currGridNeighbour : currGridNeighbours) {
+					int currGridNeighbourRow = currGridNeighbour.getRow();
+					int currGridNeighbourCol = currGridNeighbour.getCol();
+
+					if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
+							.getRow()][currentGrid.getCol()] - tempMin
+							&& checkedGrids.contains(currGridNeighbour)) {
+						tempGrid = currGridNeighbour;
+					}
+				}
+			} else if (tempMin == RobotConstants.MOVE_COST) {
+				for (Grid currGridNeighbour : currGridNeighbours) {
+					int currGridNeighbourRow = currGridNeighbour.getRow();
+					int currGridNeighbourCol = currGridNeighbour.getCol();
+
+					if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
+							.getRow()][currentGrid.getCol()] - tempMin
+							&& checkedGrids.contains(currGridNeighbour)
+							&& (transI2D(gridDir[currGridNeighbourRow][currGridNeighbourCol]) == null
+							|| transI2D(
+									gridDir[currGridNeighbourRow][currGridNeighbourCol])
+									.contains(
+											getDirFromXToY(currGridNeighbour,
+													currentGrid)))
+							&& tempDir == getDirFromXToY(currGridNeighbour,
+									currentGrid)) {
+						tempGrid = currGridNeighbour;
+					} else if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
+							.getRow()][currentGrid.getCol()] - 21
+							&& checkedGrids.contains(currGridNeighbour)) {
+						tempGrid = currGridNeighbour;
+					}
+				}
+
+				if (tempGrid == null) {
+					for (Grid currGridNeighbour : currGridNeighbours) {
+						int currGridNeighbourRow = currGridNeighbour.getRow();
+						int currGridNeighbourCol = currGridNeighbour.getCol();
+						if (gValues[currGridNeighbourRow][currGridNeighbourCol] == gValues[currentGrid
+								.getRow()][currentGrid.getCol()] - tempMin
+								&& checkedGrids.contains(currGridNeighbour)
+								&& (transI2D(gridDir[currGridNeighbourRow][currGridNeighbourCol]) == null
+								|| transI2D(
+										gridDir[currGridNeighbourRow][currGridNeighbourCol])
+										.contains(
+												getDirFromXToY(
+														currGridNeighbour,
+														currentGrid)))) {
+							tempGrid = currGridNeighbour;
+						}
+					}
+				}
+			}
+			if (tempGrid != null) {
+				shortestPath.push(tempGrid);
+			}
+
+			tempDir = getDirFromXToY(tempGrid, currentGrid);
+			currentGrid = tempGrid;
+		}
+
+		return shortestPath;
+	}
+
+	// Finds the grid with the best f value
+	private Grid minimum(Grid startingGrid, Grid endingGrid,
+			Stack<Grid> checkedGrids, double[][] gValues) {
+
+		Grid minimumGrid = startingGrid;
+		double minimumValue = Double.POSITIVE_INFINITY;
+
+		int startingGridRow = startingGrid.getRow();
+		int startingGridCol = startingGrid.getCol();
+
+		int endingGridRow = endingGrid.getRow();
+		int endingGridCol = endingGrid.getCol();
+
+		for (int currRow = 1; currRow < _robotMap.getRows() - 1; currRow++) {
+			for (int currCol = 1; currCol < _robotMap.getCols() - 1; currCol++) {
+
+				// hValue determined using the most direct path to the
+				// endingGrid
+				// 'without obstacles' and 'minimal number of turns'
+
+				double rowDifference = Math.abs(endingGridRow - currRow);
+				double colDifference = Math.abs(endingGridCol - currCol);
+
+				rowDifference *= rowDifference;
+				colDifference *= colDifference;
+
+				double hValue = Math.sqrt(rowDifference + colDifference);
+
+				if (gValues[currRow][currCol] > 0
+						&& (!checkedGrids.contains(_robotMap.getGrid(currRow, currCol)))
+						&& RobotFootprint.fits(_store, currRow, currCol)) {
+
+					if ((minimumValue > (gValues[currRow][currCol] + hValue) || ((minimumValue == (gValues[currRow][currCol] + hValue)) && (((currRow == startingGridRow) && (currCol == startingGridCol - 1 || currCol == startingGridCol + 1)) || ((currCol == startingGridCol) && (currRow == startingGridRow - 1 || currRow == startingGridRow + 1)))))) {
+
+						minimumValue = gValues[currRow][currCol] + hValue;
+						minimumGrid = _robotMap.getGrid(currRow, currCol);
+					}
+				}
+			}
+		}
+
+		return minimumGrid;
+	}
+
+	private DIRECTION getDirFromXToY(Grid x, Grid y) {
+		if (y.getRow() == x.getRow()) {
+			if (y.getCol() == x.getCol() + 1) {
+				return DIRECTION.EAST;
+			} else if (y.getCol() == x.getCol() - 1) {
+				return DIRECTION.WEST;
+			}
+		} else if (y.getCol() == x.getCol()) {
+			if (y.getRow() == x.getRow() + 1) {
+				return DIRECTION.SOUTH;
+			} else if (y.getRow() == x.getRow() - 1) {
+				return DIRECTION.NORTH;
+			}
+		}
+
+		// Shouldn't happen unless Grid x == Grid y
+		return null;
+	}
+
+	// Translate integer to direction
+	private Stack<DIRECTION> transI2D(int num) {
+		Stack<DIRECTION> dir = new Stack<DIRECTION>();
+		switch (num) {
+		case 0:
+			dir = null;
+			break;
+		case 1:
+			dir.push(DIRECTION.EAST);
+			break;
+		case 2:
+			dir.push(DIRECTION.WEST);
+			break;
+		case 3:
+			dir.push(DIRECTION.EAST);
+			dir.push(DIRECTION.WEST);
+			break;
+		case 4:
+			dir.push(DIRECTION.SOUTH);
+			break;
+		case 5:
+			dir.push(DIRECTION.EAST);
+			dir.push(DIRECTION.SOUTH);
+			break;
+		case 6:
+			dir.push(DIRECTION.WEST);
+			dir.push(DIRECTION.SOUTH);
+			break;
+		case 8:
+			dir.push(DIRECTION.NORTH);
+			break;
+		case 9:
+			dir.push(DIRECTION.EAST);
+			dir.push(DIRECTION.NORTH);
+			break;
+		case 10:
+			dir.push(DIRECTION.WEST);
+			dir.push(DIRECTION.NORTH);
+			break;
+		case 12:
+			dir.push(DIRECTION.SOUTH);
+			dir.push(DIRECTION.NORTH);
+			break;
+		}
+		return dir;
+	}
+}
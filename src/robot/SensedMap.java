@@ -0,0 +1,263 @@
+package robot;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Stack;
+
+import map.Grid;
+import map.GridStore;
+import robot.Robot.INSTRUCTION;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Read-only view of what the robot has sensed so far, for an
+ * {@link ExplorationStrategy} to decide on its next moves
+ * <p>
+ * Positions are the robot's top-left grid, the same as the robot's own
+ * position on the map, and every check covers the robot's whole footprint.
+ * Border walls count as walls, whether they have been sensed or not.
+ */
+public class SensedMap {
+
+	private final RobotMap _robotMap;
+	private final GridStore _store;
+
+	// Created on first use, as most strategies never plan a path
+	private AStarPlanner _planner = null;
+
+	public SensedMap(RobotMap robotMap) {
+		_robotMap = robotMap;
+		_store = robotMap.getGridStore();
+	}
+
+	public int getRows() {
+		return _store.getRows();
+	}
+
+	public int getCols() {
+		return _store.getCols();
+	}
+
+	public int indexOf(int row, int col) {
+		return _store.indexOf(row, col);
+	}
+
+	public boolean isExplored(int row, int col) {
+		return _store.isExplored(_store.indexOf(row, col));
+	}
+
+	public boolean isObstacle(int row, int col) {
+		return _store.isExploredObstacle(_store.indexOf(row, col));
+	}
+
+	public boolean isBorderWalls(int row, int col) {
+		return _robotMap.isBorderWalls(row, col);
+	}
+
+	/**
+	 * Checks if a grid is a known obstacle or a border wall
+	 */
+	public boolean isWall(int row, int col) {
+		return isObstacle(row, col) || isBorderWalls(row, col);
+	}
+
+	public int getGoalZoneRow() {
+		return _robotMap.getGoalZoneRow();
+	}
+
+	public int getGoalZoneCol() {
+		return _robotMap.getGoalZoneCol();
+	}
+
+	/**
+	 * Checks if a grid is within the goal zone<br>
+	 * The goal zone is known to be free, so it is only explored once the
+	 * robot has been there, not by the sensors
+	 */
+	public boolean isGoalZone(int row, int col) {
+		return _robotMap.isGoalZone(row, col);
+	}
+
+	public int getNoOfUnexploredInteriorGrids() {
+		return _store.getNoOfUnexploredInteriorGrids();
+	}
+
+	/**
+	 * Gets the next unexplored grid within the border walls, in row-major
+	 * order
+	 *
+	 * @return The grid index, or -1 if there are no more unexplored grids
+	 */
+	public int nextUnexploredInterior(int fromIndex) {
+		return _store.nextUnexploredInterior(fromIndex);
+	}
+
+	/**
+	 * Check for walls directly in front of the robot
+	 *
+	 * @return True if there is a wall/obstacle in front of the robot
+	 */
+	public boolean hasFrontWall(int row, int col, DIRECTION dir) {
+		return hasWall(row, col, dir);
+	}
+
+	/**
+	 * Check for walls on the left of the robot
+	 *
+	 * @return True if there is a wall/obstacle on the left of the robot
+	 */
+	public boolean hasLeftWall(int row, int col, DIRECTION dir) {
+		return hasWall(row, col, DIRECTION.getPrevious(dir));
+	}
+
+	/**
+	 * Check for walls on the right of the robot
+	 *
+	 * @return True if there is a wall/obstacle on the right of the robot
+	 */
+	public boolean hasRightWall(int row, int col, DIRECTION dir) {
+		return hasWall(row, col, DIRECTION.getNext(dir));
+	}
+
+	/**
+	 * Check if the robot is within the start zone, with all of the grids
+	 * under it explored
+	 */
+	public boolean isWithinStartZone(int row, int col) {
+		for (int mapRow = row; mapRow < row + RobotConstants.ROBOT_SIZE; mapRow++) {
+			for (int mapCol = col; mapCol < col + RobotConstants.ROBOT_SIZE; mapCol++) {
+				if (!isExplored(mapRow, mapCol)
+						|| !_robotMap.isStartZone(mapRow, mapCol))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the robot is within the goal zone, with all of the grids
+	 * under it explored
+	 */
+	public boolean isWithinGoalZone(int row, int col) {
+		for (int mapRow = row; mapRow < row + RobotConstants.ROBOT_SIZE; mapRow++) {
+			for (int mapCol = col; mapCol < col + RobotConstants.ROBOT_SIZE; mapCol++) {
+				if (!isExplored(mapRow, mapCol)
+						|| !_robotMap.isGoalZone(mapRow, mapCol))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the robot fits at the given position, i.e. within the arena,
+	 * and only on explored grids which are not obstacles
+	 */
+	public boolean fits(int row, int col) {
+		return RobotFootprint.fits(_store, row, col);
+	}
+
+	/**
+	 * Checks if the robot can move to the given position, i.e. within the
+	 * arena, and not on any known obstacles
+	 */
+	public boolean isSafe(int row, int col) {
+		return RobotFootprint.isSafe(_store, row, col);
+	}
+
+	/**
+	 * Finds the shortest path from the robot's pose to another position
+	 *
+	 * @param targetRow
+	 *            Row of the position to go to, which the robot must fit at
+	 * @param targetCol
+	 *            Column of the position to go to
+	 * @return The moves & turns along the path, empty if the robot is already
+	 *         there, or null if there is no path
+	 */
+	public Queue<INSTRUCTION> findPath(int row, int col, DIRECTION dir,
+			int targetRow, int targetCol) {
+
+		if (_planner == null)
+			_planner = new AStarPlanner(_robotMap);
+
+		Stack<Grid> path = _planner.findShortestPath(
+				_robotMap.getGrid(row, col),
+				_robotMap.getGrid(targetRow, targetCol), dir);
+		if (path == null)
+			return null;
+
+		Queue<INSTRUCTION> instructions = new ArrayDeque<INSTRUCTION>();
+		path.pop();
+		while (!path.isEmpty()) {
+			Grid nextGrid = path.pop();
+			DIRECTION nextDir = getDirection(nextGrid.getRow() - row,
+					nextGrid.getCol() - col);
+
+			addTurns(instructions, nextDir.ordinal() - dir.ordinal());
+			instructions.add(INSTRUCTION.MOVE_STRAIGHT);
+
+			row = nextGrid.getRow();
+			col = nextGrid.getCol();
+			dir = nextDir;
+		}
+
+		return instructions;
+	}
+
+	/**
+	 * Adds the turns to turn on the spot by a number of clockwise 90 degree
+	 * turns, i.e. a single left turn for 270 degrees
+	 */
+	public static void addTurns(Queue<INSTRUCTION> instructions,
+			int quarterTurns) {
+
+		switch (((quarterTurns % 4) + 4) % 4) {
+		case 1:
+			instructions.add(INSTRUCTION.TURN_RIGHT);
+			break;
+		case 2:
+			instructions.add(INSTRUCTION.TURN_RIGHT);
+			instructions.add(INSTRUCTION.TURN_RIGHT);
+			break;
+		case 3:
+			instructions.add(INSTRUCTION.TURN_LEFT);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Gets the direction of a move by one grid
+	 */
+	public static DIRECTION getDirection(int rowDifference, int colDifference) {
+		for (DIRECTION dir : DIRECTION.values()) {
+			if (dir.getDeltaRow() == Integer.signum(rowDifference)
+					&& dir.getDeltaCol() == Integer.signum(colDifference))
+				return dir;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks for walls along one face of the robot, e.g. NORTH for the grids
+	 * just above the robot
+	 */
+	private boolean hasWall(int row, int col, DIRECTION face) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		int wallRow = (face == DIRECTION.NORTH) ? row - 1
+				: (face == DIRECTION.SOUTH) ? row + robotSize : row;
+		int wallCol = (face == DIRECTION.WEST) ? col - 1
+				: (face == DIRECTION.EAST) ? col + robotSize : col;
+		boolean bAlongRow = (face == DIRECTION.NORTH || face == DIRECTION.SOUTH);
+
+		for (int i = 0; i < robotSize; i++) {
+			if (bAlongRow ? isWall(wallRow, wallCol + i) : isWall(wallRow + i,
+					wallCol))
+				return true;
+		}
+		return false;
+	}
+}
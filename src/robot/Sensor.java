@@ -2,9 +2,9 @@ package robot;
 
 import java.io.Serializable;
 
-import map.Grid;
+import map.GridStore;
 import map.Map;
-import map.MapConstants;
+import map.RealMap;
 import robot.RobotConstants.DIRECTION;
 
 public class Sensor implements Serializable {
@@ -108,55 +108,109 @@ public class Sensor implements Serializable {
 	 */
 	public int sense(final Map map) {
 		
-		final Grid [][] mapGrids = map.getMapGrids();
+		final GridStore store = map.getGridStore();
 		
+		// Number of grids between the sensor and the edge of the map,
+		// and the change in index for each grid in the sensor's direction
+		int gridsToEdge = 0;
+		int indexStep = 0;
+		switch (_sensorDirection) {
+		case NORTH:
+			gridsToEdge = _sensorPosRow;
+			indexStep = -store.getCols();
+			break;
+		case SOUTH:
+			gridsToEdge = (store.getRows() - 1) - _sensorPosRow;
+			indexStep = store.getCols();
+			break;
+		case EAST:
+			gridsToEdge = (store.getCols() - 1) - _sensorPosCol;
+			indexStep = 1;
+			break;
+		case WEST:
+			gridsToEdge = _sensorPosCol;
+			indexStep = -1;
+			break;
+		}
+		
+		int index = store.indexOf(_sensorPosRow, _sensorPosCol)
+				+ (_minRange * indexStep);
 		for (int currGrid = _minRange; currGrid <= _maxRange; currGrid++) {
-			switch (_sensorDirection) {
 			
-			case NORTH:
-				//System.out.println("Checking " + (_sensorPosRow - currGrid) + ", " + _sensorPosCol + ".. ");
-				// Reached top limit of map without detecting any obstacle
-				if((_sensorPosRow - currGrid) < 0)
-					return currGrid;
-				else if(mapGrids[_sensorPosRow - currGrid][_sensorPosCol].isObstacle())
-					return currGrid - 1; // Return number of free grids for this direction
-				break;
-
-			case SOUTH:
-				//System.out.println("Checking " + (_sensorPosRow + currGrid) + ", " + _sensorPosCol + ".. ");
-				// Reached bottom limit of map without detecting any obstacle
-				if((_sensorPosRow + currGrid) > (MapConstants.MAP_ROWS - 1))
-					return currGrid;
-				else if(mapGrids[_sensorPosRow + currGrid][_sensorPosCol].isObstacle())
-					return currGrid - 1; // Return number of free grids for this direction
-				break;
-				
-			case EAST:
-				//System.out.println("Checking " + _sensorPosRow + ", " + (_sensorPosCol + currGrid) + ".. ");
-				// Reached right limit of map without detecting any obstacle
-				if((_sensorPosCol + currGrid) > (MapConstants.MAP_COLS - 1))
-					return currGrid;
-				else if(mapGrids[_sensorPosRow][_sensorPosCol + currGrid].isObstacle())
-					return currGrid - 1; // Return number of free grids for this direction
-				break;
-
-			case WEST:
-				//System.out.println("Checking " + _sensorPosRow + ", " + (_sensorPosCol - currGrid) + ".. ");
-				// Reached left limit of map without detecting any obstacle
-				if((_sensorPosCol - currGrid) < 0)
-					return currGrid;
-				else if(mapGrids[_sensorPosRow][_sensorPosCol - currGrid].isObstacle())
-					return currGrid - 1; // Return number of free grids for this direction
-				break;
-				
-			} // End switch
-		} // End for loop
+			// Reached the limit of map without detecting any obstacle
+			if (currGrid > gridsToEdge)
+				return currGrid;
+			else if (store.isObstacle(index))
+				return currGrid - 1; // Return number of free grids for this direction
+			
+			index += indexStep;
+		}
 		
 		// No obstacles detected within the sensor's maximum range
 		// Allow the robot to mark those grids as free
 		return _maxRange;
 	}
 	
+	/**
+	 * Same as {@link #sense(Map)}, using the real map's distance tables
+	 * <p>
+	 * The reading is a lookup of the distance to the nearest obstacle,
+	 * clamped to the sensor's minimum & maximum range.<br>
+	 * Obstacles closer than the minimum range are skipped by looking up the
+	 * distance from that obstacle to the next one.
+	 * 
+	 * @param realMap A read-only map passed in for sensing
+	 * 
+	 * @return Number of free grids in this direction
+	 */
+	public int sense(final RealMap realMap) {
+		
+		final GridStore store = realMap.getGridStore();
+		
+		int[] distances = null;
+		int gridsToEdge = 0;
+		int indexStep = 0;
+		switch (_sensorDirection) {
+		case NORTH:
+			distances = realMap.getNorthDistances();
+			gridsToEdge = _sensorPosRow;
+			indexStep = -store.getCols();
+			break;
+		case SOUTH:
+			distances = realMap.getSouthDistances();
+			gridsToEdge = (store.getRows() - 1) - _sensorPosRow;
+			indexStep = store.getCols();
+			break;
+		case EAST:
+			distances = realMap.getEastDistances();
+			gridsToEdge = (store.getCols() - 1) - _sensorPosCol;
+			indexStep = 1;
+			break;
+		case WEST:
+			distances = realMap.getWestDistances();
+			gridsToEdge = _sensorPosCol;
+			indexStep = -1;
+			break;
+		}
+		
+		int index = store.indexOf(_sensorPosRow, _sensorPosCol);
+		
+		// The sensor's own grid is only checked with a minimum range of 0
+		if (_minRange <= 0 && store.isObstacle(index))
+			return -1;
+		
+		// Skip obstacles that are lesser than the minimum range
+		int distance = distances[index];
+		while (distance < _minRange && distance <= gridsToEdge)
+			distance += distances[index + (distance * indexStep)];
+		
+		// Reached the limit of map without detecting any obstacle
+		if (distance > gridsToEdge)
+			return Math.min(_maxRange, Math.max(_minRange, gridsToEdge + 1));
+		
+		return (distance <= _maxRange) ? (distance - 1) : _maxRange;
+	}
+	
 	// Just for testing purposes
 	public void printSensorInfo() {
 		System.out.println("Sensor Position (row, col): " + _sensorPosRow
@@ -0,0 +1,133 @@
+package robot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import map.Map;
+import map.RealMap;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Compares sensing by walking the grids one at a time against sensing with
+ * the real map's distance tables
+ * <p>
+ * Every arena is sensed from every grid, in every direction, with a few
+ * different sensor ranges. The readings of both are checked to be the same.
+ * <p>
+ * Usage: SensorBenchmark [map file]...<br>
+ * Uses the Old_Arena_*.txt files in the working directory by default
+ */
+public class SensorBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 2000;
+	private static final int ITERATIONS = 5000;
+
+	// Minimum & maximum ranges of the sensors
+	private static final int[][] SENSOR_RANGES = { { 0, 4 }, { 1, 2 }, { 1, 3 },
+			{ 2, 5 }, { 3, 8 } };
+
+	public static void main(String[] args) throws IOException {
+
+		System.setProperty("java.awt.headless", "true");
+
+		File[] mapFiles = null;
+		if (args.length > 0) {
+			mapFiles = new File[args.length];
+			for (int i = 0; i < args.length; i++)
+				mapFiles[i] = new File(args[i]);
+		} else {
+			mapFiles = new File(".").listFiles(new FilenameFilter() {
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.startsWith("Old_Arena_") && name.endsWith(".txt");
+				}
+			});
+			Arrays.sort(mapFiles);
+		}
+
+		System.out.println(String.format("%-24s %9s %14s %14s %8s %10s",
+				"Arena", "Readings", "Loop (ns)", "Table (ns)", "Speedup",
+				"Mismatches"));
+
+		for (File mapFile : mapFiles) {
+			benchmark(mapFile);
+		}
+	}
+
+	private static void benchmark(File mapFile) throws IOException {
+
+		RealMap realMap = new RealMap();
+		try (BufferedReader br = new BufferedReader(new FileReader(mapFile))) {
+			realMap.loadFromMapString(br.readLine());
+		}
+
+		// Same map, seen only as a Map so that the loop is used
+		Map map = realMap;
+
+		List<Sensor> sensorList = new ArrayList<Sensor>();
+		for (int row = 0; row < map.getRows(); row++) {
+			for (int col = 0; col < map.getCols(); col++) {
+				for (DIRECTION dir : DIRECTION.values()) {
+					for (int[] range : SENSOR_RANGES) {
+						sensorList.add(new Sensor(range[0], range[1], row,
+								col, dir));
+					}
+				}
+			}
+		}
+		Sensor[] sensors = sensorList.toArray(new Sensor[sensorList.size()]);
+
+		int mismatches = 0;
+		for (Sensor s : sensors) {
+			if (s.sense(map) != s.sense(realMap))
+				mismatches++;
+		}
+
+		// Accumulate the readings so they cannot be optimized away
+		long checksum = 0;
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			checksum += senseAll(sensors, map);
+			checksum += senseAll(sensors, realMap);
+		}
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			checksum += senseAll(sensors, map);
+		}
+		long loopTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			checksum += senseAll(sensors, realMap);
+		}
+		long tableTime = System.nanoTime() - startTime;
+
+		long noOfReadings = (long) sensors.length * ITERATIONS;
+		System.out.println(String.format("%-24s %9d %14.2f %14.2f %7.1fx %10d%s",
+				mapFile.getName(), sensors.length,
+				(double) loopTime / noOfReadings,
+				(double) tableTime / noOfReadings,
+				(double) loopTime / tableTime, mismatches,
+				(checksum == 0) ? " " : ""));
+	}
+
+	private static long senseAll(Sensor[] sensors, Map map) {
+		long sum = 0;
+		for (Sensor s : sensors)
+			sum += s.sense(map);
+		return sum;
+	}
+
+	private static long senseAll(Sensor[] sensors, RealMap realMap) {
+		long sum = 0;
+		for (Sensor s : sensors)
+			sum += s.sense(realMap);
+		return sum;
+	}
+}
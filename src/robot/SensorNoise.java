@@ -0,0 +1,147 @@
+package robot;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Noise on the simulated sensor readings, to see how exploration holds up
+ * against the errors of the physical sensors
+ * <p>
+ * Each reading, i.e. the number of free grids a sensor sees, may be:<br>
+ * Dropped: the sensor sees no obstacle at all, and reads its maximum range<br>
+ * Off by the range error: normally distributed, with a standard deviation
+ * proportional to the distance to the obstacle<br>
+ * Off by one: one grid shorter or longer than it should be
+ * <p>
+ * The readings stay within the sensor's minimum & maximum range. The noise
+ * is drawn from a random number generator seeded up front, so the same seed
+ * gives the same readings for the same run.
+ */
+public class SensorNoise {
+
+	// Noise of every sensor without its own settings
+	public static final double DEFAULT_RANGE_ERROR = 0.1;
+	public static final double DEFAULT_DROPOUT_RATE = 0.01;
+	public static final double DEFAULT_OFF_BY_ONE_RATE = 0.02;
+
+	private final long _seed;
+	private final Random _random;
+
+	private final double _rangeError;
+	private final double _dropoutRate;
+	private final double _offByOneRate;
+
+	// Settings of individual sensors, by sensor index, null if not set
+	private double[][] _sensorSettings = new double[0][];
+
+	/**
+	 * Creates the noise model with the default settings for every sensor
+	 *
+	 * @param seed
+	 *            Seed of the random number generator
+	 */
+	public SensorNoise(long seed) {
+		this(seed, DEFAULT_RANGE_ERROR, DEFAULT_DROPOUT_RATE,
+				DEFAULT_OFF_BY_ONE_RATE);
+	}
+
+	/**
+	 * Creates the noise model with the same settings for every sensor
+	 *
+	 * @param seed
+	 *            Seed of the random number generator
+	 * @param rangeError
+	 *            Standard deviation of the error per grid of distance
+	 * @param dropoutRate
+	 *            Chance of a reading being dropped, [0, 1]
+	 * @param offByOneRate
+	 *            Chance of a reading being off by one grid, [0, 1]
+	 */
+	public SensorNoise(long seed, double rangeError, double dropoutRate,
+			double offByOneRate) {
+		_seed = seed;
+		_random = new Random(seed);
+
+		_rangeError = rangeError;
+		_dropoutRate = dropoutRate;
+		_offByOneRate = offByOneRate;
+	}
+
+	public long getSeed() {
+		return _seed;
+	}
+
+	public double getRangeError() {
+		return _rangeError;
+	}
+
+	public double getDropoutRate() {
+		return _dropoutRate;
+	}
+
+	public double getOffByOneRate() {
+		return _offByOneRate;
+	}
+
+	/**
+	 * Sets the noise of a single sensor, e.g. for the long range sensor
+	 *
+	 * @param sensorIndex
+	 *            Index of the sensor, in the robot's order of sensors
+	 */
+	public void setSensorNoise(int sensorIndex, double rangeError,
+			double dropoutRate, double offByOneRate) {
+
+		if (sensorIndex >= _sensorSettings.length)
+			_sensorSettings = Arrays.copyOf(_sensorSettings, sensorIndex + 1);
+
+		_sensorSettings[sensorIndex] = new double[] { rangeError,
+				dropoutRate, offByOneRate };
+	}
+
+	/**
+	 * Adds noise to a sensor reading
+	 *
+	 * @param sensorIndex
+	 *            Index of the sensor, in the robot's order of sensors
+	 * @param sensor
+	 *            The sensor, for its minimum & maximum range
+	 * @param freeGrids
+	 *            The actual number of free grids in the sensor's direction
+	 * @return The noisy number of free grids
+	 */
+	public int apply(int sensorIndex, Sensor sensor, int freeGrids) {
+
+		double rangeError = _rangeError;
+		double dropoutRate = _dropoutRate;
+		double offByOneRate = _offByOneRate;
+		if (sensorIndex < _sensorSettings.length
+				&& _sensorSettings[sensorIndex] != null) {
+			rangeError = _sensorSettings[sensorIndex][0];
+			dropoutRate = _sensorSettings[sensorIndex][1];
+			offByOneRate = _sensorSettings[sensorIndex][2];
+		}
+
+		int minRange = sensor.getMinRange();
+		int maxRange = sensor.getMaxRange();
+
+		// Every random number is drawn for every reading, so that the noise
+		// of one reading does not shift the noise of the readings after it
+		double dropout = _random.nextDouble();
+		double error = _random.nextGaussian();
+		double offByOne = _random.nextDouble();
+		boolean bLonger = _random.nextBoolean();
+
+		if (dropout < dropoutRate)
+			return maxRange;
+
+		// Error grows with the distance to the obstacle
+		int reading = freeGrids
+				+ (int) Math.round(error * rangeError * (freeGrids + 1));
+
+		if (offByOne < offByOneRate)
+			reading += bLonger ? 1 : -1;
+
+		return Math.max(minRange - 1, Math.min(maxRange, reading));
+	}
+}
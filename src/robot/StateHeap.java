@@ -0,0 +1,82 @@
+package robot;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of search states, ordered by an int priority
+ * <p>
+ * States are pushed again when their priority improves, instead of being
+ * updated in place, so callers have to skip states that have already been
+ * settled when they are popped.
+ */
+class StateHeap {
+
+	private int[] _states;
+	private int[] _priorities;
+	private int _size = 0;
+
+	StateHeap(int initialCapacity) {
+		_states = new int[Math.max(initialCapacity, 1)];
+		_priorities = new int[_states.length];
+	}
+
+	boolean isEmpty() {
+		return _size == 0;
+	}
+
+	void clear() {
+		_size = 0;
+	}
+
+	void push(int state, int priority) {
+
+		if (_size == _states.length) {
+			_states = Arrays.copyOf(_states, _size * 2);
+			_priorities = Arrays.copyOf(_priorities, _size * 2);
+		}
+
+		// Sift up
+		int index = _size++;
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (_priorities[parent] <= priority)
+				break;
+			_states[index] = _states[parent];
+			_priorities[index] = _priorities[parent];
+			index = parent;
+		}
+		_states[index] = state;
+		_priorities[index] = priority;
+	}
+
+	/**
+	 * Removes the state with the lowest priority
+	 *
+	 * @return The removed state
+	 */
+	int pop() {
+
+		int topState = _states[0];
+
+		int lastState = _states[--_size];
+		int lastPriority = _priorities[_size];
+
+		// Sift down
+		int index = 0;
+		int half = _size / 2;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < _size && _priorities[child + 1] < _priorities[child])
+				child++;
+			if (lastPriority <= _priorities[child])
+				break;
+			_states[index] = _states[child];
+			_priorities[index] = _priorities[child];
+			index = child;
+		}
+		_states[index] = lastState;
+		_priorities[index] = lastPriority;
+
+		return topState;
+	}
+}
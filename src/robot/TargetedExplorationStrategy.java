@@ -0,0 +1,268 @@
+package robot;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Queue;
+
+import robot.Robot.INSTRUCTION;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Base for strategies which pick an unexplored grid, and go to a position
+ * from which the robot's front sensors can see it, along the shortest path
+ * over the explored grids
+ * <p>
+ * The path is planned again once the target has been explored on the way,
+ * or the next move turns out to be blocked. Positions the robot cannot get
+ * to, or from which it still cannot sense the target once it is there, are
+ * left out from then on.
+ * <p>
+ * The goal zone can only be explored by driving into it, so once there are
+ * no targets left, the robot drives into the goal zone if it has not been
+ * there yet. The strategy is done after that.
+ */
+public abstract class TargetedExplorationStrategy implements
+		ExplorationStrategy {
+
+	// Distance (in grids) from the robot within which all of the front
+	// sensors can see
+	protected static final int VIEW_RANGE = 2;
+
+	// Moves left to get to the current target, null if there is none
+	private Queue<INSTRUCTION> _plan = null;
+	private int _targetRow = -1;
+	private int _targetCol = -1;
+	private int _viewRow = -1;
+	private int _viewCol = -1;
+
+	// True while driving into the goal zone, which is explored on the way in
+	private boolean _bEnteringGoalZone = false;
+
+	// Grid indices of the positions which are left out
+	private final BitSet _ignoredViewpoints = new BitSet();
+
+	/**
+	 * An unexplored grid, and the position to sense it from
+	 */
+	protected static class Target {
+		private final int _row;
+		private final int _col;
+		private final int _viewRow;
+		private final int _viewCol;
+
+		public Target(int row, int col, int viewRow, int viewCol) {
+			_row = row;
+			_col = col;
+			_viewRow = viewRow;
+			_viewCol = viewCol;
+		}
+	}
+
+	@Override
+	public void reset() {
+		_plan = null;
+		_bEnteringGoalZone = false;
+		_ignoredViewpoints.clear();
+	}
+
+	/**
+	 * Every grid left unexplored is either out of reach, or cannot be sensed
+	 */
+	@Override
+	public boolean leavesUnexploredGrids() {
+		return false;
+	}
+
+	@Override
+	public Queue<INSTRUCTION> nextMoves(SensedMap map, int row, int col,
+			DIRECTION dir) {
+
+		if (_plan != null && isStale(map, row, col, dir))
+			_plan = null;
+
+		while (_plan == null || _plan.isEmpty()) {
+
+			// Got there, but still could not sense the target
+			if (_plan != null && !_bEnteringGoalZone)
+				_ignoredViewpoints.set(map.indexOf(_viewRow, _viewCol));
+
+			Target target = selectTarget(map, row, col);
+			if (target == null) {
+				_plan = planIntoGoalZone(map, row, col, dir);
+				if (_plan == null)
+					return null;
+
+				_bEnteringGoalZone = true;
+				break;
+			}
+			_bEnteringGoalZone = false;
+
+			_targetRow = target._row;
+			_targetCol = target._col;
+			_viewRow = target._viewRow;
+			_viewCol = target._viewCol;
+			_plan = map.findPath(row, col, dir, _viewRow, _viewCol);
+			if (_plan == null) {
+				_ignoredViewpoints.set(map.indexOf(_viewRow, _viewCol));
+				continue;
+			}
+
+			// Face the target at the end of the path
+			DIRECTION endDir = dir;
+			for (INSTRUCTION inst : _plan) {
+				if (inst == INSTRUCTION.TURN_RIGHT)
+					endDir = DIRECTION.getNext(endDir);
+				else if (inst == INSTRUCTION.TURN_LEFT)
+					endDir = DIRECTION.getPrevious(endDir);
+			}
+			SensedMap.addTurns(_plan, getFacing(_viewRow, _viewCol, _targetRow,
+					_targetCol).ordinal() - endDir.ordinal());
+		}
+
+		// One step at a time, turning around as a single step
+		Queue<INSTRUCTION> moves = new ArrayDeque<INSTRUCTION>();
+		INSTRUCTION inst = _plan.poll();
+		moves.add(inst);
+		if (inst == INSTRUCTION.TURN_RIGHT
+				&& _plan.peek() == INSTRUCTION.TURN_RIGHT)
+			moves.add(_plan.poll());
+
+		return moves;
+	}
+
+	/**
+	 * Picks the next unexplored grid to sense, leaving out the ignored
+	 * positions
+	 *
+	 * @param map
+	 *            What the robot has sensed so far
+	 * @param row
+	 *            The robot's current row on the map
+	 * @param col
+	 *            The robot's current column on the map
+	 * @return The target, or null if there are none left
+	 */
+	protected abstract Target selectTarget(SensedMap map, int row, int col);
+
+	protected boolean isIgnoredViewpoint(int index) {
+		return _ignoredViewpoints.get(index);
+	}
+
+	/**
+	 * Checks if the robot's front sensors can see a grid from the given
+	 * position, once it turns to face the grid
+	 * <p>
+	 * The grid has to be straight ahead of one of the robot's faces, within
+	 * the view range, with only explored grids which are not obstacles in
+	 * between.
+	 */
+	protected static boolean canSense(SensedMap map, int row, int col,
+			int gridRow, int gridCol) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		boolean bWithinRows = (gridRow >= row && gridRow < row + robotSize);
+		boolean bWithinCols = (gridCol >= col && gridCol < col + robotSize);
+
+		int distance;
+		if (bWithinCols)
+			distance = (gridRow < row) ? row - gridRow : gridRow - row
+					- robotSize + 1;
+		else if (bWithinRows)
+			distance = (gridCol < col) ? col - gridCol : gridCol - col
+					- robotSize + 1;
+		else
+			return false;
+
+		if (distance < 1 || distance > VIEW_RANGE)
+			return false;
+
+		// Grids in between, from the grid back towards the robot
+		int stepRow = bWithinCols ? Integer.signum(row - gridRow) : 0;
+		int stepCol = bWithinCols ? 0 : Integer.signum(col - gridCol);
+		for (int i = 1; i < distance; i++) {
+			int mapRow = gridRow + (i * stepRow);
+			int mapCol = gridCol + (i * stepCol);
+			if (!map.isExplored(mapRow, mapCol) || map.isWall(mapRow, mapCol))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the current target has been explored, or the next move is
+	 * blocked by an obstacle sensed on the way
+	 */
+	private boolean isStale(SensedMap map, int row, int col, DIRECTION dir) {
+
+		if (!_bEnteringGoalZone && map.isExplored(_targetRow, _targetCol))
+			return true;
+
+		return _plan.peek() == INSTRUCTION.MOVE_STRAIGHT
+				&& !map.isSafe(row + dir.getDeltaRow(), col + dir.getDeltaCol());
+	}
+
+	/**
+	 * Plans the way into the goal zone, from the closest position right
+	 * next to it which the robot can get to
+	 *
+	 * @return The moves & turns, or null if the robot has already been in
+	 *         the goal zone, or cannot get next to it
+	 */
+	private Queue<INSTRUCTION> planIntoGoalZone(SensedMap map, int row,
+			int col, DIRECTION dir) {
+
+		int goalRow = map.getGoalZoneRow();
+		int goalCol = map.getGoalZoneCol();
+		if (map.isWithinGoalZone(goalRow, goalCol))
+			return null;
+
+		Queue<INSTRUCTION> bestPlan = null;
+		for (DIRECTION entryDir : DIRECTION.values()) {
+
+			// Position right next to the goal zone, before entering it
+			int entryRow = goalRow
+					- (entryDir.getDeltaRow() * RobotConstants.ROBOT_SIZE);
+			int entryCol = goalCol
+					- (entryDir.getDeltaCol() * RobotConstants.ROBOT_SIZE);
+			if (!map.fits(entryRow, entryCol))
+				continue;
+
+			Queue<INSTRUCTION> plan = map.findPath(row, col, dir, entryRow,
+					entryCol);
+			if (plan == null)
+				continue;
+
+			DIRECTION endDir = dir;
+			for (INSTRUCTION inst : plan) {
+				if (inst == INSTRUCTION.TURN_RIGHT)
+					endDir = DIRECTION.getNext(endDir);
+				else if (inst == INSTRUCTION.TURN_LEFT)
+					endDir = DIRECTION.getPrevious(endDir);
+			}
+			SensedMap.addTurns(plan, entryDir.ordinal() - endDir.ordinal());
+			for (int i = 0; i < RobotConstants.ROBOT_SIZE; i++)
+				plan.add(INSTRUCTION.MOVE_STRAIGHT);
+
+			if (bestPlan == null || plan.size() < bestPlan.size())
+				bestPlan = plan;
+		}
+
+		return bestPlan;
+	}
+
+	/**
+	 * Gets the direction the robot has to face to sense a grid in line with
+	 * one of its faces
+	 */
+	private static DIRECTION getFacing(int row, int col, int gridRow,
+			int gridCol) {
+		if (gridRow < row)
+			return DIRECTION.NORTH;
+		else if (gridRow >= row + RobotConstants.ROBOT_SIZE)
+			return DIRECTION.SOUTH;
+		else if (gridCol < col)
+			return DIRECTION.WEST;
+		else
+			return DIRECTION.EAST;
+	}
+}
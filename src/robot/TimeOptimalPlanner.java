@@ -0,0 +1,260 @@
+package robot;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+import map.Grid;
+import map.Map;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * A* search for the fastest path of the robot over (row, col, heading)
+ * states, using the durations of a {@link MotionModel}
+ * <p>
+ * Instead of moving one grid at a time, the robot moves straight by any
+ * number of grids in a single move, which costs the time of a whole straight
+ * run, so the search prefers fewer & longer runs where the robot accelerates
+ * once. Turns of 90 & 180 degrees on the spot are moves of their own.
+ * <p>
+ * Costs are in microseconds. Calibrations depend on the walls along the
+ * path, and are not included.
+ * <p>
+ * Poses are searched as the states of {@link PoseState}.
+ */
+public class TimeOptimalPlanner {
+
+	private final Map _map;
+	private final int _rows;
+	private final int _cols;
+
+	// A straight run costs the segment cost plus the grid cost per grid
+	private final int _segmentCost;
+	private final int _gridCost;
+	private final int _turn90Cost;
+	private final int _turn180Cost;
+
+	// Per state arrays, indexed by PoseState
+	private final int[] _gValues;
+	private final int[] _parents;
+	private final boolean[] _closed;
+
+	// Per position cache of whether the robot fits there
+	private final RobotFootprint _footprint;
+
+	// Open set, ordered by f value
+	private final StateHeap _openSet;
+
+	// Number of states expanded by the last search
+	private int _nodesExpanded = 0;
+
+	// Cost of the path found by the last search, -1 if there was none
+	private int _lastPathCost = -1;
+
+	public TimeOptimalPlanner(Map map, MotionModel model) {
+		_map = map;
+		_rows = map.getRows();
+		_cols = map.getCols();
+
+		_segmentCost = toCost(model.getSegmentTime());
+		_gridCost = toCost(model.getGridTime());
+		_turn90Cost = toCost(model.getTurnTime(1));
+		_turn180Cost = toCost(model.getTurnTime(2));
+
+		int noOfStates = _rows * _cols * PoseState.NO_OF_HEADINGS;
+		_gValues = new int[noOfStates];
+		_parents = new int[noOfStates];
+		_closed = new boolean[noOfStates];
+		_footprint = new RobotFootprint(map.getGridStore());
+
+		_openSet = new StateHeap(noOfStates);
+	}
+
+	/**
+	 * Finds the fastest path between two positions of the robot
+	 *
+	 * @param startingGrid
+	 *            The robot's current position
+	 * @param endGrid
+	 *            The position to go to, which must be a valid position
+	 * @param startDir
+	 *            The robot's current direction
+	 *
+	 * @return A stack of grids with the starting grid on top and the end grid
+	 *         at the bottom, including every grid along each straight run, or
+	 *         null if there is no path
+	 */
+	public Stack<Grid> findFastestPath(Grid startingGrid, Grid endGrid,
+			DIRECTION startDir) {
+
+		int startRow = startingGrid.getRow();
+		int startCol = startingGrid.getCol();
+		int endRow = endGrid.getRow();
+		int endCol = endGrid.getCol();
+
+		Arrays.fill(_gValues, Integer.MAX_VALUE);
+		Arrays.fill(_closed, false);
+		_footprint.clear();
+		_openSet.clear();
+		_nodesExpanded = 0;
+		_lastPathCost = -1;
+
+		int startState = PoseState.toState(startRow, startCol, _cols,
+				startDir.ordinal());
+		_gValues[startState] = 0;
+		_parents[startState] = -1;
+		_openSet.push(startState, heuristic(startRow, startCol,
+				startDir.ordinal(), endRow, endCol));
+
+		int endState = -1;
+		while (!_openSet.isEmpty()) {
+
+			int state = _openSet.pop();
+			if (_closed[state])
+				continue;
+			_closed[state] = true;
+			_nodesExpanded++;
+
+			int pos = PoseState.getPos(state);
+			int heading = PoseState.getHeading(state);
+			int row = pos / _cols;
+			int col = pos % _cols;
+
+			if (row == endRow && col == endCol) {
+				endState = state;
+				break;
+			}
+
+			int gValue = _gValues[state];
+
+			// Move straight in the current heading, by as many grids as the
+			// robot fits
+			int deltaRow = DIRECTION.getDeltaRow(heading);
+			int deltaCol = DIRECTION.getDeltaCol(heading);
+			int nextRow = row + deltaRow;
+			int nextCol = col + deltaCol;
+			for (int noOfGrids = 1; _footprint.isValidPos(nextRow, nextCol); noOfGrids++) {
+				relax(state, PoseState.toState(nextRow, nextCol, _cols,
+						heading), gValue + _segmentCost
+						+ (noOfGrids * _gridCost), endRow, endCol);
+
+				nextRow += deltaRow;
+				nextCol += deltaCol;
+			}
+
+			// Turn left, right or around on the spot
+			relax(state, PoseState.turn(state, 1),
+					gValue + _turn90Cost, endRow, endCol);
+			relax(state, PoseState.turn(state, 3),
+					gValue + _turn90Cost, endRow, endCol);
+			relax(state, PoseState.turn(state, 2),
+					gValue + _turn180Cost, endRow, endCol);
+		}
+
+		if (endState == -1)
+			return null;
+
+		_lastPathCost = _gValues[endState];
+
+		// Trace back from the end to the start, skipping turns on the spot,
+		// and filling in the grids along each straight run
+		Stack<Grid> fastestPath = new Stack<Grid>();
+		int prevRow = -1;
+		int prevCol = -1;
+		for (int state = endState; state != -1; state = _parents[state]) {
+			int pos = PoseState.getPos(state);
+			int row = pos / _cols;
+			int col = pos % _cols;
+
+			if (prevRow == -1) {
+				fastestPath.push(_map.getGrid(row, col));
+			} else {
+				while (prevRow != row || prevCol != col) {
+					prevRow += Integer.signum(row - prevRow);
+					prevCol += Integer.signum(col - prevCol);
+					fastestPath.push(_map.getGrid(prevRow, prevCol));
+				}
+			}
+			prevRow = row;
+			prevCol = col;
+		}
+
+		return fastestPath;
+	}
+
+	/**
+	 * Gets the number of states expanded by the last search
+	 */
+	public int getNodesExpanded() {
+		return _nodesExpanded;
+	}
+
+	/**
+	 * Gets the predicted time of the path found by the last search
+	 *
+	 * @return The time in seconds, or -1 if no path was found
+	 */
+	public double getLastPathTime() {
+		return (_lastPathCost < 0) ? -1 : _lastPathCost / 1e6;
+	}
+
+	private void relax(int fromState, int toState, int gValue, int endRow,
+			int endCol) {
+
+		if (_closed[toState] || gValue >= _gValues[toState])
+			return;
+
+		_gValues[toState] = gValue;
+		_parents[toState] = fromState;
+
+		int pos = PoseState.getPos(toState);
+		_openSet.push(toState, gValue + heuristic(pos / _cols, pos % _cols,
+				PoseState.getHeading(toState), endRow, endCol));
+	}
+
+	/**
+	 * Lower bound on the cost from a state to the end position:<br>
+	 * One straight run per direction the robot still has to travel in, over
+	 * the Manhattan distance, plus the minimum turns required
+	 */
+	private int heuristic(int row, int col, int heading, int endRow,
+			int endCol) {
+
+		int rowDifference = endRow - row;
+		int colDifference = endCol - col;
+
+		// Directions the robot still has to travel in
+		int noOfDirs = 0;
+		boolean bHeadingNeeded = false;
+		if (rowDifference != 0) {
+			noOfDirs++;
+			bHeadingNeeded |= (heading == (rowDifference < 0 ? 0 : 2));
+		}
+		if (colDifference != 0) {
+			noOfDirs++;
+			bHeadingNeeded |= (heading == (colDifference > 0 ? 1 : 3));
+		}
+
+		int distance = Math.abs(rowDifference) + Math.abs(colDifference);
+		int hValue = (noOfDirs * _segmentCost) + (distance * _gridCost);
+
+		// Any turn takes at least as long as the quicker of the two turns
+		int minTurnCost = Math.min(_turn90Cost, _turn180Cost);
+		if (noOfDirs == 2) {
+			hValue += bHeadingNeeded ? minTurnCost : Math.min(_turn180Cost,
+					2 * minTurnCost);
+		} else if (noOfDirs == 1 && !bHeadingNeeded) {
+			// Either perpendicular (1 turn) or opposite (2 turns, or 180)
+			hValue += ((rowDifference != 0) == (heading % 2 == 0)) ? Math.min(
+					_turn180Cost, 2 * minTurnCost) : minTurnCost;
+		}
+
+		return hValue;
+	}
+
+	/**
+	 * Converts a time in seconds into a cost in microseconds
+	 */
+	private static int toCost(double time) {
+		return (int) Math.round(time * 1e6);
+	}
+}
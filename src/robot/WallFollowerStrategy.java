@@ -0,0 +1,83 @@
+package robot;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import robot.Robot.INSTRUCTION;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Follows the wall on the robot's left, from the start zone to the goal zone
+ * and back to the start zone
+ * <p>
+ * The robot turns left as soon as the wall on its left ends, so it goes
+ * around every obstacle it runs along. Areas away from the walls are left to
+ * be explored afterwards.
+ */
+public class WallFollowerStrategy implements ExplorationStrategy {
+
+	public static final String NAME = "Wall follower";
+
+	private boolean _bPreviousLeftWall = false;
+	private boolean _bReachedGoal = false;
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void reset() {
+		_bPreviousLeftWall = false;
+		_bReachedGoal = false;
+	}
+
+	/**
+	 * Areas away from the walls are left unexplored
+	 */
+	@Override
+	public boolean leavesUnexploredGrids() {
+		return true;
+	}
+
+	@Override
+	public Queue<INSTRUCTION> nextMoves(SensedMap map, int row, int col,
+			DIRECTION dir) {
+
+		// Robot reached goal zone
+		if (map.isWithinGoalZone(row, col))
+			_bReachedGoal = true;
+
+		// Back to the start zone after reaching the goal zone
+		if (_bReachedGoal && map.isWithinStartZone(row, col))
+			return null;
+
+		boolean frontWall = map.hasFrontWall(row, col, dir);
+		boolean leftWall = map.hasLeftWall(row, col, dir);
+		boolean rightWall = map.hasRightWall(row, col, dir);
+
+		Queue<INSTRUCTION> moves = new ArrayDeque<INSTRUCTION>();
+
+		// (No leftWall AND previousLeftWall) OR
+		// (frontWall AND No leftWall AND rightWall)
+		if ((!leftWall && _bPreviousLeftWall) || (frontWall && !leftWall
+				&& rightWall))
+			moves.add(INSTRUCTION.TURN_LEFT);
+
+		// (frontWall AND No rightWall)
+		else if (frontWall && !rightWall)
+			moves.add(INSTRUCTION.TURN_RIGHT);
+
+		// (frontWall AND leftWall AND rightWall)
+		else if (frontWall && leftWall && rightWall)
+			SensedMap.addTurns(moves, 2);
+
+		else
+			moves.add(INSTRUCTION.MOVE_STRAIGHT);
+
+		// Save current leftWall state into _bPreviousLeftWall
+		_bPreviousLeftWall = leftWall;
+
+		return moves;
+	}
+}
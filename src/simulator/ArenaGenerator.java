@@ -0,0 +1,545 @@
+package simulator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import map.MapConstants;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import simulator.BatchRunner.ArenaResult;
+
+/**
+ * Generates random arenas as map descriptor strings, the same as
+ * {@link map.RealMap#generateMapString()}
+ * <p>
+ * Obstacles are never placed within the start or goal zones. The density is
+ * the fraction of the other grids within the border walls that are
+ * obstacles. The clustering is the chance of each obstacle being placed next
+ * to an earlier one, rather than anywhere, i.e. 0 scatters the obstacles all
+ * over the arena, while values close to 1 grow them into a few large blocks.
+ * <p>
+ * Arenas in which the robot cannot get from the start zone to the goal zone
+ * are thrown away, and generated again. The check is a flood fill over the
+ * robot's positions, a row of the arena at a time, with each row held as
+ * bits of longs instead of as Grid objects.
+ * <p>
+ * Every arena is generated from its own seed, mixed from the generator's
+ * seed and the arena's number, so any arena can be generated again on its
+ * own, and arenas can be generated in parallel in any order.
+ */
+public class ArenaGenerator {
+
+	public static final double DEFAULT_DENSITY = 0.08;
+	public static final double DEFAULT_CLUSTERING = 0.8;
+
+	// Attempts at an arena before giving up, e.g. if the density is too high
+	private static final int MAX_ATTEMPTS = 1000;
+
+	// Arenas per task when generating in parallel
+	private static final int ARENAS_PER_TASK = 4096;
+
+	// Size of the arena, not including the border walls
+	private final int _rows;
+	private final int _cols;
+
+	// Number of longs for a row of the arena
+	private final int _words;
+
+	// Top-left grids of the start & goal zones, not including the border
+	// walls, i.e. (0, 0) is the top-left grid within the border walls
+	private int _startRow = 0;
+	private int _startCol = 0;
+	private int _goalRow;
+	private int _goalCol;
+
+	private final double _density;
+	private final double _clustering;
+	private final long _seed;
+
+	// Arenas thrown away as the robot could not reach the goal zone
+	private final AtomicLong _noOfRejected = new AtomicLong();
+
+	/**
+	 * Creates a generator for arenas of the default size, with the start zone
+	 * at the top-left & the goal zone at the bottom-right
+	 */
+	public ArenaGenerator(double density, double clustering, long seed) {
+		this(MapConstants.MAP_ROWS, MapConstants.MAP_COLS, density,
+				clustering, seed);
+	}
+
+	/**
+	 * Creates a generator for arenas of the given size, with the start zone
+	 * at the top-left & the goal zone at the bottom-right, same as a Map
+	 *
+	 * @param rows
+	 *            Number of rows, including the border walls
+	 * @param cols
+	 *            Number of columns, including the border walls
+	 * @param density
+	 *            Fraction of the grids outside the zones to be obstacles,
+	 *            [0, 1)
+	 * @param clustering
+	 *            Chance of each obstacle being next to an earlier one, [0, 1]
+	 * @param seed
+	 *            Seed of the generator
+	 */
+	public ArenaGenerator(int rows, int cols, double density,
+			double clustering, long seed) {
+
+		if (rows < MapConstants.ZONE_SIZE + 2
+				|| cols < MapConstants.ZONE_SIZE + 2)
+			throw new IllegalArgumentException("Map is too small: " + rows
+					+ " x " + cols);
+
+		_rows = rows - 2;
+		_cols = cols - 2;
+		_words = (_cols + 63) / 64;
+
+		_goalRow = _rows - MapConstants.ZONE_SIZE;
+		_goalCol = _cols - MapConstants.ZONE_SIZE;
+
+		_density = density;
+		_clustering = clustering;
+		_seed = seed;
+	}
+
+	/**
+	 * Moves the start zone
+	 *
+	 * @param row
+	 *            The smallest row of the start zone, same as for a Map
+	 * @param col
+	 *            The smallest column of the start zone
+	 */
+	public void setStartZone(int row, int col) {
+		checkZone(row, col);
+		_startRow = row - 1;
+		_startCol = col - 1;
+	}
+
+	/**
+	 * Moves the goal zone
+	 *
+	 * @param row
+	 *            The smallest row of the goal zone, same as for a Map
+	 * @param col
+	 *            The smallest column of the goal zone
+	 */
+	public void setGoalZone(int row, int col) {
+		checkZone(row, col);
+		_goalRow = row - 1;
+		_goalCol = col - 1;
+	}
+
+	/**
+	 * Gets the number of arenas thrown away so far, as the robot could not
+	 * reach the goal zone
+	 */
+	public long getNoOfRejected() {
+		return _noOfRejected.get();
+	}
+
+	/**
+	 * Generates an arena
+	 *
+	 * @param arenaNo
+	 *            Number of the arena, the same number always gives the same
+	 *            arena
+	 * @return The map descriptor string
+	 */
+	public String generate(long arenaNo) {
+
+		Random random = new Random(getArenaSeed(arenaNo));
+
+		long[] obstacles = new long[_rows * _words];
+		int[] placed = new int[_rows * _cols];
+
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			placeObstacles(random, obstacles, placed);
+			if (isGoalReachable(obstacles))
+				return toMapString(obstacles);
+
+			_noOfRejected.incrementAndGet();
+		}
+
+		throw new IllegalArgumentException("Unable to generate a reachable "
+				+ "arena at a density of " + _density);
+	}
+
+	/**
+	 * Gets the seed of a single arena, mixed so that nearby seeds & arenas do
+	 * not give similar arenas
+	 */
+	private long getArenaSeed(long arenaNo) {
+
+		long z = _seed + ((arenaNo + 1) * 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Places the obstacles, either anywhere or next to an earlier one
+	 */
+	private void placeObstacles(Random random, long[] obstacles, int[] placed) {
+
+		Arrays.fill(obstacles, 0);
+
+		int noOfZoneGrids = 2 * MapConstants.ZONE_SIZE * MapConstants.ZONE_SIZE;
+		int noOfObstacles = (int) Math.round(_density
+				* Math.max(0, (_rows * _cols) - noOfZoneGrids));
+
+		// Guards against densities too close to 1 to fill
+		int triesLeft = 64 * Math.max(noOfObstacles, 1);
+
+		int noOfPlaced = 0;
+		while (noOfPlaced < noOfObstacles && triesLeft-- > 0) {
+
+			int row;
+			int col;
+			if (noOfPlaced == 0 || random.nextDouble() >= _clustering) {
+				row = random.nextInt(_rows);
+				col = random.nextInt(_cols);
+			} else {
+				int grid = placed[random.nextInt(noOfPlaced)];
+				int dir = random.nextInt(4);
+				row = (grid / _cols) + DIRECTION.getDeltaRow(dir);
+				col = (grid % _cols) + DIRECTION.getDeltaCol(dir);
+				if (row < 0 || row >= _rows || col < 0 || col >= _cols)
+					continue;
+			}
+
+			int word = (row * _words) + (col >>> 6);
+			long bit = 1L << col;
+			if ((obstacles[word] & bit) != 0 || isZone(row, col))
+				continue;
+
+			obstacles[word] |= bit;
+			placed[noOfPlaced++] = (row * _cols) + col;
+		}
+	}
+
+	/**
+	 * Checks if the robot can get from the start zone to the goal zone
+	 * <p>
+	 * A bit is set for every position the robot fits at, i.e. for its
+	 * top-left grid, by shifting the free grids of three rows & three columns
+	 * onto each other. The start position is then filled outwards, rows down
+	 * & up, until no more positions can be reached.
+	 */
+	boolean isGoalReachable(long[] obstacles) {
+
+		int robotSize = RobotConstants.ROBOT_SIZE;
+		int positionRows = _rows - robotSize + 1;
+
+		// Free grids, with the grids beyond the last column taken as walls
+		long[] free = new long[_rows * _words];
+		long lastWordMask = ((_cols & 63) == 0) ? -1L
+				: ((1L << (_cols & 63)) - 1);
+		for (int row = 0; row < _rows; row++) {
+			for (int word = 0; word < _words; word++) {
+				int index = (row * _words) + word;
+				free[index] = ~obstacles[index];
+				if (word == _words - 1)
+					free[index] &= lastWordMask;
+			}
+		}
+
+		// Positions with free grids under the whole robot
+		long[] fits = new long[positionRows * _words];
+		long[] across = new long[_words];
+		for (int row = 0; row < _rows; row++) {
+
+			// Three free grids in a row, from each column onwards
+			System.arraycopy(free, row * _words, across, 0, _words);
+			for (int shift = 1; shift < robotSize; shift++)
+				andShiftedDown(across);
+
+			for (int positionRow = Math.max(0, row - robotSize + 1); positionRow <= Math
+					.min(row, positionRows - 1); positionRow++) {
+				int index = positionRow * _words;
+				for (int word = 0; word < _words; word++) {
+					fits[index + word] = (row == positionRow) ? across[word]
+							: (fits[index + word] & across[word]);
+				}
+			}
+		}
+
+		long[] reached = new long[positionRows * _words];
+		int startWord = (_startRow * _words) + (_startCol >>> 6);
+		int goalWord = (_goalRow * _words) + (_goalCol >>> 6);
+		long goalBit = 1L << _goalCol;
+
+		reached[startWord] = fits[startWord] & (1L << _startCol);
+		if (reached[startWord] == 0)
+			return false;
+
+		long[] spread = new long[_words];
+		boolean bChanged = true;
+		while (bChanged) {
+			bChanged = false;
+
+			// Down the rows, then back up, so that a single pass gets as far
+			// as possible
+			for (int pass = 0; pass < 2; pass++) {
+				for (int i = 0; i < positionRows; i++) {
+					int row = (pass == 0) ? i : (positionRows - 1 - i);
+					if (fillRow(reached, fits, spread, row, positionRows))
+						bChanged = true;
+				}
+
+				if ((reached[goalWord] & goalBit) != 0)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reaches the positions of a row from the row above & below, and along
+	 * the row
+	 *
+	 * @return True if any more positions of the row have been reached
+	 */
+	private boolean fillRow(long[] reached, long[] fits, long[] spread,
+			int row, int positionRows) {
+
+		int index = row * _words;
+		boolean bAny = false;
+		for (int word = 0; word < _words; word++) {
+			long bits = reached[index + word];
+			if (row > 0)
+				bits |= reached[index - _words + word];
+			if (row < positionRows - 1)
+				bits |= reached[index + _words + word];
+
+			spread[word] = bits & fits[index + word];
+			if (spread[word] != 0)
+				bAny = true;
+		}
+
+		if (!bAny)
+			return false;
+
+		// Along the row, until the positions stop changing
+		boolean bSpreading = true;
+		while (bSpreading) {
+			bSpreading = false;
+			long carryUp = 0;
+			for (int word = 0; word < _words; word++) {
+				long bits = spread[word];
+				long carryDown = (word + 1 < _words) ? (spread[word + 1] << 63)
+						: 0;
+				long next = (bits | (bits << 1) | carryUp | (bits >>> 1) | carryDown)
+						& fits[index + word];
+				carryUp = bits >>> 63;
+				if (next != bits) {
+					spread[word] = next;
+					bSpreading = true;
+				}
+			}
+		}
+
+		boolean bChanged = false;
+		for (int word = 0; word < _words; word++) {
+			if (spread[word] != reached[index + word]) {
+				reached[index + word] |= spread[word];
+				bChanged = true;
+			}
+		}
+		return bChanged;
+	}
+
+	/**
+	 * ANDs a row with itself shifted down by a column, i.e. each column with
+	 * the one after it, which is taken as a wall past the last column
+	 */
+	private void andShiftedDown(long[] bits) {
+
+		for (int word = 0; word < _words; word++) {
+			long next = (word + 1 < _words) ? (bits[word + 1] << 63) : 0;
+			bits[word] &= (bits[word] >>> 1) | next;
+		}
+	}
+
+	private String toMapString(long[] obstacles) {
+
+		char[] mapString = new char[_rows * _cols];
+		int charIndex = 0;
+		for (int row = 0; row < _rows; row++) {
+			int index = row * _words;
+			for (int col = 0; col < _cols; col++) {
+				mapString[charIndex++] = ((obstacles[index + (col >>> 6)] & (1L << col)) != 0) ? '1'
+						: '0';
+			}
+		}
+		return new String(mapString);
+	}
+
+	private boolean isZone(int row, int col) {
+		return (row >= _startRow && row < _startRow + MapConstants.ZONE_SIZE
+				&& col >= _startCol && col < _startCol + MapConstants.ZONE_SIZE)
+				|| (row >= _goalRow
+						&& row < _goalRow + MapConstants.ZONE_SIZE
+						&& col >= _goalCol && col < _goalCol
+						+ MapConstants.ZONE_SIZE);
+	}
+
+	private void checkZone(int row, int col) {
+		if (row < 1 || col < 1 || row + MapConstants.ZONE_SIZE > _rows + 1
+				|| col + MapConstants.ZONE_SIZE > _cols + 1)
+			throw new IllegalArgumentException("Zone at " + row + ", " + col
+					+ " is outside the arena");
+	}
+
+	/**
+	 * Generates arenas in parallel, in order of their number
+	 *
+	 * @param pool
+	 *            The pool to generate the arenas on
+	 * @param firstArenaNo
+	 *            Number of the first arena
+	 * @param noOfArenas
+	 *            Number of arenas to generate
+	 * @return The map descriptor strings, noOfArenas of them
+	 * @throws IllegalArgumentException
+	 *             If an arena could not be generated, e.g. as the density is
+	 *             too high
+	 */
+	public List<String> generate(ForkJoinPool pool, final long firstArenaNo,
+			int noOfArenas) {
+
+		List<Callable<String[]>> tasks = new ArrayList<Callable<String[]>>();
+		for (int first = 0; first < noOfArenas; first += ARENAS_PER_TASK) {
+			final int from = first;
+			final int to = Math.min(noOfArenas, first + ARENAS_PER_TASK);
+
+			tasks.add(new Callable<String[]>() {
+				@Override
+				public String[] call() throws Exception {
+					String[] mapStrings = new String[to - from];
+					for (int i = from; i < to; i++)
+						mapStrings[i - from] = generate(firstArenaNo + i);
+					return mapStrings;
+				}
+			});
+		}
+
+		List<String> mapStrings = new ArrayList<String>(noOfArenas);
+		for (Future<String[]> future : pool.invokeAll(tasks)) {
+			try {
+				for (String mapString : future.get())
+					mapStrings.add(mapString);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"Interrupted while generating arenas", e);
+			} catch (ExecutionException e) {
+				// Rather than returning fewer arenas than asked for
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IllegalStateException("Unable to generate arenas",
+						e.getCause());
+			}
+		}
+		return mapStrings;
+	}
+
+	/**
+	 * Writes arenas one map descriptor string per line, as read by the
+	 * BatchRunner
+	 *
+	 * @return Number of arenas written
+	 */
+	public long writeArenas(ForkJoinPool pool, long noOfArenas, Writer writer)
+			throws IOException {
+
+		int arenasPerBatch = ARENAS_PER_TASK * pool.getParallelism() * 2;
+
+		long arenaNo = 0;
+		while (arenaNo < noOfArenas) {
+			int batchSize = (int) Math.min(arenasPerBatch, noOfArenas
+					- arenaNo);
+			for (String mapString : generate(pool, arenaNo, batchSize)) {
+				writer.write(mapString);
+				writer.write('\n');
+			}
+			arenaNo += batchSize;
+		}
+		writer.flush();
+		return arenaNo;
+	}
+
+	/**
+	 * Usage: ArenaGenerator &lt;no of arenas&gt; &lt;output file | -run&gt;
+	 * [density] [clustering] [seed] [threads] [robot file]
+	 * <p>
+	 * With -run, the arenas are explored by the BatchRunner straight away,
+	 * instead of being written to a file.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 2) {
+			System.out.println("Usage: ArenaGenerator <no of arenas> <output file | -run>"
+					+ " [density] [clustering] [seed] [threads] [robot file]");
+			return;
+		}
+
+		long noOfArenas = Long.parseLong(args[0]);
+		double density = (args.length > 2) ? Double.parseDouble(args[2])
+				: DEFAULT_DENSITY;
+		double clustering = (args.length > 3) ? Double.parseDouble(args[3])
+				: DEFAULT_CLUSTERING;
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1;
+		int threads = (args.length > 5) ? Integer.parseInt(args[5])
+				: Runtime.getRuntime().availableProcessors();
+		String robotFilePath = (args.length > 6) ? args[6] : "robot.dat";
+
+		ArenaGenerator generator = new ArenaGenerator(density, clustering,
+				seed);
+
+		long startTime = System.nanoTime();
+
+		if (args[1].equals("-run")) {
+			BatchRunner runner = new BatchRunner(robotFilePath, threads);
+			List<ArenaResult> results = runner.runAll(generator,
+					(int) noOfArenas);
+			runner.shutdown();
+
+			BatchRunner.writeResults(results, new PrintWriter(System.out));
+			System.out.println(BatchRunner.summarise(results));
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try (Writer writer = new BufferedWriter(new FileWriter(new File(
+					args[1])), 1 << 20)) {
+				generator.writeArenas(pool, noOfArenas, writer);
+			}
+			pool.shutdown();
+		}
+
+		long elapsedTime = System.nanoTime() - startTime;
+
+		System.out.println(String.format(
+				"\n%d arenas, %d rejected, %d threads, %dms, %.0f arenas/min",
+				noOfArenas, generator.getNoOfRejected(), threads,
+				elapsedTime / 1000000,
+				noOfArenas * 60e9 / Math.max(elapsedTime, 1)));
+	}
+}
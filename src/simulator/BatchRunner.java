@@ -0,0 +1,339 @@
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import map.MapConstants;
+import map.RealMap;
+import robot.Robot;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Runs exploration & shortest path on every arena in a directory,
+ * in parallel on all available cores
+ * <p>
+ * Instead of a directory, a file with a map descriptor string on each line
+ * can be given, e.g. as written by the ArenaGenerator.
+ * <p>
+ * Each run gets its own RealMap, RobotMap and Robot, and uses a
+ * HeadlessSimulator, so runs do not share any state with each other. An
+ * arena whose run fails is printed and left out of the results.
+ */
+public class BatchRunner {
+
+	private final RunnerPool _runnerPool;
+
+	/**
+	 * Creates a batch runner
+	 *
+	 * @param robotFilePath
+	 *            Path to the robot file, as saved by the simulator
+	 * @param parallelism
+	 *            Number of arenas to run at the same time
+	 */
+	public BatchRunner(String robotFilePath, int parallelism)
+			throws IOException {
+
+		_runnerPool = new RunnerPool(robotFilePath, parallelism);
+	}
+
+	/**
+	 * Runs every arena found in the given directory
+	 *
+	 * @param arenaDir
+	 *            Directory containing the map descriptor files, or a file
+	 *            with a map descriptor string on each line
+	 * @return The results, one per arena, sorted by file name
+	 */
+	public List<ArenaResult> runAll(File arenaDir) throws IOException {
+
+		if (arenaDir.isFile())
+			return runAllLines(arenaDir);
+
+		File[] files = arenaDir.listFiles();
+		if (files == null)
+			throw new IOException("Unable to list " + arenaDir);
+		Arrays.sort(files);
+
+		List<Callable<ArenaResult>> tasks = new ArrayList<Callable<ArenaResult>>();
+		for (File file : files) {
+			final String arenaName = file.getName();
+			final String mapString = readMapString(file);
+
+			// Skip anything that is not a map descriptor file
+			if (mapString == null)
+				continue;
+
+			tasks.add(new Callable<ArenaResult>() {
+				@Override
+				public ArenaResult call() throws Exception {
+					return runArena(arenaName, mapString);
+				}
+			});
+		}
+
+		return _runnerPool.invokeAll(tasks);
+	}
+
+	/**
+	 * Runs every arena in a file with a map descriptor string on each line,
+	 * named by the file name & the line number
+	 */
+	private List<ArenaResult> runAllLines(File arenaFile) throws IOException {
+
+		List<Callable<ArenaResult>> tasks = new ArrayList<Callable<ArenaResult>>();
+		try (BufferedReader br = new BufferedReader(new FileReader(arenaFile))) {
+			int lineNo = 0;
+			String line;
+			while ((line = br.readLine()) != null) {
+				lineNo++;
+
+				// Skip anything that is not a map descriptor string
+				if (!isMapString(line))
+					continue;
+
+				final String arenaName = arenaFile.getName() + "#" + lineNo;
+				final String mapString = line;
+				tasks.add(new Callable<ArenaResult>() {
+					@Override
+					public ArenaResult call() throws Exception {
+						return runArena(arenaName, mapString);
+					}
+				});
+			}
+		}
+
+		return _runnerPool.invokeAll(tasks);
+	}
+
+	/**
+	 * Runs arenas straight from a generator, without writing them to disk,
+	 * named by their number
+	 *
+	 * @param generator
+	 *            The generator of the arenas
+	 * @param noOfArenas
+	 *            Number of arenas to run, from arena 0 onwards
+	 * @return The results, one per arena, in order of the arena's number
+	 */
+	public List<ArenaResult> runAll(final ArenaGenerator generator,
+			int noOfArenas) {
+
+		List<Callable<ArenaResult>> tasks = new ArrayList<Callable<ArenaResult>>();
+		for (int arenaNo = 0; arenaNo < noOfArenas; arenaNo++) {
+			final int generatedNo = arenaNo;
+			tasks.add(new Callable<ArenaResult>() {
+				@Override
+				public ArenaResult call() throws Exception {
+					return runArena("arena#" + generatedNo,
+							generator.generate(generatedNo));
+				}
+			});
+		}
+
+		return _runnerPool.invokeAll(tasks);
+	}
+
+	/**
+	 * Runs exploration followed by shortest path on a single arena
+	 */
+	public ArenaResult runArena(String arenaName, String mapString)
+			throws IOException, ClassNotFoundException {
+
+		RealMap realMap = new RealMap();
+		realMap.loadFromMapString(mapString);
+
+		Robot robot = _runnerPool.copyRobot();
+		int startRow = robot.getRobotMapPosRow();
+		int startCol = robot.getRobotMapPosCol();
+		DIRECTION startDir = robot.getRobotDir();
+
+		HeadlessSimulator sim = new HeadlessSimulator(robot, realMap);
+		SimulationResult exploration = sim.runExploration(startRow, startCol,
+				startDir);
+		SimulationResult shortestPath = sim.runShortestPath(startRow,
+				startCol, startDir);
+
+		return new ArenaResult(arenaName, exploration, shortestPath);
+	}
+
+	public void shutdown() {
+		_runnerPool.shutdown();
+	}
+
+	/**
+	 * Reads the map descriptor string from a file
+	 *
+	 * @return The map descriptor string, or null if the file does not
+	 *         contain one
+	 */
+	static String readMapString(File file) throws IOException {
+
+		if (!file.isFile())
+			return null;
+
+		String mapString = null;
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			mapString = br.readLine();
+		}
+
+		return isMapString(mapString) ? mapString : null;
+	}
+
+	/**
+	 * Checks if a string is a map descriptor string for an arena of the
+	 * default size
+	 */
+	static boolean isMapString(String mapString) {
+
+		int mapStringLength = (MapConstants.MAP_ROWS - 2)
+				* (MapConstants.MAP_COLS - 2);
+		if (mapString == null || mapString.length() != mapStringLength)
+			return false;
+
+		for (int charIndex = 0; charIndex < mapStringLength; charIndex++) {
+			char c = mapString.charAt(charIndex);
+			if (c != '0' && c != '1')
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the results table
+	 */
+	public static void writeResults(List<ArenaResult> results,
+			PrintWriter pw) {
+
+		pw.println(ArenaResult.HEADER);
+		for (ArenaResult result : results) {
+			pw.println(result);
+		}
+		pw.flush();
+	}
+
+	/**
+	 * Summarises the results of all of the arenas in a single line
+	 */
+	public static String summarise(List<ArenaResult> results) {
+
+		int noOfArenas = results.size();
+		int noOfFullCoverage = 0;
+		int noOfStepLimit = 0;
+		double coverage = 0;
+		long steps = 0;
+		long fastestPathMoves = 0;
+		for (ArenaResult result : results) {
+			SimulationResult exploration = result.getExploration();
+			coverage += exploration.getCoverage();
+			steps += exploration.getSteps();
+			fastestPathMoves += result.getShortestPath().getMoves();
+			if (exploration.getCoverage() >= 100.0)
+				noOfFullCoverage++;
+			if (!exploration.isCompleted())
+				noOfStepLimit++;
+		}
+
+		int divisor = Math.max(noOfArenas, 1);
+		return String.format("%d arenas -> Full coverage: %d, Coverage: %.2f%%, "
+				+ "Steps: %.1f, FP Length: %.1f, Step limit reached: %d",
+				noOfArenas, noOfFullCoverage, coverage / divisor,
+				(double) steps / divisor, (double) fastestPathMoves / divisor,
+				noOfStepLimit);
+	}
+
+	/**
+	 * Results of exploration & shortest path on a single arena
+	 */
+	public static class ArenaResult {
+
+		public static final String HEADER = String.format(
+				"%-32s %9s %6s %6s %9s %13s %9s %8s", "Arena", "Coverage",
+				"Steps", "Turns", "Sim Time", "Planning (ms)", "FP Length",
+				"FP Turns");
+
+		private final String _arenaName;
+		private final SimulationResult _exploration;
+		private final SimulationResult _shortestPath;
+
+		public ArenaResult(String arenaName, SimulationResult exploration,
+				SimulationResult shortestPath) {
+			_arenaName = arenaName;
+			_exploration = exploration;
+			_shortestPath = shortestPath;
+		}
+
+		public String getArenaName() {
+			return _arenaName;
+		}
+
+		public SimulationResult getExploration() {
+			return _exploration;
+		}
+
+		public SimulationResult getShortestPath() {
+			return _shortestPath;
+		}
+
+		@Override
+		public String toString() {
+			long planningTime = _exploration.getPlanningTime()
+					+ _shortestPath.getPlanningTime();
+
+			return String.format("%-32s %8.2f%% %6d %6d %8.1fs %13.3f %9d %8d%s",
+					_arenaName, _exploration.getCoverage(),
+					_exploration.getSteps(), _exploration.getTurns(),
+					_exploration.getSimulatedTime() / 1000.0,
+					planningTime / 1000000.0, _shortestPath.getMoves(),
+					_shortestPath.getTurns(),
+					_exploration.isCompleted() ? "" : " (Step limit reached)");
+		}
+	}
+
+	/**
+	 * Usage: BatchRunner &lt;arena directory&gt; [results file] [threads]
+	 * [robot file]
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: BatchRunner <arena directory>"
+					+ " [results file] [threads] [robot file]");
+			return;
+		}
+
+		String resultsFilePath = (args.length > 1) ? args[1]
+				: "batch_results.txt";
+		int threads = (args.length > 2) ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		String robotFilePath = (args.length > 3) ? args[3] : "robot.dat";
+
+		BatchRunner runner = new BatchRunner(robotFilePath, threads);
+
+		long startTime = System.nanoTime();
+		List<ArenaResult> results = runner.runAll(new File(args[0]));
+		long elapsedTime = System.nanoTime() - startTime;
+
+		runner.shutdown();
+
+		try (PrintWriter pw = new PrintWriter(new FileWriter(resultsFilePath))) {
+			writeResults(results, pw);
+		}
+		writeResults(results, new PrintWriter(System.out));
+
+		System.out.println("\n" + results.size() + " arenas, " + threads
+				+ " threads, " + (elapsedTime / 1000000) + "ms");
+		System.out.println("Results saved to " + resultsFilePath);
+	}
+}
@@ -0,0 +1,278 @@
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import map.GridStore;
+import map.RealMap;
+import robot.Robot;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import robot.SensorNoise;
+import robot.RobotMap;
+
+/**
+ * Runs the simulated exploration & shortest path without a display
+ * <p>
+ * The robot's RobotScheduler runs in virtual time, so instead of waiting
+ * for each step's time to come, the next step is run straight away in a
+ * tight loop, and the virtual clock advances by one step interval per step.
+ * The robot's time limit is therefore checked against simulated time.
+ */
+public class HeadlessSimulator {
+
+	// Upper bound on the number of steps for a single run
+	public static final int DEFAULT_MAX_STEPS = 100000;
+
+	private final Robot _robot;
+	private final RealMap _realMap;
+	private final RobotMap _robotMap;
+
+	private int _maxSteps = DEFAULT_MAX_STEPS;
+
+	// Steps it took the last run to explore as much as it did
+	private int _exploredSteps = 0;
+
+	// Steps of the last run with the robot on top of a real obstacle,
+	// which only happens if the robot's map is wrong, e.g. with sensor noise
+	private int _collisionSteps = 0;
+
+	/**
+	 * Creates a headless simulation for the given robot and map
+	 *
+	 * @param robot
+	 *            The robot, including its sensors and exploration settings
+	 * @param realMap
+	 *            The real map with the obstacles
+	 */
+	public HeadlessSimulator(Robot robot, RealMap realMap) {
+		_robot = robot;
+		_realMap = realMap;
+		_robotMap = new RobotMap(realMap);
+
+		_robot.setHeadless(true);
+	}
+
+	/**
+	 * Sets the maximum number of steps for a single run<br>
+	 * Guards against runs in which the robot never completes
+	 *
+	 * @param maxSteps
+	 *            The maximum number of steps
+	 */
+	public void setMaxSteps(int maxSteps) {
+		_maxSteps = maxSteps;
+	}
+
+	public Robot getRobot() {
+		return _robot;
+	}
+
+	public RobotMap getRobotMap() {
+		return _robotMap;
+	}
+
+	/**
+	 * Runs a full exploration, including the legs for exploring unexplored
+	 * areas and returning to the start zone
+	 *
+	 * @return The result of the exploration
+	 */
+	public SimulationResult runExploration(int startRow, int startCol,
+			DIRECTION startDir) {
+
+		// Set up the robot, same as the 'Explore' button of the simulator
+		_robot.resetRobotState(startRow, startCol, startDir);
+		_robotMap.resetRobotMap();
+		_robot.setRobotMap(_robotMap);
+		_robot.markStartAsExplored();
+		_robot.setRealMap(_realMap);
+
+		_robot.startExploration();
+
+		return runUntilIdle();
+	}
+
+	/**
+	 * Runs the shortest path from the starting position to the goal,<br>
+	 * using the robot map from the previous exploration
+	 *
+	 * @return The result of the shortest path run
+	 */
+	public SimulationResult runShortestPath(int startRow, int startCol,
+			DIRECTION startDir) {
+
+		// Set up the robot, same as the 'Shortest Path' button of the simulator
+		_robotMap.setRenderingShortestPath(true);
+		_robot.resetRobotState(startRow, startCol, startDir);
+
+		_robot.startShortestPath();
+
+		return runUntilIdle();
+	}
+
+	/**
+	 * Steps the robot until none of its legs are active
+	 */
+	private SimulationResult runUntilIdle() {
+
+		int steps = 0;
+		long simulatedTime = 0;
+
+		GridStore store = _robotMap.getGridStore();
+		int noOfExplored = store.getNoOfExploredInteriorGrids();
+		_exploredSteps = 0;
+		_collisionSteps = 0;
+
+		boolean bCompleted = false;
+		while (steps < _maxSteps) {
+			if (!_robot.simulateNextStep()) {
+				bCompleted = true;
+				break;
+			}
+
+			steps++;
+			simulatedTime += _robot.getTimerIntervals();
+
+			if (isColliding())
+				_collisionSteps++;
+
+			if (store.getNoOfExploredInteriorGrids() != noOfExplored) {
+				noOfExplored = store.getNoOfExploredInteriorGrids();
+				_exploredSteps = steps;
+			}
+		}
+
+		return new SimulationResult(getCoverage(), steps,
+				_robot.getMoveCount(), _robot.getTurnCount(), simulatedTime,
+				_robot.getPlanningTime(), bCompleted);
+	}
+
+	/**
+	 * Gets the number of steps it took the last run to explore as much as it
+	 * did, i.e. not including the robot's way back to the start zone
+	 */
+	public int getExploredSteps() {
+		return _exploredSteps;
+	}
+
+	/**
+	 * Gets the number of steps of the last run which ended with the robot on
+	 * top of an obstacle in the real map
+	 */
+	public int getCollisionSteps() {
+		return _collisionSteps;
+	}
+
+	/**
+	 * Checks if any grid under the robot is an obstacle in the real map
+	 */
+	private boolean isColliding() {
+
+		GridStore realStore = _realMap.getGridStore();
+		int row = _robot.getRobotMapPosRow();
+		int col = _robot.getRobotMapPosCol();
+		for (int mapRow = row; mapRow < row + RobotConstants.ROBOT_SIZE; mapRow++) {
+			for (int mapCol = col; mapCol < col + RobotConstants.ROBOT_SIZE; mapCol++) {
+				if (realStore.isObstacle(realStore.indexOf(mapRow, mapCol)))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the current coverage of the robot map
+	 *
+	 * @return Percentage of the arena that has been explored, [0, 100]
+	 */
+	public double getCoverage() {
+
+		GridStore store = _robotMap.getGridStore();
+		return (100.0 * store.getNoOfExploredInteriorGrids())
+				/ store.getNoOfInteriorGrids();
+	}
+
+	/**
+	 * Loads a robot from a robot file, as saved by the simulator
+	 *
+	 * @param robotFilePath
+	 *            Path to the robot file
+	 * @return The loaded robot
+	 */
+	public static Robot loadRobot(String robotFilePath) throws IOException,
+			ClassNotFoundException {
+
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(
+				robotFilePath))) {
+			return (Robot) in.readObject();
+		}
+	}
+
+	/**
+	 * Loads a real map from a map descriptor file
+	 *
+	 * @param mapFilePath
+	 *            Path to the map descriptor file
+	 * @return The loaded map
+	 */
+	public static RealMap loadRealMap(String mapFilePath) throws IOException {
+
+		RealMap realMap = new RealMap();
+
+		try (BufferedReader br = new BufferedReader(new FileReader(mapFilePath))) {
+			realMap.loadFromMapString(br.readLine());
+		}
+
+		return realMap;
+	}
+
+	/**
+	 * Usage: HeadlessSimulator &lt;map file&gt; [robot file] [noise seed]
+	 * <p>
+	 * With a noise seed, the sensors are noisy as in a run of the
+	 * MonteCarloEvaluator with that seed.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: HeadlessSimulator <map file> [robot file] [noise seed]");
+			return;
+		}
+
+		String robotFilePath = (args.length > 1) ? args[1] : "robot.dat";
+
+		Robot robot = loadRobot(robotFilePath);
+		if (args.length > 2)
+			robot.setSensorNoise(MonteCarloEvaluator.createSensorNoise(Long
+					.parseLong(args[2])));
+
+		HeadlessSimulator sim = new HeadlessSimulator(robot, loadRealMap(args[0]));
+
+		// Start from the saved starting position and direction
+		int startRow = robot.getRobotMapPosRow();
+		int startCol = robot.getRobotMapPosCol();
+		DIRECTION startDir = robot.getRobotDir();
+
+		long startTime = System.nanoTime();
+		SimulationResult exploration = sim.runExploration(startRow, startCol,
+				startDir);
+		SimulationResult shortestPath = sim.runShortestPath(startRow, startCol,
+				startDir);
+		long elapsedTime = System.nanoTime() - startTime;
+
+		System.out.println("\nExploration   -> " + exploration);
+		System.out.println("Shortest Path -> " + shortestPath);
+		if (robot.getSensorNoise() != null)
+			System.out.println("Map accuracy: "
+					+ String.format("%.2f%%", MonteCarloEvaluator.getAccuracy(
+							sim.getRobotMap(), sim._realMap))
+					+ ", Collision steps: " + sim.getCollisionSteps());
+		System.out.println("Wall-clock time: " + (elapsedTime / 1000000) + "ms");
+	}
+}
@@ -0,0 +1,362 @@
+package simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import map.GridStore;
+import map.Map;
+import map.RealMap;
+import robot.Robot;
+import robot.RobotConstants.DIRECTION;
+import robot.SensorNoise;
+
+/**
+ * Explores every arena many times over with noisy sensors, in parallel on
+ * all available cores, to see how well the robot's map holds up
+ * <p>
+ * For each arena, reported are the robot's coverage, the accuracy of its map
+ * against the real map, i.e. the percentage of explored grids which are
+ * right, how often the robot ended up on top of an obstacle it got wrong,
+ * and the distribution of the exploration time. Runs which failed, e.g. on
+ * an exception, are counted apart from the rest.
+ * <p>
+ * Each run's noise is seeded from the seed given, the arena's name and the
+ * run's number, so the results do not depend on the number of threads. The
+ * seed of the least accurate run is reported, for replaying that run with
+ * the HeadlessSimulator.
+ * <p>
+ * The noise can be changed with the noise.rangeError, noise.dropoutRate &
+ * noise.offByOneRate system properties, see {@link SensorNoise}.
+ * <p>
+ * Usage: MonteCarloEvaluator &lt;arena file or directory&gt; [runs per arena]
+ * [seed] [threads] [robot file]
+ */
+public class MonteCarloEvaluator {
+
+	// Noisy runs may never complete, so they are cut off much earlier than
+	// the HeadlessSimulator's default
+	private static final int MAX_STEPS = 10000;
+
+	// Runs per task, so that short runs are not swamped by the task overhead
+	private static final int RUNS_PER_TASK = 16;
+
+	private static final String HEADER = String.format(
+			"%-32s %6s %6s %9s %9s %9s %7s %9s %8s %8s %8s %8s %8s %6s %20s",
+			"Arena", "Runs", "Failed", "Coverage", "Accuracy", "Min Acc", "Wrong",
+			"Collided", "Mean (s)", "p50 (s)", "p90 (s)", "p99 (s)",
+			"Max (s)", "Limit", "Least accurate seed");
+
+	private final RunnerPool _runnerPool;
+
+	/**
+	 * Creates a Monte Carlo evaluator
+	 *
+	 * @param robotFilePath
+	 *            Path to the robot file, as saved by the simulator
+	 * @param parallelism
+	 *            Number of runs to do at the same time
+	 */
+	public MonteCarloEvaluator(String robotFilePath, int parallelism)
+			throws IOException {
+
+		_runnerPool = new RunnerPool(robotFilePath, parallelism);
+	}
+
+	/**
+	 * Explores a single arena a number of times with noisy sensors
+	 *
+	 * @return The results, one per run, in order of the run's number,
+	 *         without the runs which failed
+	 */
+	public List<RunResult> runArena(final String arenaName,
+			final String mapString, final long seed, int noOfRuns) {
+
+		List<Callable<List<RunResult>>> tasks = new ArrayList<Callable<List<RunResult>>>();
+		for (int firstRun = 0; firstRun < noOfRuns; firstRun += RUNS_PER_TASK) {
+			final int from = firstRun;
+			final int to = Math.min(noOfRuns, firstRun + RUNS_PER_TASK);
+
+			tasks.add(new Callable<List<RunResult>>() {
+				@Override
+				public List<RunResult> call() throws Exception {
+					List<RunResult> results = new ArrayList<RunResult>();
+					for (int run = from; run < to; run++)
+						results.add(runOnce(mapString,
+								getRunSeed(seed, arenaName, run)));
+					return results;
+				}
+			});
+		}
+
+		List<RunResult> results = new ArrayList<RunResult>();
+		for (List<RunResult> taskResults : _runnerPool.invokeAll(tasks))
+			results.addAll(taskResults);
+
+		return results;
+	}
+
+	/**
+	 * Explores an arena once, with the noise seeded by the given seed
+	 */
+	public RunResult runOnce(String mapString, long runSeed)
+			throws IOException, ClassNotFoundException {
+
+		RealMap realMap = new RealMap();
+		realMap.loadFromMapString(mapString);
+
+		Robot robot = _runnerPool.copyRobot();
+		robot.setSensorNoise(createSensorNoise(runSeed));
+
+		HeadlessSimulator sim = new HeadlessSimulator(robot, realMap);
+		sim.setMaxSteps(MAX_STEPS);
+		SimulationResult exploration = sim.runExploration(
+				robot.getRobotMapPosRow(), robot.getRobotMapPosCol(),
+				robot.getRobotDir());
+
+		return new RunResult(runSeed, exploration, getAccuracy(
+				sim.getRobotMap(), realMap), getNoOfWrongGrids(
+				sim.getRobotMap(), realMap), sim.getCollisionSteps());
+	}
+
+	public void shutdown() {
+		_runnerPool.shutdown();
+	}
+
+	/**
+	 * Creates the noise model for a run, using the noise.* system properties
+	 * if set
+	 */
+	public static SensorNoise createSensorNoise(long runSeed) {
+		return new SensorNoise(runSeed, Double.parseDouble(System.getProperty(
+				"noise.rangeError",
+				String.valueOf(SensorNoise.DEFAULT_RANGE_ERROR))),
+				Double.parseDouble(System.getProperty("noise.dropoutRate",
+						String.valueOf(SensorNoise.DEFAULT_DROPOUT_RATE))),
+				Double.parseDouble(System.getProperty("noise.offByOneRate",
+						String.valueOf(SensorNoise.DEFAULT_OFF_BY_ONE_RATE))));
+	}
+
+	/**
+	 * Gets the seed of a single run, mixed so that nearby seeds & runs do not
+	 * give similar noise
+	 */
+	public static long getRunSeed(long seed, String arenaName, int run) {
+
+		long z = seed + (arenaName.hashCode() * 0x9E3779B97F4A7C15L)
+				+ ((run + 1) * 0xBF58476D1CE4E5B9L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Gets the accuracy of a robot map against the real map
+	 *
+	 * @return Percentage of the explored grids within the border walls which
+	 *         are the same as in the real map, [0, 100]
+	 */
+	public static double getAccuracy(Map robotMap, RealMap realMap) {
+
+		int noOfExplored = robotMap.getGridStore()
+				.getNoOfExploredInteriorGrids();
+		if (noOfExplored == 0)
+			return 100.0;
+
+		return (100.0 * (noOfExplored - getNoOfWrongGrids(robotMap, realMap)))
+				/ noOfExplored;
+	}
+
+	/**
+	 * Gets the number of explored grids within the border walls which are
+	 * obstacles in the robot map but not in the real map, or the other way
+	 * around
+	 */
+	public static int getNoOfWrongGrids(Map robotMap, RealMap realMap) {
+
+		GridStore robotStore = robotMap.getGridStore();
+		GridStore realStore = realMap.getGridStore();
+
+		int noOfWrong = 0;
+		for (int row = 1; row < robotStore.getRows() - 1; row++) {
+			int index = robotStore.indexOf(row, 1);
+			for (int col = 1; col < robotStore.getCols() - 1; col++, index++) {
+				if (robotStore.isExplored(index)
+						&& robotStore.isObstacle(index) != realStore
+								.isObstacle(index))
+					noOfWrong++;
+			}
+		}
+		return noOfWrong;
+	}
+
+	/**
+	 * Result of a single noisy exploration
+	 */
+	public static class RunResult {
+
+		private final long _seed;
+		private final SimulationResult _exploration;
+		private final double _accuracy;
+		private final int _noOfWrongGrids;
+		private final int _collisionSteps;
+
+		public RunResult(long seed, SimulationResult exploration,
+				double accuracy, int noOfWrongGrids, int collisionSteps) {
+			_seed = seed;
+			_exploration = exploration;
+			_accuracy = accuracy;
+			_noOfWrongGrids = noOfWrongGrids;
+			_collisionSteps = collisionSteps;
+		}
+
+		public long getSeed() {
+			return _seed;
+		}
+
+		public SimulationResult getExploration() {
+			return _exploration;
+		}
+
+		public double getAccuracy() {
+			return _accuracy;
+		}
+
+		public int getNoOfWrongGrids() {
+			return _noOfWrongGrids;
+		}
+
+		public int getCollisionSteps() {
+			return _collisionSteps;
+		}
+	}
+
+	/**
+	 * Summarises the runs of a single arena as a row of the results table
+	 *
+	 * @param noOfRunsStarted
+	 *            Number of runs asked for, the ones without a result having
+	 *            failed
+	 */
+	public static String summarise(String arenaName, List<RunResult> results,
+			int noOfRunsStarted) {
+
+		int noOfRuns = results.size();
+		int noOfFailed = noOfRunsStarted - noOfRuns;
+		if (noOfRuns == 0)
+			return String.format("%-32s %6d %6d", arenaName, 0, noOfFailed);
+
+		double coverage = 0;
+		double accuracy = 0;
+		double wrongGrids = 0;
+		int noOfCollided = 0;
+		int noOfLimited = 0;
+		RunResult leastAccurate = null;
+		long[] times = new long[noOfRuns];
+		long totalTime = 0;
+
+		for (int i = 0; i < noOfRuns; i++) {
+			RunResult result = results.get(i);
+			SimulationResult exploration = result.getExploration();
+
+			coverage += exploration.getCoverage();
+			accuracy += result.getAccuracy();
+			wrongGrids += result.getNoOfWrongGrids();
+			if (result.getCollisionSteps() > 0)
+				noOfCollided++;
+			if (!exploration.isCompleted())
+				noOfLimited++;
+			if (leastAccurate == null
+					|| result.getAccuracy() < leastAccurate.getAccuracy())
+				leastAccurate = result;
+
+			times[i] = exploration.getSimulatedTime();
+			totalTime += times[i];
+		}
+		Arrays.sort(times);
+
+		return String.format(
+				"%-32s %6d %6d %8.2f%% %8.2f%% %8.2f%% %7.2f %8.1f%% %8.1f %8.1f %8.1f %8.1f %8.1f %6d %20d",
+				arenaName, noOfRuns, noOfFailed, coverage / noOfRuns, accuracy / noOfRuns,
+				leastAccurate.getAccuracy(), wrongGrids / noOfRuns,
+				(100.0 * noOfCollided) / noOfRuns,
+				totalTime / 1000.0 / noOfRuns,
+				getPercentile(times, 50) / 1000.0,
+				getPercentile(times, 90) / 1000.0,
+				getPercentile(times, 99) / 1000.0,
+				times[noOfRuns - 1] / 1000.0, noOfLimited,
+				leastAccurate.getSeed());
+	}
+
+	/**
+	 * Gets a percentile of sorted values, by the nearest rank
+	 */
+	private static long getPercentile(long[] sortedValues, int percentile) {
+		int rank = (int) Math.ceil((percentile / 100.0) * sortedValues.length);
+		return sortedValues[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Usage: MonteCarloEvaluator &lt;arena file or directory&gt; [runs per
+	 * arena] [seed] [threads] [robot file]
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: MonteCarloEvaluator <arena file or directory>"
+					+ " [runs per arena] [seed] [threads] [robot file]");
+			return;
+		}
+
+		int noOfRuns = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		String robotFilePath = (args.length > 4) ? args[4] : "robot.dat";
+
+		File arenaPath = new File(args[0]);
+		File[] files = arenaPath.isDirectory() ? arenaPath.listFiles()
+				: new File[] { arenaPath };
+		if (files == null)
+			throw new IOException("Unable to list " + arenaPath);
+		Arrays.sort(files);
+
+		SensorNoise noise = createSensorNoise(seed);
+		System.out.println(String.format(
+				"Sensor noise -> Range error: %.3f/grid, Dropout: %.3f, Off by one: %.3f",
+				noise.getRangeError(), noise.getDropoutRate(),
+				noise.getOffByOneRate()));
+
+		MonteCarloEvaluator evaluator = new MonteCarloEvaluator(
+				robotFilePath, threads);
+
+		long startTime = System.nanoTime();
+		int noOfArenas = 0;
+
+		System.out.println(HEADER);
+		for (File file : files) {
+			String mapString = BatchRunner.readMapString(file);
+
+			// Skip anything that is not a map descriptor file
+			if (mapString == null)
+				continue;
+
+			List<RunResult> results = evaluator.runArena(file.getName(),
+					mapString, seed, noOfRuns);
+			System.out.println(summarise(file.getName(), results, noOfRuns));
+			noOfArenas++;
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		evaluator.shutdown();
+
+		System.out.println("\n" + noOfArenas + " arenas, " + noOfRuns
+				+ " runs each, " + threads + " threads, "
+				+ (elapsedTime / 1000000) + "ms");
+	}
+}
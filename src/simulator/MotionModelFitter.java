@@ -0,0 +1,90 @@
+package simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import leaderboard.CommMgr;
+import leaderboard.RunRecorder;
+import robot.MotionModel;
+
+/**
+ * Fits a motion model to recorded physical runs, and saves it for the
+ * simulator to plan the fastest paths with
+ * <p>
+ * The model in the output file, if there is one, is used as the starting
+ * point, so durations the runs say little about are kept. The error of the
+ * predicted message times is printed before & after the fit.
+ * <p>
+ * Usage: MotionModelFitter &lt;model file&gt; &lt;run log&gt;...
+ */
+public class MotionModelFitter {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.out.println("Usage: MotionModelFitter <model file>"
+					+ " <run log>...");
+			return;
+		}
+
+		String modelFilePath = args[0];
+		MotionModel prior = new File(modelFilePath).exists() ? MotionModel
+				.load(modelFilePath) : new MotionModel();
+
+		List<RunRecorder.Entry> entries = new ArrayList<RunRecorder.Entry>();
+		for (int i = 1; i < args.length; i++)
+			entries.addAll(RunRecorder.readEntries(args[i]));
+
+		MotionModel model = MotionModel.fit(entries, prior);
+
+		System.out.println("Messages: " + model.getNoOfSamples());
+		System.out.println(String.format("Before: %s%n  RMS error %.3fs",
+				prior, getRmsError(prior, entries)));
+		System.out.println(String.format("After:  %s%n  RMS error %.3fs",
+				model, getRmsError(model, entries)));
+
+		if (model.getNoOfSamples() == 0) {
+			System.out.println("No answered messages, " + modelFilePath
+					+ " not saved");
+			return;
+		}
+
+		model.save(modelFilePath);
+		System.out.println("Saved to " + modelFilePath);
+	}
+
+	/**
+	 * Gets the root mean square error of the predicted times of the answered
+	 * Arduino messages, paired up the same way as {@link MotionModel#fit}
+	 */
+	private static double getRmsError(MotionModel model,
+			List<RunRecorder.Entry> entries) {
+
+		double sumOfSquares = 0;
+		int noOfSamples = 0;
+
+		RunRecorder.Entry sentEntry = null;
+		for (RunRecorder.Entry entry : entries) {
+
+			if (!entry.msg.startsWith(CommMgr.MSG_TYPE_ARDUINO))
+				continue;
+
+			if (entry.isSent()) {
+				sentEntry = entry;
+				continue;
+			}
+
+			if (sentEntry != null && entry.time >= sentEntry.time) {
+				double error = model.getProgramTime(sentEntry.msg)
+						- ((entry.time - sentEntry.time) / 1e9);
+				sumOfSquares += error * error;
+				noOfSamples++;
+			}
+			sentEntry = null;
+		}
+
+		return (noOfSamples == 0) ? 0 : Math.sqrt(sumOfSquares / noOfSamples);
+	}
+}
@@ -0,0 +1,337 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import map.GridStore;
+import map.RealMap;
+import map.SharedGridStore;
+import robot.FrontierCoordinator;
+import robot.Robot;
+import robot.RobotConstants.DIRECTION;
+import robot.RobotMap;
+
+/**
+ * Runs several robots exploring the same arena at once, without a display
+ * <p>
+ * Each robot explores on its own robot map, which is merged with the others'
+ * through a {@link SharedGridStore}, and a {@link FrontierCoordinator} hands
+ * out the unexplored grids, see {@link Robot#joinTeam}.
+ * <p>
+ * The robots are stepped in rounds, one step per robot per round, by a number
+ * of worker threads which each step their share of the robots, and wait for
+ * each other at the end of every round. The virtual clock advances by one
+ * timer interval per round, so the simulated exploration time does not depend
+ * on the number of threads, though the wall-clock time does.
+ * <p>
+ * NOTE: With more than one thread, the order in which the robots see each
+ * other's readings within a round may differ between runs
+ * <p>
+ * NOTE: Collisions between robots are not modelled. Every robot starts on
+ * the same pose in the start zone, and the robots' moves & paths ignore
+ * each other, so they overlap & drive through each other. The team
+ * speed-ups reported assume this, and are better than a real team of
+ * robots could manage.
+ */
+public class MultiRobotSimulator {
+
+	private final List<Robot> _robots;
+	private final RealMap _realMap;
+	private final List<RobotMap> _robotMaps = new ArrayList<RobotMap>();
+
+	private SharedGridStore _sharedStore = null;
+
+	private int _maxSteps = HeadlessSimulator.DEFAULT_MAX_STEPS;
+
+	// Progress of the current run, only updated at the end of each round
+	private int _rounds = 0;
+	private boolean _bDone = false;
+	private boolean[] _bFinished = null;
+
+	// Explored grids after the last round, and the round they were reached
+	private int _noOfExplored = 0;
+	private int _exploredRounds = 0;
+
+	/**
+	 * Creates a headless simulation for the given robots and map
+	 *
+	 * @param robots
+	 *            The robots, including their sensors and exploration settings
+	 * @param realMap
+	 *            The real map with the obstacles
+	 */
+	public MultiRobotSimulator(List<Robot> robots, RealMap realMap) {
+		_robots = robots;
+		_realMap = realMap;
+
+		for (Robot robot : robots) {
+			robot.setHeadless(true);
+			_robotMaps.add(new RobotMap(realMap));
+		}
+	}
+
+	/**
+	 * Sets the maximum number of rounds for a single run<br>
+	 * Guards against runs in which the robots never complete
+	 *
+	 * @param maxSteps
+	 *            The maximum number of rounds
+	 */
+	public void setMaxSteps(int maxSteps) {
+		_maxSteps = maxSteps;
+	}
+
+	public List<Robot> getRobots() {
+		return _robots;
+	}
+
+	/**
+	 * Runs a full exploration with every robot, starting from the same
+	 * position, until all of them are back in the start zone
+	 *
+	 * @param noOfThreads
+	 *            Number of threads to step the robots with
+	 * @return The result of the exploration, with the moves, turns and
+	 *         planning time of all the robots added up
+	 */
+	public SimulationResult runExploration(int startRow, int startCol,
+			DIRECTION startDir, int noOfThreads) throws InterruptedException {
+
+		int noOfRobots = _robots.size();
+
+		_sharedStore = new SharedGridStore(_realMap.getRows(),
+				_realMap.getCols(), noOfRobots);
+		FrontierCoordinator frontierCoordinator = new FrontierCoordinator(
+				noOfRobots, FrontierCoordinator.DEFAULT_CLAIM_RADIUS);
+
+		// Set up the robots, same as HeadlessSimulator.runExploration
+		for (int robotId = 0; robotId < noOfRobots; robotId++) {
+
+			Robot robot = _robots.get(robotId);
+			RobotMap robotMap = _robotMaps.get(robotId);
+
+			robot.resetRobotState(startRow, startCol, startDir);
+			robotMap.resetRobotMap();
+			robot.setRobotMap(robotMap);
+			robot.joinTeam(robotId, _sharedStore, frontierCoordinator);
+			robot.markStartAsExplored();
+			robot.setRealMap(_realMap);
+
+			robot.startExploration();
+		}
+
+		_rounds = 0;
+		_bDone = false;
+		_bFinished = new boolean[noOfRobots];
+		_noOfExplored = _sharedStore.getNoOfExploredInteriorGrids();
+		_exploredRounds = 0;
+
+		noOfThreads = Math.max(1, Math.min(noOfThreads, noOfRobots));
+		final CyclicBarrier barrier = new CyclicBarrier(noOfThreads,
+				new Runnable() {
+					@Override
+					public void run() {
+						endRound();
+					}
+				});
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int threadId = 0; threadId < noOfThreads; threadId++) {
+			final int firstRobotId = threadId;
+			final int robotIdStep = noOfThreads;
+
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					stepRobots(firstRobotId, robotIdStep, barrier);
+				}
+			}, "Robot " + threadId);
+			workers.add(worker);
+			worker.start();
+		}
+
+		for (Thread worker : workers)
+			worker.join();
+
+		int moves = 0;
+		int turns = 0;
+		long planningTime = 0;
+		for (Robot robot : _robots) {
+			robot.leaveTeam();
+			moves += robot.getMoveCount();
+			turns += robot.getTurnCount();
+			planningTime += robot.getPlanningTime();
+		}
+
+		boolean bCompleted = true;
+		for (boolean bFinished : _bFinished)
+			bCompleted &= bFinished;
+
+		return new SimulationResult(getCoverage(), _rounds, moves, turns,
+				(long) _rounds * _robots.get(0).getTimerIntervals(),
+				planningTime, bCompleted);
+	}
+
+	/**
+	 * Steps every robot of a worker thread once per round, until every robot
+	 * is done or the step limit has been hit
+	 */
+	private void stepRobots(int firstRobotId, int robotIdStep,
+			CyclicBarrier barrier) {
+
+		try {
+			while (!_bDone) {
+				for (int robotId = firstRobotId; robotId < _robots.size(); robotId += robotIdStep) {
+					if (!_bFinished[robotId])
+						_bFinished[robotId] = !_robots.get(robotId)
+								.simulateNextStep();
+				}
+
+				barrier.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (BrokenBarrierException e) {
+			System.out.println("MultiRobotSimulator -> " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Called by the last worker thread to finish a round
+	 */
+	private void endRound() {
+
+		boolean bAllFinished = true;
+		for (boolean bFinished : _bFinished)
+			bAllFinished &= bFinished;
+
+		if (!bAllFinished)
+			_rounds++;
+
+		int noOfExplored = _sharedStore.getNoOfExploredInteriorGrids();
+		if (noOfExplored != _noOfExplored) {
+			_noOfExplored = noOfExplored;
+			_exploredRounds = _rounds;
+		}
+
+		_bDone = bAllFinished || (_rounds >= _maxSteps);
+	}
+
+	/**
+	 * Gets the number of rounds it took the last run to explore as much as
+	 * it did, i.e. not including the robots' way back to the start zone
+	 */
+	public int getExploredSteps() {
+		return _exploredRounds;
+	}
+
+	/**
+	 * Gets the current coverage of the shared map
+	 *
+	 * @return Percentage of the arena that has been explored by any of the
+	 *         robots, [0, 100]
+	 */
+	public double getCoverage() {
+		return (100.0 * _sharedStore.getNoOfExploredInteriorGrids())
+				/ _sharedStore.getNoOfInteriorGrids();
+	}
+
+	/**
+	 * Gets the map explored by all of the robots together
+	 */
+	public GridStore getSharedMap() {
+		GridStore store = new GridStore(_realMap.getRows(), _realMap.getCols());
+		_sharedStore.copyTo(store);
+		return store;
+	}
+
+	/**
+	 * Explores the same arena with 1 to the given number of robots, each
+	 * with 1 thread and one thread per robot, and prints out how the
+	 * exploration time scales
+	 * <p>
+	 * Time is until every robot is back in the start zone, Explored is until
+	 * the last grid was explored, and the speed-up is relative to 1 robot.
+	 * The simulated times only depend on the number of robots, while the
+	 * wall-clock time depends on the number of threads & processors.
+	 * <p>
+	 * The arena is either a map descriptor file, or a size such as 50x50 for
+	 * an arena generated from a fixed seed.
+	 * <p>
+	 * Usage: MultiRobotSimulator &lt;map file | rows x cols&gt; [robot file]
+	 * [max robots]
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: MultiRobotSimulator <map file | rowsxcols>"
+					+ " [robot file] [max robots]");
+			return;
+		}
+
+		String robotFilePath = (args.length > 1) ? args[1] : "robot.dat";
+		int maxRobots = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+
+		RealMap realMap;
+		if (args[0].matches("\\d+x\\d+")) {
+			String[] size = args[0].split("x");
+			realMap = ScalingBenchmark.generateArena(
+					Integer.parseInt(size[0]) + 2,
+					Integer.parseInt(size[1]) + 2, new Random(1));
+		} else {
+			realMap = HeadlessSimulator.loadRealMap(args[0]);
+		}
+
+		System.out.println("Available processors: "
+				+ Runtime.getRuntime().availableProcessors());
+		System.out.println(String.format("%6s %7s %7s %10s %12s %9s %7s %7s %9s %8s",
+				"Robots", "Threads", "Steps", "Time (s)", "Explored (s)",
+				"Coverage", "Moves", "Turns", "Wall (ms)", "Speed-up"));
+
+		double singleRobotTime = 0;
+		for (int noOfRobots = 1; noOfRobots <= maxRobots; noOfRobots++) {
+
+			List<Robot> robots = new ArrayList<Robot>();
+			for (int robotId = 0; robotId < noOfRobots; robotId++)
+				robots.add(HeadlessSimulator.loadRobot(robotFilePath));
+
+			// Start from the saved starting position and direction
+			Robot firstRobot = robots.get(0);
+			int startRow = firstRobot.getRobotMapPosRow();
+			int startCol = firstRobot.getRobotMapPosCol();
+			DIRECTION startDir = firstRobot.getRobotDir();
+
+			MultiRobotSimulator sim = new MultiRobotSimulator(robots, realMap);
+
+			int[] threadCounts = (noOfRobots == 1) ? new int[] { 1 }
+					: new int[] { 1, noOfRobots };
+			for (int noOfThreads : threadCounts) {
+
+				long startTime = System.nanoTime();
+				SimulationResult result = sim.runExploration(startRow,
+						startCol, startDir, noOfThreads);
+				long elapsedTime = System.nanoTime() - startTime;
+
+				double simulatedTime = result.getSimulatedTime() / 1000.0;
+				if (noOfRobots == 1)
+					singleRobotTime = simulatedTime;
+
+				double exploredTime = (sim.getExploredSteps()
+						* firstRobot.getTimerIntervals()) / 1000.0;
+
+				System.out.println(String.format(
+						"%6d %7d %7d %10.2f %12.2f %8.2f%% %7d %7d %9d %7.2fx%s",
+						noOfRobots, noOfThreads, result.getSteps(),
+						simulatedTime, exploredTime, result.getCoverage(),
+						result.getMoves(), result.getTurns(),
+						elapsedTime / 1000000, singleRobotTime / simulatedTime,
+						result.isCompleted() ? "" : " (Step limit)"));
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package simulator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import leaderboard.CommMgr;
+import leaderboard.RunRecorder;
+import map.GridStore;
+import map.RealMap;
+import robot.Robot;
+import robot.RobotMap;
+
+/**
+ * Replays a recorded physical run, without a connection
+ * <p>
+ * The recorded messages from the Raspberry-Pi are handed to the CommMgr one
+ * at a time, and the robot's physical legs are stepped until each message
+ * has been used up, as fast as possible instead of waiting for the timers.
+ * The messages the robot would have sent are compared against the recorded
+ * ones, so a change to the logic shows up as the first message where the
+ * two differ.
+ * <p>
+ * NOTE: The robot's time limit is counted in steps, so runs which hit the
+ * time limit may not replay the same way.
+ */
+public class ReplaySimulator {
+
+	// Steps without any messages being used or sent, after which the
+	// robot is taken to be waiting for a message
+	private static final int MAX_IDLE_STEPS = 1000;
+
+	private final Robot _robot;
+	private final RobotMap _robotMap;
+
+	private final List<String> _replayedMsgs = new ArrayList<String>();
+
+	public ReplaySimulator(Robot robot) {
+		_robot = robot;
+		_robotMap = new RobotMap(new RealMap());
+
+		_robot.setHeadless(true);
+	}
+
+	public RobotMap getRobotMap() {
+		return _robotMap;
+	}
+
+	/**
+	 * Gets the messages the robot sent during the replay, in order
+	 */
+	public List<String> getReplayedMsgs() {
+		return _replayedMsgs;
+	}
+
+	/**
+	 * Replays a run, starting from the robot's current position & direction
+	 *
+	 * @param entries
+	 *            The recorded messages
+	 */
+	public void replay(List<RunRecorder.Entry> entries) {
+
+		CommMgr commMgr = CommMgr.getCommMgr();
+		commMgr.startReplay();
+
+		try {
+			// Set up the robot, same as the 'Leaderboard' exploration
+			_robot.resetRobotState(_robot.getRobotMapPosRow(),
+					_robot.getRobotMapPosCol(), _robot.getRobotDir());
+			_robotMap.resetRobotMap();
+			_robot.setRobotMap(_robotMap);
+			_robot.markStartAsExplored();
+
+			_robot.startPhysicalExploration();
+
+			for (RunRecorder.Entry entry : entries) {
+				if (entry.isReceived()) {
+					commMgr.replayMsg(entry.msg);
+					stepUntilIdle(commMgr);
+				}
+			}
+
+			// Finish off any legs which do not need messages
+			stepUntilIdle(commMgr);
+
+		} finally {
+			commMgr.stopReplay();
+		}
+	}
+
+	/**
+	 * Steps the robot until it is waiting for a message, or all legs are done
+	 */
+	private void stepUntilIdle(CommMgr commMgr) {
+
+		int idleSteps = 0;
+		while (idleSteps < MAX_IDLE_STEPS && _robot.simulateNextPhysicalStep()) {
+
+			boolean bSent = false;
+			String msg;
+			while ((msg = commMgr.pollReplayedMsg()) != null) {
+				_replayedMsgs.add(msg);
+				bSent = true;
+			}
+
+			idleSteps = bSent ? 0 : idleSteps + 1;
+		}
+
+		String msg;
+		while ((msg = commMgr.pollReplayedMsg()) != null)
+			_replayedMsgs.add(msg);
+	}
+
+	/**
+	 * Gets the current coverage of the robot map
+	 *
+	 * @return Percentage of the arena that has been explored, [0, 100]
+	 */
+	public double getCoverage() {
+
+		GridStore store = _robotMap.getGridStore();
+		return (100.0 * store.getNoOfExploredInteriorGrids())
+				/ store.getNoOfInteriorGrids();
+	}
+
+	/**
+	 * Usage: ReplaySimulator &lt;run log&gt; [robot file] [-verbose]
+	 */
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 1) {
+			System.out.println("Usage: ReplaySimulator <run log> [robot file]"
+					+ " [-verbose]");
+			return;
+		}
+
+		String robotFilePath = (args.length > 1) ? args[1] : "robot.dat";
+		boolean bVerbose = (args.length > 2) && args[2].equals("-verbose");
+
+		List<RunRecorder.Entry> entries = RunRecorder.readEntries(args[0]);
+		List<String> recordedMsgs = new ArrayList<String>();
+		int noOfReceived = 0;
+		long recordedTime = 0;
+		for (RunRecorder.Entry entry : entries) {
+			if (entry.isSent())
+				recordedMsgs.add(entry.msg);
+			else
+				noOfReceived++;
+			recordedTime = entry.time;
+		}
+
+		ReplaySimulator sim = new ReplaySimulator(
+				HeadlessSimulator.loadRobot(robotFilePath));
+
+		// The physical legs print a lot, which would slow down the replay
+		PrintStream out = System.out;
+		if (!bVerbose) {
+			System.setOut(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+			}));
+		}
+
+		long startTime = System.nanoTime();
+		try {
+			sim.replay(entries);
+		} finally {
+			System.setOut(out);
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		// Find the first message which differs from the recorded run
+		List<String> replayedMsgs = sim.getReplayedMsgs();
+		int firstDifference = -1;
+		for (int i = 0; i < Math.max(recordedMsgs.size(), replayedMsgs.size()); i++) {
+			if (i >= recordedMsgs.size() || i >= replayedMsgs.size()
+					|| !recordedMsgs.get(i).equals(replayedMsgs.get(i))) {
+				firstDifference = i;
+				break;
+			}
+		}
+
+		System.out.println("Received messages: " + noOfReceived);
+		System.out.println("Sent messages: " + recordedMsgs.size()
+				+ " recorded, " + replayedMsgs.size() + " replayed");
+		if (firstDifference < 0) {
+			System.out.println("Replay matches the recorded run");
+		} else {
+			System.out.println("First difference at sent message "
+					+ firstDifference + ": recorded "
+					+ ((firstDifference < recordedMsgs.size()) ? recordedMsgs
+							.get(firstDifference) : "<none>")
+					+ ", replayed "
+					+ ((firstDifference < replayedMsgs.size()) ? replayedMsgs
+							.get(firstDifference) : "<none>"));
+		}
+		System.out.println(String.format("Coverage: %.2f%%", sim.getCoverage()));
+		System.out.println("Recorded time: " + (recordedTime / 1000000)
+				+ "ms, Replay time: " + (elapsedTime / 1000000) + "ms");
+	}
+}
@@ -0,0 +1,83 @@
+package simulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import robot.Robot;
+
+/**
+ * Runs simulations in parallel on a fork-join pool, each with its own copy
+ * of the robot saved by the simulator
+ * <p>
+ * Shared by the BatchRunner & MonteCarloEvaluator, so runs do not share any
+ * state with each other.
+ */
+public class RunnerPool {
+
+	private final byte[] _robotData;		// Serialized robot, copied per run
+	private final ForkJoinPool _pool;
+
+	/**
+	 * Creates a runner pool
+	 *
+	 * @param robotFilePath
+	 *            Path to the robot file, as saved by the simulator
+	 * @param parallelism
+	 *            Number of tasks to run at the same time
+	 */
+	public RunnerPool(String robotFilePath, int parallelism)
+			throws IOException {
+
+		_robotData = Files.readAllBytes(new File(robotFilePath).toPath());
+		_pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Creates a fresh copy of the robot for a single run
+	 */
+	public Robot copyRobot() throws IOException, ClassNotFoundException {
+
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(_robotData))) {
+			return (Robot) in.readObject();
+		}
+	}
+
+	/**
+	 * Runs tasks in parallel, waiting for all of them to finish
+	 * <p>
+	 * A task which fails is printed, and left out of the results, so the
+	 * caller can tell how many failed from the number of results.
+	 *
+	 * @return The results of the tasks which succeeded, in order of the tasks
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+
+		List<T> results = new ArrayList<T>(tasks.size());
+		for (Future<T> future : _pool.invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				System.out.println("RunnerPool -> Interrupted");
+			} catch (ExecutionException e) {
+				System.out.println("RunnerPool -> Run failed: " + e.getCause());
+			}
+		}
+
+		return results;
+	}
+
+	public void shutdown() {
+		_pool.shutdown();
+	}
+}
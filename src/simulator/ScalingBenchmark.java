@@ -0,0 +1,206 @@
+package simulator;
+
+import java.util.Random;
+
+import map.Grid;
+import map.GridStore;
+import map.RealMap;
+import robot.AStarPlanner;
+import robot.DistanceField;
+import robot.NextBestViewPlanner;
+import robot.Robot;
+import robot.RobotMap;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Times the exploration & shortest path stack on arenas of increasing size
+ * <p>
+ * For each size, an arena is generated from a fixed seed and the robot
+ * explores it for a number of steps. Timed are:<br>
+ * Step: one step of the exploration, i.e. sensing, updating the coverage and
+ * deciding on the next move<br>
+ * Publish: publishing the robot map's snapshot for rendering after a step,
+ * which copies only the grids changed by the step<br>
+ * Frontier: finding the next unexplored grid<br>
+ * NBV: finding the next best view from the robot's pose after exploring<br>
+ * Field: building the distance field to the goal, on a fully explored map<br>
+ * A*: finding the shortest path from the start to the goal, on the same map
+ * <p>
+ * The arenas are generated with ArenaGenerator, so the robot can always get
+ * from the start to the goal.
+ * <p>
+ * The per step times should not grow with the arena, while the frontier and
+ * planning times should grow at most linearly, i.e. the time per grid should
+ * stay about the same. The next best view search stops once nothing further
+ * away could do better, so it should not grow with the arena either.
+ * <p>
+ * Usage: ScalingBenchmark [robot file] [steps] [seed]
+ */
+public class ScalingBenchmark {
+
+	// Arena sizes, not including the border walls
+	private static final int[][] ARENA_SIZES = { { 15, 20 }, { 50, 50 },
+			{ 100, 100 }, { 250, 250 }, { 500, 500 }, { 1000, 1000 } };
+
+	// Chance of each grid outside the start & goal zones being an obstacle
+	private static final double OBSTACLE_DENSITY = 0.05;
+
+	// Number of grids searched or planned over for each timing
+	private static final long GRIDS_PER_TIMING = 20000000L;
+
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		String robotFilePath = (args.length > 0) ? args[0] : "robot.dat";
+		int noOfSteps = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+		System.out.println(String.format("%-11s %9s %6s %10s %10s %12s %12s %12s %10s %12s %10s %12s %10s",
+				"Arena", "Grids", "Steps", "Step (us)", "Max (us)",
+				"Publish (us)", "Frontier (us)", "NBV (ms)", "Candidates",
+				"Field (ms)", "ns/grid",
+				"A* (ms)", "ns/grid"));
+
+		for (int[] arenaSize : ARENA_SIZES) {
+			benchmark(robotFilePath, arenaSize[0] + 2, arenaSize[1] + 2,
+					noOfSteps, new Random(seed));
+		}
+	}
+
+	private static void benchmark(String robotFilePath, int rows, int cols,
+			int noOfSteps, Random random) throws Exception {
+
+		RealMap realMap = generateArena(rows, cols, random);
+
+		Robot robot = HeadlessSimulator.loadRobot(robotFilePath);
+		robot.setHeadless(true);
+		HeadlessSimulator sim = new HeadlessSimulator(robot, realMap);
+		RobotMap robotMap = sim.getRobotMap();
+
+		// Set up the robot, same as HeadlessSimulator.runExploration
+		robot.resetRobotState(robotMap.getStartZoneRow(),
+				robotMap.getStartZoneCol(), DIRECTION.NORTH);
+		robotMap.resetRobotMap();
+		robot.setRobotMap(robotMap);
+		robot.markStartAsExplored();
+		robot.setRealMap(realMap);
+		robot.startExploration();
+
+		// The first snapshot copies the whole map, after that only the
+		// grids changed by each step
+		robotMap.publishSnapshot();
+
+		long stepTime = 0;
+		long maxStepTime = 0;
+		long publishTime = 0;
+		int steps = 0;
+		while (steps < noOfSteps) {
+
+			long startTime = System.nanoTime();
+			if (!robot.simulateNextStep())
+				break;
+			long time = System.nanoTime() - startTime;
+			stepTime += time;
+			maxStepTime = Math.max(maxStepTime, time);
+
+			startTime = System.nanoTime();
+			robotMap.publishSnapshot();
+			publishTime += System.nanoTime() - startTime;
+
+			steps++;
+		}
+		robot.stopExploration();
+
+		int noOfGrids = rows * cols;
+		int iterations = (int) Math.max(3, GRIDS_PER_TIMING / noOfGrids);
+
+		// Frontier, searching from the start of the map every time
+		GridStore store = robotMap.getGridStore();
+		int unexploredIndex = 0;
+		long startTime = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			unexploredIndex += store.nextUnexploredInterior(i & 63);
+		long frontierTime = System.nanoTime() - startTime;
+
+		// Next best view, from wherever the robot got to
+		NextBestViewPlanner viewPlanner = new NextBestViewPlanner(robotMap);
+		int viewIterations = Math.min(iterations, 100);
+		startTime = System.nanoTime();
+		for (int i = 0; i < viewIterations; i++)
+			viewPlanner.findNextBestView(robot.getRobotMapPosRow(),
+					robot.getRobotMapPosCol(), robot.getRobotDir(),
+					robot.getSensors());
+		long viewTime = System.nanoTime() - startTime;
+
+		// Planning, on a fully explored copy of the arena
+		RobotMap exploredMap = new RobotMap(realMap);
+		exploredMap.resetRobotMap();
+		GridStore realStore = realMap.getGridStore();
+		GridStore exploredStore = exploredMap.getGridStore();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				int index = realStore.indexOf(row, col);
+				if (realStore.isObstacle(index))
+					exploredStore.markAsObstacle(index);
+				else
+					exploredStore.markAsFreeGrid(index);
+			}
+		}
+
+		Grid startGrid = exploredMap.getGrid(exploredMap.getStartZoneRow(),
+				exploredMap.getStartZoneCol());
+		Grid goalGrid = exploredMap.getGrid(exploredMap.getGoalZoneRow(),
+				exploredMap.getGoalZoneCol());
+
+		// Force the field to be built again by changing the map back & forth
+		DistanceField goalField = new DistanceField(exploredMap,
+				goalGrid.getRow(), goalGrid.getCol());
+		startTime = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			startGrid.setExplored(false);
+			startGrid.setExplored(true);
+			goalField.update();
+		}
+		long fieldTime = System.nanoTime() - startTime;
+
+		AStarPlanner planner = new AStarPlanner(exploredMap);
+		startTime = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			planner.findShortestPath(startGrid, goalGrid, DIRECTION.NORTH);
+		long aStarTime = System.nanoTime() - startTime;
+
+		System.out.println(String.format("%-11s %9d %6d %10.2f %10.2f %12.2f %12.2f %12.3f %10d %12.3f %10.2f %12.3f %10.2f%s",
+				(rows - 2) + "x" + (cols - 2), noOfGrids, steps,
+				stepTime / 1000.0 / Math.max(steps, 1), maxStepTime / 1000.0,
+				publishTime / 1000.0 / Math.max(steps, 1),
+				frontierTime / 1000.0 / iterations,
+				viewTime / 1000000.0 / viewIterations,
+				viewPlanner.getNoOfCandidates(),
+				fieldTime / 1000000.0 / iterations,
+				(double) fieldTime / iterations / noOfGrids,
+				aStarTime / 1000000.0 / iterations,
+				(double) aStarTime / iterations / noOfGrids,
+				(planner.getLastPathCost() < 0) ? " (No path)"
+						: (unexploredIndex < 0) ? " (Fully explored)" : ""));
+	}
+
+	/**
+	 * Generates an arena with obstacles scattered at random, which the robot
+	 * can get through from the start to the goal
+	 *
+	 * @param rows
+	 *            Number of rows, including the border walls
+	 * @param cols
+	 *            Number of columns, including the border walls
+	 */
+	static RealMap generateArena(int rows, int cols, Random random) {
+
+		ArenaGenerator generator = new ArenaGenerator(rows, cols,
+				OBSTACLE_DENSITY, 0, random.nextLong());
+
+		RealMap realMap = new RealMap(rows, cols);
+		realMap.loadFromMapString(generator.generate(0));
+		return realMap;
+	}
+}
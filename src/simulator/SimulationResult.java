@@ -0,0 +1,98 @@
+package simulator;
+
+/**
+ * Outcome of a single headless simulation run
+ */
+public class SimulationResult {
+
+	private final double _coverage;			// Explored area, in % of the arena
+	private final int _steps;				// Number of steps simulated
+	private final int _moves;				// Number of grids moved
+	private final int _turns;				// Number of 90 degree turns
+	private final long _simulatedTime;		// Simulated elapsed time (in ms)
+	private final long _planningTime;		// Time spent planning paths (in ns)
+	private final boolean _bCompleted;		// False if the step limit was hit
+
+	public SimulationResult(double coverage, int steps, int moves, int turns,
+			long simulatedTime, long planningTime, boolean bCompleted) {
+		_coverage = coverage;
+		_steps = steps;
+		_moves = moves;
+		_turns = turns;
+		_simulatedTime = simulatedTime;
+		_planningTime = planningTime;
+		_bCompleted = bCompleted;
+	}
+
+	/**
+	 * Gets the final coverage of the robot map
+	 *
+	 * @return Percentage of the arena that has been explored, [0, 100]
+	 */
+	public double getCoverage() {
+		return _coverage;
+	}
+
+	/**
+	 * Gets the number of steps that were simulated
+	 *
+	 * @return Number of steps, each lasting one timer interval
+	 */
+	public int getSteps() {
+		return _steps;
+	}
+
+	/**
+	 * Gets the number of grids the robot moved
+	 *
+	 * @return Number of grids moved
+	 */
+	public int getMoves() {
+		return _moves;
+	}
+
+	/**
+	 * Gets the number of turns made by the robot
+	 *
+	 * @return Number of 90 degree turns, a 180 degree turn counts as two
+	 */
+	public int getTurns() {
+		return _turns;
+	}
+
+	/**
+	 * Gets the simulated elapsed time
+	 *
+	 * @return Simulated elapsed time, in milliseconds
+	 */
+	public long getSimulatedTime() {
+		return _simulatedTime;
+	}
+
+	/**
+	 * Gets the (wall-clock) time spent finding shortest paths
+	 *
+	 * @return Planning time, in nanoseconds
+	 */
+	public long getPlanningTime() {
+		return _planningTime;
+	}
+
+	/**
+	 * Indicates whether the run finished on its own
+	 *
+	 * @return True if the run finished before hitting the step limit
+	 */
+	public boolean isCompleted() {
+		return _bCompleted;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Coverage: %6.2f%%, Steps: %5d, Moves: %5d,"
+				+ " Turns: %4d, Simulated Time: %7.1fs, Planning Time: %.3fms%s",
+				_coverage, _steps, _moves, _turns, _simulatedTime / 1000.0,
+				_planningTime / 1000000.0,
+				_bCompleted ? "" : " (Step limit reached)");
+	}
+}
@@ -29,6 +29,7 @@ import javax.swing.JPanel;
 import map.MapConstants;
 import map.RealMap;
 
+import robot.MotionModel;
 import robot.Robot;
 import robot.RobotConstants;
 import robot.RobotEditor;
@@ -94,6 +95,12 @@ public class Simulator {
 	 */
 	private static final String ROBOT_FILE_PATH = "robot.dat";
 	
+	/**
+	 * The file path for the motion model fitted from recorded runs,
+	 * see MotionModelFitter
+	 */
+	private static final String MOTION_MODEL_FILE_PATH = "motion.properties";
+	
 	/**
 	 * The 'Save MDF Strings' JButton
 	 */
@@ -125,6 +132,12 @@ public class Simulator {
 					RobotConstants.DEFAULT_START_COL,
 					RobotConstants.DEFAULT_START_DIR);
 		}
+
+		// Makes the robot's counters available to JMX clients, e.g. JConsole
+		_almightyRobot.getMetrics().register("Simulator");
+
+		// Plans the fastest paths if there is a motion model
+		loadMotionModel();
 		
 		// --------------------------------------------------------------------
 		// Everything below is just for the layout
@@ -705,6 +718,25 @@ public class Simulator {
 		}
 	}
 	
+	/**
+	 * Loads the motion model from the motion model file, if it exists
+	 * <br>Should be called after loading the robot
+	 */
+	private static void loadMotionModel() {
+		
+		if (!new File(MOTION_MODEL_FILE_PATH).exists())
+			return;
+		
+		try {
+			_almightyRobot.setMotionModel(MotionModel
+					.load(MOTION_MODEL_FILE_PATH));
+			System.out.println("'Motion model' loaded successfully!");
+		} catch (Exception ex) {
+			System.out.println("Ex - Unable to load 'Motion model'!");
+			System.out.println(ex.getMessage() + "\n");
+		}
+	}
+	
 	/**
 	 * Saves the robot information to the robot file<br>
 	 * Should be called before exiting the application
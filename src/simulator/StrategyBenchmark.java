@@ -0,0 +1,142 @@
+package simulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import map.RealMap;
+import robot.ExplorationStrategies;
+import robot.ExplorationStrategy;
+import robot.Robot;
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Explores every arena in a directory with each of the exploration
+ * strategies, and ranks the strategies by how quickly they explore the
+ * whole arena
+ * <p>
+ * Strategies are ranked by the number of arenas they explored completely,
+ * then by the mean simulated time it took them to get to 100% coverage on
+ * those arenas. Time is until every grid was explored, while the total time
+ * also includes exploring any grids left over grid by grid, and the way back
+ * to the start zone.
+ * <p>
+ * Usage: StrategyBenchmark [arena directory] [robot file]
+ */
+public class StrategyBenchmark {
+
+	/**
+	 * Results of a single strategy, added up over every arena
+	 */
+	private static class StrategyResult {
+		private final String _name;
+		private int _noOfArenas = 0;
+		private int _noOfFullCoverage = 0;
+		private long _fullCoverageTime = 0;
+		private long _totalTime = 0;
+		private double _coverage = 0;
+		private int _moves = 0;
+		private int _turns = 0;
+		private long _planningTime = 0;
+
+		private StrategyResult(String name) {
+			_name = name;
+		}
+
+		private double getMeanFullCoverageTime() {
+			return (_noOfFullCoverage == 0) ? Double.MAX_VALUE
+					: _fullCoverageTime / (1000.0 * _noOfFullCoverage);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		File arenaDir = new File((args.length > 0) ? args[0] : ".");
+		String robotFilePath = (args.length > 1) ? args[1] : "robot.dat";
+
+		File[] files = arenaDir.listFiles();
+		if (files == null) {
+			System.out.println("Unable to list " + arenaDir);
+			return;
+		}
+		Arrays.sort(files);
+
+		List<String> mapStrings = new ArrayList<String>();
+		for (File file : files) {
+			String mapString = BatchRunner.readMapString(file);
+			if (mapString != null)
+				mapStrings.add(mapString);
+		}
+
+		List<StrategyResult> results = new ArrayList<StrategyResult>();
+		for (ExplorationStrategy strategy : ExplorationStrategies.createAll()) {
+
+			StrategyResult result = new StrategyResult(strategy.getName());
+			for (String mapString : mapStrings) {
+
+				RealMap realMap = new RealMap();
+				realMap.loadFromMapString(mapString);
+
+				Robot robot = HeadlessSimulator.loadRobot(robotFilePath);
+				robot.setExplorationStrategy(strategy);
+				int startRow = robot.getRobotMapPosRow();
+				int startCol = robot.getRobotMapPosCol();
+				DIRECTION startDir = robot.getRobotDir();
+
+				HeadlessSimulator sim = new HeadlessSimulator(robot, realMap);
+				SimulationResult exploration = sim.runExploration(startRow,
+						startCol, startDir);
+
+				result._noOfArenas++;
+				if (exploration.getCoverage() >= 100.0) {
+					result._noOfFullCoverage++;
+					result._fullCoverageTime += (long) sim.getExploredSteps()
+							* robot.getTimerIntervals();
+				}
+				result._totalTime += exploration.getSimulatedTime();
+				result._coverage += exploration.getCoverage();
+				result._moves += exploration.getMoves();
+				result._turns += exploration.getTurns();
+				result._planningTime += exploration.getPlanningTime();
+			}
+			results.add(result);
+		}
+
+		Collections.sort(results, new Comparator<StrategyResult>() {
+			@Override
+			public int compare(StrategyResult a, StrategyResult b) {
+				if (a._noOfFullCoverage != b._noOfFullCoverage)
+					return b._noOfFullCoverage - a._noOfFullCoverage;
+				return Double.compare(a.getMeanFullCoverageTime(),
+						b.getMeanFullCoverageTime());
+			}
+		});
+
+		System.out.println(String.format("%4s %-20s %8s %12s %10s %9s %7s %7s %13s",
+				"Rank", "Strategy", "Full", "To 100% (s)", "Time (s)",
+				"Coverage", "Moves", "Turns", "Planning (ms)"));
+
+		int rank = 1;
+		for (StrategyResult result : results) {
+			int noOfArenas = Math.max(result._noOfArenas, 1);
+			System.out.println(String.format(
+					"%4d %-20s %8s %12s %10.2f %8.2f%% %7.1f %7.1f %13.1f",
+					rank++, result._name, result._noOfFullCoverage + "/"
+							+ result._noOfArenas,
+					(result._noOfFullCoverage == 0) ? "-" : String.format(
+							"%.2f", result.getMeanFullCoverageTime()),
+					result._totalTime / (1000.0 * noOfArenas),
+					result._coverage / noOfArenas,
+					(double) result._moves / noOfArenas,
+					(double) result._turns / noOfArenas,
+					result._planningTime / (1e6 * noOfArenas)));
+		}
+
+		System.out.println("\n" + mapStrings.size() + " arenas, means per arena");
+	}
+}